@@ -1,6 +1,7 @@
 package com.arsansys.RemaPartners.configurations.firebase;
 
 import javax.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import com.google.auth.oauth2.GoogleCredentials;
@@ -9,6 +10,7 @@ import com.google.firebase.FirebaseOptions;
 import java.io.IOException;
 
 @Configuration
+@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "firebase", matchIfMissing = true)
 public class FirebaseConfig {
 
     @PostConstruct
@@ -22,6 +22,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
 import com.arsansys.RemaPartners.models.entities.ProductoVisitaEntity;
 import com.arsansys.RemaPartners.models.entities.UserEntity;
+import com.arsansys.RemaPartners.services.DashboardCacheService;
 import com.arsansys.RemaPartners.services.ProductoService;
 import com.arsansys.RemaPartners.services.ProductoVisitaService;
 import com.arsansys.RemaPartners.services.UserService;
@@ -45,6 +46,9 @@ public class DashboardController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private DashboardCacheService dashboardCacheService;
+
     /**
      * Obtiene las estadísticas generales del dashboard.
      * Solo accesible para roles ADMIN, VENDEDOR y TRABAJADOR.
@@ -69,60 +73,12 @@ public class DashboardController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no encontrado");
             }
 
-            // Obtener estadísticas según el rol
-            Map<String, Object> stats = new HashMap<>();
-
-            // Obtener productos del vendedor o todos los productos si es admin
-            List<ProductoEntity> productos;
-            if (user.getRol().getName().name().equals("ADMIN") || user.getRol().getName().name().equals("TRABAJADOR")) {
-                productos = productoService.getProductos();
-            } else {
-                productos = new ArrayList<>();
-                // Aquí implementar la lógica para obtener solo los productos del vendedor
-                for (ProductoEntity producto : productoService.getProductos()) {
-                    if (producto.getIdUsuario().equals(user.getId())) {
-                        productos.add(producto);
-                    }
-                }
-            }
-
-            // Estadísticas generales
-            stats.put("totalProductos", productos.size());
+            boolean global = user.getRol().getName().name().equals("ADMIN")
+                    || user.getRol().getName().name().equals("TRABAJADOR");
+            int año = year;
 
-            // Total de visitas
-            long totalVisitas = 0;
-            for (ProductoEntity producto : productos) {
-                totalVisitas += producto.getVisitas() != null ? producto.getVisitas() : 0;
-            }
-            stats.put("totalVisitas", totalVisitas);
-
-            // Estadísticas de visitas por mes para el año proporcionado
-            Map<String, Long> visitasPorMes = productoVisitaService.obtenerEstadisticasVisitasPorMes(user.getId(),
-                    year);
-            stats.put("visitasPorMes", visitasPorMes);
-
-            // Productos más visitados (top 5)
-            List<Map<String, Object>> productosTopVisitas = new ArrayList<>();
-            productos.sort((p1, p2) -> {
-                Long v1 = p1.getVisitas() != null ? p1.getVisitas() : 0L;
-                Long v2 = p2.getVisitas() != null ? p2.getVisitas() : 0L;
-                return Long.compare(v2, v1); // Orden descendente
-            });
-
-            int count = 0;
-            for (ProductoEntity producto : productos) {
-                if (count >= 5)
-                    break;
-
-                Map<String, Object> productoInfo = new HashMap<>();
-                productoInfo.put("id", producto.getId());
-                productoInfo.put("titulo", producto.getTitulo());
-                productoInfo.put("visitas", producto.getVisitas() != null ? producto.getVisitas() : 0);
-
-                productosTopVisitas.add(productoInfo);
-                count++;
-            }
-            stats.put("productosTopVisitas", productosTopVisitas);
+            Map<String, Object> stats = dashboardCacheService.obtener("visitas/stats", user.getId(), global,
+                    String.valueOf(año), () -> calcularEstadisticas(user, global, año));
 
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
@@ -217,4 +173,45 @@ public class DashboardController {
                     .body("Error obteniendo estadísticas por mes: " + e.getMessage());
         }
     }
+
+    /**
+     * Calcula las estadísticas generales de visitas de un usuario.
+     *
+     * @param user   Usuario que consulta el dashboard.
+     * @param global true si el usuario ve todos los productos.
+     * @param year   Año de las estadísticas.
+     * @return Estadísticas generales del dashboard.
+     */
+    private Map<String, Object> calcularEstadisticas(UserEntity user, boolean global, int year) {
+        // Obtener estadísticas según el rol
+        Map<String, Object> stats = new HashMap<>();
+
+        // Productos del vendedor o todos los productos si es admin
+        String idVendedor = global ? null : user.getId();
+
+        // Estadísticas generales
+        stats.put("totalProductos", (int) productoService.countProductosByIdUsuario(idVendedor));
+
+        // Total de visitas
+        stats.put("totalVisitas", productoService.sumVisitasByIdUsuario(idVendedor));
+
+        // Estadísticas de visitas por mes para el año proporcionado
+        Map<String, Long> visitasPorMes = productoVisitaService.obtenerEstadisticasVisitasPorMes(user.getId(),
+                year);
+        stats.put("visitasPorMes", visitasPorMes);
+
+        // Productos más visitados (top 5)
+        List<Map<String, Object>> productosTopVisitas = new ArrayList<>();
+        for (ProductoEntity producto : productoService.getProductosTopVisitas(idVendedor, 5)) {
+            Map<String, Object> productoInfo = new HashMap<>();
+            productoInfo.put("id", producto.getId());
+            productoInfo.put("titulo", producto.getTitulo());
+            productoInfo.put("visitas", producto.getVisitas() != null ? producto.getVisitas() : 0);
+
+            productosTopVisitas.add(productoInfo);
+        }
+        stats.put("productosTopVisitas", productosTopVisitas);
+
+        return stats;
+    }
 }
@@ -12,14 +12,19 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
 import com.arsansys.RemaPartners.models.entities.UserEntity;
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.services.DashboardCacheService;
+import com.arsansys.RemaPartners.services.FacturaService;
 import com.arsansys.RemaPartners.services.ProductoService;
 import com.arsansys.RemaPartners.services.UserService;
+import com.arsansys.RemaPartners.services.VentaResumenService;
 import com.arsansys.RemaPartners.services.VentasDashboardService;
 
 /**
@@ -41,6 +46,15 @@ public class VentasDashboardController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private VentaResumenService ventaResumenService;
+
+    @Autowired
+    private FacturaService facturaService;
+
+    @Autowired
+    private DashboardCacheService dashboardCacheService;
+
     /**
      * Obtiene las estadísticas generales del dashboard de ventas.
      * Solo accesible para roles ADMIN, VENDEDOR y TRABAJADOR.
@@ -57,7 +71,9 @@ public class VentasDashboardController {
                 year = LocalDateTime.now().getYear();
             }
 
-            Map<String, Object> stats = ventasDashboardService.getEstadisticasGenerales(year);
+            int año = year;
+            Map<String, Object> stats = dashboardCacheService.obtener("ventas/stats", VentaResumenEntity.ID_GLOBAL,
+                    true, String.valueOf(año), () -> ventasDashboardService.getEstadisticasGenerales(año));
             return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
@@ -97,7 +113,8 @@ public class VentasDashboardController {
                         .body("No tienes permisos para ver estas estadísticas");
             }
 
-            Map<String, Object> stats = ventasDashboardService.getEstadisticasProducto(id);
+            Map<String, Object> stats = dashboardCacheService.obtener("ventas/producto", id, false,
+                    DashboardCacheService.SIN_PERIODO, () -> ventasDashboardService.getEstadisticasProducto(id));
             return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
@@ -124,7 +141,8 @@ public class VentasDashboardController {
                         .body("El mes debe estar entre 1 y 12");
             }
 
-            Map<String, Object> stats = ventasDashboardService.getEstadisticasMes(año, mes);
+            Map<String, Object> stats = dashboardCacheService.obtener("ventas/mes", VentaResumenEntity.ID_GLOBAL,
+                    true, año + "-" + mes, () -> ventasDashboardService.getEstadisticasMes(año, mes));
             return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
@@ -170,7 +188,9 @@ public class VentasDashboardController {
                         .body("No tienes permisos para ver estas estadísticas");
             }
 
-            Map<String, Object> stats = ventasDashboardService.getEstadisticasVentasUsuario(id, year);
+            int año = year;
+            Map<String, Object> stats = dashboardCacheService.obtener("ventas/usuario", id, false,
+                    String.valueOf(año), () -> ventasDashboardService.getEstadisticasVentasUsuario(id, año));
             return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
@@ -216,7 +236,9 @@ public class VentasDashboardController {
                         .body("No tienes permisos para ver estas estadísticas");
             }
 
-            Map<String, Object> stats = ventasDashboardService.getEstadisticasComprasUsuario(id, year);
+            int año = year;
+            Map<String, Object> stats = dashboardCacheService.obtener("ventas/compras", id, false,
+                    String.valueOf(año), () -> ventasDashboardService.getEstadisticasComprasUsuario(id, año));
             return ResponseEntity.ok(stats);
 
         } catch (Exception e) {
@@ -224,4 +246,43 @@ public class VentasDashboardController {
                     .body("Error obteniendo estadísticas de compras del usuario: " + e.getMessage());
         }
     }
+
+    /**
+     * Regenera los resúmenes de ventas a partir de todas las facturas.
+     * Solo accesible para el rol ADMIN.
+     *
+     * @return Número de facturas procesadas y de resúmenes generados.
+     */
+    @PostMapping("/ventas/resumenes/reconstruir")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconstruirResumenes() {
+        try {
+            Map<String, Long> resultado = ventaResumenService.reconstruirResumenes();
+            dashboardCacheService.invalidarTodo();
+            return ResponseEntity.ok(resultado);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error reconstruyendo resúmenes de ventas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Calcula el importe en EUR de las facturas antiguas con la tasa histórica de
+     * su fecha de emisión y regenera los resúmenes de ventas.
+     * Solo accesible para el rol ADMIN.
+     *
+     * @return Número de facturas completadas y de resúmenes generados.
+     */
+    @PostMapping("/ventas/facturas/completar-importes-eur")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> completarImportesEur() {
+        try {
+            Map<String, Long> resultado = facturaService.completarImportesEur();
+            dashboardCacheService.invalidarTodo();
+            return ResponseEntity.ok(resultado);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error completando importes en EUR: " + e.getMessage());
+        }
+    }
 }
@@ -1,26 +1,42 @@
 package com.arsansys.RemaPartners.controllers.api;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.arsansys.RemaPartners.controllers.dto.PaginaDTO;
+import com.arsansys.RemaPartners.controllers.dto.ResultadoBusquedaMensajeDTO;
+import com.arsansys.RemaPartners.controllers.dto.ResumenChatDTO;
 import com.arsansys.RemaPartners.models.entities.ChatEntity;
 import com.arsansys.RemaPartners.models.entities.MensajeEntity;
-import com.arsansys.RemaPartners.models.firebase.Note;
+import com.arsansys.RemaPartners.models.entities.UserEntity;
+import com.arsansys.RemaPartners.services.BusquedaMensajesService;
 import com.arsansys.RemaPartners.services.ChatService;
+import com.arsansys.RemaPartners.services.ProductoService;
+import com.arsansys.RemaPartners.services.TicketStreamChatService;
+import com.arsansys.RemaPartners.services.TiempoRealChatService;
 import com.arsansys.RemaPartners.services.UserService;
-import com.arsansys.RemaPartners.services.firebase.FirebaseMessagingService;
+import com.arsansys.RemaPartners.services.busqueda.CoincidenciaMensaje;
 
 /**
  * Controlador REST para la gestión de chats entre usuarios.
@@ -31,25 +47,46 @@ import com.arsansys.RemaPartners.services.firebase.FirebaseMessagingService;
 @RequestMapping("/api/chat")
 public class ChatController {
 
+    /**
+     * Número máximo de mensajes por página del historial.
+     */
+    private static final int MAX_MENSAJES_PAGINA = 100;
+
+    /**
+     * Número máximo de resultados de una búsqueda de mensajes.
+     */
+    private static final int MAX_RESULTADOS_BUSQUEDA = 50;
+
     @Autowired
     private ChatService chatService;
 
     @Autowired
-    private FirebaseMessagingService firebaseService;
+    private UserService userService;
+
+    @Autowired
+    private ProductoService productoService;
 
     @Autowired
-    private UserService userService;
+    private TiempoRealChatService tiempoRealChatService;
+
+    @Autowired
+    private TicketStreamChatService ticketStreamChatService;
+
+    @Autowired
+    private BusquedaMensajesService busquedaMensajesService;
 
     /**
-     * Crea un nuevo chat.
+     * Crea un nuevo chat, o devuelve el existente si ya hay uno del mismo
+     * producto entre el mismo comprador y vendedor.
      *
      * @param chatEntity Datos del chat a crear.
-     * @return El chat creado o un error si ocurre algún problema.
+     * @return El chat creado o existente, o un error si ocurre algún problema.
      */
     @PostMapping("/create")
     public ResponseEntity<ChatEntity> createChat(@RequestBody ChatEntity chatEntity) {
         try {
-            if (chatEntity.getIdComprador() == chatEntity.getIdVendedor()) {
+            if (chatEntity.getIdComprador() == null
+                    || chatEntity.getIdComprador().equals(chatEntity.getIdVendedor())) {
                 return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
             }
             ChatEntity newChat = chatService.createChat(chatEntity);
@@ -79,6 +116,133 @@ public class ChatController {
         }
     }
 
+    /**
+     * Obtiene una página del historial de mensajes de un chat en orden de
+     * envío. Sin parámetros devuelve los últimos mensajes; con
+     * {@code antesDe} devuelve los anteriores a esa secuencia y con
+     * {@code desde} los posteriores, para que los clientes que consultan
+     * periódicamente solo reciban los mensajes nuevos. Solo pueden leerlo los
+     * participantes del chat.
+     *
+     * @param id      ID del chat.
+     * @param antesDe Secuencia del mensaje más antiguo ya recibido (opcional).
+     * @param desde   Secuencia del último mensaje ya recibido (opcional).
+     * @param limite  Número de mensajes por página (por defecto 50, máximo 100).
+     * @return Página de mensajes y cursor para la siguiente consulta.
+     */
+    @GetMapping("/{id}/mensajes")
+    public ResponseEntity<PaginaDTO<MensajeEntity>> getMensajes(
+            @PathVariable("id") String id,
+            @RequestParam(required = false) Long antesDe,
+            @RequestParam(required = false) Long desde,
+            @RequestParam(defaultValue = "50") int limite) {
+        try {
+            if (limite < 1 || limite > MAX_MENSAJES_PAGINA || (antesDe != null && desde != null)) {
+                return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+            }
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            ChatEntity chat = chatService.getResumenChatById(id);
+            if (!user.getId().equals(chat.getIdComprador()) && !user.getId().equals(chat.getIdVendedor())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+
+            if (desde != null) {
+                Slice<MensajeEntity> mensajes = chatService.getMensajesPosteriores(id, desde, limite);
+                // El último mensaje devuelto es el último consecutivo; sin
+                // mensajes nuevos el cliente sigue consultando desde la misma posición
+                String cursor = mensajes.hasContent()
+                        ? String.valueOf(mensajes.getContent().get(mensajes.getNumberOfElements() - 1).getSecuencia())
+                        : String.valueOf(desde);
+                return new ResponseEntity<>(new PaginaDTO<>(mensajes.getContent(), cursor, mensajes.hasNext()),
+                        HttpStatus.OK);
+            }
+
+            Slice<MensajeEntity> mensajes = chatService.getMensajesAnteriores(id, antesDe, limite);
+            String cursor = mensajes.hasNext() && mensajes.hasContent()
+                    ? String.valueOf(mensajes.getContent().get(0).getSecuencia())
+                    : null;
+            return new ResponseEntity<>(new PaginaDTO<>(mensajes.getContent(), cursor, mensajes.hasNext()),
+                    HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Emite un ticket de un solo uso para abrir la conexión de eventos de un
+     * chat. Solo pueden pedirlo los participantes del chat.
+     *
+     * @param id ID del chat.
+     * @return Ticket para el parámetro {@code ticket} de la conexión.
+     */
+    @PostMapping("/{id}/stream/ticket")
+    public ResponseEntity<Map<String, String>> ticketStream(@PathVariable("id") String id) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            ChatEntity chat = chatService.getResumenChatById(id);
+            if (!user.getId().equals(chat.getIdComprador()) && !user.getId().equals(chat.getIdVendedor())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+
+            String ticket = ticketStreamChatService.emitir(user.getUsername(), id);
+            return new ResponseEntity<>(Map.of("ticket", ticket), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Abre una conexión de Server-Sent Events con un chat por la que llegan los
+     * mensajes nuevos en cuanto se envían. Solo pueden suscribirse los
+     * participantes del chat. Como {@code EventSource} no permite cabeceras,
+     * la conexión se autentica con un ticket de {@code /{id}/stream/ticket}
+     * en el parámetro {@code ticket}.
+     *
+     * @param id             ID del chat.
+     * @param ultimoEventoId Secuencia del último mensaje recibido, que el
+     *                       navegador envía al reconectar.
+     * @param desde          Secuencia del último mensaje que tiene el cliente,
+     *                       si abre una conexión nueva tras perder la anterior.
+     * @return Conexión de eventos o error si el usuario no participa en el chat.
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(
+            @PathVariable("id") String id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @RequestParam(required = false) Long desde) {
+        try {
+            if (ultimoEventoId == null && desde != null) {
+                ultimoEventoId = String.valueOf(desde);
+            }
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            ChatEntity chat = chatService.getResumenChatById(id);
+            if (!user.getId().equals(chat.getIdComprador()) && !user.getId().equals(chat.getIdVendedor())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+
+            return new ResponseEntity<>(tiempoRealChatService.suscribir(id, ultimoEventoId), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Agrega un mensaje a un chat existente.
      *
@@ -89,51 +253,11 @@ public class ChatController {
     @PostMapping("/addMessage/{id}")
     public ResponseEntity<ChatEntity> addMessage(@PathVariable("id") String id, @RequestBody MensajeEntity mensaje) {
         try {
-            ChatEntity chat = chatService.getChatById(id);
+            ChatEntity chat = chatService.getResumenChatById(id);
             if (chat != null) {
+                // La notificación push al destinatario se encola y se envía en segundo plano
                 ChatEntity updatedChat = chatService.addMensaje(chat, mensaje);
-
-                // Return successful response for the message addition first
-                ResponseEntity<ChatEntity> response = new ResponseEntity<>(updatedChat, HttpStatus.OK);
-
-                // Then try to send notification separately
-                try {
-                    // Determinar el ID del usuario destinatario
-                    String idUsuario = chat.getIdVendedor().equals(mensaje.getIdEmisor())
-                            ? chat.getIdComprador()
-                            : chat.getIdVendedor();
-
-                    // Obtener usuario y sus tokens
-                    var recipient = userService.getUserById(idUsuario);
-
-                    if (recipient != null && recipient.getGoogleToken() != null
-                            && !recipient.getGoogleToken().isEmpty() && recipient.getNotificaciones()) {
-                        // Obtener nombre de usuario del emisor
-                        var sender = userService.getUserById(mensaje.getIdEmisor());
-                        String title = "Nuevo mensaje de " +
-                                (sender != null ? sender.getUsername() : "Usuario");
-
-                        // Crear notificación
-                        Note note = new Note();
-                        note.setSubject(title);
-                        note.setContent(mensaje.getMensaje());
-                        Map<String, String> data = new HashMap<>();
-                        data.put("idChat", chat.getId());
-                        data.put("idEmisor", mensaje.getIdEmisor());
-                        note.setData(data);
-
-                        // Usar el token directamente
-                        String token = recipient.getGoogleToken();
-                        note.setToken(token);
-
-                        firebaseService.sendNotification(note, token);
-                    }
-                } catch (Exception e) {
-                    // Registrar error de notificación pero no fallar la respuesta de la API
-                    e.printStackTrace();
-                }
-
-                return response;
+                return new ResponseEntity<>(updatedChat, HttpStatus.OK);
             } else {
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
             }
@@ -143,6 +267,112 @@ public class ChatController {
         }
     }
 
+    /**
+     * Obtiene la bandeja de entrada del usuario autenticado: el resumen de
+     * cada chat en el que participa, con la otra parte, el título del
+     * producto, el último mensaje y el número de mensajes sin leer.
+     *
+     * @return Lista de resúmenes de chat, del más reciente al más antiguo.
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<List<ResumenChatDTO>> getBandejaEntrada() {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            String idUsuario = user.getId();
+            List<ChatEntity> chats = chatService.getBandejaEntrada(idUsuario);
+
+            Set<String> idsProductos = new HashSet<>();
+            Set<String> idsContrapartes = new HashSet<>();
+            for (ChatEntity chat : chats) {
+                idsProductos.add(chat.getIdProducto());
+                idsContrapartes.add(idUsuario.equals(chat.getIdVendedor()) ? chat.getIdComprador()
+                        : chat.getIdVendedor());
+            }
+            Map<String, String> titulos = productoService.getTitulosByIds(idsProductos);
+            Map<String, String> nombres = userService.getUsernamesByIds(idsContrapartes);
+
+            List<ResumenChatDTO> resumenes = new ArrayList<>(chats.size());
+            for (ChatEntity chat : chats) {
+                String idContraparte = idUsuario.equals(chat.getIdVendedor()) ? chat.getIdComprador()
+                        : chat.getIdVendedor();
+                resumenes.add(ResumenChatDTO.from(chat, idUsuario, titulos.get(chat.getIdProducto()),
+                        nombres.get(idContraparte)));
+            }
+            return new ResponseEntity<>(resumenes, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Busca texto en los mensajes de los chats del usuario autenticado.
+     * Devuelve los mensajes que contienen todas las palabras de la consulta,
+     * de más reciente a más antiguo, con el chat y un fragmento del texto.
+     *
+     * @param q      Texto a buscar.
+     * @param limite Número máximo de resultados (por defecto 20, máximo 50).
+     * @return Lista de mensajes encontrados.
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<List<ResultadoBusquedaMensajeDTO>> buscarMensajes(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limite) {
+        try {
+            if (limite < 1 || limite > MAX_RESULTADOS_BUSQUEDA) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            List<CoincidenciaMensaje> coincidencias = busquedaMensajesService.buscar(user.getId(), q, limite);
+            List<ResultadoBusquedaMensajeDTO> resultados = new ArrayList<>(coincidencias.size());
+            for (CoincidenciaMensaje coincidencia : coincidencias) {
+                resultados.add(ResultadoBusquedaMensajeDTO.from(coincidencia));
+            }
+            return new ResponseEntity<>(resultados, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Marca como leídos los mensajes de un chat para el usuario autenticado,
+     * que debe participar en él.
+     *
+     * @param id    ID del chat.
+     * @param hasta Secuencia del último mensaje leído (opcional, por defecto
+     *              todos).
+     * @return Estado de la operación.
+     */
+    @PostMapping("/{id}/marcarLeidos")
+    public ResponseEntity<HttpStatus> marcarLeidos(
+            @PathVariable("id") String id,
+            @RequestParam(required = false) Long hasta) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserEntity user = userService.getUserByUsername(authentication.getName());
+            if (user == null) {
+                return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+            }
+
+            chatService.marcarLeidos(id, user.getId(), hasta);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        } catch (Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Obtiene los chats asociados a un producto por su ID.
      *
@@ -9,13 +9,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.arsansys.RemaPartners.models.entities.FacturaEntity;
-import com.arsansys.RemaPartners.models.entities.ProductoEntity;
 import com.arsansys.RemaPartners.services.FacturaService;
-import com.arsansys.RemaPartners.services.ProductoService;
+import com.arsansys.RemaPartners.services.IdempotenciaService;
+import com.fasterxml.jackson.core.type.TypeReference;
 
 /**
  * Controlador REST para la gestión de facturas.
@@ -30,7 +31,7 @@ public class FacturaController {
     private FacturaService facturaService;
 
     @Autowired
-    private ProductoService productoService;
+    private IdempotenciaService idempotenciaService;
 
     /**
      * Crea una nueva factura.
@@ -139,13 +140,16 @@ public class FacturaController {
     }
 
     /**
-     * Crea una factura a partir de la venta de un producto.
+     * Crea una factura a partir de la venta de un producto y descuenta su stock.
+     * Responde 409 si no hay stock suficiente.
      *
      * @param idProducto  ID del producto vendido.
      * @param idComprador ID del comprador.
      * @param idVendedor  ID del vendedor.
      * @param cantidad    Cantidad vendida.
      * @param idChat      ID del chat donde se realizó la venta.
+     * @param claveIdempotencia Clave opcional para que los reintentos no
+     *                          creen facturas duplicadas.
      * @return La factura creada o error si ocurre algún problema.
      */
     @PostMapping("/createFromSale/{idProducto}/{idComprador}/{idVendedor}/{cantidad}/{idChat}")
@@ -154,27 +158,35 @@ public class FacturaController {
             @PathVariable("idComprador") String idComprador,
             @PathVariable("idVendedor") String idVendedor,
             @PathVariable("cantidad") Integer cantidad,
-            @PathVariable("idChat") String idChat) {
+            @PathVariable("idChat") String idChat,
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia) {
 
         try {
-            // Obtener información del producto
-            ProductoEntity producto = productoService.getProductoById(idProducto);
-
-            // Crear la factura
-            FacturaEntity factura = FacturaEntity.builder()
-                    .idProducto(idProducto)
-                    .idComprador(idComprador)
-                    .idVendedor(idVendedor)
-                    .cantidad(cantidad)
-                    .precioCentimos(producto.getPrecioCentimos())
-                    .importeTotalCentimos(producto.getPrecioCentimos() * cantidad)
-                    .moneda(producto.getMoneda().toString())
-                    .tituloProducto(producto.getTitulo())
-                    .idChat(idChat)
-                    .build();
-
-            FacturaEntity nuevaFactura = facturaService.createFactura(factura);
+            return idempotenciaService.ejecutar("factura/createFromSale", claveIdempotencia,
+                    List.of(idProducto, idComprador, idVendedor, cantidad, idChat),
+                    new TypeReference<FacturaEntity>() {
+                    },
+                    () -> crearFacturaFromSale(idProducto, idComprador, idVendedor, cantidad, idChat));
+        } catch (IllegalStateException e) {
+            // Otra petición con la misma clave sigue en curso
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) {
+            // La clave ya se usó con otros datos
+            return new ResponseEntity<>(null, HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    private ResponseEntity<FacturaEntity> crearFacturaFromSale(String idProducto, String idComprador,
+            String idVendedor, Integer cantidad, String idChat) {
+        try {
+            FacturaEntity nuevaFactura = facturaService.createFacturaFromSale(idProducto, idComprador, idVendedor,
+                    cantidad, idChat);
             return new ResponseEntity<>(nuevaFactura, HttpStatus.CREATED);
+        } catch (IllegalStateException e) {
+            // Stock insuficiente
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
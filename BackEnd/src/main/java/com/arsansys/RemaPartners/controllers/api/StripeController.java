@@ -10,8 +10,10 @@ import com.arsansys.RemaPartners.models.entities.RolEntity;
 import com.arsansys.RemaPartners.models.entities.Suscripcion;
 import com.arsansys.RemaPartners.models.entities.UserEntity;
 import com.arsansys.RemaPartners.models.enums.ERol;
+import com.arsansys.RemaPartners.services.IdempotenciaService;
 import com.arsansys.RemaPartners.services.UserService;
 import com.arsansys.RemaPartners.services.stripe.SuscripcionService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.stripe.Stripe;
 import com.stripe.model.Customer;
 import com.stripe.model.CustomerSearchResult;
@@ -40,6 +42,9 @@ public class StripeController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
     @Value("${stripe.api.secret}")
     private String stripeApiKey;
 
@@ -354,11 +359,33 @@ public class StripeController {
      * Actualiza el estado de pago del usuario y activa la suscripción premium si
      * corresponde.
      *
-     * @param requestData Datos con el ID del usuario y el estado de pago.
+     * @param requestData       Datos con el ID del usuario y el estado de pago.
+     * @param claveIdempotencia Clave opcional para que los reintentos no creen
+     *                          suscripciones duplicadas.
      * @return Estado de la operación y la suscripción creada si aplica.
      */
     @PostMapping("/update-user-payment")
-    public ResponseEntity<Map<String, Object>> updateUserPayment(@RequestBody Map<String, Object> requestData) {
+    public ResponseEntity<Map<String, Object>> updateUserPayment(@RequestBody Map<String, Object> requestData,
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia) {
+        try {
+            return idempotenciaService.ejecutar("stripe/update-user-payment", claveIdempotencia, requestData,
+                    new TypeReference<Map<String, Object>>() {
+                    },
+                    () -> actualizarPagoUsuario(requestData));
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> actualizarPagoUsuario(Map<String, Object> requestData) {
         try {
             String userId = (String) requestData.get("userId");
             Boolean hasPaid = (Boolean) requestData.get("hasPaid");
@@ -0,0 +1,34 @@
+package com.arsansys.RemaPartners.controllers.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para una página de resultados con paginación por cursor.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaginaDTO<T> {
+    /**
+     * Elementos de la página.
+     */
+    private List<T> elementos;
+
+    /**
+     * Cursor para pedir la página siguiente (null si no hay más).
+     */
+    private String siguienteCursor;
+
+    /**
+     * Indica si hay más elementos después de esta página.
+     */
+    private boolean hayMas;
+}
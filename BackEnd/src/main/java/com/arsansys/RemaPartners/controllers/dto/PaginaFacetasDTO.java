@@ -0,0 +1,44 @@
+package com.arsansys.RemaPartners.controllers.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para una página de productos filtrados por facetas con los recuentos de
+ * cada faceta.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaginaFacetasDTO {
+    /**
+     * Productos de la página.
+     */
+    private List<ProductoCardDTO> elementos;
+
+    /**
+     * Cursor para pedir la página siguiente (null si no hay más).
+     */
+    private String siguienteCursor;
+
+    /**
+     * Indica si hay más productos después de esta página.
+     */
+    private boolean hayMas;
+
+    /**
+     * Número total de productos que cumplen el filtro.
+     */
+    private long total;
+
+    /**
+     * Recuento de productos por faceta y valor.
+     */
+    private Map<String, Map<String, Long>> facetas;
+}
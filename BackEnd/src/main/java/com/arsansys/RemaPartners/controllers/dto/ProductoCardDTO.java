@@ -0,0 +1,68 @@
+package com.arsansys.RemaPartners.controllers.dto;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.enums.EEstado;
+import com.arsansys.RemaPartners.models.enums.EMoneda;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con los datos mínimos de un producto para mostrarlo en el catálogo.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductoCardDTO {
+    /**
+     * ID del producto.
+     */
+    private String id;
+
+    /**
+     * Título del producto.
+     */
+    private String titulo;
+
+    /**
+     * Primera imagen del producto.
+     */
+    private String imagen;
+
+    /**
+     * Precio en céntimos.
+     */
+    private Integer precioCentimos;
+
+    /**
+     * Moneda del precio.
+     */
+    private EMoneda moneda;
+
+    /**
+     * Estado del producto.
+     */
+    private EEstado estado;
+
+    /**
+     * Crea la tarjeta a partir de un producto.
+     *
+     * @param producto Producto (puede venir con solo los campos proyectados).
+     * @return Tarjeta del producto.
+     */
+    public static ProductoCardDTO from(ProductoEntity producto) {
+        return ProductoCardDTO.builder()
+                .id(producto.getId())
+                .titulo(producto.getTitulo())
+                .imagen(producto.getImagenes() != null && !producto.getImagenes().isEmpty()
+                        ? producto.getImagenes().get(0)
+                        : null)
+                .precioCentimos(producto.getPrecioCentimos())
+                .moneda(producto.getMoneda())
+                .estado(producto.getEstado())
+                .build();
+    }
+}
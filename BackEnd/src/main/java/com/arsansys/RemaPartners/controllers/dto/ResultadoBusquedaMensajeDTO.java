@@ -0,0 +1,68 @@
+package com.arsansys.RemaPartners.controllers.dto;
+
+import java.time.LocalDateTime;
+
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+import com.arsansys.RemaPartners.services.busqueda.CoincidenciaMensaje;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con un mensaje encontrado al buscar en los chats de un usuario.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ResultadoBusquedaMensajeDTO {
+    /**
+     * ID del chat del mensaje.
+     */
+    private String idChat;
+
+    /**
+     * ID del mensaje.
+     */
+    private String idMensaje;
+
+    /**
+     * Secuencia del mensaje en el chat, para abrir el historial en ese punto.
+     */
+    private Long secuencia;
+
+    /**
+     * ID del emisor del mensaje.
+     */
+    private String idEmisor;
+
+    /**
+     * Fecha del mensaje.
+     */
+    private LocalDateTime fecha;
+
+    /**
+     * Fragmento del mensaje alrededor de la coincidencia.
+     */
+    private String fragmento;
+
+    /**
+     * Crea el DTO a partir de un resultado de la búsqueda.
+     *
+     * @param coincidencia Mensaje encontrado.
+     * @return DTO del resultado.
+     */
+    public static ResultadoBusquedaMensajeDTO from(CoincidenciaMensaje coincidencia) {
+        MensajeEntity mensaje = coincidencia.getMensaje();
+        return ResultadoBusquedaMensajeDTO.builder()
+                .idChat(coincidencia.getIdChat())
+                .idMensaje(mensaje.getId())
+                .secuencia(mensaje.getSecuencia())
+                .idEmisor(mensaje.getIdEmisor())
+                .fecha(mensaje.getFecha())
+                .fragmento(coincidencia.getFragmento())
+                .build();
+    }
+}
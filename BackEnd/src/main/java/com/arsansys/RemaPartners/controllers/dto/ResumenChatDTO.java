@@ -0,0 +1,115 @@
+package com.arsansys.RemaPartners.controllers.dto;
+
+import java.time.LocalDateTime;
+
+import com.arsansys.RemaPartners.models.entities.ChatEntity;
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resumen de un chat para la bandeja de entrada de un usuario.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ResumenChatDTO {
+    /**
+     * Longitud máxima de la vista previa del último mensaje.
+     */
+    public static final int LONGITUD_VISTA_PREVIA = 100;
+
+    /**
+     * ID del chat.
+     */
+    private String id;
+
+    /**
+     * ID del producto.
+     */
+    private String idProducto;
+
+    /**
+     * Título del producto.
+     */
+    private String tituloProducto;
+
+    /**
+     * ID del otro participante del chat.
+     */
+    private String idContraparte;
+
+    /**
+     * Nombre del otro participante del chat.
+     */
+    private String nombreContraparte;
+
+    /**
+     * Indica si el usuario es el vendedor del chat.
+     */
+    private boolean vendedor;
+
+    /**
+     * Inicio del texto del último mensaje.
+     */
+    private String ultimoMensaje;
+
+    /**
+     * ID del emisor del último mensaje.
+     */
+    private String idEmisorUltimoMensaje;
+
+    /**
+     * Número de mensajes sin leer del usuario.
+     */
+    private long noLeidos;
+
+    /**
+     * Fecha de la última actualización del chat.
+     */
+    private LocalDateTime ultimaActualizacion;
+
+    /**
+     * Indica si el chat está activo.
+     */
+    private Boolean activo;
+
+    /**
+     * Crea el resumen de un chat visto por uno de sus participantes.
+     *
+     * @param chat              Chat con los campos del resumen.
+     * @param idUsuario         ID del usuario que consulta la bandeja.
+     * @param tituloProducto    Título del producto.
+     * @param nombreContraparte Nombre del otro participante.
+     * @return Resumen del chat.
+     */
+    public static ResumenChatDTO from(ChatEntity chat, String idUsuario, String tituloProducto,
+            String nombreContraparte) {
+        boolean vendedor = idUsuario.equals(chat.getIdVendedor());
+        Long noLeidos = vendedor ? chat.getNoLeidosVendedor() : chat.getNoLeidosComprador();
+        MensajeEntity ultimo = chat.getUltimoMensaje();
+        String texto = ultimo != null ? ultimo.getMensaje() : null;
+        if (texto != null && texto.length() > LONGITUD_VISTA_PREVIA) {
+            texto = texto.substring(0, LONGITUD_VISTA_PREVIA);
+        }
+
+        return ResumenChatDTO.builder()
+                .id(chat.getId())
+                .idProducto(chat.getIdProducto())
+                .tituloProducto(tituloProducto)
+                .idContraparte(vendedor ? chat.getIdComprador() : chat.getIdVendedor())
+                .nombreContraparte(nombreContraparte)
+                .vendedor(vendedor)
+                .ultimoMensaje(texto)
+                .idEmisorUltimoMensaje(ultimo != null ? ultimo.getIdEmisor() : null)
+                .noLeidos(noLeidos != null ? noLeidos : 0)
+                .ultimaActualizacion(chat.getUltimaActualizacion() != null ? chat.getUltimaActualizacion()
+                        : chat.getFechaCreacion())
+                .activo(chat.getActivo())
+                .build();
+    }
+}
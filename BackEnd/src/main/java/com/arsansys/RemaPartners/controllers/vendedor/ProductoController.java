@@ -1,16 +1,38 @@
 package com.arsansys.RemaPartners.controllers.vendedor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.arsansys.RemaPartners.controllers.dto.PaginaDTO;
+import com.arsansys.RemaPartners.controllers.dto.PaginaFacetasDTO;
+import com.arsansys.RemaPartners.controllers.dto.ProductoCardDTO;
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.enums.EEstado;
+import com.arsansys.RemaPartners.services.AutocompletadoProductoService;
+import com.arsansys.RemaPartners.services.BusquedaProductoService;
+import com.arsansys.RemaPartners.services.ContadorVisitasService;
+import com.arsansys.RemaPartners.services.FacetasProductoService;
 import com.arsansys.RemaPartners.services.ProductoService;
-import com.arsansys.RemaPartners.services.ProductoVisitaService;
+import com.arsansys.RemaPartners.services.busqueda.FiltroFacetas;
+import com.arsansys.RemaPartners.services.busqueda.IndiceAutocompletado;
+import com.arsansys.RemaPartners.services.busqueda.IndiceFacetas;
+import com.arsansys.RemaPartners.services.busqueda.PaginaFacetada;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -22,11 +44,32 @@ import org.springframework.web.bind.annotation.RequestBody;
 @RestController
 public class ProductoController {
 
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+
+    /**
+     * Número máximo de resultados de búsqueda que se pueden recorrer.
+     */
+    private static final int MAX_RESULTADOS_BUSQUEDA = 1000;
+
+    /**
+     * Número máximo de productos de una operación masiva.
+     */
+    private static final int MAX_PRODUCTOS_LOTE = 500;
+
     @Autowired
     private ProductoService productoService;
 
     @Autowired
-    private ProductoVisitaService productoVisitaService;
+    private ContadorVisitasService contadorVisitasService;
+
+    @Autowired
+    private BusquedaProductoService busquedaProductoService;
+
+    @Autowired
+    private FacetasProductoService facetasProductoService;
+
+    @Autowired
+    private AutocompletadoProductoService autocompletadoProductoService;
 
     /**
      * Crea un nuevo producto.
@@ -47,7 +90,9 @@ public class ProductoController {
     }
 
     /**
-     * Actualiza un producto existente.
+     * Actualiza un producto existente. El producto enviado debe incluir la
+     * versión que se cargó; si falta responde 400 y si otro usuario lo ha
+     * modificado después, 409.
      *
      * @param id             ID del producto a actualizar.
      * @param productoEntity Entidad del producto con los nuevos datos.
@@ -59,6 +104,38 @@ public class ProductoController {
             productoEntity.setId(id);
             ProductoEntity entity = productoService.updateProducto(productoEntity);
             return ResponseEntity.ok("Producto updated successfully with ID: " + entity.getId());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Error updating producto: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error updating producto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Actualiza solo los campos enviados de un producto. Si el cuerpo incluye
+     * {@code version} y no coincide con la guardada, responde 409.
+     *
+     * @param id     ID del producto a actualizar.
+     * @param campos Campos a modificar y, opcionalmente, la versión esperada.
+     * @return Producto actualizado.
+     */
+    @PatchMapping("vendedor/producto/update/{id}")
+    public ResponseEntity<?> patchProducto(@PathVariable String id, @RequestBody Map<String, Object> campos) {
+        try {
+            Map<String, Object> valores = new HashMap<>(campos);
+            Object version = valores.remove("version");
+            if (version != null && !(version instanceof Number)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid version: " + version);
+            }
+
+            ProductoEntity entity = productoService.patchProducto(id, valores,
+                    version != null ? ((Number) version).longValue() : null);
+            return ResponseEntity.ok(entity);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Error updating producto: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Error updating producto: " + e.getMessage());
@@ -97,6 +174,216 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Obtiene una página del catálogo con paginación por cursor. Cada producto
+     * se devuelve como una tarjeta con los datos mínimos para el listado.
+     *
+     * @param cursor      ID del último producto de la página anterior (opcional).
+     * @param limite      Número de productos por página (por defecto 20, máximo
+     *                    100).
+     * @param activo      Filtro por activo (opcional).
+     * @param idCategoria Filtro por categoría (opcional).
+     * @param destacado   Filtro por destacado (opcional).
+     * @return Página de productos y cursor de la página siguiente.
+     */
+    @GetMapping("vendedor/producto/page")
+    public ResponseEntity<?> getProductosPagina(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limite,
+            @RequestParam(required = false) Boolean activo,
+            @RequestParam(required = false) String idCategoria,
+            @RequestParam(required = false) Boolean destacado) {
+        try {
+            if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("El límite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+            }
+
+            Slice<ProductoEntity> pagina = productoService.getProductosPagina(activo, idCategoria, destacado,
+                    cursor, limite);
+
+            List<ProductoCardDTO> tarjetas = new ArrayList<>(pagina.getNumberOfElements());
+            for (ProductoEntity producto : pagina.getContent()) {
+                tarjetas.add(ProductoCardDTO.from(producto));
+            }
+
+            String siguienteCursor = pagina.hasNext() && !tarjetas.isEmpty()
+                    ? tarjetas.get(tarjetas.size() - 1).getId()
+                    : null;
+            return ResponseEntity.ok(new PaginaDTO<>(tarjetas, siguienteCursor, pagina.hasNext()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error retrieving productos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Busca productos activos por texto en título, marca, modelo, descripción y
+     * campos de categoría, ordenados por relevancia.
+     *
+     * @param q      Texto de búsqueda.
+     * @param cursor Posición del primer resultado devuelta por la página
+     *               anterior (opcional).
+     * @param limite Número de productos por página (por defecto 20, máximo 100).
+     * @return Página de productos y cursor de la página siguiente.
+     */
+    @GetMapping("vendedor/producto/buscar")
+    public ResponseEntity<?> buscarProductos(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limite) {
+        try {
+            if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("El límite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+            }
+
+            int desde;
+            try {
+                desde = cursor != null ? Integer.parseInt(cursor) : 0;
+            } catch (NumberFormatException e) {
+                desde = -1;
+            }
+            if (desde < 0 || desde > MAX_RESULTADOS_BUSQUEDA - limite) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Cursor no válido: " + cursor);
+            }
+
+            Page<ProductoEntity> resultados = busquedaProductoService.buscar(q, desde, limite);
+
+            List<ProductoCardDTO> tarjetas = new ArrayList<>(resultados.getNumberOfElements());
+            for (ProductoEntity producto : resultados.getContent()) {
+                tarjetas.add(ProductoCardDTO.from(producto));
+            }
+
+            int siguiente = desde + limite;
+            boolean hayMas = siguiente < resultados.getTotalElements() && siguiente < MAX_RESULTADOS_BUSQUEDA;
+            return ResponseEntity.ok(new PaginaDTO<>(tarjetas, hayMas ? String.valueOf(siguiente) : null, hayMas));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error searching productos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene sugerencias de títulos, marcas y modelos que completan el texto
+     * escrito, ordenadas por visitas y dando prioridad a los productos
+     * destacados.
+     *
+     * @param q      Texto escrito por el usuario.
+     * @param limite Número de sugerencias (por defecto 10, máximo 10).
+     * @return Lista de sugerencias.
+     */
+    @GetMapping("vendedor/producto/autocompletar")
+    public ResponseEntity<?> autocompletar(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            if (limite < 1 || limite > IndiceAutocompletado.K) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("El límite debe estar entre 1 y " + IndiceAutocompletado.K);
+            }
+            return ResponseEntity.ok(autocompletadoProductoService.completar(q, limite));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error retrieving suggestions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Filtra productos activos por facetas y devuelve el recuento de productos
+     * de cada valor de faceta. Los valores de una misma faceta se combinan con
+     * OR y las distintas facetas con AND. Los campos de categoría se filtran con
+     * parámetros {@code campo.<nombre>=<valor>}.
+     *
+     * @param categoria  IDs de categoría (opcional).
+     * @param marca      Marcas (opcional).
+     * @param modelo     Modelos (opcional).
+     * @param estado     Estados (opcional).
+     * @param precioMin  Precio mínimo en céntimos de EUR (opcional).
+     * @param precioMax  Precio máximo en céntimos de EUR (opcional).
+     * @param cursor     Posición del primer resultado devuelta por la página
+     *                   anterior (opcional).
+     * @param limite     Número de productos por página (por defecto 20, máximo
+     *                   100).
+     * @param parametros Todos los parámetros de la petición.
+     * @return Página de productos, cursor de la página siguiente y recuentos.
+     */
+    @GetMapping("vendedor/producto/facetas")
+    public ResponseEntity<?> getProductosFacetas(
+            @RequestParam(required = false) List<String> categoria,
+            @RequestParam(required = false) List<String> marca,
+            @RequestParam(required = false) List<String> modelo,
+            @RequestParam(required = false) List<EEstado> estado,
+            @RequestParam(required = false) Long precioMin,
+            @RequestParam(required = false) Long precioMax,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limite,
+            @RequestParam MultiValueMap<String, String> parametros) {
+        try {
+            if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("El límite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+            }
+
+            int desde;
+            try {
+                desde = cursor != null ? Integer.parseInt(cursor) : 0;
+            } catch (NumberFormatException e) {
+                desde = -1;
+            }
+            if (desde < 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Cursor no válido: " + cursor);
+            }
+
+            Map<String, List<String>> campos = new HashMap<>();
+            for (Map.Entry<String, List<String>> parametro : parametros.entrySet()) {
+                if (parametro.getKey().startsWith(IndiceFacetas.PREFIJO_CAMPO)) {
+                    campos.put(parametro.getKey().substring(IndiceFacetas.PREFIJO_CAMPO.length()),
+                            parametro.getValue());
+                }
+            }
+
+            List<String> estados = new ArrayList<>();
+            if (estado != null) {
+                for (EEstado e : estado) {
+                    estados.add(e.name());
+                }
+            }
+
+            FiltroFacetas filtro = FiltroFacetas.builder()
+                    .categorias(categoria != null ? categoria : List.of())
+                    .marcas(marca != null ? marca : List.of())
+                    .modelos(modelo != null ? modelo : List.of())
+                    .estados(estados)
+                    .campos(campos)
+                    .precioMinEurCentimos(precioMin)
+                    .precioMaxEurCentimos(precioMax)
+                    .build();
+
+            PaginaFacetada pagina = facetasProductoService.buscar(filtro, desde, limite);
+
+            List<ProductoCardDTO> tarjetas = new ArrayList<>(pagina.getProductos().size());
+            for (ProductoEntity producto : pagina.getProductos()) {
+                tarjetas.add(ProductoCardDTO.from(producto));
+            }
+
+            long siguiente = (long) desde + limite;
+            boolean hayMas = siguiente < pagina.getTotal();
+            return ResponseEntity.ok(PaginaFacetasDTO.builder()
+                    .elementos(tarjetas)
+                    .siguienteCursor(hayMas ? String.valueOf(siguiente) : null)
+                    .hayMas(hayMas)
+                    .total(pagina.getTotal())
+                    .facetas(pagina.getFacetas())
+                    .build());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error retrieving productos: " + e.getMessage());
+        }
+    }
+
     /**
      * Obtiene un producto por su ID e incrementa su contador de visitas.
      *
@@ -107,15 +394,16 @@ public class ProductoController {
     public ResponseEntity<?> getProductoById(@PathVariable String id) {
         try {
             ProductoEntity producto = productoService.getProductoById(id);
+
+            // La visita se acumula en memoria y se vuelca periódicamente al
+            // producto y a las estadísticas mensuales
+            contadorVisitasService.registrarVisita(id, producto.getIdUsuario());
+
             Long visitas = producto.getVisitas();
             if (visitas == null) {
                 visitas = 0L;
             }
-            producto.setVisitas(visitas + 1);
-            productoService.updateProducto(producto);
-
-            // Registrar la visita en las estadísticas mensuales
-            productoVisitaService.registrarVisita(id, producto.getIdUsuario());
+            producto.setVisitas(visitas + contadorVisitasService.getVisitasPendientes(id));
 
             return ResponseEntity.ok(producto);
         } catch (Exception e) {
@@ -157,4 +445,47 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Cambia el estado (activo/inactivo) de varios productos.
+     *
+     * @param ids IDs de los productos.
+     * @return Mensaje con el número de productos modificados.
+     */
+    @PostMapping("vendedor/producto/toggleStatus")
+    public ResponseEntity<?> toggleStatusProductos(@RequestBody List<String> ids) {
+        try {
+            if (ids == null || ids.isEmpty() || ids.size() > MAX_PRODUCTOS_LOTE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Se deben indicar entre 1 y " + MAX_PRODUCTOS_LOTE + " productos");
+            }
+            long modificados = productoService.toggleStatusProductos(ids);
+            return ResponseEntity.ok("Productos status toggled successfully: " + modificados);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error toggling productos status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Activa o desactiva varios productos.
+     *
+     * @param activo Nuevo estado.
+     * @param ids    IDs de los productos.
+     * @return Mensaje con el número de productos modificados.
+     */
+    @PostMapping("vendedor/producto/setActivo")
+    public ResponseEntity<?> setActivoProductos(@RequestParam boolean activo, @RequestBody List<String> ids) {
+        try {
+            if (ids == null || ids.isEmpty() || ids.size() > MAX_PRODUCTOS_LOTE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Se deben indicar entre 1 y " + MAX_PRODUCTOS_LOTE + " productos");
+            }
+            long modificados = productoService.setActivoProductos(ids, activo);
+            return ResponseEntity.ok("Productos status updated successfully: " + modificados);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Error updating productos status: " + e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,68 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que agrupa un bloque consecutivo de mensajes de un chat.
+ * <p>
+ * Los mensajes de un chat se reparten en bloques de
+ * {@link #MENSAJES_POR_BLOQUE} mensajes identificados por el chat y un número
+ * de secuencia, de modo que añadir un mensaje solo modifica el último bloque.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "chat_mensajes")
+public class BloqueMensajesEntity {
+
+    /**
+     * Número máximo de mensajes de cada bloque.
+     */
+    public static final int MENSAJES_POR_BLOQUE = 100;
+
+    /**
+     * Identificador único del bloque.
+     */
+    @Id
+    private String id;
+
+    /**
+     * Identificador del chat al que pertenece el bloque.
+     */
+    private String idChat;
+
+    /**
+     * Número de secuencia del bloque dentro del chat, empezando en 0.
+     */
+    private int secuencia;
+
+    /**
+     * Mensajes del bloque en orden de envío.
+     */
+    private List<MensajeEntity> mensajes;
+
+    /**
+     * Número de mensajes del bloque.
+     */
+    private int numeroMensajes;
+
+    /**
+     * Fecha del primer mensaje del bloque.
+     */
+    private LocalDateTime fechaPrimerMensaje;
+
+    /**
+     * Fecha del último mensaje del bloque.
+     */
+    private LocalDateTime fechaUltimoMensaje;
+}
@@ -2,7 +2,6 @@ package com.arsansys.RemaPartners.models.entities;
 
 import java.util.List;
 
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.persistence.Id;
@@ -23,6 +22,17 @@ import lombok.NoArgsConstructor;
 @Document(collection = "categorias")
 public class CategoriaEntity {
 
+    /**
+     * Intercalación del índice único de títulos: español, sin distinguir
+     * mayúsculas.
+     */
+    public static final String COLACION_TITULO = "{ 'locale' : 'es', 'strength' : 2 }";
+
+    /**
+     * Nombre del índice único de títulos.
+     */
+    public static final String INDICE_TITULO = "titulo_ci";
+
     /**
      * Identificador único de la categoría.
      */
@@ -30,10 +40,10 @@ public class CategoriaEntity {
     private String id;
 
     /**
-     * Título de la categoría.
+     * Título de la categoría (único sin distinguir mayúsculas, índice
+     * {@link #INDICE_TITULO}).
      */
     @NotBlank
-    @Indexed(unique = true)
     @Size(max = 50)
     private String titulo;
 
@@ -3,6 +3,7 @@ package com.arsansys.RemaPartners.models.entities;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.persistence.Id;
 import jakarta.validation.constraints.NotBlank;
@@ -47,10 +48,46 @@ public class ChatEntity {
     private String idVendedor;
 
     /**
-     * Lista de mensajes intercambiados en el chat.
+     * Lista de mensajes intercambiados en el chat. No se guarda en el documento
+     * del chat sino en bloques ({@link BloqueMensajesEntity}) y solo se rellena
+     * al obtener un chat por su ID.
      */
+    @Transient
     private List<MensajeEntity> mensajes;
 
+    /**
+     * Último mensaje enviado en el chat.
+     */
+    private MensajeEntity ultimoMensaje;
+
+    /**
+     * Número de mensajes del chat.
+     */
+    @Default
+    private Long numeroMensajes = 0L;
+
+    /**
+     * Número de mensajes del vendedor que el comprador no ha leído.
+     */
+    @Default
+    private Long noLeidosComprador = 0L;
+
+    /**
+     * Número de mensajes del comprador que el vendedor no ha leído.
+     */
+    @Default
+    private Long noLeidosVendedor = 0L;
+
+    /**
+     * Secuencia del último mensaje leído por el comprador.
+     */
+    private Long leidoHastaComprador;
+
+    /**
+     * Secuencia del último mensaje leído por el vendedor.
+     */
+    private Long leidoHastaVendedor;
+
     /**
      * Fecha de creación del chat.
      */
@@ -66,4 +103,10 @@ public class ChatEntity {
      * Indica si el chat está activo.
      */
     private Boolean activo;
+
+    /**
+     * Indica si los mensajes del chat ya están en el índice de búsqueda. Los
+     * chats anteriores al índice se indexan al arrancar la aplicación.
+     */
+    private Boolean mensajesIndexados;
 }
@@ -0,0 +1,73 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que registra una petición identificada por una clave de
+ * idempotencia y la respuesta que se devolvió, para repetirla si el cliente
+ * reintenta la petición.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "claves_idempotencia")
+public class ClaveIdempotenciaEntity {
+
+    /**
+     * Estado de una petición que se está ejecutando.
+     */
+    public static final String EN_CURSO = "EN_CURSO";
+
+    /**
+     * Estado de una petición ya ejecutada con su respuesta guardada.
+     */
+    public static final String COMPLETADA = "COMPLETADA";
+
+    /**
+     * Identificador compuesto por la operación y la clave enviada por el
+     * cliente.
+     */
+    @Id
+    private String id;
+
+    /**
+     * Operación a la que pertenece la clave.
+     */
+    private String operacion;
+
+    /**
+     * Huella de los datos de la petición, para detectar claves reutilizadas
+     * con datos distintos.
+     */
+    private String huella;
+
+    /**
+     * Estado de la petición ({@link #EN_CURSO} o {@link #COMPLETADA}).
+     */
+    private String estado;
+
+    /**
+     * Código de estado HTTP de la respuesta.
+     */
+    private Integer codigoEstado;
+
+    /**
+     * Cuerpo de la respuesta en JSON.
+     */
+    private String cuerpo;
+
+    /**
+     * Fecha de creación del registro. El índice TTL elimina el registro cuando
+     * caduca.
+     */
+    private LocalDateTime fechaCreacion;
+}
@@ -1,7 +1,11 @@
 package com.arsansys.RemaPartners.models.entities;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.persistence.Id;
@@ -19,6 +23,11 @@ import lombok.Builder.Default;
 @NoArgsConstructor
 @Builder
 @Document(collection = "facturas")
+@CompoundIndexes({
+        @CompoundIndex(name = "vendedor_fecha", def = "{'idVendedor': 1, 'fechaEmision': 1}"),
+        @CompoundIndex(name = "comprador_fecha", def = "{'idComprador': 1, 'fechaEmision': 1}"),
+        @CompoundIndex(name = "producto_fecha", def = "{'idProducto': 1, 'fechaEmision': 1}")
+})
 public class FacturaEntity {
 
     /**
@@ -62,6 +71,22 @@ public class FacturaEntity {
      */
     private String moneda;
 
+    /**
+     * Importe total convertido a céntimos de EUR con la tasa de la fecha de
+     * emisión.
+     */
+    private Integer importeEurCentimos;
+
+    /**
+     * Tasa de cambio aplicada (valor en EUR de una unidad de la moneda).
+     */
+    private Double tasaCambioEur;
+
+    /**
+     * Fecha de la tasa de cambio aplicada.
+     */
+    private LocalDate fechaTasaCambio;
+
     /**
      * Título del producto en el momento de la venta.
      */
@@ -71,6 +96,7 @@ public class FacturaEntity {
      * Fecha de emisión de la factura.
      */
     @Default
+    @Indexed
     private LocalDateTime fechaEmision = LocalDateTime.now();
 
     /**
@@ -29,6 +29,12 @@ public class MensajeEntity {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private String id;
 
+    /**
+     * Posición del mensaje en el chat, empezando en 0. Sirve de cursor para
+     * paginar el historial.
+     */
+    private Long secuencia;
+
     /**
      * Identificador del usuario emisor del mensaje.
      */
@@ -0,0 +1,94 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que representa una notificación push pendiente de enviar. Los
+ * mensajes de un mismo chat que llegan a un destinatario mientras la
+ * notificación espera se agrupan en ella.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "notificaciones_pendientes")
+public class NotificacionPendienteEntity {
+
+    /**
+     * Estado de una notificación a la espera de enviarse.
+     */
+    public static final String PENDIENTE = "PENDIENTE";
+
+    /**
+     * Estado de una notificación reclamada por un despachador.
+     */
+    public static final String ENVIANDO = "ENVIANDO";
+
+    @Id
+    private String id;
+
+    /**
+     * ID del usuario que recibe la notificación.
+     */
+    private String idDestinatario;
+
+    /**
+     * ID del chat de los mensajes.
+     */
+    private String idChat;
+
+    /**
+     * ID del emisor del último mensaje.
+     */
+    private String idEmisor;
+
+    /**
+     * Texto del último mensaje.
+     */
+    private String mensaje;
+
+    /**
+     * Número de mensajes agrupados en la notificación.
+     */
+    private Long numeroMensajes;
+
+    /**
+     * Estado de la notificación ({@link #PENDIENTE} o {@link #ENVIANDO}).
+     */
+    private String estado;
+
+    /**
+     * Número de envíos fallidos.
+     */
+    @Builder.Default
+    private Integer intentos = 0;
+
+    /**
+     * Fecha a partir de la cual se puede enviar.
+     */
+    private LocalDateTime proximoIntento;
+
+    /**
+     * Lote del despachador que la ha reclamado.
+     */
+    private String lote;
+
+    /**
+     * Fecha hasta la que el despachador la tiene reservada. Pasada esta fecha,
+     * otro despachador puede reclamarla.
+     */
+    private LocalDateTime reservadaHasta;
+
+    /**
+     * Fecha del primer mensaje agrupado.
+     */
+    private LocalDateTime fechaCreacion;
+}
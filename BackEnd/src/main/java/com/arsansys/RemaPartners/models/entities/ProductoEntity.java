@@ -2,6 +2,9 @@ package com.arsansys.RemaPartners.models.entities;
 
 import java.util.List;
 
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.arsansys.RemaPartners.models.enums.EEstado;
@@ -22,10 +25,28 @@ import lombok.Builder.Default;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Document(collection = "productos")
+@CompoundIndexes({
+        @CompoundIndex(name = "usuario_visitas", def = "{'idUsuario': 1, 'visitas': -1}"),
+        @CompoundIndex(name = "visitas", def = "{'visitas': -1}"),
+        @CompoundIndex(name = "catalogo_activo", def = "{'activo': 1, '_id': -1}"),
+        @CompoundIndex(name = "catalogo_categoria", def = "{'idCategoria': 1, 'activo': 1, '_id': -1}"),
+        @CompoundIndex(name = "catalogo_destacado", def = "{'destacado': 1, 'activo': 1, '_id': -1}")
+})
 public class ProductoEntity {
 
+    /**
+     * Intercalación del índice único de títulos: español, sin distinguir
+     * mayúsculas.
+     */
+    public static final String COLACION_TITULO = "{ 'locale' : 'es', 'strength' : 2 }";
+
+    /**
+     * Nombre del índice único de títulos.
+     */
+    public static final String INDICE_TITULO = "titulo_ci";
+
     /**
      * Identificador único del producto.
      */
@@ -161,4 +182,11 @@ public class ProductoEntity {
     @Default
     private Long visitas = 0L;
 
+    /**
+     * Versión del documento para el control de concurrencia optimista. Se
+     * incrementa con cada modificación.
+     */
+    @Version
+    private Long version;
+
 }
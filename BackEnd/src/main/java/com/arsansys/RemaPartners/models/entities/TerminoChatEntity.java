@@ -0,0 +1,59 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entrada del índice invertido de mensajes de chat: las secuencias de los
+ * mensajes de un bloque ({@link BloqueMensajesEntity}) que contienen un
+ * término. Agrupar por bloque limita el tamaño de cada entrada.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "chat_terminos")
+public class TerminoChatEntity {
+
+    @Id
+    private String id;
+
+    /**
+     * Término analizado.
+     */
+    private String termino;
+
+    /**
+     * ID del chat.
+     */
+    private String idChat;
+
+    /**
+     * Secuencia del bloque de mensajes.
+     */
+    private Integer bloque;
+
+    /**
+     * IDs del comprador y el vendedor del chat, para limitar la búsqueda a los
+     * chats de un usuario.
+     */
+    private List<String> participantes;
+
+    /**
+     * Secuencias de los mensajes del bloque que contienen el término.
+     */
+    private List<Long> secuencias;
+
+    /**
+     * Fecha del mensaje más reciente del bloque que contiene el término.
+     */
+    private LocalDateTime fechaUltimoMensaje;
+}
@@ -0,0 +1,45 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que representa un ticket de un solo uso para abrir la conexión de
+ * eventos de un chat. Sustituye al token JWT en la URL, que quedaría
+ * registrado en los logs de proxies y servidores.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "tickets_stream_chat")
+public class TicketStreamChatEntity {
+
+    /**
+     * Valor aleatorio del ticket.
+     */
+    @Id
+    private String id;
+
+    /**
+     * Nombre del usuario al que se emitió el ticket.
+     */
+    private String username;
+
+    /**
+     * ID del chat para el que es válido el ticket.
+     */
+    private String idChat;
+
+    /**
+     * Fecha de emisión. El índice TTL elimina los tickets que no se canjean.
+     */
+    private LocalDateTime fechaCreacion;
+}
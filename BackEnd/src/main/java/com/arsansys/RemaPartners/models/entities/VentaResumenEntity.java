@@ -0,0 +1,110 @@
+package com.arsansys.RemaPartners.models.entities;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que representa un resumen de ventas precalculado para un ámbito
+ * (global, vendedor, comprador o producto) y un periodo.
+ * <p>
+ * Un resumen con {@code dia = 0} acumula el mes completo y uno con
+ * {@code mes = 0} acumula el año completo.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "ventas_resumen")
+@CompoundIndexes({
+        @CompoundIndex(name = "ambito_periodo", def = "{'ambito': 1, 'idAmbito': 1, 'año': 1, 'mes': 1, 'dia': 1}"),
+        @CompoundIndex(name = "ambito_vendedor_periodo", def = "{'ambito': 1, 'idVendedor': 1, 'año': 1, 'mes': 1}")
+})
+public class VentaResumenEntity {
+
+    /**
+     * Identificador del ámbito global.
+     */
+    public static final String ID_GLOBAL = "GLOBAL";
+
+    /**
+     * Identificador del resumen, compuesto por ámbito, periodo y moneda.
+     */
+    @Id
+    private String id;
+
+    /**
+     * Ámbito del resumen.
+     */
+    private EAmbitoVenta ambito;
+
+    /**
+     * Identificador del vendedor, comprador o producto del ámbito.
+     */
+    private String idAmbito;
+
+    /**
+     * Año del periodo.
+     */
+    private int año;
+
+    /**
+     * Mes del periodo (1-12, 0 para el año completo).
+     */
+    private int mes;
+
+    /**
+     * Día del periodo (1-31, 0 para el mes completo).
+     */
+    private int dia;
+
+    /**
+     * Moneda de las facturas acumuladas.
+     */
+    private String moneda;
+
+    /**
+     * ID del vendedor (solo en resúmenes de producto).
+     */
+    private String idVendedor;
+
+    /**
+     * Título del producto en la última venta (solo en resúmenes de producto).
+     */
+    private String tituloProducto;
+
+    /**
+     * Número de facturas acumuladas.
+     */
+    private long cantidadFacturas;
+
+    /**
+     * Número de unidades vendidas.
+     */
+    private long cantidadUnidades;
+
+    /**
+     * Importe acumulado en céntimos de la moneda.
+     */
+    private long importeCentimos;
+
+    /**
+     * Importe acumulado en céntimos de EUR según la tasa de cada factura.
+     */
+    private long importeEurCentimos;
+
+    /**
+     * Fecha de emisión de la última factura acumulada.
+     */
+    private LocalDateTime ultimaFechaEmision;
+}
@@ -0,0 +1,11 @@
+package com.arsansys.RemaPartners.models.enums;
+
+/**
+ * Enum que representa el ámbito de un resumen de ventas precalculado.
+ */
+public enum EAmbitoVenta {
+    GLOBAL,
+    VENDEDOR,
+    COMPRADOR,
+    PRODUCTO
+}
@@ -0,0 +1,10 @@
+package com.arsansys.RemaPartners.models.enums;
+
+/**
+ * Enum que representa la granularidad temporal de una agrupación de ventas.
+ */
+public enum EPeriodoVenta {
+    ANUAL,
+    MENSUAL,
+    DIARIO
+}
@@ -0,0 +1,10 @@
+package com.arsansys.RemaPartners.models.enums;
+
+/**
+ * Enum que representa el resultado del envío de una notificación push.
+ */
+public enum EResultadoEnvio {
+    ENVIADO,
+    REINTENTAR,
+    DESCARTAR
+}
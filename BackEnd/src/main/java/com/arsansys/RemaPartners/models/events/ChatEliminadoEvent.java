@@ -0,0 +1,22 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se elimina un chat.
+ */
+@Getter
+public class ChatEliminadoEvent extends ApplicationEvent {
+
+    /**
+     * ID del chat eliminado.
+     */
+    private final String idChat;
+
+    public ChatEliminadoEvent(Object source, String idChat) {
+        super(source);
+        this.idChat = idChat;
+    }
+}
@@ -0,0 +1,24 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se crea o se modifica una factura.
+ */
+@Getter
+public class FacturaRegistradaEvent extends ApplicationEvent {
+
+    /**
+     * Factura creada o modificada.
+     */
+    private final FacturaEntity factura;
+
+    public FacturaRegistradaEvent(Object source, FacturaEntity factura) {
+        super(source);
+        this.factura = factura;
+    }
+}
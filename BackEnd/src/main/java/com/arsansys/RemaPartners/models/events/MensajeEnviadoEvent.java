@@ -0,0 +1,31 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.arsansys.RemaPartners.models.entities.ChatEntity;
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se añade un mensaje a un chat.
+ */
+@Getter
+public class MensajeEnviadoEvent extends ApplicationEvent {
+
+    /**
+     * Chat con el resumen actualizado.
+     */
+    private final ChatEntity chat;
+
+    /**
+     * Mensaje añadido, con su secuencia.
+     */
+    private final MensajeEntity mensaje;
+
+    public MensajeEnviadoEvent(Object source, ChatEntity chat, MensajeEntity mensaje) {
+        super(source);
+        this.chat = chat;
+        this.mensaje = mensaje;
+    }
+}
@@ -0,0 +1,24 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se crea o se modifica un producto.
+ */
+@Getter
+public class ProductoActualizadoEvent extends ApplicationEvent {
+
+    /**
+     * Producto creado o modificado.
+     */
+    private final ProductoEntity producto;
+
+    public ProductoActualizadoEvent(Object source, ProductoEntity producto) {
+        super(source);
+        this.producto = producto;
+    }
+}
@@ -0,0 +1,28 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se elimina un producto.
+ */
+@Getter
+public class ProductoEliminadoEvent extends ApplicationEvent {
+
+    /**
+     * ID del producto eliminado.
+     */
+    private final String productoId;
+
+    /**
+     * ID del vendedor del producto eliminado.
+     */
+    private final String vendedorId;
+
+    public ProductoEliminadoEvent(Object source, String productoId, String vendedorId) {
+        super(source);
+        this.productoId = productoId;
+        this.vendedorId = vendedorId;
+    }
+}
@@ -0,0 +1,40 @@
+package com.arsansys.RemaPartners.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Evento publicado cuando se registran visitas a un producto.
+ */
+@Getter
+public class VisitaRegistradaEvent extends ApplicationEvent {
+
+    /**
+     * ID del producto visitado.
+     */
+    private final String productoId;
+
+    /**
+     * ID del vendedor del producto.
+     */
+    private final String vendedorId;
+
+    /**
+     * Año de las visitas.
+     */
+    private final int año;
+
+    /**
+     * Mes de las visitas.
+     */
+    private final int mes;
+
+    public VisitaRegistradaEvent(Object source, String productoId, String vendedorId, int año, int mes) {
+        super(source);
+        this.productoId = productoId;
+        this.vendedorId = vendedorId;
+        this.año = año;
+        this.mes = mes;
+    }
+}
@@ -0,0 +1,31 @@
+package com.arsansys.RemaPartners.repositories;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.arsansys.RemaPartners.models.entities.BloqueMensajesEntity;
+
+/**
+ * Repositorio para la entidad BloqueMensajesEntity.
+ * Permite consultar y eliminar los bloques de mensajes de un chat en MongoDB.
+ */
+@Repository
+public interface BloqueMensajesRepository extends MongoRepository<BloqueMensajesEntity, String> {
+
+    /**
+     * Busca los bloques de mensajes de un chat ordenados por secuencia.
+     * 
+     * @param idChat ID del chat
+     * @return Lista de bloques
+     */
+    List<BloqueMensajesEntity> findByIdChatOrderBySecuenciaAsc(String idChat);
+
+    /**
+     * Elimina los bloques de mensajes de un chat.
+     * 
+     * @param idChat ID del chat
+     */
+    void deleteByIdChat(String idChat);
+}
@@ -1,5 +1,8 @@
 package com.arsansys.RemaPartners.repositories;
 
+import java.util.Optional;
+
+import org.springframework.data.mongodb.core.annotation.Collation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,4 +15,23 @@ import com.arsansys.RemaPartners.models.entities.CategoriaEntity;
 @Repository
 public interface CategoriaRepository extends MongoRepository<CategoriaEntity, String> {
 
+    /**
+     * Busca una categoría por título sin distinguir mayúsculas. Usa el índice
+     * único "titulo_ci", que tiene la misma intercalación.
+     * 
+     * @param titulo Título de la categoría
+     * @return Categoría encontrada
+     */
+    @Collation(CategoriaEntity.COLACION_TITULO)
+    Optional<CategoriaEntity> findByTitulo(String titulo);
+
+    /**
+     * Comprueba si existe una categoría con el título indicado sin distinguir
+     * mayúsculas.
+     * 
+     * @param titulo Título de la categoría
+     * @return true si existe
+     */
+    @Collation(CategoriaEntity.COLACION_TITULO)
+    boolean existsByTitulo(String titulo);
 }
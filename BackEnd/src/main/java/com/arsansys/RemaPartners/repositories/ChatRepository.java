@@ -1,6 +1,7 @@
 package com.arsansys.RemaPartners.repositories;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -39,14 +40,15 @@ public interface ChatRepository extends MongoRepository<ChatEntity, String> {
     List<ChatEntity> findByIdVendedor(String idVendedor);
 
     /**
-     * Busca chats por ID de producto, comprador y vendedor.
+     * Busca el chat de un producto entre un comprador y un vendedor. El índice
+     * único sobre los tres campos garantiza que como mucho hay uno.
      * 
      * @param idProducto  ID del producto
      * @param idComprador ID del comprador
      * @param idVendedor  ID del vendedor
-     * @return Lista de chats
+     * @return Chat si existe
      */
-    List<ChatEntity> findByIdProductoAndIdCompradorAndIdVendedor(String idProducto, String idComprador,
+    Optional<ChatEntity> findByIdProductoAndIdCompradorAndIdVendedor(String idProducto, String idComprador,
             String idVendedor);
 
 }
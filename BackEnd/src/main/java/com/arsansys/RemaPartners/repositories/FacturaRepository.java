@@ -1,6 +1,8 @@
 package com.arsansys.RemaPartners.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -13,7 +15,7 @@ import com.arsansys.RemaPartners.models.entities.FacturaEntity;
  * MongoDB.
  */
 @Repository
-public interface FacturaRepository extends MongoRepository<FacturaEntity, String> {
+public interface FacturaRepository extends MongoRepository<FacturaEntity, String>, FacturaRepositoryCustom {
 
     /**
      * Buscar facturas por ID del comprador.
@@ -46,4 +48,21 @@ public interface FacturaRepository extends MongoRepository<FacturaEntity, String
      * @return Lista de facturas
      */
     List<FacturaEntity> findByIdChat(String idChat);
+
+    /**
+     * Buscar facturas emitidas en un intervalo de fechas.
+     * 
+     * @param desde Fecha inicial (inclusiva)
+     * @param hasta Fecha final (exclusiva)
+     * @return Lista de facturas
+     */
+    List<FacturaEntity> findByFechaEmisionGreaterThanEqualAndFechaEmisionLessThan(LocalDateTime desde,
+            LocalDateTime hasta);
+
+    /**
+     * Recorrer las facturas que no tienen el importe en EUR calculado.
+     * 
+     * @return Stream de facturas (debe cerrarse tras su uso)
+     */
+    Stream<FacturaEntity> findByImporteEurCentimosIsNull();
 }
@@ -0,0 +1,28 @@
+package com.arsansys.RemaPartners.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
+import com.arsansys.RemaPartners.models.enums.EPeriodoVenta;
+
+/**
+ * Consultas de agregación sobre facturas ejecutadas en el servidor de MongoDB.
+ */
+public interface FacturaRepositoryCustom {
+
+    /**
+     * Agrupa en el servidor las facturas emitidas en un intervalo por ámbito,
+     * periodo y moneda. Solo se devuelve un documento por grupo.
+     * 
+     * @param ambito   Ámbito de agrupación
+     * @param idAmbito ID del vendedor, comprador o producto (null para todos)
+     * @param desde    Fecha inicial inclusiva (null para no limitar)
+     * @param hasta    Fecha final exclusiva (null para no limitar)
+     * @param periodo  Granularidad temporal de la agrupación
+     * @return Lista de resúmenes sin identificador
+     */
+    List<VentaResumenEntity> agruparVentas(EAmbitoVenta ambito, String idAmbito, LocalDateTime desde,
+            LocalDateTime hasta, EPeriodoVenta periodo);
+}
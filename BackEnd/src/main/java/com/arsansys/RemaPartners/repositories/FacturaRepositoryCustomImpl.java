@@ -0,0 +1,148 @@
+package com.arsansys.RemaPartners.repositories;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.LiteralOperators;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
+import com.arsansys.RemaPartners.models.enums.EPeriodoVenta;
+
+/**
+ * Implementación de las agregaciones sobre facturas.
+ * <p>
+ * El pipeline es {@code $match} por intervalo de {@code fechaEmision},
+ * {@code $project} del ámbito y las partes de la fecha, y {@code $group} por
+ * ámbito, periodo y moneda.
+ */
+public class FacturaRepositoryCustomImpl implements FacturaRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Agrupa en el servidor las facturas emitidas en un intervalo por ámbito,
+     * periodo y moneda.
+     * 
+     * @param ambito   Ámbito de agrupación
+     * @param idAmbito ID del vendedor, comprador o producto (null para todos)
+     * @param desde    Fecha inicial inclusiva (null para no limitar)
+     * @param hasta    Fecha final exclusiva (null para no limitar)
+     * @param periodo  Granularidad temporal de la agrupación
+     * @return Lista de resúmenes sin identificador
+     */
+    @Override
+    public List<VentaResumenEntity> agruparVentas(EAmbitoVenta ambito, String idAmbito, LocalDateTime desde,
+            LocalDateTime hasta, EPeriodoVenta periodo) {
+        String campoAmbito = campoAmbito(ambito);
+
+        // $match: intervalo de fechas y, si procede, el vendedor/comprador/producto
+        Criteria criteria = Criteria.where("fechaEmision").ne(null);
+        if (desde != null) {
+            criteria = criteria.gte(desde);
+        }
+        if (hasta != null) {
+            criteria = criteria.lt(hasta);
+        }
+        if (campoAmbito != null) {
+            criteria = idAmbito != null
+                    ? criteria.and(campoAmbito).is(idAmbito)
+                    : criteria.and(campoAmbito).ne(null);
+        }
+
+        // Las partes de la fecha se calculan en la zona horaria de la aplicación,
+        // igual que LocalDateTime en Java
+        DateOperators.Timezone zona = DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+
+        ProjectionOperation proyeccion = Aggregation.project("moneda", "cantidad", "importeTotalCentimos",
+                "importeEurCentimos", "fechaEmision", "tituloProducto", "idVendedor");
+        proyeccion = campoAmbito != null
+                ? proyeccion.and(campoAmbito).as("idAmbito")
+                : proyeccion.and(LiteralOperators.Literal.asLiteral(VentaResumenEntity.ID_GLOBAL)).as("idAmbito");
+        proyeccion = proyeccion.and(DateOperators.Year.yearOf("fechaEmision").withTimezone(zona)).as("año");
+        proyeccion = periodo == EPeriodoVenta.ANUAL
+                ? proyeccion.and(LiteralOperators.Literal.asLiteral(0)).as("mes")
+                : proyeccion.and(DateOperators.Month.monthOf("fechaEmision").withTimezone(zona)).as("mes");
+        proyeccion = periodo == EPeriodoVenta.DIARIO
+                ? proyeccion.and(DateOperators.DayOfMonth.dayOfMonth("fechaEmision").withTimezone(zona)).as("dia")
+                : proyeccion.and(LiteralOperators.Literal.asLiteral(0)).as("dia");
+
+        TypedAggregation<FacturaEntity> aggregation = Aggregation.newAggregation(FacturaEntity.class,
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.Direction.ASC, "fechaEmision"),
+                proyeccion,
+                Aggregation.group("idAmbito", "año", "mes", "dia", "moneda")
+                        .count().as("cantidadFacturas")
+                        .sum("cantidad").as("cantidadUnidades")
+                        .sum("importeTotalCentimos").as("importeCentimos")
+                        .sum("importeEurCentimos").as("importeEurCentimos")
+                        .max("fechaEmision").as("ultimaFechaEmision")
+                        .last("tituloProducto").as("tituloProducto")
+                        .last("idVendedor").as("idVendedor"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        List<VentaResumenEntity> resumenes = new ArrayList<>();
+        for (Document grupo : mongoTemplate.aggregate(aggregation, Document.class)) {
+            Document id = grupo.get("_id", Document.class);
+            Date ultimaFecha = grupo.getDate("ultimaFechaEmision");
+            boolean producto = ambito == EAmbitoVenta.PRODUCTO;
+
+            resumenes.add(VentaResumenEntity.builder()
+                    .ambito(ambito)
+                    .idAmbito(id.getString("idAmbito"))
+                    .año((int) numero(id.get("año")))
+                    .mes((int) numero(id.get("mes")))
+                    .dia((int) numero(id.get("dia")))
+                    .moneda(id.getString("moneda"))
+                    .idVendedor(producto ? grupo.getString("idVendedor") : null)
+                    .tituloProducto(producto ? grupo.getString("tituloProducto") : null)
+                    .cantidadFacturas(numero(grupo.get("cantidadFacturas")))
+                    .cantidadUnidades(numero(grupo.get("cantidadUnidades")))
+                    .importeCentimos(numero(grupo.get("importeCentimos")))
+                    .importeEurCentimos(numero(grupo.get("importeEurCentimos")))
+                    .ultimaFechaEmision(ultimaFecha != null
+                            ? LocalDateTime.ofInstant(ultimaFecha.toInstant(), ZoneId.systemDefault())
+                            : null)
+                    .build());
+        }
+        return resumenes;
+    }
+
+    /**
+     * Obtiene el campo de la factura que identifica el ámbito.
+     * 
+     * @param ambito Ámbito de agrupación
+     * @return Nombre del campo o null para el ámbito global
+     */
+    private String campoAmbito(EAmbitoVenta ambito) {
+        switch (ambito) {
+            case VENDEDOR:
+                return "idVendedor";
+            case COMPRADOR:
+                return "idComprador";
+            case PRODUCTO:
+                return "idProducto";
+            default:
+                return null;
+        }
+    }
+
+    private long numero(Object valor) {
+        return valor instanceof Number ? ((Number) valor).longValue() : 0;
+    }
+}
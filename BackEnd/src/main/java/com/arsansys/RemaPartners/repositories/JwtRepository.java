@@ -1,5 +1,8 @@
 package com.arsansys.RemaPartners.repositories;
 
+import java.util.Date;
+import java.util.List;
+
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -26,4 +29,12 @@ public interface JwtRepository extends MongoRepository<JwtEntity, String> {
      * @return JWT si existe
      */
     JwtEntity findByToken(String token);
+
+    /**
+     * Busca los JWT anulados que aún no han caducado.
+     * 
+     * @param fecha Fecha actual
+     * @return Lista de JWT anulados
+     */
+    List<JwtEntity> findByIsValidFalseAndExpirationDateAfter(Date fecha);
 }
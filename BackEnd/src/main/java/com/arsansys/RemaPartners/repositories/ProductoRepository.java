@@ -1,7 +1,10 @@
 package com.arsansys.RemaPartners.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.annotation.Collation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,7 +18,40 @@ import com.arsansys.RemaPartners.models.enums.EMoneda;
  * MongoDB.
  */
 @Repository
-public interface ProductoRepository extends MongoRepository<ProductoEntity, String> {
+public interface ProductoRepository extends MongoRepository<ProductoEntity, String>, ProductoRepositoryCustom {
+
+    /**
+     * Busca productos por ID del vendedor.
+     * 
+     * @param idUsuario ID del vendedor
+     * @return Lista de productos
+     */
+    List<ProductoEntity> findByIdUsuario(String idUsuario);
+
+    /**
+     * Cuenta los productos de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor
+     * @return Número de productos
+     */
+    long countByIdUsuario(String idUsuario);
+
+    /**
+     * Busca los productos más visitados de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor
+     * @param pageable  Página con el número de productos
+     * @return Lista de productos ordenada por visitas descendente
+     */
+    List<ProductoEntity> findByIdUsuarioOrderByVisitasDesc(String idUsuario, Pageable pageable);
+
+    /**
+     * Busca los productos más visitados.
+     * 
+     * @param pageable Página con el número de productos
+     * @return Lista de productos ordenada por visitas descendente
+     */
+    List<ProductoEntity> findByOrderByVisitasDesc(Pageable pageable);
 
     /**
      * Busca productos por estado.
@@ -65,6 +101,17 @@ public interface ProductoRepository extends MongoRepository<ProductoEntity, Stri
      */
     List<ProductoEntity> findByTitulo(String titulo);
 
+    /**
+     * Comprueba si existe un producto con el título indicado sin distinguir
+     * mayúsculas. Usa el índice único "titulo_ci", que tiene la misma
+     * intercalación.
+     * 
+     * @param titulo Título del producto
+     * @return true si existe
+     */
+    @Collation(ProductoEntity.COLACION_TITULO)
+    boolean existsByTitulo(String titulo);
+
     /**
      * Busca productos por descripción.
      * 
@@ -73,4 +120,11 @@ public interface ProductoRepository extends MongoRepository<ProductoEntity, Stri
      */
     List<ProductoEntity> findByDescripcion(String descripcion);
 
+    /**
+     * Recorre todos los productos sin cargarlos a la vez en memoria.
+     * 
+     * @return Stream de productos (debe cerrarse tras su uso)
+     */
+    Stream<ProductoEntity> streamAllBy();
+
 }
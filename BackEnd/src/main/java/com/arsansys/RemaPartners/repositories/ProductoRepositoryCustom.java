@@ -0,0 +1,35 @@
+package com.arsansys.RemaPartners.repositories;
+
+import org.springframework.data.domain.Slice;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+/**
+ * Consultas de agregación sobre productos ejecutadas en el servidor de MongoDB.
+ */
+public interface ProductoRepositoryCustom {
+
+    /**
+     * Suma las visitas de los productos de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor (null para todos los productos)
+     * @return Total de visitas
+     */
+    long sumVisitasByIdUsuario(String idUsuario);
+
+    /**
+     * Obtiene una página del catálogo ordenada por ID descendente (más recientes
+     * primero) a partir de un cursor. Los productos solo incluyen los campos de
+     * la tarjeta del catálogo y la primera imagen.
+     * 
+     * @param activo      Filtro por activo (null para no filtrar)
+     * @param idCategoria Filtro por categoría (null para no filtrar)
+     * @param destacado   Filtro por destacado (null para no filtrar)
+     * @param cursor      ID del último producto de la página anterior (null para
+     *                    la primera)
+     * @param limite      Número máximo de productos
+     * @return Página de productos
+     */
+    Slice<ProductoEntity> findPagina(Boolean activo, String idCategoria, Boolean destacado, String cursor,
+            int limite);
+}
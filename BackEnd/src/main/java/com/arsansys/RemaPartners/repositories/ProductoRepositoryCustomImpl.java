@@ -0,0 +1,94 @@
+package com.arsansys.RemaPartners.repositories;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+/**
+ * Implementación de las agregaciones sobre productos.
+ */
+public class ProductoRepositoryCustomImpl implements ProductoRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Suma las visitas de los productos de un vendedor con {@code $match} sobre
+     * el índice (idUsuario, visitas) y {@code $group}.
+     * 
+     * @param idUsuario ID del vendedor (null para todos los productos)
+     * @return Total de visitas
+     */
+    @Override
+    public long sumVisitasByIdUsuario(String idUsuario) {
+        Criteria criteria = idUsuario != null ? Criteria.where("idUsuario").is(idUsuario) : new Criteria();
+
+        TypedAggregation<ProductoEntity> aggregation = Aggregation.newAggregation(ProductoEntity.class,
+                Aggregation.match(criteria),
+                Aggregation.group().sum("visitas").as("totalVisitas"));
+
+        Document resultado = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        if (resultado == null || !(resultado.get("totalVisitas") instanceof Number)) {
+            return 0;
+        }
+        return ((Number) resultado.get("totalVisitas")).longValue();
+    }
+
+    /**
+     * Obtiene una página del catálogo con paginación por cursor sobre
+     * {@code _id}. Las inserciones nuevas quedan antes del cursor, por lo que no
+     * desplazan las páginas siguientes. Se pide un producto más del límite para
+     * saber si hay página siguiente.
+     * 
+     * @param activo      Filtro por activo (null para no filtrar)
+     * @param idCategoria Filtro por categoría (null para no filtrar)
+     * @param destacado   Filtro por destacado (null para no filtrar)
+     * @param cursor      ID del último producto de la página anterior (null para
+     *                    la primera)
+     * @param limite      Número máximo de productos
+     * @return Página de productos
+     */
+    @Override
+    public Slice<ProductoEntity> findPagina(Boolean activo, String idCategoria, Boolean destacado, String cursor,
+            int limite) {
+        Criteria criteria = new Criteria();
+        if (idCategoria != null) {
+            criteria = criteria.and("idCategoria").is(idCategoria);
+        }
+        if (destacado != null) {
+            criteria = criteria.and("destacado").is(destacado);
+        }
+        if (activo != null) {
+            criteria = criteria.and("activo").is(activo);
+        }
+        if (cursor != null) {
+            criteria = criteria.and("id").lt(cursor);
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "id"))
+                .limit(limite + 1);
+        query.fields()
+                .include("titulo", "precioCentimos", "moneda", "estado")
+                .slice("imagenes", 1);
+
+        List<ProductoEntity> productos = mongoTemplate.find(query, ProductoEntity.class);
+        boolean hayMas = productos.size() > limite;
+        if (hayMas) {
+            productos = productos.subList(0, limite);
+        }
+        return new SliceImpl<>(productos, PageRequest.of(0, limite), hayMas);
+    }
+}
@@ -1,8 +1,11 @@
 package com.arsansys.RemaPartners.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.arsansys.RemaPartners.models.entities.UserEntity;
@@ -31,6 +34,25 @@ public interface UserRepository extends MongoRepository<UserEntity, String> {
      */
     Optional<UserEntity> findById(String id);
 
+    /**
+     * Busca los nombres de varios usuarios. Solo se leen el ID y el nombre.
+     * 
+     * @param ids IDs de los usuarios
+     * @return Usuarios encontrados con solo el ID y el nombre
+     */
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'username': 1 }")
+    List<UserEntity> findUsernamesByIdIn(Collection<String> ids);
+
+    /**
+     * Busca los datos de notificación de varios usuarios. Solo se leen el ID,
+     * el nombre, el token del dispositivo y el permiso de notificaciones.
+     * 
+     * @param ids IDs de los usuarios
+     * @return Usuarios encontrados con solo esos campos
+     */
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'username': 1, 'googleToken': 1, 'notificaciones': 1 }")
+    List<UserEntity> findNotificacionesByIdIn(Collection<String> ids);
+
     /**
      * Busca un usuario por su correo electrónico.
      * 
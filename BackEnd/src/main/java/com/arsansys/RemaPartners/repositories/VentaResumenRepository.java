@@ -0,0 +1,79 @@
+package com.arsansys.RemaPartners.repositories;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
+
+/**
+ * Repositorio para la entidad VentaResumenEntity.
+ * Permite consultar los resúmenes de ventas precalculados en MongoDB.
+ */
+@Repository
+public interface VentaResumenRepository extends MongoRepository<VentaResumenEntity, String> {
+
+    /**
+     * Busca los resúmenes de un ámbito para un año y un día (0 para los resúmenes
+     * mensuales).
+     * 
+     * @param ambito   Ámbito del resumen
+     * @param idAmbito ID del vendedor, comprador, producto o global
+     * @param año      Año
+     * @param dia      Día
+     * @return Lista de resúmenes
+     */
+    List<VentaResumenEntity> findByAmbitoAndIdAmbitoAndAñoAndDia(EAmbitoVenta ambito, String idAmbito, int año,
+            int dia);
+
+    /**
+     * Busca los resúmenes diarios de un ámbito para un mes.
+     * 
+     * @param ambito   Ámbito del resumen
+     * @param idAmbito ID del vendedor, comprador, producto o global
+     * @param año      Año
+     * @param mes      Mes
+     * @param dia      Día mínimo (exclusivo)
+     * @return Lista de resúmenes
+     */
+    List<VentaResumenEntity> findByAmbitoAndIdAmbitoAndAñoAndMesAndDiaGreaterThan(EAmbitoVenta ambito,
+            String idAmbito, int año, int mes, int dia);
+
+    /**
+     * Busca los resúmenes mensuales de un ámbito en todos los años.
+     * 
+     * @param ambito   Ámbito del resumen
+     * @param idAmbito ID del vendedor, comprador, producto o global
+     * @param mes      Mes mínimo (exclusivo)
+     * @param dia      Día
+     * @return Lista de resúmenes
+     */
+    List<VentaResumenEntity> findByAmbitoAndIdAmbitoAndMesGreaterThanAndDia(EAmbitoVenta ambito, String idAmbito,
+            int mes, int dia);
+
+    /**
+     * Busca los resúmenes de un ámbito para un año y mes (0 para los resúmenes
+     * anuales).
+     * 
+     * @param ambito Ámbito del resumen
+     * @param año    Año
+     * @param mes    Mes
+     * @return Lista de resúmenes
+     */
+    List<VentaResumenEntity> findByAmbitoAndAñoAndMes(EAmbitoVenta ambito, int año, int mes);
+
+    /**
+     * Busca los resúmenes de producto de un vendedor para un año y mes (0 para los
+     * resúmenes anuales).
+     * 
+     * @param ambito     Ámbito del resumen
+     * @param idVendedor ID del vendedor
+     * @param año        Año
+     * @param mes        Mes
+     * @return Lista de resúmenes
+     */
+    List<VentaResumenEntity> findByAmbitoAndIdVendedorAndAñoAndMes(EAmbitoVenta ambito, String idVendedor, int año,
+            int mes);
+}
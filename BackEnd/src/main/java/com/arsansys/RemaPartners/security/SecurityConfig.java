@@ -23,6 +23,8 @@ import com.arsansys.RemaPartners.security.filters.JwtAutorizationFilter;
 import com.arsansys.RemaPartners.security.jwt.JwtUtils;
 import com.arsansys.RemaPartners.services.UserService;
 
+import jakarta.servlet.DispatcherType;
+
 import java.util.Arrays;
 
 /**
@@ -73,8 +75,12 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(config -> config.disable())
                 .authorizeHttpRequests(auth -> {
+                    // Las respuestas asíncronas (SSE) ya se autorizaron en la petición original
+                    auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
                     auth.requestMatchers("/login", "/logout", "/", "/api", "/createUser", "/vendedor/producto/getAll",
-                            "/vendedor/producto/getById/*", "/api/binary-image/*",
+                            "/vendedor/producto/getById/*", "/vendedor/producto/page",
+                            "/vendedor/producto/buscar", "/vendedor/producto/facetas",
+                            "/vendedor/producto/autocompletar", "/api/binary-image/*",
                             "/api/images/*", "/resorces/static/**", "/api/stripe/**", "/api/upload/**",
                             "/api/images/lowRes/**", "/getUserByEmail/**", "/getUserByUsername/**",
                             "/admin/categoria/getById/**", "/admin/categoria/getAll")
@@ -129,7 +135,7 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:5173"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
 
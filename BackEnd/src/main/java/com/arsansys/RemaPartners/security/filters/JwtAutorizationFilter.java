@@ -1,6 +1,8 @@
 package com.arsansys.RemaPartners.security.filters;
 
 import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -10,8 +12,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.arsansys.RemaPartners.security.jwt.JwtUtils;
+import com.arsansys.RemaPartners.services.TicketStreamChatService;
 import com.arsansys.RemaPartners.services.servicesImpl.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
 import io.micrometer.common.lang.NonNull;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -27,17 +31,27 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class JwtAutorizationFilter extends OncePerRequestFilter {
 
+    /**
+     * Rutas de eventos de chat, que se autentican con un ticket de un solo uso.
+     */
+    private static final Pattern RUTA_EVENTOS_CHAT = Pattern.compile("/api/chat/([^/]+)/stream");
+
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private TicketStreamChatService ticketStreamChatService;
+
     @Autowired
     private UserDetailsServiceImpl userDetailsServiceImpl;
 
     /**
      * Método que se ejecuta por cada petición HTTP.
      * <p>
-     * Extrae y valida el token JWT del encabezado Authorization.
-     * Si es válido, establece la autenticación en el contexto de seguridad.
+     * Extrae y valida el token JWT del encabezado Authorization. Las
+     * conexiones de eventos de chat, que no pueden enviar cabeceras, se
+     * autentican en su lugar con el parámetro {@code ticket}. Si es válido,
+     * establece la autenticación en el contexto de seguridad.
      *
      * @param request     Petición HTTP.
      * @param response    Respuesta HTTP.
@@ -55,18 +69,33 @@ public class JwtAutorizationFilter extends OncePerRequestFilter {
         if (tokenHeader != null && tokenHeader.startsWith("Bearer ")) {
             String token = tokenHeader.substring(7, tokenHeader.length());
 
-            if (jwtUtils.isTokenValid(token)) {
-                String username = jwtUtils.getUsernameFromToken(token);
-                UserDetails userDetails = userDetailsServiceImpl.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        username, null, userDetails.getAuthorities());
-
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-
+            Claims claims = jwtUtils.getValidClaims(token);
+            if (claims != null) {
+                autenticar(claims.getSubject());
+            }
+        } else {
+            Matcher eventosChat = RUTA_EVENTOS_CHAT.matcher(request.getServletPath());
+            String ticket = request.getParameter("ticket");
+            if (ticket != null && eventosChat.matches()) {
+                String username = ticketStreamChatService.canjear(ticket, eventosChat.group(1));
+                if (username != null) {
+                    autenticar(username);
+                }
             }
         }
         filterChain.doFilter(request, response);
 
     }
 
+    /**
+     * Establece en el contexto de seguridad la autenticación de un usuario.
+     */
+    private void autenticar(String username) {
+        UserDetails userDetails = userDetailsServiceImpl.loadUserByUsername(username);
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                username, null, userDetails.getAuthorities());
+
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    }
+
 }
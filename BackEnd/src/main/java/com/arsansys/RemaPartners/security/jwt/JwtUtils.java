@@ -1,27 +1,52 @@
 package com.arsansys.RemaPartners.security.jwt;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.arsansys.RemaPartners.models.entities.JwtEntity;
 import com.arsansys.RemaPartners.services.JwtService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Utilidades para la gestión de tokens JWT.
  * <p>
  * Permite generar, validar, extraer información y anular tokens JWT.
+ * <p>
+ * La clave de firma y el parser se crean una sola vez. Los tokens ya
+ * verificados se guardan en una caché limitada, indexada por el resumen
+ * SHA-256 del token, con sus claims; cada entrada caduca cuando caduca el
+ * token. Los tokens anulados se mantienen en memoria (solo los que aún no han
+ * caducado) y se recargan periódicamente de la base de datos para recoger los
+ * anulados en otras instancias. Así, validar un token conocido no requiere
+ * criptografía ni consultas a la base de datos.
  */
 @Component
 @Slf4j
@@ -33,9 +58,85 @@ public class JwtUtils {
     @Value("${jwt.time.expiration}")
     private String timeExpiration;
 
+    @Value("${jwt.cache.max-entradas:10000}")
+    private long maxEntradas;
+
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private SecretKey signatureKey;
+
+    private JwtParser parser;
+
+    // Claims de los tokens verificados, por resumen del token
+    private Cache<String, Claims> tokensVerificados;
+
+    // Caducidad en milisegundos de los tokens anulados, por resumen del token
+    private final Map<String, Long> tokensAnulados = new ConcurrentHashMap<>();
+
+    /**
+     * Crea la clave de firma, el parser y la caché de tokens verificados.
+     */
+    @PostConstruct
+    public void init() {
+        signatureKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser()
+                .verifyWith(signatureKey)
+                .build();
+        tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String clave, Claims claims, long ahora) {
+                        return tiempoHastaCaducidad(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String clave, Claims claims, long ahora, long restante) {
+                        return tiempoHastaCaducidad(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String clave, Claims claims, long ahora, long restante) {
+                        return restante;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokensVerificados, "jwt");
+    }
+
+    /**
+     * Carga los tokens anulados al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararTokensAnulados() {
+        recargarTokensAnulados();
+    }
+
+    /**
+     * Recarga periódicamente los tokens anulados, incluidos los anulados en
+     * otras instancias, y olvida los que ya han caducado.
+     */
+    @Scheduled(fixedDelayString = "${jwt.anulados.recarga-ms:30000}",
+            initialDelayString = "${jwt.anulados.recarga-ms:30000}")
+    public void recargarTokensAnulados() {
+        try {
+            for (JwtEntity jwt : jwtService.findRevocados()) {
+                String clave = resumen(jwt.getToken());
+                tokensAnulados.put(clave, jwt.getExpirationDate().getTime());
+                tokensVerificados.invalidate(clave);
+            }
+            long ahora = System.currentTimeMillis();
+            tokensAnulados.values().removeIf(caducidad -> caducidad <= ahora);
+        } catch (Exception e) {
+            log.error("Error loading revoked tokens: " + e.getMessage());
+        }
+    }
+
     /**
      * Genera un token de acceso JWT para el usuario especificado.
      *
@@ -60,20 +161,27 @@ public class JwtUtils {
      */
     // Validar token acceso
     public boolean isTokenValid(String token) {
+        return getValidClaims(token) != null;
+    }
+
+    /**
+     * Obtiene los claims de un token JWT si es válido: firma correcta, no
+     * caducado y no anulado.
+     *
+     * @param token Token JWT.
+     * @return Claims del token, o null si no es válido.
+     */
+    public Claims getValidClaims(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSignatureKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            if (jwtService.findByToken(token) != null && !jwtService.findByToken(token).getIsValid()) {
+            String clave = resumen(token);
+            if (tokensAnulados.containsKey(clave)) {
                 log.error("Token invalido1: ".concat(token));
-                return false;
+                return null;
             }
-            return true;
+            return tokensVerificados.get(clave, k -> parser.parseSignedClaims(token).getPayload());
         } catch (Exception e) {
             log.error("Token invalido2: ".concat(e.getMessage()));
-            return false;
+            return null;
         }
     }
 
@@ -111,11 +219,7 @@ public class JwtUtils {
     // Obtener todos los claims(informacion) token
     public Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSignatureKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return tokensVerificados.get(resumen(token), k -> parser.parseSignedClaims(token).getPayload());
         } catch (Exception e) {
             log.error("Error extracting claims from token: " + e.getMessage());
             throw new RuntimeException("Invalid token", e);
@@ -129,8 +233,7 @@ public class JwtUtils {
      */
     // Obtener firma token
     public SecretKey getSignatureKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signatureKey;
     }
 
     /**
@@ -148,11 +251,39 @@ public class JwtUtils {
             jwtToken.setUsername(getUsernameFromToken(jwtTokenString));
 
             jwtService.save(jwtToken);
+
+            String clave = resumen(jwtTokenString);
+            tokensAnulados.put(clave, expirationDate.getTime());
+            tokensVerificados.invalidate(clave);
         } catch (Exception e) {
             log.error("Error al invalidar el token: " + e.getMessage());
         }
     }
 
+    /**
+     * Calcula el resumen SHA-256 de un token, que sirve de clave en memoria
+     * sin guardar el propio token.
+     */
+    private static String resumen(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Tiempo en nanosegundos que queda hasta la caducidad de un token.
+     */
+    private static long tiempoHastaCaducidad(Claims claims) {
+        if (claims.getExpiration() == null) {
+            return 0;
+        }
+        long restanteMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, restanteMs));
+    }
+
     private Date getExpirationDateFromToken(String jwtTokenString) {
         Claims claims = extractAllClaims(jwtTokenString);
         try {
@@ -0,0 +1,27 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.List;
+
+/**
+ * Servicio de autocompletado de títulos, marcas y modelos de los productos
+ * activos.
+ */
+public interface AutocompletadoProductoService {
+
+    /**
+     * Obtiene las sugerencias que completan un prefijo, ordenadas por las
+     * visitas de sus productos y dando prioridad a los destacados.
+     *
+     * @param prefijo Texto escrito por el usuario.
+     * @param limite  Número máximo de sugerencias.
+     * @return Lista de sugerencias.
+     */
+    List<String> completar(String prefijo, int limite);
+
+    /**
+     * Reconstruye el índice de autocompletado a partir de todos los productos.
+     *
+     * @return Número de sugerencias indexadas.
+     */
+    int reconstruirIndice();
+}
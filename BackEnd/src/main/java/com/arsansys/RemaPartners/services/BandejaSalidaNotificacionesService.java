@@ -0,0 +1,32 @@
+package com.arsansys.RemaPartners.services;
+
+/**
+ * Bandeja de salida de las notificaciones push de los chats.
+ * <p>
+ * Las notificaciones no se envían al recibir el mensaje: se guardan en la
+ * bandeja y un despachador en segundo plano las envía por lotes. Los mensajes
+ * de un mismo chat que llegan a un destinatario mientras su notificación
+ * espera se agrupan en una sola.
+ */
+public interface BandejaSalidaNotificacionesService {
+
+    /**
+     * Añade un mensaje a la notificación pendiente del destinatario para ese
+     * chat, o crea una nueva si no hay ninguna.
+     *
+     * @param idDestinatario ID del usuario que recibe la notificación.
+     * @param idChat         ID del chat.
+     * @param idEmisor       ID del emisor del mensaje.
+     * @param mensaje        Texto del mensaje.
+     */
+    abstract void encolar(String idDestinatario, String idChat, String idEmisor, String mensaje);
+
+    /**
+     * Envía las notificaciones pendientes cuyo momento de envío ha llegado. Las
+     * que fallan por un error transitorio se reprograman con una espera
+     * creciente.
+     *
+     * @return Número de notificaciones procesadas.
+     */
+    abstract int despacharPendientes();
+}
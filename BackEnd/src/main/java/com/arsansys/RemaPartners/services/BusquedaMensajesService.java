@@ -0,0 +1,30 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.List;
+
+import com.arsansys.RemaPartners.services.busqueda.CoincidenciaMensaje;
+
+/**
+ * Servicio de búsqueda de texto completo en los mensajes de los chats de un
+ * usuario.
+ */
+public interface BusquedaMensajesService {
+
+    /**
+     * Busca los mensajes de los chats de un usuario que contienen todos los
+     * términos de la consulta, de más reciente a más antiguo.
+     *
+     * @param idUsuario ID del usuario, que debe participar en los chats.
+     * @param texto     Texto de la consulta.
+     * @param limite    Número máximo de resultados.
+     * @return Mensajes encontrados con su chat y un fragmento del texto.
+     */
+    abstract List<CoincidenciaMensaje> buscar(String idUsuario, String texto, int limite);
+
+    /**
+     * Indexa los mensajes de los chats que aún no están en el índice.
+     *
+     * @return Número de chats indexados.
+     */
+    abstract int indexarPendientes();
+}
@@ -0,0 +1,30 @@
+package com.arsansys.RemaPartners.services;
+
+import org.springframework.data.domain.Page;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+/**
+ * Servicio de búsqueda de texto completo sobre los productos activos.
+ */
+public interface BusquedaProductoService {
+
+    /**
+     * Busca productos por texto en título, marca, modelo, descripción y campos
+     * de categoría, ordenados por relevancia. La última palabra de la consulta
+     * se trata como prefijo.
+     *
+     * @param texto  Texto de la consulta.
+     * @param desde  Posición del primer resultado.
+     * @param limite Número máximo de resultados.
+     * @return Página de productos y número total de coincidencias.
+     */
+    Page<ProductoEntity> buscar(String texto, int desde, int limite);
+
+    /**
+     * Reconstruye el índice de búsqueda a partir de todos los productos.
+     *
+     * @return Número de productos indexados.
+     */
+    int reconstruirIndice();
+}
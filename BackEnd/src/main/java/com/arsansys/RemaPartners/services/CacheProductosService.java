@@ -0,0 +1,28 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.Optional;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+/**
+ * Caché de lectura de productos por ID.
+ */
+public interface CacheProductosService {
+
+    /**
+     * Obtiene un producto de la caché o lo carga de la base de datos si no
+     * está. Las peticiones simultáneas del mismo producto esperan a una única
+     * carga. Se devuelve una copia que el llamador puede modificar.
+     *
+     * @param id ID del producto.
+     * @return Copia del producto, o vacío si no existe.
+     */
+    Optional<ProductoEntity> obtener(String id);
+
+    /**
+     * Invalida un producto en la caché de todos los nodos.
+     *
+     * @param id ID del producto.
+     */
+    void invalidar(String id);
+}
@@ -0,0 +1,29 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal por el que se difunden las invalidaciones de la caché de productos.
+ * <p>
+ * La implementación por defecto solo avisa a la instancia local. En un
+ * despliegue con varios nodos se puede sustituir por otra (por ejemplo, sobre
+ * un sistema de mensajería) con la propiedad
+ * {@code productos.cache.invalidacion}.
+ */
+public interface CanalInvalidacionProductos {
+
+    /**
+     * Difunde la invalidación de un producto a todos los nodos, incluido el
+     * actual.
+     *
+     * @param productoId ID del producto modificado o eliminado.
+     */
+    void publicar(String productoId);
+
+    /**
+     * Registra un oyente que recibe las invalidaciones de todos los nodos.
+     *
+     * @param oyente Función que recibe el ID del producto.
+     */
+    void suscribir(Consumer<String> oyente);
+}
@@ -2,6 +2,7 @@ package com.arsansys.RemaPartners.services;
 
 import java.util.List;
 
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.ChatEntity;
@@ -11,30 +12,95 @@ import com.arsansys.RemaPartners.models.entities.MensajeEntity;
 public interface ChatService {
 
     /**
-     * Crea un nuevo chat.
+     * Crea un nuevo chat, o devuelve el existente si ya hay uno del mismo
+     * producto entre el mismo comprador y vendedor. Los mensajes iniciales solo
+     * se añaden si el chat es nuevo.
      * 
      * @param chatEntity Entidad de chat a crear.
-     * @return Chat creado.
+     * @return Chat creado o existente.
      */
     abstract ChatEntity createChat(ChatEntity chatEntity);
 
+    /**
+     * Obtiene el chat de un producto entre un comprador y un vendedor, o lo crea
+     * si no existe, con una única operación atómica.
+     * 
+     * @param idProducto  ID del producto.
+     * @param idComprador ID del comprador.
+     * @param idVendedor  ID del vendedor.
+     * @return Chat existente o creado, sin el historial de mensajes.
+     */
+    abstract ChatEntity getOrCreateChat(String idProducto, String idComprador, String idVendedor);
+
     /**
      * Añade un mensaje a un chat existente.
      * 
      * @param chatEntity    Chat al que se añade el mensaje.
      * @param mensajeEntity Mensaje a añadir.
-     * @return Chat actualizado con el nuevo mensaje.
+     * @return Chat actualizado con el nuevo mensaje como último mensaje, sin el
+     *         historial.
      */
     abstract ChatEntity addMensaje(ChatEntity chatEntity, MensajeEntity mensajeEntity);
 
     /**
-     * Obtiene un chat por su ID.
+     * Obtiene un chat por su ID con todos sus mensajes.
      * 
      * @param id ID del chat.
      * @return Chat encontrado o null si no existe.
      */
     abstract ChatEntity getChatById(String id);
 
+    /**
+     * Obtiene el resumen de un chat por su ID, sin cargar sus mensajes.
+     * 
+     * @param id ID del chat.
+     * @return Chat encontrado.
+     */
+    abstract ChatEntity getResumenChatById(String id);
+
+    /**
+     * Obtiene los mensajes de un chat anteriores a una posición, en orden de
+     * envío. Sin posición devuelve los últimos mensajes.
+     * 
+     * @param id      ID del chat.
+     * @param antesDe Secuencia del mensaje más antiguo ya recibido (null para
+     *                los últimos mensajes).
+     * @param limite  Número máximo de mensajes.
+     * @return Mensajes; {@code hasNext} indica si hay mensajes más antiguos.
+     */
+    abstract Slice<MensajeEntity> getMensajesAnteriores(String id, Long antesDe, int limite);
+
+    /**
+     * Obtiene los mensajes de un chat posteriores a una posición, en orden de
+     * envío. Si no hay mensajes nuevos no se leen los bloques de mensajes.
+     * 
+     * @param id     ID del chat.
+     * @param desde  Secuencia del último mensaje ya recibido.
+     * @param limite Número máximo de mensajes.
+     * @return Mensajes; {@code hasNext} indica si hay más mensajes nuevos.
+     */
+    abstract Slice<MensajeEntity> getMensajesPosteriores(String id, long desde, int limite);
+
+    /**
+     * Obtiene el resumen de los chats en los que participa un usuario, del más
+     * reciente al más antiguo. Los chats solo incluyen los campos del resumen.
+     * 
+     * @param idUsuario ID del usuario, como comprador o vendedor.
+     * @return Lista de chats del usuario.
+     */
+    abstract List<ChatEntity> getBandejaEntrada(String idUsuario);
+
+    /**
+     * Marca como leídos los mensajes de un chat hasta una posición para uno de
+     * sus participantes.
+     * 
+     * @param id        ID del chat.
+     * @param idUsuario ID del participante que lee los mensajes.
+     * @param hasta     Secuencia del último mensaje leído (null para todos).
+     * @throws IllegalArgumentException Si el usuario no participa en el chat.
+     */
+    abstract void marcarLeidos(String id, String idUsuario, Long hasta);
+
     /**
      * Busca chats por el ID del producto.
      * 
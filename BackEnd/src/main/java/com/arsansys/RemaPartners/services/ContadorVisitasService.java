@@ -0,0 +1,31 @@
+package com.arsansys.RemaPartners.services;
+
+/**
+ * Servicio que acumula en memoria las visitas a productos y las vuelca
+ * periódicamente a la base de datos.
+ */
+public interface ContadorVisitasService {
+
+    /**
+     * Registra una visita a un producto. La visita se guarda en memoria hasta el
+     * siguiente volcado.
+     *
+     * @param productoId Identificador del producto.
+     * @param vendedorId Identificador del vendedor del producto.
+     */
+    void registrarVisita(String productoId, String vendedorId);
+
+    /**
+     * Obtiene las visitas de un producto que aún no se han volcado.
+     *
+     * @param productoId Identificador del producto.
+     * @return Número de visitas pendientes.
+     */
+    long getVisitasPendientes(String productoId);
+
+    /**
+     * Vuelca las visitas pendientes a los contadores de productos y a las
+     * estadísticas mensuales.
+     */
+    void volcar();
+}
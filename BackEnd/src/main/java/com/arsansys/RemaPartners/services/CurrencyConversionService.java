@@ -1,5 +1,7 @@
 package com.arsansys.RemaPartners.services;
 
+import java.time.LocalDate;
+
 public interface CurrencyConversionService {
     /**
      * Convierte una cantidad de una moneda origen a una moneda destino.
@@ -10,4 +12,17 @@ public interface CurrencyConversionService {
      * @return Cantidad en centavos de la moneda destino.
      */
     int convertCurrency(int amount, String sourceCurrency, String targetCurrency);
+
+    /**
+     * Obtiene la tasa de cambio a EUR de una moneda en una fecha. Para fechas
+     * pasadas se usa la tasa histórica del BCE del último día publicado anterior
+     * o igual a la fecha.
+     *
+     * @param moneda Código de la moneda.
+     * @param fecha  Fecha de la tasa (null para la tasa actual).
+     * @return Valor en EUR de una unidad de la moneda.
+     * @throws IllegalStateException Si la fecha es pasada y no hay tasa
+     *                               histórica para ella.
+     */
+    double getTasaEur(String moneda, LocalDate fecha);
 }
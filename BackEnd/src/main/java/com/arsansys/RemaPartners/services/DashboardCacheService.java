@@ -0,0 +1,36 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.function.Supplier;
+
+/**
+ * Servicio de caché para los resultados de los endpoints del dashboard.
+ * <p>
+ * Cada entrada se identifica por endpoint, ámbito (usuario o producto) y
+ * periodo. Las entradas se invalidan al registrar facturas o visitas que
+ * afectan a su ámbito y periodo.
+ */
+public interface DashboardCacheService {
+
+    /**
+     * Periodo de las entradas que no dependen de un año o mes concreto.
+     */
+    String SIN_PERIODO = "*";
+
+    /**
+     * Obtiene un resultado de la caché o lo calcula y lo guarda si no existe.
+     * El resultado no debe modificarse después de guardarlo.
+     *
+     * @param endpoint Nombre del endpoint ("ventas/..." o "visitas/...").
+     * @param ambito   ID del usuario o producto del que dependen los datos.
+     * @param global   true si los datos incluyen todos los vendedores.
+     * @param periodo  Año ("2025"), año y mes ("2025-3") o {@link #SIN_PERIODO}.
+     * @param calculo  Función que calcula el resultado.
+     * @return Resultado guardado o calculado.
+     */
+    <T> T obtener(String endpoint, String ambito, boolean global, String periodo, Supplier<T> calculo);
+
+    /**
+     * Elimina todas las entradas de la caché.
+     */
+    void invalidarTodo();
+}
@@ -0,0 +1,29 @@
+package com.arsansys.RemaPartners.services;
+
+import com.arsansys.RemaPartners.services.busqueda.FiltroFacetas;
+import com.arsansys.RemaPartners.services.busqueda.PaginaFacetada;
+
+/**
+ * Servicio de filtrado por facetas (categoría, marca, modelo, estado, precio y
+ * campos de categoría) sobre los productos activos.
+ */
+public interface FacetasProductoService {
+
+    /**
+     * Obtiene los productos que cumplen el filtro y el recuento de productos de
+     * cada faceta.
+     *
+     * @param filtro Filtro de la consulta.
+     * @param desde  Posición del primer resultado.
+     * @param limite Número máximo de resultados.
+     * @return Página de productos y recuentos de las facetas.
+     */
+    PaginaFacetada buscar(FiltroFacetas filtro, int desde, int limite);
+
+    /**
+     * Reconstruye el índice de facetas a partir de todos los productos.
+     *
+     * @return Número de productos indexados.
+     */
+    int reconstruirIndice();
+}
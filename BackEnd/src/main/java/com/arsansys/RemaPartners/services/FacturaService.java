@@ -1,6 +1,7 @@
 package com.arsansys.RemaPartners.services;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
@@ -20,6 +21,21 @@ public interface FacturaService {
      */
     FacturaEntity createFactura(FacturaEntity facturaEntity);
 
+    /**
+     * Crea una factura a partir de la venta de un producto reservando antes su
+     * stock. Si la factura no se puede crear, el stock se devuelve.
+     *
+     * @param idProducto  ID del producto vendido.
+     * @param idComprador ID del comprador.
+     * @param idVendedor  ID del vendedor.
+     * @param cantidad    Cantidad vendida.
+     * @param idChat      ID del chat donde se realizó la venta.
+     * @return La factura creada.
+     * @throws IllegalStateException Si no hay stock suficiente.
+     */
+    FacturaEntity createFacturaFromSale(String idProducto, String idComprador, String idVendedor, int cantidad,
+            String idChat);
+
     /**
      * Obtiene una factura por su ID.
      * 
@@ -67,4 +83,13 @@ public interface FacturaService {
      * @return la factura actualizada.
      */
     FacturaEntity updateFactura(FacturaEntity facturaEntity);
+
+    /**
+     * Calcula el importe en EUR de las facturas que no lo tienen usando la tasa
+     * histórica de su fecha de emisión y regenera los resúmenes de ventas.
+     * 
+     * @return mapa con el número de facturas completadas y de resúmenes
+     *         generados.
+     */
+    Map<String, Long> completarImportesEur();
 }
@@ -0,0 +1,49 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * Servicio que hace idempotentes las operaciones de escritura a partir de una
+ * clave enviada por el cliente.
+ * <p>
+ * La primera petición con una clave se ejecuta y su respuesta se guarda; los
+ * reintentos con la misma clave reciben la respuesta guardada sin volver a
+ * ejecutar la operación. Si llegan duplicados mientras la primera petición
+ * aún se está ejecutando, esperan a su resultado.
+ */
+public interface IdempotenciaService {
+
+    /**
+     * Cabecera HTTP con la clave de idempotencia.
+     */
+    String CABECERA = "Idempotency-Key";
+
+    /**
+     * Cabecera que se añade a las respuestas repetidas.
+     */
+    String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    /**
+     * Ejecuta una operación una sola vez por clave o repite su respuesta.
+     * Si la clave es nula o vacía la operación se ejecuta sin más. Las
+     * respuestas con error de servidor no se guardan para que el cliente pueda
+     * reintentar.
+     *
+     * @param operacion Nombre de la operación (p. ej. "factura/createFromSale").
+     * @param clave     Clave de idempotencia enviada por el cliente.
+     * @param peticion  Datos de la petición, para detectar claves reutilizadas.
+     * @param tipo      Tipo del cuerpo de la respuesta.
+     * @param accion    Operación que se ejecuta la primera vez.
+     * @return Respuesta de la operación, ejecutada ahora o repetida.
+     * @throws IllegalStateException    Si otra petición con la misma clave no
+     *                                  termina a tiempo o si no se puede guardar
+     *                                  la respuesta de la operación ejecutada.
+     * @throws IllegalArgumentException Si la clave ya se usó con otros datos.
+     */
+    <T> ResponseEntity<T> ejecutar(String operacion, String clave, Object peticion, TypeReference<T> tipo,
+            Supplier<ResponseEntity<T>> accion);
+}
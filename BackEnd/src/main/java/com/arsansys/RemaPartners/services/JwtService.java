@@ -1,5 +1,7 @@
 package com.arsansys.RemaPartners.services;
 
+import java.util.List;
+
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.JwtEntity;
@@ -30,4 +32,11 @@ public interface JwtService {
      */
     void save(JwtEntity jwtToken);
 
+    /**
+     * Obtiene los tokens JWT anulados que aún no han caducado.
+     * 
+     * @return Lista de entidades JWT anuladas.
+     */
+    List<JwtEntity> findRevocados();
+
 }
@@ -1,7 +1,11 @@
 package com.arsansys.RemaPartners.services;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
@@ -18,6 +22,21 @@ public interface ProductoService {
      */
     abstract List<ProductoEntity> getProductos();
 
+    /**
+     * Obtiene una página del catálogo con paginación por cursor. Los productos
+     * solo incluyen los campos de la tarjeta del catálogo.
+     * 
+     * @param activo      Filtro por activo (null para no filtrar).
+     * @param idCategoria Filtro por categoría (null para no filtrar).
+     * @param destacado   Filtro por destacado (null para no filtrar).
+     * @param cursor      ID del último producto de la página anterior (null para
+     *                    la primera).
+     * @param limite      Número máximo de productos.
+     * @return Página de productos.
+     */
+    abstract Slice<ProductoEntity> getProductosPagina(Boolean activo, String idCategoria, Boolean destacado,
+            String cursor, int limite);
+
     /**
      * Obtiene un producto por su ID.
      * 
@@ -26,6 +45,23 @@ public interface ProductoService {
      */
     abstract ProductoEntity getProductoById(String id);
 
+    /**
+     * Obtiene varios productos por sus IDs en el mismo orden. Los IDs que no
+     * existen se omiten.
+     * 
+     * @param ids IDs de los productos.
+     * @return Lista de productos.
+     */
+    abstract List<ProductoEntity> getProductosByIds(List<String> ids);
+
+    /**
+     * Obtiene los títulos de varios productos con una sola consulta.
+     * 
+     * @param ids IDs de los productos.
+     * @return Título de cada producto encontrado por su ID.
+     */
+    abstract Map<String, String> getTitulosByIds(Collection<String> ids);
+
     /**
      * Obtiene productos por su estado.
      * 
@@ -34,6 +70,39 @@ public interface ProductoService {
      */
     abstract List<ProductoEntity> getProductosByEstado(EEstado estado);
 
+    /**
+     * Obtiene los productos de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor.
+     * @return Lista de productos del vendedor.
+     */
+    abstract List<ProductoEntity> getProductosByIdUsuario(String idUsuario);
+
+    /**
+     * Cuenta los productos de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor (null para todos los productos).
+     * @return Número de productos.
+     */
+    abstract long countProductosByIdUsuario(String idUsuario);
+
+    /**
+     * Suma las visitas de los productos de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor (null para todos los productos).
+     * @return Total de visitas.
+     */
+    abstract long sumVisitasByIdUsuario(String idUsuario);
+
+    /**
+     * Obtiene los productos más visitados de un vendedor.
+     * 
+     * @param idUsuario ID del vendedor (null para todos los productos).
+     * @param limite    Número máximo de productos.
+     * @return Lista de productos ordenada por visitas descendente.
+     */
+    abstract List<ProductoEntity> getProductosTopVisitas(String idUsuario, int limite);
+
     /**
      * Obtiene productos por su moneda.
      * 
@@ -91,13 +160,50 @@ public interface ProductoService {
     abstract ProductoEntity createProducto(ProductoEntity productoEntity);
 
     /**
-     * Actualiza un producto existente.
+     * Actualiza un producto existente. La entidad debe incluir la versión y la
+     * actualización solo se aplica si coincide con la guardada.
      * 
      * @param productoEntity Entidad de producto con los datos actualizados.
      * @return Entidad de producto actualizada.
+     * @throws IllegalArgumentException          Si no se indica la versión.
+     * @throws OptimisticLockingFailureException Si la versión no coincide.
      */
     abstract ProductoEntity updateProducto(ProductoEntity productoEntity);
 
+    /**
+     * Actualiza solo los campos indicados de un producto.
+     * 
+     * @param id      ID del producto.
+     * @param campos  Valores de los campos a modificar.
+     * @param version Versión esperada del producto (null para no comprobarla,
+     *                salvo si se modifica el stock).
+     * @return Entidad de producto actualizada.
+     * @throws IllegalArgumentException          Si algún campo no se puede
+     *                                            modificar o se modifica el
+     *                                            stock sin versión.
+     * @throws OptimisticLockingFailureException Si la versión no coincide.
+     */
+    abstract ProductoEntity patchProducto(String id, Map<String, Object> campos, Long version);
+
+    /**
+     * Descuenta unidades del stock de un producto de forma atómica, solo si hay
+     * stock suficiente.
+     * 
+     * @param id       ID del producto.
+     * @param cantidad Unidades a reservar.
+     * @return Producto con el stock ya descontado.
+     * @throws IllegalStateException Si no hay stock suficiente.
+     */
+    abstract ProductoEntity reservarStock(String id, int cantidad);
+
+    /**
+     * Devuelve al stock de un producto unidades reservadas previamente.
+     * 
+     * @param id       ID del producto.
+     * @param cantidad Unidades a devolver.
+     */
+    abstract void liberarStock(String id, int cantidad);
+
     /**
      * Elimina un producto por su ID.
      * 
@@ -112,4 +218,22 @@ public interface ProductoService {
      */
     abstract void toggleStatus(String id);
 
+    /**
+     * Cambia el estado (activo/inactivo) de varios productos en una sola
+     * operación.
+     * 
+     * @param ids IDs de los productos.
+     * @return Número de productos modificados.
+     */
+    abstract long toggleStatusProductos(List<String> ids);
+
+    /**
+     * Activa o desactiva varios productos en una sola operación.
+     * 
+     * @param ids    IDs de los productos.
+     * @param activo Nuevo estado.
+     * @return Número de productos modificados.
+     */
+    abstract long setActivoProductos(List<String> ids, boolean activo);
+
 }
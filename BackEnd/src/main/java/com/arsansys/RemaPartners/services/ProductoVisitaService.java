@@ -16,6 +16,24 @@ public interface ProductoVisitaService {
      */
     ProductoVisitaEntity registrarVisita(String productoId, String vendedorId);
 
+    /**
+     * Registra varias visitas en una sola operación masiva. Cada entidad indica
+     * el producto, el vendedor, el año, el mes y el número de visitas a sumar.
+     * 
+     * @param visitas Lista de visitas a sumar.
+     */
+    void registrarVisitas(List<ProductoVisitaEntity> visitas);
+
+    /**
+     * Fusiona los documentos mensuales duplicados de un mismo producto y crea el
+     * índice único (productoId, año, mes).
+     * 
+     * @return Número de documentos duplicados eliminados.
+     * @throws RuntimeException Si no se pueden fusionar o no se puede crear el
+     *                          índice.
+     */
+    long fusionarVisitasDuplicadas();
+
     /**
      * Obtiene todas las visitas realizadas a un producto específico.
      * 
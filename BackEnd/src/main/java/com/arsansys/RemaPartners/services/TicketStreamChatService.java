@@ -0,0 +1,32 @@
+package com.arsansys.RemaPartners.services;
+
+/**
+ * Servicio de tickets para abrir las conexiones de eventos de los chats.
+ * <p>
+ * {@code EventSource} no permite enviar cabeceras, así que el cliente pide
+ * antes un ticket con su token JWT y lo pasa en la URL de la conexión. El
+ * ticket solo vale para un chat, caduca en pocos segundos y se consume al
+ * usarlo, de modo que no sirve de nada si queda registrado en un log.
+ */
+public interface TicketStreamChatService {
+
+    /**
+     * Emite un ticket para que un usuario abra la conexión de eventos de un
+     * chat.
+     *
+     * @param username Nombre del usuario.
+     * @param idChat   ID del chat.
+     * @return Ticket emitido.
+     */
+    String emitir(String username, String idChat);
+
+    /**
+     * Canjea un ticket y lo invalida.
+     *
+     * @param ticket Ticket recibido.
+     * @param idChat ID del chat al que se conecta el cliente.
+     * @return Nombre del usuario del ticket, o null si no existe, ha caducado,
+     *         ya se usó o es de otro chat.
+     */
+    String canjear(String ticket, String idChat);
+}
@@ -0,0 +1,37 @@
+package com.arsansys.RemaPartners.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Servicio de entrega en tiempo real de los mensajes de chat mediante
+ * Server-Sent Events.
+ * <p>
+ * Cada participante abre una conexión por chat y recibe un evento
+ * {@code mensaje} por cada mensaje nuevo, con la secuencia del mensaje como ID
+ * del evento. Al reconectar, el navegador envía la última secuencia recibida y
+ * se le reenvían los mensajes perdidos.
+ */
+public interface TiempoRealChatService {
+
+    /**
+     * Nombre de los eventos con mensajes nuevos.
+     */
+    String EVENTO_MENSAJE = "mensaje";
+
+    /**
+     * Abre una conexión de eventos de un participante con un chat.
+     *
+     * @param idChat         ID del chat.
+     * @param ultimoEventoId Secuencia del último mensaje recibido antes de
+     *                       reconectar (null si es la primera conexión).
+     * @return Conexión de eventos.
+     */
+    SseEmitter suscribir(String idChat, String ultimoEventoId);
+
+    /**
+     * Obtiene el número de conexiones abiertas en este nodo.
+     *
+     * @return Número de conexiones.
+     */
+    int getNumeroConexiones();
+}
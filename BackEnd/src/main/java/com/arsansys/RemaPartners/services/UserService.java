@@ -1,6 +1,8 @@
 package com.arsansys.RemaPartners.services;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
@@ -49,6 +51,14 @@ public interface UserService {
      */
     abstract UserEntity getByEmail(String email);
 
+    /**
+     * Obtiene los nombres de varios usuarios con una sola consulta.
+     * 
+     * @param ids IDs de los usuarios.
+     * @return Nombre de cada usuario encontrado por su ID.
+     */
+    abstract Map<String, String> getUsernamesByIds(Collection<String> ids);
+
     /**
      * Actualiza los datos de un usuario existente.
      * 
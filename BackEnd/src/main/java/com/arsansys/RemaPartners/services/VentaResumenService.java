@@ -0,0 +1,34 @@
+package com.arsansys.RemaPartners.services;
+
+import java.util.Map;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+
+/**
+ * Servicio para el mantenimiento de los resúmenes de ventas precalculados.
+ */
+public interface VentaResumenService {
+
+    /**
+     * Acumula una factura nueva en los resúmenes de ventas.
+     * 
+     * @param factura Factura emitida.
+     */
+    void registrarFactura(FacturaEntity factura);
+
+    /**
+     * Sustituye en los resúmenes los datos anteriores de una factura por los
+     * actualizados.
+     * 
+     * @param anterior    Factura antes de la actualización.
+     * @param actualizada Factura después de la actualización.
+     */
+    void actualizarFactura(FacturaEntity anterior, FacturaEntity actualizada);
+
+    /**
+     * Regenera todos los resúmenes de ventas a partir de la colección de facturas.
+     * 
+     * @return Mapa con el número de facturas procesadas y de resúmenes generados.
+     */
+    Map<String, Long> reconstruirResumenes();
+}
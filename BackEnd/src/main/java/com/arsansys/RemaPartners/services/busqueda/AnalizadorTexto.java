@@ -0,0 +1,95 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Analizador de texto en español para el índice de búsqueda.
+ * <p>
+ * Pasa el texto a minúsculas, elimina tildes y diéresis, lo separa en tokens
+ * alfanuméricos, descarta las palabras vacías y reduce cada token con un
+ * lematizador ligero (plurales y vocal final), de forma que "coches", "coche"
+ * y "Coché" generan el mismo término.
+ */
+public final class AnalizadorTexto {
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "ante", "con", "de", "del", "el", "en", "entre", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "que", "se", "sin", "sobre", "su", "sus", "un", "una", "unas", "unos", "y");
+
+    private AnalizadorTexto() {
+    }
+
+    /**
+     * Analiza un texto y devuelve sus términos en orden de aparición.
+     *
+     * @param texto Texto a analizar (puede ser null).
+     * @return Lista de términos.
+     */
+    public static List<String> analizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return terminos;
+        }
+
+        String normalizado = normalizar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean alfanumerico = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (alfanumerico && inicio < 0) {
+                inicio = i;
+            } else if (!alfanumerico && inicio >= 0) {
+                String token = normalizado.substring(inicio, i);
+                if (!PALABRAS_VACIAS.contains(token)) {
+                    terminos.add(lematizar(token));
+                }
+                inicio = -1;
+            }
+        }
+        return terminos;
+    }
+
+    /**
+     * Pasa el texto a minúsculas y elimina los signos diacríticos (la "ñ" se
+     * conserva).
+     */
+    static String normalizar(String texto) {
+        String minusculas = texto.toLowerCase().replace('ñ', '\u0001');
+        String sinTildes = Normalizer.normalize(minusculas, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return sinTildes.replace('\u0001', 'ñ');
+    }
+
+    /**
+     * Lematizador ligero para español: elimina el plural y la vocal final de
+     * palabras alfabéticas. No se aplica a tokens con dígitos (modelos,
+     * referencias).
+     */
+    static String lematizar(String token) {
+        int longitud = token.length();
+        for (int i = 0; i < longitud; i++) {
+            if (Character.isDigit(token.charAt(i))) {
+                return token;
+            }
+        }
+
+        if (longitud > 5 && token.endsWith("eses")) {
+            return token.substring(0, longitud - 2);
+        }
+        if (longitud > 4 && token.endsWith("ces")) {
+            return token.substring(0, longitud - 3) + "z";
+        }
+        if (longitud > 4 && (token.endsWith("os") || token.endsWith("as") || token.endsWith("es"))) {
+            longitud -= 2;
+        }
+        if (longitud > 3) {
+            char ultima = token.charAt(longitud - 1);
+            if (ultima == 'o' || ultima == 'a' || ultima == 'e') {
+                longitud--;
+            }
+        }
+        return token.substring(0, longitud);
+    }
+}
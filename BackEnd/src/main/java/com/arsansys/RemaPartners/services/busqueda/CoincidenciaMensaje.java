@@ -0,0 +1,29 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Mensaje de chat que coincide con una búsqueda.
+ */
+@Getter
+@AllArgsConstructor
+public class CoincidenciaMensaje {
+
+    /**
+     * ID del chat del mensaje.
+     */
+    private final String idChat;
+
+    /**
+     * Mensaje encontrado, con su secuencia.
+     */
+    private final MensajeEntity mensaje;
+
+    /**
+     * Fragmento del texto alrededor del primer término encontrado.
+     */
+    private final String fragmento;
+}
@@ -0,0 +1,63 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtro de una consulta por facetas. Los valores de una misma faceta se
+ * combinan con OR y las distintas facetas con AND. Las facetas vacías no
+ * filtran.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FiltroFacetas {
+
+    /**
+     * IDs de categoría.
+     */
+    @Default
+    private List<String> categorias = List.of();
+
+    /**
+     * Marcas.
+     */
+    @Default
+    private List<String> marcas = List.of();
+
+    /**
+     * Modelos.
+     */
+    @Default
+    private List<String> modelos = List.of();
+
+    /**
+     * Estados (nombres de {@code EEstado}).
+     */
+    @Default
+    private List<String> estados = List.of();
+
+    /**
+     * Valores de los campos de categoría, por nombre de campo.
+     */
+    @Default
+    private Map<String, List<String>> campos = new HashMap<>();
+
+    /**
+     * Precio mínimo en céntimos de EUR (incluido, null para no filtrar).
+     */
+    private Long precioMinEurCentimos;
+
+    /**
+     * Precio máximo en céntimos de EUR (incluido, null para no filtrar).
+     */
+    private Long precioMaxEurCentimos;
+}
@@ -0,0 +1,69 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.Set;
+
+/**
+ * Extrae de un texto un fragmento alrededor de la primera palabra que coincide
+ * con alguno de los términos de una búsqueda.
+ */
+public final class FragmentoTexto {
+
+    private static final String ELIPSIS = "…";
+
+    private FragmentoTexto() {
+    }
+
+    /**
+     * Extrae un fragmento de como mucho {@code longitud} caracteres centrado en
+     * la primera palabra cuyo término analizado está en {@code terminos}. Si
+     * ninguna coincide, devuelve el principio del texto.
+     *
+     * @param texto    Texto completo (puede ser null).
+     * @param terminos Términos analizados con {@link AnalizadorTexto}.
+     * @param longitud Longitud máxima del fragmento, sin contar las elipsis.
+     * @return Fragmento, con elipsis en los extremos recortados.
+     */
+    public static String extraer(String texto, Set<String> terminos, int longitud) {
+        if (texto == null) {
+            return null;
+        }
+        if (texto.length() <= longitud) {
+            return texto;
+        }
+
+        int posicion = primeraCoincidencia(texto, terminos);
+        int inicio = Math.max(0, Math.min(posicion - longitud / 3, texto.length() - longitud));
+        // Evita cortar palabras en los extremos
+        while (inicio > 0 && inicio < posicion && Character.isLetterOrDigit(texto.charAt(inicio - 1))) {
+            inicio++;
+        }
+        int fin = Math.min(texto.length(), inicio + longitud);
+        while (fin < texto.length() && fin > inicio + longitud / 2 && Character.isLetterOrDigit(texto.charAt(fin))) {
+            fin--;
+        }
+
+        return (inicio > 0 ? ELIPSIS : "") + texto.substring(inicio, fin).strip()
+                + (fin < texto.length() ? ELIPSIS : "");
+    }
+
+    /**
+     * Obtiene la posición de la primera palabra del texto cuyo término está en
+     * la búsqueda, o 0 si no hay ninguna.
+     */
+    private static int primeraCoincidencia(String texto, Set<String> terminos) {
+        int inicio = -1;
+        for (int i = 0; i <= texto.length(); i++) {
+            boolean alfanumerico = i < texto.length() && Character.isLetterOrDigit(texto.charAt(i));
+            if (alfanumerico && inicio < 0) {
+                inicio = i;
+            } else if (!alfanumerico && inicio >= 0) {
+                String token = AnalizadorTexto.normalizar(texto.substring(inicio, i));
+                if (terminos.contains(AnalizadorTexto.lematizar(token))) {
+                    return inicio;
+                }
+                inicio = -1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,417 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice de autocompletado basado en un trie con los mejores resultados
+ * precalculados en cada nodo.
+ * <p>
+ * Las sugerencias (títulos, marcas y modelos) se insertan a partir del inicio
+ * de cada una de sus primeras palabras, de modo que "320" completa
+ * "Excavadora CAT 320". El peso de una sugerencia es la suma de los pesos de
+ * los documentos que la contienen. Cada nodo guarda las {@link #K} sugerencias
+ * de mayor peso de su subárbol, por lo que una consulta solo recorre el prefijo.
+ * La memoria está acotada por la longitud máxima de las claves y el número de
+ * palabras indexadas por sugerencia. No es thread-safe: el servicio que lo usa
+ * debe sincronizar lecturas y escrituras.
+ */
+public class IndiceAutocompletado {
+
+    /**
+     * Número de sugerencias precalculadas en cada nodo.
+     */
+    public static final int K = 10;
+
+    /**
+     * Longitud máxima de las claves del trie.
+     */
+    private static final int LONGITUD_MAXIMA = 40;
+
+    /**
+     * Número máximo de palabras de una sugerencia desde las que se puede
+     * completar.
+     */
+    private static final int MAX_PALABRAS = 4;
+
+    private static final int[] VACIO = new int[0];
+
+    private final Nodo raiz = new Nodo();
+
+    // Sugerencias: texto normalizado -> número de sugerencia
+    private final Map<String, Integer> numeros = new HashMap<>();
+    private String[] textos = new String[64];
+    private String[] normalizados = new String[64];
+    private long[] pesos = new long[64];
+    private int[] referencias = new int[64];
+    private int siguienteNumero;
+    private int[] libres = new int[16];
+    private int numeroLibres;
+
+    // Sugerencias y peso aportados por cada documento
+    private final Map<String, int[]> sugerenciasDocumento = new HashMap<>();
+    private final Map<String, Long> pesoDocumento = new HashMap<>();
+
+    // Durante una carga masiva los mejores resultados se calculan al final
+    private boolean cargaMasiva;
+
+    private static final class Nodo {
+        private char[] letras = new char[0];
+        private Nodo[] hijos = new Nodo[0];
+        private int[] terminales = VACIO;
+        private int[] mejores = VACIO;
+
+        private Nodo hijo(char letra) {
+            int i = Arrays.binarySearch(letras, letra);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        private Nodo crearHijo(char letra) {
+            int i = Arrays.binarySearch(letras, letra);
+            if (i >= 0) {
+                return hijos[i];
+            }
+            i = -i - 1;
+            char[] nuevasLetras = new char[letras.length + 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length + 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, i);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, i);
+            nuevasLetras[i] = letra;
+            nuevosHijos[i] = new Nodo();
+            System.arraycopy(letras, i, nuevasLetras, i + 1, letras.length - i);
+            System.arraycopy(hijos, i, nuevosHijos, i + 1, hijos.length - i);
+            letras = nuevasLetras;
+            hijos = nuevosHijos;
+            return nuevosHijos[i];
+        }
+
+        private void eliminarHijo(char letra) {
+            int i = Arrays.binarySearch(letras, letra);
+            if (i < 0) {
+                return;
+            }
+            char[] nuevasLetras = new char[letras.length - 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length - 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, i);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, i);
+            System.arraycopy(letras, i + 1, nuevasLetras, i, letras.length - i - 1);
+            System.arraycopy(hijos, i + 1, nuevosHijos, i, hijos.length - i - 1);
+            letras = nuevasLetras;
+            hijos = nuevosHijos;
+        }
+
+        private boolean vacio() {
+            return letras.length == 0 && terminales.length == 0;
+        }
+    }
+
+    /**
+     * Inicia una carga masiva: las inserciones no recalculan los mejores
+     * resultados hasta {@link #finalizarCarga()}.
+     */
+    public void iniciarCarga() {
+        cargaMasiva = true;
+    }
+
+    /**
+     * Termina una carga masiva y calcula los mejores resultados de todos los
+     * nodos en un solo recorrido.
+     */
+    public void finalizarCarga() {
+        cargaMasiva = false;
+        recalcularSubarbol(raiz);
+    }
+
+    /**
+     * Indexa las sugerencias de un documento, sustituyendo su versión anterior
+     * si existía.
+     *
+     * @param id          Identificador del documento.
+     * @param sugerencias Textos que el documento aporta como sugerencias.
+     * @param peso        Peso del documento.
+     */
+    public void indexar(String id, List<String> sugerencias, long peso) {
+        eliminar(id);
+
+        List<Integer> aportadas = new ArrayList<>(sugerencias.size());
+        for (String texto : sugerencias) {
+            if (texto == null) {
+                continue;
+            }
+            String normalizado = clave(texto);
+            if (normalizado.isEmpty()) {
+                continue;
+            }
+            Integer numero = numeros.get(normalizado);
+            if (numero == null) {
+                numero = nuevaSugerencia(texto.trim(), normalizado);
+            } else if (aportadas.contains(numero)) {
+                continue;
+            }
+            referencias[numero]++;
+            pesos[numero] += peso;
+            aportadas.add(numero);
+            actualizarCaminos(numero);
+        }
+
+        int[] numerosDocumento = new int[aportadas.size()];
+        for (int i = 0; i < numerosDocumento.length; i++) {
+            numerosDocumento[i] = aportadas.get(i);
+        }
+        sugerenciasDocumento.put(id, numerosDocumento);
+        pesoDocumento.put(id, peso);
+    }
+
+    /**
+     * Elimina las sugerencias aportadas por un documento. No hace nada si no está
+     * indexado.
+     *
+     * @param id Identificador del documento.
+     */
+    public void eliminar(String id) {
+        int[] aportadas = sugerenciasDocumento.remove(id);
+        if (aportadas == null) {
+            return;
+        }
+        long peso = pesoDocumento.remove(id);
+
+        for (int numero : aportadas) {
+            pesos[numero] -= peso;
+            if (--referencias[numero] == 0) {
+                eliminarSugerencia(numero);
+            } else {
+                actualizarCaminos(numero);
+            }
+        }
+    }
+
+    /**
+     * Obtiene las sugerencias de mayor peso que completan un prefijo.
+     *
+     * @param prefijo Texto escrito por el usuario.
+     * @param limite  Número máximo de sugerencias (como mucho {@link #K}).
+     * @return Sugerencias ordenadas de mayor a menor peso.
+     */
+    public List<String> completar(String prefijo, int limite) {
+        String clave = clave(prefijo);
+        if (clave.isEmpty()) {
+            return List.of();
+        }
+
+        Nodo nodo = raiz;
+        for (int i = 0; i < clave.length() && nodo != null; i++) {
+            nodo = nodo.hijo(clave.charAt(i));
+        }
+        if (nodo == null) {
+            return List.of();
+        }
+
+        int n = Math.min(limite, nodo.mejores.length);
+        List<String> resultado = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            resultado.add(textos[nodo.mejores[i]]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene el número de sugerencias distintas del índice.
+     *
+     * @return Número de sugerencias.
+     */
+    public int getNumeroSugerencias() {
+        return numeros.size();
+    }
+
+    private int nuevaSugerencia(String texto, String normalizado) {
+        int numero;
+        if (numeroLibres > 0) {
+            numero = libres[--numeroLibres];
+        } else {
+            if (siguienteNumero == textos.length) {
+                int capacidad = textos.length * 2;
+                textos = Arrays.copyOf(textos, capacidad);
+                normalizados = Arrays.copyOf(normalizados, capacidad);
+                pesos = Arrays.copyOf(pesos, capacidad);
+                referencias = Arrays.copyOf(referencias, capacidad);
+            }
+            numero = siguienteNumero++;
+        }
+
+        textos[numero] = texto;
+        normalizados[numero] = normalizado;
+        pesos[numero] = 0;
+        referencias[numero] = 0;
+        numeros.put(normalizado, numero);
+
+        for (String sufijo : sufijos(normalizado)) {
+            Nodo nodo = raiz;
+            for (int i = 0; i < sufijo.length(); i++) {
+                nodo = nodo.crearHijo(sufijo.charAt(i));
+            }
+            nodo.terminales = añadir(nodo.terminales, numero);
+        }
+        return numero;
+    }
+
+    private void eliminarSugerencia(int numero) {
+        for (String sufijo : sufijos(normalizados[numero])) {
+            List<Nodo> camino = camino(sufijo);
+            Nodo hoja = camino.get(camino.size() - 1);
+            hoja.terminales = quitar(hoja.terminales, numero);
+
+            // Podar los nodos que se han quedado vacíos y recalcular el resto
+            for (int i = camino.size() - 1; i >= 0; i--) {
+                Nodo nodo = camino.get(i);
+                if (i > 0 && nodo.vacio()) {
+                    camino.get(i - 1).eliminarHijo(sufijo.charAt(i - 1));
+                } else if (!cargaMasiva) {
+                    recalcular(nodo);
+                }
+            }
+        }
+
+        numeros.remove(normalizados[numero]);
+        textos[numero] = null;
+        normalizados[numero] = null;
+        if (numeroLibres == libres.length) {
+            libres = Arrays.copyOf(libres, numeroLibres * 2);
+        }
+        libres[numeroLibres++] = numero;
+    }
+
+    /**
+     * Recalcula los mejores resultados de los nodos de todas las claves de una
+     * sugerencia, de la hoja a la raíz.
+     */
+    private void actualizarCaminos(int numero) {
+        if (cargaMasiva) {
+            return;
+        }
+        for (String sufijo : sufijos(normalizados[numero])) {
+            List<Nodo> camino = camino(sufijo);
+            for (int i = camino.size() - 1; i >= 0; i--) {
+                recalcular(camino.get(i));
+            }
+        }
+    }
+
+    /**
+     * Nodos desde la raíz hasta el final de una clave existente.
+     */
+    private List<Nodo> camino(String clave) {
+        List<Nodo> camino = new ArrayList<>(clave.length() + 1);
+        Nodo nodo = raiz;
+        camino.add(nodo);
+        for (int i = 0; i < clave.length(); i++) {
+            nodo = nodo.hijo(clave.charAt(i));
+            camino.add(nodo);
+        }
+        return camino;
+    }
+
+    private void recalcularSubarbol(Nodo nodo) {
+        for (Nodo hijo : nodo.hijos) {
+            recalcularSubarbol(hijo);
+        }
+        recalcular(nodo);
+    }
+
+    /**
+     * Calcula los mejores resultados de un nodo a partir de sus sugerencias
+     * terminales y de los mejores resultados de sus hijos.
+     */
+    private void recalcular(Nodo nodo) {
+        int[] mejores = new int[K];
+        int n = 0;
+        n = combinar(mejores, n, nodo.terminales);
+        for (Nodo hijo : nodo.hijos) {
+            n = combinar(mejores, n, hijo.mejores);
+        }
+        nodo.mejores = n == K ? mejores : Arrays.copyOf(mejores, n);
+    }
+
+    /**
+     * Inserta los candidatos en la lista ordenada de mejores resultados,
+     * descartando duplicados y conservando como mucho {@link #K}.
+     */
+    private int combinar(int[] mejores, int n, int[] candidatos) {
+        for (int candidato : candidatos) {
+            boolean repetido = false;
+            for (int i = 0; i < n; i++) {
+                if (mejores[i] == candidato) {
+                    repetido = true;
+                    break;
+                }
+            }
+            if (repetido || (n == K && !antes(candidato, mejores[K - 1]))) {
+                continue;
+            }
+
+            int i = n < K ? n++ : K - 1;
+            while (i > 0 && antes(candidato, mejores[i - 1])) {
+                mejores[i] = mejores[i - 1];
+                i--;
+            }
+            mejores[i] = candidato;
+        }
+        return n;
+    }
+
+    /**
+     * Indica si la sugerencia {@code a} va antes que {@code b}: mayor peso o, a
+     * igualdad, texto más corto.
+     */
+    private boolean antes(int a, int b) {
+        if (pesos[a] != pesos[b]) {
+            return pesos[a] > pesos[b];
+        }
+        return normalizados[a].length() < normalizados[b].length();
+    }
+
+    /**
+     * Claves del trie de una sugerencia: el texto desde el inicio de cada una de
+     * sus primeras palabras, recortado a la longitud máxima.
+     */
+    private static List<String> sufijos(String normalizado) {
+        List<String> sufijos = new ArrayList<>(MAX_PALABRAS);
+        for (int i = 0; i < normalizado.length() && sufijos.size() < MAX_PALABRAS; i++) {
+            if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                String sufijo = normalizado.substring(i, Math.min(normalizado.length(), i + LONGITUD_MAXIMA));
+                if (!sufijos.contains(sufijo)) {
+                    sufijos.add(sufijo);
+                }
+            }
+        }
+        return sufijos;
+    }
+
+    /**
+     * Normaliza un texto para el trie: minúsculas, sin tildes y con los espacios
+     * colapsados.
+     */
+    private static String clave(String texto) {
+        return AnalizadorTexto.normalizar(texto).trim().replaceAll("\\s+", " ");
+    }
+
+    private static int[] añadir(int[] array, int valor) {
+        int[] resultado = Arrays.copyOf(array, array.length + 1);
+        resultado[array.length] = valor;
+        return resultado;
+    }
+
+    private static int[] quitar(int[] array, int valor) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == valor) {
+                int[] resultado = new int[array.length - 1];
+                System.arraycopy(array, 0, resultado, 0, i);
+                System.arraycopy(array, i + 1, resultado, i, array.length - i - 1);
+                return resultado;
+            }
+        }
+        return array;
+    }
+}
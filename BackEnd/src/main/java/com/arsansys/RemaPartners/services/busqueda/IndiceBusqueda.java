@@ -0,0 +1,318 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Índice invertido en memoria con ranking BM25.
+ * <p>
+ * Cada documento recibe un ordinal entero; las listas de apariciones de cada
+ * término guardan ordinales y frecuencias en arrays primitivos. El vocabulario
+ * está ordenado para poder expandir el último término de la consulta por
+ * prefijo. Los ordinales de documentos eliminados se reutilizan. No es
+ * thread-safe: el servicio que lo usa debe sincronizar lecturas y escrituras.
+ */
+public class IndiceBusqueda {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * Peso de los términos obtenidos al expandir un prefijo respecto a la
+     * coincidencia exacta.
+     */
+    private static final float PESO_PREFIJO = 0.5f;
+
+    /**
+     * Número máximo de términos en los que se expande un prefijo.
+     */
+    private static final int MAX_EXPANSIONES = 64;
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final NavigableMap<String, Apariciones> vocabulario = new TreeMap<>();
+    private final Map<String, Integer> ordinales = new HashMap<>();
+
+    private String[] ids = new String[CAPACIDAD_INICIAL];
+    private int[] longitudes = new int[CAPACIDAD_INICIAL];
+    private String[][] terminosDocumento = new String[CAPACIDAD_INICIAL][];
+    private int siguienteOrdinal;
+
+    private int[] libres = new int[16];
+    private int numeroLibres;
+
+    private int numeroDocumentos;
+    private long longitudTotal;
+
+    /**
+     * Lista de apariciones de un término: ordinales de documento y frecuencia
+     * ponderada del término en cada uno.
+     */
+    private static final class Apariciones {
+        private int[] documentos = new int[4];
+        private int[] frecuencias = new int[4];
+        private int tamaño;
+
+        private void añadir(int documento, int frecuencia) {
+            if (tamaño == documentos.length) {
+                documentos = Arrays.copyOf(documentos, tamaño * 2);
+                frecuencias = Arrays.copyOf(frecuencias, tamaño * 2);
+            }
+            documentos[tamaño] = documento;
+            frecuencias[tamaño++] = frecuencia;
+        }
+
+        private void eliminar(int documento) {
+            for (int i = 0; i < tamaño; i++) {
+                if (documentos[i] == documento) {
+                    tamaño--;
+                    documentos[i] = documentos[tamaño];
+                    frecuencias[i] = frecuencias[tamaño];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexa un documento, sustituyendo su versión anterior si existía.
+     *
+     * @param id          Identificador del documento.
+     * @param frecuencias Frecuencia ponderada de cada término del documento.
+     */
+    public void indexar(String id, Map<String, Integer> frecuencias) {
+        eliminar(id);
+        if (frecuencias.isEmpty()) {
+            return;
+        }
+
+        int ordinal = nuevoOrdinal();
+        int longitud = 0;
+        String[] terminos = new String[frecuencias.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entrada : frecuencias.entrySet()) {
+            vocabulario.computeIfAbsent(entrada.getKey(), t -> new Apariciones())
+                    .añadir(ordinal, entrada.getValue());
+            terminos[i++] = entrada.getKey();
+            longitud += entrada.getValue();
+        }
+
+        ids[ordinal] = id;
+        longitudes[ordinal] = longitud;
+        terminosDocumento[ordinal] = terminos;
+        ordinales.put(id, ordinal);
+        numeroDocumentos++;
+        longitudTotal += longitud;
+    }
+
+    /**
+     * Elimina un documento del índice. No hace nada si no está indexado.
+     *
+     * @param id Identificador del documento.
+     */
+    public void eliminar(String id) {
+        Integer ordinal = ordinales.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+
+        for (String termino : terminosDocumento[ordinal]) {
+            Apariciones apariciones = vocabulario.get(termino);
+            apariciones.eliminar(ordinal);
+            if (apariciones.tamaño == 0) {
+                vocabulario.remove(termino);
+            }
+        }
+
+        numeroDocumentos--;
+        longitudTotal -= longitudes[ordinal];
+        ids[ordinal] = null;
+        longitudes[ordinal] = 0;
+        terminosDocumento[ordinal] = null;
+
+        if (numeroLibres == libres.length) {
+            libres = Arrays.copyOf(libres, numeroLibres * 2);
+        }
+        libres[numeroLibres++] = ordinal;
+    }
+
+    /**
+     * Busca los documentos que contienen alguno de los términos y los ordena
+     * por puntuación BM25 descendente.
+     *
+     * @param terminos      Términos analizados de la consulta.
+     * @param prefijoUltimo true para expandir el último término por prefijo
+     *                      (palabra que el usuario aún está escribiendo).
+     * @param desde         Posición del primer resultado a devolver.
+     * @param limite        Número máximo de resultados a devolver.
+     * @return IDs de la página de resultados y número total de coincidencias.
+     */
+    public ResultadoBusqueda buscar(List<String> terminos, boolean prefijoUltimo, int desde, int limite) {
+        if (terminos.isEmpty() || numeroDocumentos == 0) {
+            return new ResultadoBusqueda(List.of(), 0);
+        }
+
+        float[] puntuaciones = new float[siguienteOrdinal];
+        int[] coincidencias = new int[16];
+        int numeroCoincidencias = 0;
+        float longitudMedia = (float) longitudTotal / numeroDocumentos;
+
+        for (int t = 0; t < terminos.size(); t++) {
+            String termino = terminos.get(t);
+            Map<Apariciones, Float> expansion = new HashMap<>();
+
+            Apariciones exactas = vocabulario.get(termino);
+            if (exactas != null) {
+                expansion.put(exactas, 1f);
+            }
+            if (prefijoUltimo && t == terminos.size() - 1) {
+                int expandidos = 0;
+                for (Map.Entry<String, Apariciones> entrada : vocabulario
+                        .subMap(termino, false, termino + Character.MAX_VALUE, false).entrySet()) {
+                    if (expandidos++ == MAX_EXPANSIONES) {
+                        break;
+                    }
+                    expansion.put(entrada.getValue(), PESO_PREFIJO);
+                }
+            }
+
+            for (Map.Entry<Apariciones, Float> entrada : expansion.entrySet()) {
+                Apariciones apariciones = entrada.getKey();
+                float idf = (float) Math.log(1 + (numeroDocumentos - apariciones.tamaño + 0.5)
+                        / (apariciones.tamaño + 0.5));
+                float peso = idf * entrada.getValue();
+
+                for (int i = 0; i < apariciones.tamaño; i++) {
+                    int documento = apariciones.documentos[i];
+                    float tf = apariciones.frecuencias[i];
+                    float normalizacion = K1 * (1 - B + B * longitudes[documento] / longitudMedia);
+
+                    if (puntuaciones[documento] == 0) {
+                        if (numeroCoincidencias == coincidencias.length) {
+                            coincidencias = Arrays.copyOf(coincidencias, numeroCoincidencias * 2);
+                        }
+                        coincidencias[numeroCoincidencias++] = documento;
+                    }
+                    puntuaciones[documento] += peso * tf * (K1 + 1) / (tf + normalizacion);
+                }
+            }
+        }
+
+        int[] mejores = mejores(puntuaciones, coincidencias, numeroCoincidencias, desde + limite);
+        List<String> pagina = new ArrayList<>(Math.max(0, mejores.length - desde));
+        for (int i = desde; i < mejores.length; i++) {
+            pagina.add(ids[mejores[i]]);
+        }
+        return new ResultadoBusqueda(pagina, numeroCoincidencias);
+    }
+
+    /**
+     * Obtiene el número de documentos indexados.
+     *
+     * @return Número de documentos.
+     */
+    public int getNumeroDocumentos() {
+        return numeroDocumentos;
+    }
+
+    /**
+     * Obtiene el número de términos distintos del índice.
+     *
+     * @return Tamaño del vocabulario.
+     */
+    public int getNumeroTerminos() {
+        return vocabulario.size();
+    }
+
+    private int nuevoOrdinal() {
+        if (numeroLibres > 0) {
+            return libres[--numeroLibres];
+        }
+        if (siguienteOrdinal == ids.length) {
+            int capacidad = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacidad);
+            longitudes = Arrays.copyOf(longitudes, capacidad);
+            terminosDocumento = Arrays.copyOf(terminosDocumento, capacidad);
+        }
+        return siguienteOrdinal++;
+    }
+
+    /**
+     * Selecciona los {@code k} documentos con mayor puntuación usando un
+     * montículo mínimo acotado y los devuelve ordenados de mayor a menor.
+     */
+    private static int[] mejores(float[] puntuaciones, int[] documentos, int n, int k) {
+        int tamaño = Math.min(k, n);
+        int[] heap = new int[tamaño];
+        int enHeap = 0;
+
+        for (int i = 0; i < n; i++) {
+            int documento = documentos[i];
+            if (enHeap < tamaño) {
+                heap[enHeap] = documento;
+                subir(heap, enHeap++, puntuaciones);
+            } else if (tamaño > 0 && antes(documento, heap[0], puntuaciones)) {
+                heap[0] = documento;
+                bajar(heap, 0, enHeap, puntuaciones);
+            }
+        }
+
+        // Extraer el mínimo sucesivamente deja el array en orden descendente
+        for (int fin = enHeap - 1; fin > 0; fin--) {
+            int minimo = heap[0];
+            heap[0] = heap[fin];
+            heap[fin] = minimo;
+            bajar(heap, 0, fin, puntuaciones);
+        }
+        return heap;
+    }
+
+    /**
+     * Indica si el documento {@code a} va antes que {@code b} en el ranking:
+     * mayor puntuación o, a igualdad, menor ordinal.
+     */
+    private static boolean antes(int a, int b, float[] puntuaciones) {
+        if (puntuaciones[a] != puntuaciones[b]) {
+            return puntuaciones[a] > puntuaciones[b];
+        }
+        return a < b;
+    }
+
+    private static void subir(int[] heap, int i, float[] puntuaciones) {
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (!antes(heap[padre], heap[i], puntuaciones)) {
+                break;
+            }
+            intercambiar(heap, i, padre);
+            i = padre;
+        }
+    }
+
+    private static void bajar(int[] heap, int i, int n, float[] puntuaciones) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            if (izquierdo >= n) {
+                break;
+            }
+            int derecho = izquierdo + 1;
+            int peor = derecho < n && antes(heap[izquierdo], heap[derecho], puntuaciones) ? derecho : izquierdo;
+            if (!antes(heap[i], heap[peor], puntuaciones)) {
+                break;
+            }
+            intercambiar(heap, i, peor);
+            i = peor;
+        }
+    }
+
+    private static void intercambiar(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
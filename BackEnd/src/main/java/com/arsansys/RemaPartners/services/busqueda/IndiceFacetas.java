@@ -0,0 +1,361 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Índice de facetas en memoria sobre bitmaps comprimidos (Roaring).
+ * <p>
+ * Cada documento recibe un ordinal entero y, para cada faceta (dimensión y
+ * valor), se guarda el bitmap de los ordinales que la tienen. El precio se
+ * agrupa en tramos de EUR con un bitmap por tramo. Una consulta se resuelve
+ * con uniones dentro de cada faceta e intersecciones entre facetas; los
+ * recuentos de cada faceta se calculan sobre el resultado del resto de filtros,
+ * de modo que seleccionar un valor no oculta sus alternativas. No es
+ * thread-safe: el servicio que lo usa debe sincronizar lecturas y escrituras.
+ */
+public class IndiceFacetas {
+
+    public static final String CATEGORIA = "categoria";
+    public static final String MARCA = "marca";
+    public static final String MODELO = "modelo";
+    public static final String ESTADO = "estado";
+    public static final String PRECIO = "precio";
+
+    /**
+     * Prefijo de las dimensiones de campos de categoría.
+     */
+    public static final String PREFIJO_CAMPO = "campo.";
+
+    /**
+     * Límites inferiores de los tramos de precio en céntimos de EUR. El último
+     * tramo no tiene límite superior.
+     */
+    private static final long[] LIMITES_PRECIO = {
+            0L, 10_000L, 50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L,
+            5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L };
+
+    private static final long SIN_PRECIO = -1;
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    // Dimensión -> valor normalizado -> ordinales
+    private final Map<String, Map<String, RoaringBitmap>> bitmaps = new HashMap<>();
+    // Dimensión -> valor normalizado -> valor tal como se indexó por primera vez
+    private final Map<String, Map<String, String>> etiquetas = new HashMap<>();
+    private final RoaringBitmap[] tramosPrecio = new RoaringBitmap[LIMITES_PRECIO.length];
+    private final RoaringBitmap vivos = new RoaringBitmap();
+
+    private final Map<String, Integer> ordinales = new HashMap<>();
+    private String[] ids = new String[CAPACIDAD_INICIAL];
+    private long[] precios = new long[CAPACIDAD_INICIAL];
+    // Pares (dimensión, valor normalizado) de cada documento
+    private String[][] facetasDocumento = new String[CAPACIDAD_INICIAL][];
+    private int siguienteOrdinal;
+
+    private int[] libres = new int[16];
+    private int numeroLibres;
+
+    public IndiceFacetas() {
+        for (int i = 0; i < tramosPrecio.length; i++) {
+            tramosPrecio[i] = new RoaringBitmap();
+        }
+    }
+
+    /**
+     * Indexa un documento, sustituyendo su versión anterior si existía.
+     *
+     * @param id                Identificador del documento.
+     * @param valores           Valor de cada dimensión (los nulos o vacíos se
+     *                          ignoran).
+     * @param precioEurCentimos Precio en céntimos de EUR (null si no tiene).
+     */
+    public void indexar(String id, Map<String, String> valores, Long precioEurCentimos) {
+        eliminar(id);
+        int ordinal = nuevoOrdinal();
+
+        List<String> pares = new ArrayList<>(valores.size() * 2);
+        for (Map.Entry<String, String> entrada : valores.entrySet()) {
+            String valor = entrada.getValue();
+            String clave = valor != null ? normalizar(valor) : "";
+            if (clave.isEmpty()) {
+                continue;
+            }
+            String dimension = entrada.getKey();
+            bitmaps.computeIfAbsent(dimension, d -> new HashMap<>())
+                    .computeIfAbsent(clave, v -> new RoaringBitmap())
+                    .add(ordinal);
+            etiquetas.computeIfAbsent(dimension, d -> new HashMap<>()).putIfAbsent(clave, valor.trim());
+            pares.add(dimension);
+            pares.add(clave);
+        }
+
+        long precio = precioEurCentimos != null && precioEurCentimos >= 0 ? precioEurCentimos : SIN_PRECIO;
+        if (precio != SIN_PRECIO) {
+            tramosPrecio[tramo(precio)].add(ordinal);
+        }
+
+        ids[ordinal] = id;
+        precios[ordinal] = precio;
+        facetasDocumento[ordinal] = pares.toArray(new String[0]);
+        ordinales.put(id, ordinal);
+        vivos.add(ordinal);
+    }
+
+    /**
+     * Elimina un documento del índice. No hace nada si no está indexado.
+     *
+     * @param id Identificador del documento.
+     */
+    public void eliminar(String id) {
+        Integer ordinal = ordinales.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+
+        String[] pares = facetasDocumento[ordinal];
+        for (int i = 0; i < pares.length; i += 2) {
+            Map<String, RoaringBitmap> valores = bitmaps.get(pares[i]);
+            RoaringBitmap bitmap = valores.get(pares[i + 1]);
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                valores.remove(pares[i + 1]);
+                etiquetas.get(pares[i]).remove(pares[i + 1]);
+                if (valores.isEmpty()) {
+                    bitmaps.remove(pares[i]);
+                    etiquetas.remove(pares[i]);
+                }
+            }
+        }
+        if (precios[ordinal] != SIN_PRECIO) {
+            tramosPrecio[tramo(precios[ordinal])].remove(ordinal);
+        }
+
+        vivos.remove(ordinal);
+        ids[ordinal] = null;
+        facetasDocumento[ordinal] = null;
+
+        if (numeroLibres == libres.length) {
+            libres = Arrays.copyOf(libres, numeroLibres * 2);
+        }
+        libres[numeroLibres++] = ordinal;
+    }
+
+    /**
+     * Compacta los bitmaps con codificación por rachas. Conviene llamarlo tras
+     * una carga masiva.
+     */
+    public void optimizar() {
+        vivos.runOptimize();
+        for (RoaringBitmap tramo : tramosPrecio) {
+            tramo.runOptimize();
+        }
+        for (Map<String, RoaringBitmap> valores : bitmaps.values()) {
+            for (RoaringBitmap bitmap : valores.values()) {
+                bitmap.runOptimize();
+            }
+        }
+    }
+
+    /**
+     * Busca los documentos que cumplen el filtro y calcula los recuentos de
+     * cada faceta.
+     *
+     * @param filtro              Filtro de la consulta.
+     * @param desde               Posición del primer resultado a devolver.
+     * @param limite              Número máximo de resultados a devolver.
+     * @param maxValoresDimension Número máximo de valores por dimensión en los
+     *                            recuentos.
+     * @return IDs de la página, total de coincidencias y recuentos.
+     */
+    public ResultadoFacetas buscar(FiltroFacetas filtro, int desde, int limite, int maxValoresDimension) {
+        // Bitmap de cada dimensión filtrada
+        Map<String, RoaringBitmap> filtros = new LinkedHashMap<>();
+        filtrar(filtros, CATEGORIA, filtro.getCategorias());
+        filtrar(filtros, MARCA, filtro.getMarcas());
+        filtrar(filtros, MODELO, filtro.getModelos());
+        filtrar(filtros, ESTADO, filtro.getEstados());
+        if (filtro.getCampos() != null) {
+            for (Map.Entry<String, List<String>> campo : filtro.getCampos().entrySet()) {
+                filtrar(filtros, PREFIJO_CAMPO + campo.getKey(), campo.getValue());
+            }
+        }
+        if (filtro.getPrecioMinEurCentimos() != null || filtro.getPrecioMaxEurCentimos() != null) {
+            filtros.put(PRECIO, rangoPrecio(filtro.getPrecioMinEurCentimos(), filtro.getPrecioMaxEurCentimos()));
+        }
+
+        RoaringBitmap resultado = interseccion(filtros, null);
+
+        // Recuentos de cada dimensión sobre el resultado del resto de filtros
+        Map<String, Map<String, Long>> recuentos = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, RoaringBitmap>> dimension : bitmaps.entrySet()) {
+            RoaringBitmap base = filtros.containsKey(dimension.getKey())
+                    ? interseccion(filtros, dimension.getKey())
+                    : resultado;
+            Map<String, Long> valores = recuentosDimension(dimension.getKey(), dimension.getValue(), base,
+                    maxValoresDimension);
+            if (!valores.isEmpty()) {
+                recuentos.put(dimension.getKey(), valores);
+            }
+        }
+        RoaringBitmap basePrecio = filtros.containsKey(PRECIO) ? interseccion(filtros, PRECIO) : resultado;
+        Map<String, Long> valoresPrecio = new LinkedHashMap<>();
+        for (int i = 0; i < tramosPrecio.length; i++) {
+            long cantidad = RoaringBitmap.andCardinality(tramosPrecio[i], basePrecio);
+            if (cantidad > 0) {
+                valoresPrecio.put(etiquetaTramo(i), cantidad);
+            }
+        }
+        if (!valoresPrecio.isEmpty()) {
+            recuentos.put(PRECIO, valoresPrecio);
+        }
+
+        // Página de resultados en orden de ordinal
+        long total = resultado.getLongCardinality();
+        List<String> pagina = new ArrayList<>();
+        if (desde < total) {
+            PeekableIntIterator iterador = resultado.getIntIterator();
+            iterador.advanceIfNeeded(resultado.select(desde));
+            while (iterador.hasNext() && pagina.size() < limite) {
+                pagina.add(ids[iterador.next()]);
+            }
+        }
+        return new ResultadoFacetas(pagina, total, recuentos);
+    }
+
+    /**
+     * Obtiene el número de documentos indexados.
+     *
+     * @return Número de documentos.
+     */
+    public int getNumeroDocumentos() {
+        return vivos.getCardinality();
+    }
+
+    /**
+     * Añade a los filtros la unión de los bitmaps de los valores de una
+     * dimensión. No hace nada si no hay valores.
+     */
+    private void filtrar(Map<String, RoaringBitmap> filtros, String dimension, List<String> valores) {
+        if (valores == null || valores.isEmpty()) {
+            return;
+        }
+        Map<String, RoaringBitmap> porValor = bitmaps.getOrDefault(dimension, Map.of());
+        List<RoaringBitmap> seleccionados = new ArrayList<>(valores.size());
+        for (String valor : valores) {
+            RoaringBitmap bitmap = valor != null ? porValor.get(normalizar(valor)) : null;
+            if (bitmap != null) {
+                seleccionados.add(bitmap);
+            }
+        }
+        filtros.put(dimension, RoaringBitmap.or(seleccionados.iterator()));
+    }
+
+    /**
+     * Calcula los documentos con precio en el rango. Los tramos incluidos por
+     * completo se unen directamente; en los tramos de los extremos se comprueba
+     * el precio de cada documento.
+     */
+    private RoaringBitmap rangoPrecio(Long minimo, Long maximo) {
+        long desde = minimo != null ? minimo : 0L;
+        long hasta = maximo != null ? maximo : Long.MAX_VALUE;
+
+        RoaringBitmap resultado = new RoaringBitmap();
+        if (desde > hasta) {
+            return resultado;
+        }
+        for (int i = tramo(Math.max(desde, 0L)); i < tramosPrecio.length && LIMITES_PRECIO[i] <= hasta; i++) {
+            long inicioTramo = LIMITES_PRECIO[i];
+            long finTramo = i + 1 < LIMITES_PRECIO.length ? LIMITES_PRECIO[i + 1] - 1 : Long.MAX_VALUE;
+            if (inicioTramo >= desde && finTramo <= hasta) {
+                resultado.or(tramosPrecio[i]);
+            } else {
+                Iterator<Integer> iterador = tramosPrecio[i].iterator();
+                while (iterador.hasNext()) {
+                    int ordinal = iterador.next();
+                    if (precios[ordinal] >= desde && precios[ordinal] <= hasta) {
+                        resultado.add(ordinal);
+                    }
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Intersección de los documentos vivos con todos los filtros salvo el de la
+     * dimensión excluida.
+     */
+    private RoaringBitmap interseccion(Map<String, RoaringBitmap> filtros, String excluida) {
+        RoaringBitmap resultado = vivos.clone();
+        for (Map.Entry<String, RoaringBitmap> filtro : filtros.entrySet()) {
+            if (!filtro.getKey().equals(excluida)) {
+                resultado.and(filtro.getValue());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta los documentos de la base con cada valor de la dimensión y devuelve
+     * los de mayor recuento, ordenados de mayor a menor.
+     */
+    private Map<String, Long> recuentosDimension(String dimension, Map<String, RoaringBitmap> porValor,
+            RoaringBitmap base, int maximo) {
+        List<Map.Entry<String, Long>> valores = new ArrayList<>();
+        for (Map.Entry<String, RoaringBitmap> valor : porValor.entrySet()) {
+            long cantidad = RoaringBitmap.andCardinality(valor.getValue(), base);
+            if (cantidad > 0) {
+                valores.add(Map.entry(valor.getKey(), cantidad));
+            }
+        }
+        valores.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, String> etiquetasDimension = etiquetas.get(dimension);
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        for (int i = 0; i < valores.size() && i < maximo; i++) {
+            resultado.put(etiquetasDimension.get(valores.get(i).getKey()), valores.get(i).getValue());
+        }
+        return resultado;
+    }
+
+    private int nuevoOrdinal() {
+        if (numeroLibres > 0) {
+            return libres[--numeroLibres];
+        }
+        if (siguienteOrdinal == ids.length) {
+            int capacidad = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacidad);
+            precios = Arrays.copyOf(precios, capacidad);
+            facetasDocumento = Arrays.copyOf(facetasDocumento, capacidad);
+        }
+        return siguienteOrdinal++;
+    }
+
+    private static int tramo(long precio) {
+        int i = Arrays.binarySearch(LIMITES_PRECIO, precio);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Etiqueta de un tramo de precio en EUR, por ejemplo "100-500" o "1000000+".
+     */
+    private static String etiquetaTramo(int i) {
+        String inicio = String.valueOf(LIMITES_PRECIO[i] / 100);
+        return i + 1 < LIMITES_PRECIO.length
+                ? inicio + "-" + LIMITES_PRECIO[i + 1] / 100
+                : inicio + "+";
+    }
+
+    private static String normalizar(String valor) {
+        return AnalizadorTexto.normalizar(valor.trim());
+    }
+}
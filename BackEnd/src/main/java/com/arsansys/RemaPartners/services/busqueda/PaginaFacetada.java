@@ -0,0 +1,33 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.List;
+import java.util.Map;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Página de productos de una consulta por facetas junto con los recuentos de
+ * cada faceta.
+ */
+@Getter
+@AllArgsConstructor
+public class PaginaFacetada {
+
+    /**
+     * Productos de la página.
+     */
+    private final List<ProductoEntity> productos;
+
+    /**
+     * Número total de productos que cumplen el filtro.
+     */
+    private final long total;
+
+    /**
+     * Recuento de productos por dimensión y valor.
+     */
+    private final Map<String, Map<String, Long>> facetas;
+}
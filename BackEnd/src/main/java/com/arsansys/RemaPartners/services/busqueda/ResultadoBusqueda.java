@@ -0,0 +1,24 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Página de resultados de una búsqueda en el índice.
+ */
+@Getter
+@AllArgsConstructor
+public class ResultadoBusqueda {
+
+    /**
+     * IDs de los documentos de la página, ordenados por relevancia.
+     */
+    private final List<String> ids;
+
+    /**
+     * Número total de documentos que coinciden con la consulta.
+     */
+    private final int total;
+}
@@ -0,0 +1,30 @@
+package com.arsansys.RemaPartners.services.busqueda;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Página de resultados de una consulta por facetas.
+ */
+@Getter
+@AllArgsConstructor
+public class ResultadoFacetas {
+
+    /**
+     * IDs de los documentos de la página.
+     */
+    private final List<String> ids;
+
+    /**
+     * Número total de documentos que cumplen el filtro.
+     */
+    private final long total;
+
+    /**
+     * Recuento de documentos por dimensión y valor.
+     */
+    private final Map<String, Map<String, Long>> facetas;
+}
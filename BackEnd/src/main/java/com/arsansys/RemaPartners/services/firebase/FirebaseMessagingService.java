@@ -1,20 +1,24 @@
 package com.arsansys.RemaPartners.services.firebase;
 
-import org.springframework.stereotype.Service;
+import java.util.List;
 
+import com.arsansys.RemaPartners.models.enums.EResultadoEnvio;
 import com.arsansys.RemaPartners.models.firebase.Note;
-import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
-import lombok.RequiredArgsConstructor;
 
 /**
- * Servicio para el envío de notificaciones push utilizando Firebase Cloud Messaging.
+ * Servicio para el envío de notificaciones push.
+ * <p>
+ * La implementación por defecto usa Firebase Cloud Messaging. Para pruebas y
+ * ensayos de carga se puede sustituir por una que no envía nada con la
+ * propiedad {@code notificaciones.push.proveedor=local}.
  */
-@Service
-@RequiredArgsConstructor
-public class FirebaseMessagingService {
+public interface FirebaseMessagingService {
+
+    /**
+     * Número máximo de notificaciones que admite un envío por lotes.
+     */
+    int MAX_NOTIFICACIONES_LOTE = 500;
 
     /**
      * Envía una notificación push a un dispositivo específico utilizando un token de Firebase.
@@ -24,21 +28,15 @@ public class FirebaseMessagingService {
      * @return String con el ID del mensaje enviado por Firebase.
      * @throws FirebaseMessagingException Si ocurre un error al enviar la notificación.
      */
-    public String sendNotification(Note note, String token) throws FirebaseMessagingException {
-        Notification notification = Notification
-                .builder()
-                .setTitle(note.getSubject())
-                .setBody(note.getContent())
-                .setImage(note.getImageUrl())
-                .build();
-
-        Message message = Message
-                .builder()
-                .setToken(token)
-                .setNotification(notification)
-                .putAllData(note.getData())
-                .build();
+    abstract String sendNotification(Note note, String token) throws FirebaseMessagingException;
 
-        return FirebaseMessaging.getInstance().send(message);
-    }
+    /**
+     * Envía varias notificaciones en una sola petición. Cada nota lleva el token
+     * de su destinatario.
+     *
+     * @param notes Notificaciones a enviar (como máximo
+     *              {@link #MAX_NOTIFICACIONES_LOTE}).
+     * @return Resultado de cada notificación, en el mismo orden.
+     */
+    abstract List<EResultadoEnvio> sendEach(List<Note> notes);
 }
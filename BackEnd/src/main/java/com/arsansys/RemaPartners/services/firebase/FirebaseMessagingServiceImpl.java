@@ -0,0 +1,114 @@
+package com.arsansys.RemaPartners.services.firebase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.enums.EResultadoEnvio;
+import com.arsansys.RemaPartners.models.firebase.Note;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio para el envío de notificaciones push utilizando Firebase Cloud Messaging.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseMessagingServiceImpl implements FirebaseMessagingService {
+
+    /**
+     * Envía una notificación push a un dispositivo específico utilizando un token de Firebase.
+     *
+     * @param note  Objeto Note que contiene el título, contenido, imagen y datos adicionales de la notificación.
+     * @param token Token del dispositivo al que se enviará la notificación.
+     * @return String con el ID del mensaje enviado por Firebase.
+     * @throws FirebaseMessagingException Si ocurre un error al enviar la notificación.
+     */
+    @Override
+    public String sendNotification(Note note, String token) throws FirebaseMessagingException {
+        return FirebaseMessaging.getInstance().send(buildMessage(note, token));
+    }
+
+    /**
+     * Envía varias notificaciones con {@code sendEach}. Los errores transitorios
+     * de Firebase se marcan para reintentar; los de un token caducado o una
+     * notificación no válida se descartan.
+     *
+     * @param notes Notificaciones a enviar.
+     * @return Resultado de cada notificación, en el mismo orden.
+     */
+    @Override
+    public List<EResultadoEnvio> sendEach(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return List.of();
+        }
+        if (notes.size() > MAX_NOTIFICACIONES_LOTE) {
+            throw new IllegalArgumentException("Too many notifications in one batch: " + notes.size());
+        }
+
+        List<Message> messages = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            messages.add(buildMessage(note, note.getToken()));
+        }
+
+        BatchResponse respuesta;
+        try {
+            respuesta = FirebaseMessaging.getInstance().sendEach(messages);
+        } catch (FirebaseMessagingException e) {
+            log.warn("Error sending push notification batch: {}", e.getMessage());
+            return new ArrayList<>(Collections.nCopies(notes.size(),
+                    esTransitorio(e.getMessagingErrorCode()) ? EResultadoEnvio.REINTENTAR : EResultadoEnvio.DESCARTAR));
+        }
+
+        List<EResultadoEnvio> resultados = new ArrayList<>(notes.size());
+        for (SendResponse envio : respuesta.getResponses()) {
+            if (envio.isSuccessful()) {
+                resultados.add(EResultadoEnvio.ENVIADO);
+            } else {
+                MessagingErrorCode codigo = envio.getException().getMessagingErrorCode();
+                resultados.add(esTransitorio(codigo) ? EResultadoEnvio.REINTENTAR : EResultadoEnvio.DESCARTAR);
+            }
+        }
+        return resultados;
+    }
+
+    private static Message buildMessage(Note note, String token) {
+        Notification notification = Notification
+                .builder()
+                .setTitle(note.getSubject())
+                .setBody(note.getContent())
+                .setImage(note.getImageUrl())
+                .build();
+
+        Map<String, String> data = note.getData() != null ? note.getData() : Map.of();
+        return Message
+                .builder()
+                .setToken(token)
+                .setNotification(notification)
+                .putAllData(data)
+                .build();
+    }
+
+    /**
+     * Indica si un error de Firebase es transitorio y merece reintentar el
+     * envío. Un error sin código (por ejemplo, de red) también se reintenta.
+     */
+    private static boolean esTransitorio(MessagingErrorCode codigo) {
+        return codigo == null
+                || codigo == MessagingErrorCode.UNAVAILABLE
+                || codigo == MessagingErrorCode.INTERNAL
+                || codigo == MessagingErrorCode.QUOTA_EXCEEDED;
+    }
+}
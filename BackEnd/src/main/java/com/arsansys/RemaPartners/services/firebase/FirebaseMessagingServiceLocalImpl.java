@@ -0,0 +1,65 @@
+package com.arsansys.RemaPartners.services.firebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.enums.EResultadoEnvio;
+import com.arsansys.RemaPartners.models.firebase.Note;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio de notificaciones push que no contacta con Firebase: registra cada
+ * notificación en el log y la da por enviada. Pensado para pruebas y ensayos de
+ * carga.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "local")
+public class FirebaseMessagingServiceLocalImpl implements FirebaseMessagingService {
+
+    private final AtomicLong enviadas = new AtomicLong();
+
+    /**
+     * Registra la notificación y devuelve un ID local.
+     *
+     * @param note  Notificación a enviar.
+     * @param token Token del dispositivo destinatario.
+     * @return ID local de la notificación.
+     */
+    @Override
+    public String sendNotification(Note note, String token) {
+        long numero = enviadas.incrementAndGet();
+        log.debug("Local push notification {} to {}: {}", numero, token, note.getSubject());
+        return "local-" + numero;
+    }
+
+    /**
+     * Registra las notificaciones y las da todas por enviadas.
+     *
+     * @param notes Notificaciones a enviar.
+     * @return {@link EResultadoEnvio#ENVIADO} para cada notificación.
+     */
+    @Override
+    public List<EResultadoEnvio> sendEach(List<Note> notes) {
+        List<EResultadoEnvio> resultados = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            sendNotification(note, note.getToken());
+            resultados.add(EResultadoEnvio.ENVIADO);
+        }
+        return resultados;
+    }
+
+    /**
+     * Obtiene el número de notificaciones registradas desde el arranque.
+     *
+     * @return Número de notificaciones.
+     */
+    public long getEnviadas() {
+        return enviadas.get();
+    }
+}
@@ -0,0 +1,192 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
+import com.arsansys.RemaPartners.repositories.ProductoRepository;
+import com.arsansys.RemaPartners.services.AutocompletadoProductoService;
+import com.arsansys.RemaPartners.services.busqueda.IndiceAutocompletado;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación del autocompletado de productos con un trie en memoria.
+ * <p>
+ * El índice se construye al arrancar la aplicación, se actualiza con los
+ * eventos de creación, modificación y borrado de productos y se reconstruye
+ * periódicamente para recoger las visitas acumuladas. La reconstrucción se hace
+ * sin bloquear las consultas: los cambios que llegan mientras tanto se aplican
+ * también al índice nuevo antes de sustituir al anterior.
+ */
+@Service
+@Slf4j
+public class AutocompletadoProductoServiceImpl implements AutocompletadoProductoService {
+
+    /**
+     * Multiplicador del peso de los productos destacados.
+     */
+    private static final long FACTOR_DESTACADO = 2;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    private IndiceAutocompletado indice = new IndiceAutocompletado();
+
+    // Cambios recibidos durante una reconstrucción (null si no hay ninguna)
+    private List<ApplicationEvent> cambiosPendientes;
+
+    /**
+     * Construye el índice al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndice() {
+        reconstruirIndice();
+    }
+
+    /**
+     * Reconstruye el índice periódicamente para actualizar los pesos con las
+     * visitas de los productos.
+     */
+    @Scheduled(fixedDelayString = "${productos.autocompletado.reconstruir-ms:3600000}",
+            initialDelayString = "${productos.autocompletado.reconstruir-ms:3600000}")
+    public void reconstruirPeriodicamente() {
+        reconstruirIndice();
+    }
+
+    /**
+     * Reconstruye el índice de autocompletado a partir de todos los productos.
+     *
+     * @return Número de sugerencias indexadas.
+     */
+    @Override
+    public int reconstruirIndice() {
+        cerrojo.writeLock().lock();
+        try {
+            cambiosPendientes = new ArrayList<>();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+
+        IndiceAutocompletado nuevo = new IndiceAutocompletado();
+        try (Stream<ProductoEntity> productos = productoRepository.streamAllBy()) {
+            nuevo.iniciarCarga();
+            for (ProductoEntity producto : (Iterable<ProductoEntity>) productos::iterator) {
+                aplicar(nuevo, producto);
+            }
+            nuevo.finalizarCarga();
+        } catch (Exception e) {
+            cerrojo.writeLock().lock();
+            try {
+                cambiosPendientes = null;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            throw new RuntimeException("Error building product autocomplete index: " + e.getMessage());
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            for (ApplicationEvent cambio : cambiosPendientes) {
+                aplicar(nuevo, cambio);
+            }
+            cambiosPendientes = null;
+            indice = nuevo;
+            log.info("Product autocomplete index built: {} suggestions", nuevo.getNumeroSugerencias());
+            return nuevo.getNumeroSugerencias();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene las sugerencias que completan un prefijo.
+     *
+     * @param prefijo Texto escrito por el usuario.
+     * @param limite  Número máximo de sugerencias.
+     * @return Lista de sugerencias.
+     */
+    @Override
+    public List<String> completar(String prefijo, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            return indice.completar(prefijo, limite);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Actualiza las sugerencias de un producto creado o modificado.
+     *
+     * @param event Evento de producto actualizado.
+     */
+    @EventListener
+    public void onProductoActualizado(ProductoActualizadoEvent event) {
+        registrarCambio(event);
+    }
+
+    /**
+     * Retira las sugerencias de un producto eliminado.
+     *
+     * @param event Evento de producto eliminado.
+     */
+    @EventListener
+    public void onProductoEliminado(ProductoEliminadoEvent event) {
+        registrarCambio(event);
+    }
+
+    private void registrarCambio(ApplicationEvent cambio) {
+        cerrojo.writeLock().lock();
+        try {
+            aplicar(indice, cambio);
+            if (cambiosPendientes != null) {
+                cambiosPendientes.add(cambio);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static void aplicar(IndiceAutocompletado indice, ApplicationEvent cambio) {
+        if (cambio instanceof ProductoActualizadoEvent actualizado) {
+            aplicar(indice, actualizado.getProducto());
+        } else if (cambio instanceof ProductoEliminadoEvent eliminado) {
+            indice.eliminar(eliminado.getProductoId());
+        }
+    }
+
+    /**
+     * Indexa el título, la marca y el modelo de un producto activo, o retira sus
+     * sugerencias si no lo está.
+     */
+    private static void aplicar(IndiceAutocompletado indice, ProductoEntity producto) {
+        if (producto.getId() == null) {
+            return;
+        }
+        if (Boolean.FALSE.equals(producto.getActivo())) {
+            indice.eliminar(producto.getId());
+            return;
+        }
+
+        long visitas = producto.getVisitas() != null ? Math.max(0, producto.getVisitas()) : 0;
+        long peso = (1 + visitas) * (Boolean.TRUE.equals(producto.getDestacado()) ? FACTOR_DESTACADO : 1);
+        indice.indexar(producto.getId(),
+                Arrays.asList(producto.getTitulo(), producto.getMarca(), producto.getModelo()), peso);
+    }
+}
@@ -0,0 +1,415 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.ChatEntity;
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+import com.arsansys.RemaPartners.models.entities.NotificacionPendienteEntity;
+import com.arsansys.RemaPartners.models.entities.UserEntity;
+import com.arsansys.RemaPartners.models.enums.EResultadoEnvio;
+import com.arsansys.RemaPartners.models.events.MensajeEnviadoEvent;
+import com.arsansys.RemaPartners.models.firebase.Note;
+import com.arsansys.RemaPartners.repositories.UserRepository;
+import com.arsansys.RemaPartners.services.BandejaSalidaNotificacionesService;
+import com.arsansys.RemaPartners.services.firebase.FirebaseMessagingService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la bandeja de salida de notificaciones sobre MongoDB.
+ * <p>
+ * Cada mensaje hace un único {@code upsert} sobre la notificación pendiente del
+ * destinatario en ese chat, que espera un breve intervalo antes de enviarse
+ * para agrupar las ráfagas. El despachador reclama un lote de notificaciones
+ * marcándolas con un identificador de lote y una reserva temporal, de modo que
+ * varias instancias pueden despachar a la vez sin enviar dos veces la misma; si
+ * una instancia cae, la reserva caduca y otra recoge sus notificaciones. Un
+ * índice único parcial garantiza que cada destinatario tiene como mucho una
+ * notificación pendiente por chat.
+ */
+@Service
+@Slf4j
+public class BandejaSalidaNotificacionesServiceImpl implements BandejaSalidaNotificacionesService {
+
+    private static final String INDICE_PENDIENTE = "destinatario_chat_pendiente";
+
+    /**
+     * Índice anterior, no único, sobre el destinatario, el chat y el estado.
+     */
+    private static final String INDICE_ANTERIOR = "destinatario_chat_estado";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FirebaseMessagingService firebaseService;
+
+    @Value("${notificaciones.push.agrupar-ms:3000}")
+    private long agruparMs;
+
+    @Value("${notificaciones.push.lote:500}")
+    private int tamanoLote;
+
+    @Value("${notificaciones.push.reserva-segundos:60}")
+    private long reservaSegundos;
+
+    @Value("${notificaciones.push.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${notificaciones.push.reintento-base-ms:2000}")
+    private long reintentoBaseMs;
+
+    @Value("${notificaciones.push.reintento-max-ms:300000}")
+    private long reintentoMaxMs;
+
+    /**
+     * Crea los índices de la bandeja de salida. La primera vez fusiona las
+     * notificaciones pendientes duplicadas para poder crear el índice único.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndices() {
+        try {
+            mongoTemplate.indexOps(NotificacionPendienteEntity.class).ensureIndex(new Index()
+                    .on("estado", Sort.Direction.ASC)
+                    .on("proximoIntento", Sort.Direction.ASC)
+                    .named("estado_proximo_intento"));
+            mongoTemplate.indexOps(NotificacionPendienteEntity.class).ensureIndex(new Index()
+                    .on("lote", Sort.Direction.ASC)
+                    .sparse()
+                    .named("lote"));
+
+            List<String> indices = mongoTemplate.indexOps(NotificacionPendienteEntity.class).getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .toList();
+            if (!indices.contains(INDICE_PENDIENTE)) {
+                fusionarPendientesDuplicadas();
+                mongoTemplate.indexOps(NotificacionPendienteEntity.class).ensureIndex(new Index()
+                        .on("idDestinatario", Sort.Direction.ASC)
+                        .on("idChat", Sort.Direction.ASC)
+                        .unique()
+                        .partial(PartialIndexFilter.of(
+                                Criteria.where("estado").is(NotificacionPendienteEntity.PENDIENTE)))
+                        .named(INDICE_PENDIENTE));
+            }
+            if (indices.contains(INDICE_ANTERIOR)) {
+                mongoTemplate.indexOps(NotificacionPendienteEntity.class).dropIndex(INDICE_ANTERIOR);
+            }
+        } catch (Exception e) {
+            log.warn("Could not create push notification outbox indexes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deja una sola notificación pendiente por destinatario y chat. Cada
+     * duplicada se retira si sigue pendiente y sus mensajes, leídos al
+     * retirarla, se suman con {@code $inc} a la conservada; así no se pierden
+     * los mensajes que se agrupan mientras tanto, y si el proceso se
+     * interrumpe el siguiente arranque continúa con las que quedan.
+     */
+    private void fusionarPendientesDuplicadas() {
+        String coleccion = mongoTemplate.getCollectionName(NotificacionPendienteEntity.class);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("estado").is(NotificacionPendienteEntity.PENDIENTE)),
+                Aggregation.sort(Sort.Direction.DESC, "fechaCreacion"),
+                Aggregation.group("idDestinatario", "idChat")
+                        .count().as("documentos")
+                        .push("_id").as("ids"),
+                Aggregation.match(Criteria.where("documentos").gt(1)));
+
+        long eliminadas = 0;
+        for (Document grupo : mongoTemplate.aggregate(aggregation, coleccion, Document.class)) {
+            List<?> ids = grupo.getList("ids", Object.class);
+
+            // Se conserva la más reciente, que tiene el último mensaje
+            for (Object id : ids.subList(1, ids.size())) {
+                Document duplicada = mongoTemplate.getCollection(coleccion).findOneAndDelete(
+                        new Document("_id", id).append("estado", NotificacionPendienteEntity.PENDIENTE));
+                if (duplicada == null) {
+                    continue;
+                }
+                // Una notificación pendiente agrupa al menos un mensaje
+                Number mensajes = duplicada.get("numeroMensajes", Number.class);
+                mongoTemplate.getCollection(coleccion).updateOne(new Document("_id", ids.get(0)),
+                        new Document("$inc", new Document("numeroMensajes",
+                                mensajes != null ? mensajes.longValue() : 1L)));
+                eliminadas++;
+            }
+        }
+        if (eliminadas > 0) {
+            log.info("Merged pending push notifications: {} duplicates removed", eliminadas);
+        }
+    }
+
+    /**
+     * Encola la notificación de un mensaje para el otro participante del chat.
+     * Un fallo al encolar no impide que el mensaje se guarde.
+     *
+     * @param event Evento de mensaje enviado.
+     */
+    @EventListener
+    public void onMensajeEnviado(MensajeEnviadoEvent event) {
+        ChatEntity chat = event.getChat();
+        MensajeEntity mensaje = event.getMensaje();
+        String idDestinatario = mensaje.getIdEmisor() != null && mensaje.getIdEmisor().equals(chat.getIdVendedor())
+                ? chat.getIdComprador()
+                : chat.getIdVendedor();
+        if (idDestinatario == null || idDestinatario.equals(mensaje.getIdEmisor())) {
+            return;
+        }
+        try {
+            encolar(idDestinatario, chat.getId(), mensaje.getIdEmisor(), mensaje.getMensaje());
+        } catch (Exception e) {
+            log.warn("Error queueing push notification for chat {}: {}", chat.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Añade un mensaje a la notificación pendiente del destinatario para ese
+     * chat, o crea una nueva que se enviará pasado el intervalo de agrupación.
+     * Si otra petición la crea a la vez, el índice único rechaza la segunda
+     * inserción y el mensaje se añade a la ya creada.
+     *
+     * @param idDestinatario ID del usuario que recibe la notificación.
+     * @param idChat         ID del chat.
+     * @param idEmisor       ID del emisor del mensaje.
+     * @param mensaje        Texto del mensaje.
+     */
+    @Override
+    public void encolar(String idDestinatario, String idChat, String idEmisor, String mensaje) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Query pendiente = consultaPendiente(idDestinatario, idChat);
+        Update update = new Update()
+                .set("idEmisor", idEmisor)
+                .set("mensaje", mensaje)
+                .inc("numeroMensajes", 1)
+                .setOnInsert("intentos", 0)
+                .setOnInsert("proximoIntento", ahora.plusNanos(agruparMs * 1_000_000))
+                .setOnInsert("fechaCreacion", ahora);
+        try {
+            mongoTemplate.upsert(pendiente, update, NotificacionPendienteEntity.class);
+        } catch (DuplicateKeyException e) {
+            mongoTemplate.upsert(pendiente, update, NotificacionPendienteEntity.class);
+        }
+    }
+
+    /**
+     * Despacha periódicamente las notificaciones pendientes.
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.push.intervalo-ms:1000}")
+    public void despacharPeriodicamente() {
+        try {
+            despacharPendientes();
+        } catch (Exception e) {
+            log.warn("Error dispatching push notifications: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Envía por lotes las notificaciones pendientes cuyo momento de envío ha
+     * llegado, hasta vaciar la bandeja.
+     *
+     * @return Número de notificaciones procesadas.
+     */
+    @Override
+    public int despacharPendientes() {
+        int limite = Math.min(tamanoLote, FirebaseMessagingService.MAX_NOTIFICACIONES_LOTE);
+        int total = 0;
+        List<NotificacionPendienteEntity> lote;
+        do {
+            lote = reclamarLote(limite);
+            if (!lote.isEmpty()) {
+                enviarLote(lote);
+                total += lote.size();
+            }
+        } while (lote.size() >= limite);
+        return total;
+    }
+
+    /**
+     * Reclama hasta {@code limite} notificaciones disponibles: pendientes cuyo
+     * momento de envío ha llegado o reservadas por un despachador cuya reserva
+     * ha caducado. Los mensajes agrupados antes de reclamarlas se incluyen
+     * porque el lote se lee después de marcarlo.
+     */
+    private List<NotificacionPendienteEntity> reclamarLote(int limite) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Criteria disponibles = new Criteria().orOperator(
+                Criteria.where("estado").is(NotificacionPendienteEntity.PENDIENTE).and("proximoIntento").lte(ahora),
+                Criteria.where("estado").is(NotificacionPendienteEntity.ENVIANDO).and("reservadaHasta").lt(ahora));
+
+        Query query = Query.query(disponibles).with(Sort.by(Sort.Direction.ASC, "proximoIntento")).limit(limite);
+        query.fields().include("id");
+        List<String> ids = mongoTemplate.find(query, NotificacionPendienteEntity.class).stream()
+                .map(NotificacionPendienteEntity::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String lote = new ObjectId().toHexString();
+        mongoTemplate.updateMulti(
+                Query.query(new Criteria().andOperator(Criteria.where("id").in(ids), disponibles)),
+                new Update()
+                        .set("estado", NotificacionPendienteEntity.ENVIANDO)
+                        .set("lote", lote)
+                        .set("reservadaHasta", ahora.plusSeconds(reservaSegundos)),
+                NotificacionPendienteEntity.class);
+        return mongoTemplate.find(Query.query(Criteria.where("lote").is(lote)), NotificacionPendienteEntity.class);
+    }
+
+    /**
+     * Envía un lote de notificaciones con una sola petición. Los datos de los
+     * destinatarios y emisores se leen con una consulta. Las notificaciones
+     * enviadas o descartadas se eliminan y las demás se reprograman.
+     */
+    private void enviarLote(List<NotificacionPendienteEntity> lote) {
+        Set<String> idsUsuarios = new HashSet<>();
+        for (NotificacionPendienteEntity notificacion : lote) {
+            idsUsuarios.add(notificacion.getIdDestinatario());
+            if (notificacion.getIdEmisor() != null) {
+                idsUsuarios.add(notificacion.getIdEmisor());
+            }
+        }
+        Map<String, UserEntity> usuarios = new HashMap<>();
+        for (UserEntity usuario : userRepository.findNotificacionesByIdIn(idsUsuarios)) {
+            usuarios.put(usuario.getId(), usuario);
+        }
+
+        List<String> terminadas = new ArrayList<>();
+        List<NotificacionPendienteEntity> enviables = new ArrayList<>();
+        List<Note> notes = new ArrayList<>();
+        for (NotificacionPendienteEntity notificacion : lote) {
+            UserEntity destinatario = usuarios.get(notificacion.getIdDestinatario());
+            if (destinatario == null || destinatario.getGoogleToken() == null
+                    || destinatario.getGoogleToken().isEmpty()
+                    || Boolean.FALSE.equals(destinatario.getNotificaciones())) {
+                terminadas.add(notificacion.getId());
+                continue;
+            }
+            enviables.add(notificacion);
+            notes.add(crearNota(notificacion, destinatario.getGoogleToken(), usuarios.get(notificacion.getIdEmisor())));
+        }
+
+        List<EResultadoEnvio> resultados;
+        try {
+            resultados = notes.isEmpty() ? List.of() : firebaseService.sendEach(notes);
+        } catch (Exception e) {
+            log.warn("Error sending push notifications: {}", e.getMessage());
+            resultados = Collections.nCopies(notes.size(), EResultadoEnvio.REINTENTAR);
+        }
+
+        String idLote = lote.get(0).getLote();
+        for (int i = 0; i < enviables.size(); i++) {
+            NotificacionPendienteEntity notificacion = enviables.get(i);
+            if (resultados.get(i) == EResultadoEnvio.REINTENTAR) {
+                if (!reprogramar(notificacion)) {
+                    terminadas.add(notificacion.getId());
+                }
+            } else {
+                terminadas.add(notificacion.getId());
+            }
+        }
+
+        if (!terminadas.isEmpty()) {
+            mongoTemplate.remove(
+                    Query.query(Criteria.where("id").in(terminadas).and("lote").is(idLote)),
+                    NotificacionPendienteEntity.class);
+        }
+    }
+
+    /**
+     * Devuelve una notificación fallida a la bandeja con una espera que se
+     * duplica en cada intento, hasta un máximo. Si mientras se enviaba llegaron
+     * mensajes nuevos, ya hay otra pendiente para el mismo chat: los mensajes
+     * de la fallida se suman a ella y la fallida se descarta.
+     *
+     * @return false si debe descartarse, por haber agotado los intentos o por
+     *         haberse fusionado con otra pendiente.
+     */
+    private boolean reprogramar(NotificacionPendienteEntity notificacion) {
+        int intentos = (notificacion.getIntentos() != null ? notificacion.getIntentos() : 0) + 1;
+        if (intentos >= maxIntentos) {
+            log.warn("Discarding push notification for user {} after {} attempts",
+                    notificacion.getIdDestinatario(), intentos);
+            return false;
+        }
+        long espera = Math.min(reintentoMaxMs, reintentoBaseMs << Math.min(intentos - 1, 20));
+        try {
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(notificacion.getId()).and("lote").is(notificacion.getLote())),
+                    new Update()
+                            .set("estado", NotificacionPendienteEntity.PENDIENTE)
+                            .set("intentos", intentos)
+                            .set("proximoIntento", LocalDateTime.now().plusNanos(espera * 1_000_000))
+                            .unset("lote")
+                            .unset("reservadaHasta"),
+                    NotificacionPendienteEntity.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            long numeroMensajes = notificacion.getNumeroMensajes() != null ? notificacion.getNumeroMensajes() : 1;
+            mongoTemplate.updateFirst(consultaPendiente(notificacion.getIdDestinatario(), notificacion.getIdChat()),
+                    new Update().inc("numeroMensajes", numeroMensajes),
+                    NotificacionPendienteEntity.class);
+            return false;
+        }
+    }
+
+    private static Query consultaPendiente(String idDestinatario, String idChat) {
+        return Query.query(Criteria.where("idDestinatario").is(idDestinatario)
+                .and("idChat").is(idChat)
+                .and("estado").is(NotificacionPendienteEntity.PENDIENTE));
+    }
+
+    /**
+     * Crea la nota de una notificación. Si agrupa varios mensajes, el título
+     * indica cuántos y el contenido es el último.
+     */
+    private static Note crearNota(NotificacionPendienteEntity notificacion, String token, UserEntity emisor) {
+        String nombre = emisor != null && emisor.getUsername() != null ? emisor.getUsername() : "Usuario";
+        long numeroMensajes = notificacion.getNumeroMensajes() != null ? notificacion.getNumeroMensajes() : 1;
+
+        Note note = new Note();
+        note.setSubject(numeroMensajes > 1
+                ? numeroMensajes + " mensajes nuevos de " + nombre
+                : "Nuevo mensaje de " + nombre);
+        note.setContent(notificacion.getMensaje());
+        note.setToken(token);
+        Map<String, String> data = new HashMap<>();
+        data.put("idChat", notificacion.getIdChat());
+        if (notificacion.getIdEmisor() != null) {
+            data.put("idEmisor", notificacion.getIdEmisor());
+        }
+        data.put("numeroMensajes", String.valueOf(numeroMensajes));
+        note.setData(data);
+        return note;
+    }
+}
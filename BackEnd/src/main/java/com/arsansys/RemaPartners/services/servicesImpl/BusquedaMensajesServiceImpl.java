@@ -0,0 +1,325 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.BloqueMensajesEntity;
+import com.arsansys.RemaPartners.models.entities.ChatEntity;
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+import com.arsansys.RemaPartners.models.entities.TerminoChatEntity;
+import com.arsansys.RemaPartners.models.events.ChatEliminadoEvent;
+import com.arsansys.RemaPartners.models.events.MensajeEnviadoEvent;
+import com.arsansys.RemaPartners.repositories.BloqueMensajesRepository;
+import com.arsansys.RemaPartners.services.BusquedaMensajesService;
+import com.arsansys.RemaPartners.services.busqueda.AnalizadorTexto;
+import com.arsansys.RemaPartners.services.busqueda.CoincidenciaMensaje;
+import com.arsansys.RemaPartners.services.busqueda.FragmentoTexto;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la búsqueda en mensajes de chat con un índice invertido
+ * en MongoDB.
+ * <p>
+ * Cada entrada del índice ({@link TerminoChatEntity}) guarda las secuencias de
+ * los mensajes de un bloque que contienen un término, junto con los
+ * participantes del chat. El índice se actualiza al enviar cada mensaje con un
+ * único lote de {@code upsert} y se limpia al eliminar un chat. Una búsqueda
+ * lee las entradas de sus términos en los chats del usuario, cruza las
+ * secuencias y solo carga los bloques con coincidencias, nunca los chats
+ * completos.
+ */
+@Service
+@Slf4j
+public class BusquedaMensajesServiceImpl implements BusquedaMensajesService {
+
+    /**
+     * Número máximo de términos de una consulta que se tienen en cuenta.
+     */
+    private static final int MAX_TERMINOS_CONSULTA = 8;
+
+    /**
+     * Longitud de los fragmentos de texto de los resultados.
+     */
+    private static final int LONGITUD_FRAGMENTO = 120;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BloqueMensajesRepository bloqueMensajesRepository;
+
+    /**
+     * Crea los índices de la colección y añade al índice de búsqueda los
+     * mensajes de los chats que aún no están en él. Se ejecuta después de
+     * preparar los bloques de mensajes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndice() {
+        try {
+            mongoTemplate.indexOps(TerminoChatEntity.class).ensureIndex(new Index()
+                    .on("termino", Sort.Direction.ASC)
+                    .on("idChat", Sort.Direction.ASC)
+                    .on("bloque", Sort.Direction.ASC)
+                    .unique()
+                    .named("termino_chat_bloque"));
+            mongoTemplate.indexOps(TerminoChatEntity.class).ensureIndex(new Index()
+                    .on("participantes", Sort.Direction.ASC)
+                    .on("termino", Sort.Direction.ASC)
+                    .named("participantes_termino"));
+            mongoTemplate.indexOps(TerminoChatEntity.class).ensureIndex(new Index()
+                    .on("idChat", Sort.Direction.ASC)
+                    .named("chat"));
+        } catch (Exception e) {
+            log.warn("Could not create chat search indexes: {}", e.getMessage());
+        }
+
+        try {
+            int indexados = indexarPendientes();
+            if (indexados > 0) {
+                log.info("Chat messages indexed for search: {} chats", indexados);
+            }
+        } catch (Exception e) {
+            log.error("Error indexing chat messages for search: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indexa los mensajes de los chats sin marcar como indexados que ya tienen
+     * sus mensajes en bloques. Las entradas previas del chat se descartan, de
+     * modo que un chat cuyas secuencias han cambiado se reindexa entero.
+     *
+     * @return Número de chats indexados.
+     */
+    @Override
+    public int indexarPendientes() {
+        Query query = Query.query(Criteria.where("mensajesIndexados").ne(true).and("mensajes").exists(false));
+        query.fields().include("id", "idComprador", "idVendedor");
+
+        int indexados = 0;
+        for (ChatEntity chat : mongoTemplate.find(query, ChatEntity.class)) {
+            mongoTemplate.remove(Query.query(Criteria.where("idChat").is(chat.getId())), TerminoChatEntity.class);
+
+            List<String> participantes = participantes(chat);
+            for (BloqueMensajesEntity bloque : bloqueMensajesRepository.findByIdChatOrderBySecuenciaAsc(chat.getId())) {
+                List<MensajeEntity> mensajes = bloque.getMensajes() != null ? bloque.getMensajes() : List.of();
+                for (int i = 0; i < mensajes.size(); i++) {
+                    MensajeEntity mensaje = mensajes.get(i);
+                    long secuencia = mensaje.getSecuencia() != null ? mensaje.getSecuencia()
+                            : (long) bloque.getSecuencia() * BloqueMensajesEntity.MENSAJES_POR_BLOQUE + i;
+                    indexar(chat.getId(), participantes, secuencia, mensaje);
+                }
+            }
+
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(chat.getId())),
+                    new Update().set("mensajesIndexados", true), ChatEntity.class);
+            indexados++;
+        }
+        return indexados;
+    }
+
+    /**
+     * Añade al índice un mensaje enviado. Un fallo al indexar no impide que el
+     * mensaje se guarde.
+     *
+     * @param event Evento de mensaje enviado.
+     */
+    @EventListener
+    public void onMensajeEnviado(MensajeEnviadoEvent event) {
+        MensajeEntity mensaje = event.getMensaje();
+        try {
+            indexar(event.getChat().getId(), participantes(event.getChat()), mensaje.getSecuencia(), mensaje);
+        } catch (Exception e) {
+            log.warn("Error indexing message {} of chat {}: {}", mensaje.getSecuencia(), event.getChat().getId(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina del índice los mensajes de un chat eliminado.
+     *
+     * @param event Evento de chat eliminado.
+     */
+    @EventListener
+    public void onChatEliminado(ChatEliminadoEvent event) {
+        mongoTemplate.remove(Query.query(Criteria.where("idChat").is(event.getIdChat())), TerminoChatEntity.class);
+    }
+
+    /**
+     * Añade la secuencia de un mensaje a la entrada de cada uno de sus términos
+     * con un único lote de operaciones.
+     */
+    private void indexar(String idChat, List<String> participantes, long secuencia, MensajeEntity mensaje) {
+        Set<String> terminos = new LinkedHashSet<>(AnalizadorTexto.analizar(mensaje.getMensaje()));
+        if (terminos.isEmpty()) {
+            return;
+        }
+
+        int bloque = (int) (secuencia / BloqueMensajesEntity.MENSAJES_POR_BLOQUE);
+        LocalDateTime fecha = mensaje.getFecha() != null ? mensaje.getFecha() : LocalDateTime.now();
+        try {
+            operacionesIndexado(idChat, participantes, bloque, secuencia, fecha, terminos).execute();
+        } catch (BulkOperationException | DuplicateKeyException e) {
+            // Otro mensaje creó alguna entrada a la vez; ahora ya existen
+            operacionesIndexado(idChat, participantes, bloque, secuencia, fecha, terminos).execute();
+        }
+    }
+
+    private BulkOperations operacionesIndexado(String idChat, List<String> participantes, int bloque,
+            long secuencia, LocalDateTime fecha, Set<String> terminos) {
+        BulkOperations operaciones = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TerminoChatEntity.class);
+        for (String termino : terminos) {
+            operaciones.upsert(
+                    Query.query(Criteria.where("termino").is(termino).and("idChat").is(idChat).and("bloque").is(bloque)),
+                    new Update()
+                            .addToSet("secuencias", secuencia)
+                            .max("fechaUltimoMensaje", fecha)
+                            .setOnInsert("participantes", participantes));
+        }
+        return operaciones;
+    }
+
+    /**
+     * Busca los mensajes de los chats de un usuario que contienen todos los
+     * términos de la consulta. Se cruzan las secuencias de cada bloque y se
+     * cargan solo los {@code limite} bloques con coincidencias más recientes.
+     *
+     * @param idUsuario ID del usuario.
+     * @param texto     Texto de la consulta.
+     * @param limite    Número máximo de resultados.
+     * @return Mensajes encontrados, de más reciente a más antiguo.
+     */
+    @Override
+    public List<CoincidenciaMensaje> buscar(String idUsuario, String texto, int limite) {
+        try {
+            Set<String> terminos = new LinkedHashSet<>(AnalizadorTexto.analizar(texto));
+            if (terminos.isEmpty() || limite <= 0) {
+                return List.of();
+            }
+            if (terminos.size() > MAX_TERMINOS_CONSULTA) {
+                terminos = new LinkedHashSet<>(new ArrayList<>(terminos).subList(0, MAX_TERMINOS_CONSULTA));
+            }
+
+            Query query = Query.query(Criteria.where("participantes").is(idUsuario).and("termino").in(terminos));
+            query.fields().include("termino", "idChat", "bloque", "secuencias", "fechaUltimoMensaje");
+
+            // Cruza las secuencias de los términos en cada bloque
+            Map<String, Candidato> candidatos = new HashMap<>();
+            for (TerminoChatEntity entrada : mongoTemplate.find(query, TerminoChatEntity.class)) {
+                String clave = entrada.getIdChat() + ":" + entrada.getBloque();
+                Candidato candidato = candidatos.computeIfAbsent(clave,
+                        k -> new Candidato(entrada.getIdChat(), entrada.getBloque()));
+                candidato.añadir(entrada);
+            }
+
+            List<Candidato> completos = new ArrayList<>();
+            for (Candidato candidato : candidatos.values()) {
+                if (candidato.terminos == terminos.size() && !candidato.secuencias.isEmpty()) {
+                    completos.add(candidato);
+                }
+            }
+            if (completos.isEmpty()) {
+                return List.of();
+            }
+            completos.sort(Comparator.comparing((Candidato candidato) -> candidato.fecha,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            if (completos.size() > limite) {
+                completos = completos.subList(0, limite);
+            }
+
+            List<Criteria> bloques = new ArrayList<>(completos.size());
+            Map<String, Candidato> porBloque = new HashMap<>();
+            for (Candidato candidato : completos) {
+                bloques.add(Criteria.where("idChat").is(candidato.idChat).and("secuencia").is(candidato.bloque));
+                porBloque.put(candidato.idChat + ":" + candidato.bloque, candidato);
+            }
+
+            List<CoincidenciaMensaje> resultados = new ArrayList<>();
+            for (BloqueMensajesEntity bloque : mongoTemplate.find(
+                    Query.query(new Criteria().orOperator(bloques)), BloqueMensajesEntity.class)) {
+                Candidato candidato = porBloque.get(bloque.getIdChat() + ":" + bloque.getSecuencia());
+                List<MensajeEntity> mensajes = bloque.getMensajes() != null ? bloque.getMensajes() : List.of();
+                for (int i = 0; i < mensajes.size(); i++) {
+                    MensajeEntity mensaje = mensajes.get(i);
+                    if (mensaje.getSecuencia() == null) {
+                        mensaje.setSecuencia((long) bloque.getSecuencia() * BloqueMensajesEntity.MENSAJES_POR_BLOQUE + i);
+                    }
+                    if (candidato != null && candidato.secuencias.contains(mensaje.getSecuencia())) {
+                        resultados.add(new CoincidenciaMensaje(bloque.getIdChat(), mensaje,
+                                FragmentoTexto.extraer(mensaje.getMensaje(), terminos, LONGITUD_FRAGMENTO)));
+                    }
+                }
+            }
+
+            resultados.sort(Comparator.comparing((CoincidenciaMensaje resultado) -> resultado.getMensaje().getFecha(),
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            return resultados.size() > limite ? new ArrayList<>(resultados.subList(0, limite)) : resultados;
+        } catch (Exception e) {
+            throw new RuntimeException("Error searching chat messages: " + e.getMessage());
+        }
+    }
+
+    private static List<String> participantes(ChatEntity chat) {
+        List<String> participantes = new ArrayList<>(2);
+        if (chat.getIdComprador() != null) {
+            participantes.add(chat.getIdComprador());
+        }
+        if (chat.getIdVendedor() != null) {
+            participantes.add(chat.getIdVendedor());
+        }
+        return participantes;
+    }
+
+    /**
+     * Bloque de mensajes con entradas de algunos términos de la consulta: las
+     * secuencias presentes en todas ellas y la fecha más antigua de sus
+     * últimos mensajes, que acota la del mensaje más reciente que coincide.
+     */
+    private static final class Candidato {
+        private final String idChat;
+        private final int bloque;
+        private Set<Long> secuencias;
+        private LocalDateTime fecha;
+        private int terminos;
+
+        private Candidato(String idChat, int bloque) {
+            this.idChat = idChat;
+            this.bloque = bloque;
+        }
+
+        private void añadir(TerminoChatEntity entrada) {
+            Set<Long> nuevas = entrada.getSecuencias() != null ? new LinkedHashSet<>(entrada.getSecuencias())
+                    : new LinkedHashSet<>();
+            if (secuencias == null) {
+                secuencias = nuevas;
+            } else {
+                secuencias.retainAll(nuevas);
+            }
+            if (fecha == null || (entrada.getFechaUltimoMensaje() != null
+                    && entrada.getFechaUltimoMensaje().isBefore(fecha))) {
+                fecha = entrada.getFechaUltimoMensaje();
+            }
+            terminos++;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.CampoCategoriaEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
+import com.arsansys.RemaPartners.repositories.ProductoRepository;
+import com.arsansys.RemaPartners.services.BusquedaProductoService;
+import com.arsansys.RemaPartners.services.ProductoService;
+import com.arsansys.RemaPartners.services.busqueda.AnalizadorTexto;
+import com.arsansys.RemaPartners.services.busqueda.IndiceBusqueda;
+import com.arsansys.RemaPartners.services.busqueda.ResultadoBusqueda;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la búsqueda de productos con un índice invertido en
+ * memoria.
+ * <p>
+ * El índice se construye al arrancar la aplicación y se actualiza con los
+ * eventos de creación, modificación y borrado de productos. Solo se indexan
+ * los productos activos. Las búsquedas comparten un cerrojo de lectura; las
+ * actualizaciones toman el de escritura.
+ */
+@Service
+@Slf4j
+public class BusquedaProductoServiceImpl implements BusquedaProductoService {
+
+    // Peso de cada campo en la frecuencia de sus términos
+    private static final int PESO_TITULO = 3;
+    private static final int PESO_MARCA = 2;
+    private static final int PESO_MODELO = 2;
+    private static final int PESO_CAMPOS_CATEGORIA = 1;
+    private static final int PESO_DESCRIPCION = 1;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoService productoService;
+
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    private IndiceBusqueda indice = new IndiceBusqueda();
+
+    /**
+     * Construye el índice al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndice() {
+        reconstruirIndice();
+    }
+
+    /**
+     * Reconstruye el índice de búsqueda a partir de todos los productos.
+     *
+     * @return Número de productos indexados.
+     */
+    @Override
+    public int reconstruirIndice() {
+        cerrojo.writeLock().lock();
+        try (Stream<ProductoEntity> productos = productoRepository.streamAllBy()) {
+            IndiceBusqueda nuevo = new IndiceBusqueda();
+            for (ProductoEntity producto : (Iterable<ProductoEntity>) productos::iterator) {
+                if (indexable(producto)) {
+                    nuevo.indexar(producto.getId(), terminos(producto));
+                }
+            }
+            indice = nuevo;
+            log.info("Product search index built: {} products, {} terms",
+                    nuevo.getNumeroDocumentos(), nuevo.getNumeroTerminos());
+            return nuevo.getNumeroDocumentos();
+        } catch (Exception e) {
+            throw new RuntimeException("Error building product search index: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos por texto ordenados por relevancia BM25.
+     *
+     * @param texto  Texto de la consulta.
+     * @param desde  Posición del primer resultado.
+     * @param limite Número máximo de resultados.
+     * @return Página de productos y número total de coincidencias.
+     */
+    @Override
+    public Page<ProductoEntity> buscar(String texto, int desde, int limite) {
+        List<String> terminos = AnalizadorTexto.analizar(texto);
+
+        ResultadoBusqueda resultado;
+        cerrojo.readLock().lock();
+        try {
+            resultado = indice.buscar(terminos, true, desde, limite);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+
+        List<ProductoEntity> productos = productoService.getProductosByIds(resultado.getIds());
+        return new PageImpl<>(productos, Pageable.unpaged(), resultado.getTotal());
+    }
+
+    /**
+     * Indexa de nuevo un producto creado o modificado, o lo retira del índice si
+     * ya no está activo.
+     *
+     * @param event Evento de producto actualizado.
+     */
+    @EventListener
+    public void onProductoActualizado(ProductoActualizadoEvent event) {
+        ProductoEntity producto = event.getProducto();
+        Map<String, Integer> terminos = indexable(producto) ? terminos(producto) : null;
+
+        cerrojo.writeLock().lock();
+        try {
+            if (terminos != null) {
+                indice.indexar(producto.getId(), terminos);
+            } else {
+                indice.eliminar(producto.getId());
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira del índice un producto eliminado.
+     *
+     * @param event Evento de producto eliminado.
+     */
+    @EventListener
+    public void onProductoEliminado(ProductoEliminadoEvent event) {
+        cerrojo.writeLock().lock();
+        try {
+            indice.eliminar(event.getProductoId());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static boolean indexable(ProductoEntity producto) {
+        return producto.getId() != null && !Boolean.FALSE.equals(producto.getActivo());
+    }
+
+    /**
+     * Calcula la frecuencia ponderada de cada término del producto.
+     */
+    private static Map<String, Integer> terminos(ProductoEntity producto) {
+        Map<String, Integer> frecuencias = new HashMap<>();
+        sumar(frecuencias, producto.getTitulo(), PESO_TITULO);
+        sumar(frecuencias, producto.getMarca(), PESO_MARCA);
+        sumar(frecuencias, producto.getModelo(), PESO_MODELO);
+        sumar(frecuencias, producto.getDescripcion(), PESO_DESCRIPCION);
+        if (producto.getCamposCategoria() != null) {
+            for (CampoCategoriaEntity campo : producto.getCamposCategoria()) {
+                if (campo != null) {
+                    sumar(frecuencias, campo.getDatos(), PESO_CAMPOS_CATEGORIA);
+                }
+            }
+        }
+        return frecuencias;
+    }
+
+    private static void sumar(Map<String, Integer> frecuencias, String texto, int peso) {
+        for (String termino : AnalizadorTexto.analizar(texto)) {
+            frecuencias.merge(termino, peso, Integer::sum);
+        }
+    }
+}
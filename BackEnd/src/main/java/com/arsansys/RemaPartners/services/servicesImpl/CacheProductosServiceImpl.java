@@ -0,0 +1,133 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.CampoCategoriaEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
+import com.arsansys.RemaPartners.repositories.ProductoRepository;
+import com.arsansys.RemaPartners.services.CacheProductosService;
+import com.arsansys.RemaPartners.services.CanalInvalidacionProductos;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Implementación de la caché de productos con Caffeine.
+ * <p>
+ * La caché está limitada en tamaño y caduca por tiempo. Los productos se
+ * guardan tal como se leen de la base de datos y se devuelven copias, de modo
+ * que los cambios del llamador no alteran la caché. Las entradas se invalidan
+ * con los eventos de producto a través del canal de invalidación, que en un
+ * despliegue con varios nodos las difunde al resto. Las métricas de aciertos,
+ * fallos y tiempo de carga se publican en Micrometer con el nombre
+ * {@code productos}.
+ */
+@Service
+public class CacheProductosServiceImpl implements CacheProductosService {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CanalInvalidacionProductos canalInvalidacion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productos.cache.max-entradas:10000}")
+    private long maxEntradas;
+
+    @Value("${productos.cache.ttl-segundos:60}")
+    private long ttlSegundos;
+
+    private LoadingCache<String, ProductoEntity> cache;
+
+    /**
+     * Crea la caché, registra sus métricas y se suscribe al canal de
+     * invalidación.
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build(id -> productoRepository.findById(id).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productos");
+        canalInvalidacion.suscribir(cache::invalidate);
+    }
+
+    /**
+     * Obtiene una copia de un producto de la caché o lo carga si no está.
+     *
+     * @param id ID del producto.
+     * @return Copia del producto, o vacío si no existe.
+     */
+    @Override
+    public Optional<ProductoEntity> obtener(String id) {
+        return Optional.ofNullable(cache.get(id)).map(CacheProductosServiceImpl::copia);
+    }
+
+    /**
+     * Invalida un producto en la caché de todos los nodos.
+     *
+     * @param id ID del producto.
+     */
+    @Override
+    public void invalidar(String id) {
+        canalInvalidacion.publicar(id);
+    }
+
+    /**
+     * Invalida un producto creado o modificado.
+     *
+     * @param event Evento de producto actualizado.
+     */
+    @EventListener
+    public void onProductoActualizado(ProductoActualizadoEvent event) {
+        if (event.getProducto().getId() != null) {
+            invalidar(event.getProducto().getId());
+        }
+    }
+
+    /**
+     * Invalida un producto eliminado.
+     *
+     * @param event Evento de producto eliminado.
+     */
+    @EventListener
+    public void onProductoEliminado(ProductoEliminadoEvent event) {
+        invalidar(event.getProductoId());
+    }
+
+    /**
+     * Copia un producto incluyendo su lista de imágenes y sus campos de
+     * categoría.
+     */
+    private static ProductoEntity copia(ProductoEntity producto) {
+        CampoCategoriaEntity[] campos = null;
+        if (producto.getCamposCategoria() != null) {
+            campos = new CampoCategoriaEntity[producto.getCamposCategoria().length];
+            for (int i = 0; i < campos.length; i++) {
+                CampoCategoriaEntity campo = producto.getCamposCategoria()[i];
+                campos[i] = campo != null ? new CampoCategoriaEntity(campo.getNombreCampo(), campo.getDatos()) : null;
+            }
+        }
+        return producto.toBuilder()
+                .imagenes(producto.getImagenes() != null ? new ArrayList<>(producto.getImagenes()) : null)
+                .camposCategoria(campos)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.services.CanalInvalidacionProductos;
+
+/**
+ * Canal de invalidación de productos para un único nodo: entrega cada
+ * invalidación a los oyentes locales en el mismo hilo.
+ */
+@Service
+@ConditionalOnProperty(name = "productos.cache.invalidacion", havingValue = "local", matchIfMissing = true)
+public class CanalInvalidacionLocalImpl implements CanalInvalidacionProductos {
+
+    private final List<Consumer<String>> oyentes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Entrega la invalidación a los oyentes locales.
+     *
+     * @param productoId ID del producto modificado o eliminado.
+     */
+    @Override
+    public void publicar(String productoId) {
+        for (Consumer<String> oyente : oyentes) {
+            oyente.accept(productoId);
+        }
+    }
+
+    /**
+     * Registra un oyente local.
+     *
+     * @param oyente Función que recibe el ID del producto.
+     */
+    @Override
+    public void suscribir(Consumer<String> oyente) {
+        oyentes.add(oyente);
+    }
+}
@@ -3,21 +3,52 @@ package com.arsansys.RemaPartners.services.servicesImpl;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.CategoriaEntity;
 import com.arsansys.RemaPartners.repositories.CategoriaRepository;
 import com.arsansys.RemaPartners.services.CategoriaService;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Implementación del servicio para la gestión de categorías.
  */
 @Service
+@Slf4j
 public class CategoriaServiceImpl implements CategoriaService {
 
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Crea el índice único de títulos sin distinguir mayúsculas al arrancar la
+     * aplicación. Si ya hay títulos repetidos el índice no se crea y se avisa
+     * en el log.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndices() {
+        try {
+            mongoTemplate.indexOps(CategoriaEntity.class).ensureIndex(new Index()
+                    .on("titulo", Sort.Direction.ASC)
+                    .unique()
+                    .named(CategoriaEntity.INDICE_TITULO)
+                    .collation(Collation.parse(CategoriaEntity.COLACION_TITULO)));
+        } catch (Exception e) {
+            log.warn("Could not create unique index on category titles: {}", e.getMessage());
+        }
+    }
+
     /**
      * Obtiene todas las categorías disponibles.
      * 
@@ -56,9 +87,7 @@ public class CategoriaServiceImpl implements CategoriaService {
     @Override
     public CategoriaEntity getCategoriaByTitulo(String titulo) {
         try {
-            return categoriaRepository.findAll().stream()
-                    .filter(categoria -> categoria.getTitulo().equalsIgnoreCase(titulo))
-                    .findFirst()
+            return categoriaRepository.findByTitulo(titulo)
                     .orElseThrow(() -> new RuntimeException("Category not found"));
         } catch (Exception e) {
             throw new RuntimeException("Error retrieving category by title: " + e.getMessage());
@@ -75,11 +104,12 @@ public class CategoriaServiceImpl implements CategoriaService {
     public CategoriaEntity createCategoria(CategoriaEntity categoriaEntity) {
         try {
             // Check if the category already exists
-            if (categoriaRepository.findAll().stream()
-                    .anyMatch(categoria -> categoria.getTitulo().equalsIgnoreCase(categoriaEntity.getTitulo()))) {
+            if (categoriaRepository.existsByTitulo(categoriaEntity.getTitulo())) {
                 throw new RuntimeException("Category already exists");
             }
             return categoriaRepository.save(categoriaEntity);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Error creating category: Category already exists");
         } catch (Exception e) {
             throw new RuntimeException("Error creating category: " + e.getMessage());
         }
@@ -99,6 +129,8 @@ public class CategoriaServiceImpl implements CategoriaService {
                 throw new RuntimeException("Category not found");
             }
             return categoriaRepository.save(categoriaEntity);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Error updating category: Category already exists");
         } catch (Exception e) {
             throw new RuntimeException("Error updating category: " + e.getMessage());
         }
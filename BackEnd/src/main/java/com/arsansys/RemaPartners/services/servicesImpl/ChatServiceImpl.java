@@ -1,69 +1,833 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.arsansys.RemaPartners.models.entities.BloqueMensajesEntity;
 import com.arsansys.RemaPartners.models.entities.ChatEntity;
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
 import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+import com.arsansys.RemaPartners.models.events.ChatEliminadoEvent;
+import com.arsansys.RemaPartners.models.events.MensajeEnviadoEvent;
+import com.arsansys.RemaPartners.repositories.BloqueMensajesRepository;
 import com.arsansys.RemaPartners.repositories.ChatRepository;
 import com.arsansys.RemaPartners.services.ChatService;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Implementación del servicio para la gestión de chats.
+ * <p>
+ * Los mensajes se guardan en bloques de tamaño fijo en la colección
+ * {@code chat_mensajes}. El documento del chat solo guarda un resumen (último
+ * mensaje, número de mensajes y fecha de actualización), de modo que añadir un
+ * mensaje cuesta lo mismo sea cual sea la longitud del historial.
  */
 @Service
+@Slf4j
 public class ChatServiceImpl implements ChatService {
 
+    private static final String INDICE_CHAT_SECUENCIA = "chat_secuencia";
+    private static final String INDICE_COMPRADOR_ACTUALIZACION = "comprador_actualizacion";
+    private static final String INDICE_VENDEDOR_ACTUALIZACION = "vendedor_actualizacion";
+    private static final String INDICE_PRODUCTO_COMPRADOR_VENDEDOR = "producto_comprador_vendedor";
+
+    /**
+     * Campo con el ID del chat conservado en los chats que se están
+     * fusionando. Mientras existe, el chat no admite mensajes nuevos.
+     */
+    private static final String CAMPO_FUSION = "fusion";
+
+    /**
+     * Campo con la fase de la fusión en el chat conservado.
+     */
+    private static final String CAMPO_FASE_FUSION = "faseFusion";
+
+    /**
+     * Fase en la que los bloques fusionados están completos con la clave
+     * temporal y los originales aún existen.
+     */
+    private static final String FASE_BLOQUES_ESCRITOS = "BLOQUES_ESCRITOS";
+
+    /**
+     * Fase en la que los bloques originales del chat conservado ya se han
+     * eliminado y solo falta renombrar los temporales.
+     */
+    private static final String FASE_BLOQUES_SUSTITUIDOS = "BLOQUES_SUSTITUIDOS";
+
+    /**
+     * Prefijo del ID de chat con el que se escriben los bloques fusionados.
+     */
+    private static final String CLAVE_TEMPORAL_FUSION = "fusion-";
+
+    /**
+     * Intentos de bloquear un grupo de chats duplicados que reciben mensajes.
+     */
+    private static final int MAX_INTENTOS_FUSION = 3;
+
+    /**
+     * Intentos de marcar mensajes como leídos si llegan mensajes a la vez.
+     */
+    private static final int MAX_INTENTOS_LEIDOS = 5;
+
+    /**
+     * Segundos tras los que un hueco en la secuencia de mensajes se da por
+     * perdido: el mensaje se numeró pero no llegó a guardarse en su bloque.
+     */
+    private static final long ESPERA_HUECO_SEGUNDOS = 30;
+
     @Autowired
     private ChatRepository chatRepository;
 
+    @Autowired
+    private BloqueMensajesRepository bloqueMensajesRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Prepara los mensajes de los chats al arrancar la aplicación: crea el
+     * índice único de bloques por chat y secuencia y los índices de la bandeja
+     * de entrada, pasa a bloques los mensajes de los chats que aún los tienen
+     * embebidos y, tras fusionar los chats duplicados, crea el índice único por
+     * producto, comprador y vendedor. Se ejecuta antes que el resto de tareas
+     * de arranque que leen los bloques, como el índice de búsqueda.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void prepararMensajes() {
+        try {
+            mongoTemplate.indexOps(BloqueMensajesEntity.class).ensureIndex(new Index()
+                    .on("idChat", Sort.Direction.ASC)
+                    .on("secuencia", Sort.Direction.ASC)
+                    .unique()
+                    .named(INDICE_CHAT_SECUENCIA));
+            mongoTemplate.indexOps(ChatEntity.class).ensureIndex(new Index()
+                    .on("idComprador", Sort.Direction.ASC)
+                    .on("ultimaActualizacion", Sort.Direction.DESC)
+                    .named(INDICE_COMPRADOR_ACTUALIZACION));
+            mongoTemplate.indexOps(ChatEntity.class).ensureIndex(new Index()
+                    .on("idVendedor", Sort.Direction.ASC)
+                    .on("ultimaActualizacion", Sort.Direction.DESC)
+                    .named(INDICE_VENDEDOR_ACTUALIZACION));
+        } catch (Exception e) {
+            log.warn("Could not create chat indexes: {}", e.getMessage());
+        }
+
+        int migrados = 0;
+        try {
+            String coleccion = mongoTemplate.getCollectionName(ChatEntity.class);
+            for (Document chat : mongoTemplate.getCollection(coleccion)
+                    .find(new Document("mensajes", new Document("$exists", true)))) {
+                migrarMensajesEmbebidos(chat);
+                migrados++;
+            }
+            if (migrados > 0) {
+                log.info("Embedded messages moved to buckets for {} chats", migrados);
+            }
+        } catch (Exception e) {
+            log.error("Error moving embedded chat messages to buckets: {}", e.getMessage());
+        }
+
+        try {
+            int fusionados = fusionarChatsDuplicados();
+            if (fusionados > 0) {
+                log.info("Duplicate chats merged: {}", fusionados);
+            }
+            mongoTemplate.indexOps(ChatEntity.class).ensureIndex(new Index()
+                    .on("idProducto", Sort.Direction.ASC)
+                    .on("idComprador", Sort.Direction.ASC)
+                    .on("idVendedor", Sort.Direction.ASC)
+                    .unique()
+                    .named(INDICE_PRODUCTO_COMPRADOR_VENDEDOR));
+        } catch (Exception e) {
+            log.error("Error creating unique chat participants index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fusiona los chats con el mismo producto, comprador y vendedor, creados
+     * antes de existir el índice único. Se conserva el chat con más mensajes y
+     * recibe los mensajes de los demás ordenados por fecha; las facturas de los
+     * chats eliminados pasan al conservado.
+     * <p>
+     * Mientras dura la fusión los chats del grupo quedan bloqueados y no
+     * admiten mensajes nuevos; el bloqueo solo se toma si ninguno ha recibido
+     * mensajes desde que se leyeron. Los bloques fusionados se escriben con una
+     * clave temporal y solo después se sustituyen por los del chat conservado,
+     * que anota la fase en que se encuentra. Si la aplicación se detiene a
+     * mitad, la fusión se retoma o se deshace en el siguiente arranque sin
+     * perder mensajes.
+     * 
+     * @return Número de chats duplicados eliminados.
+     */
+    private int fusionarChatsDuplicados() {
+        int eliminados = reanudarFusiones();
+
+        String coleccion = mongoTemplate.getCollectionName(ChatEntity.class);
+        List<Document> grupos = mongoTemplate.getCollection(coleccion).aggregate(List.of(
+                new Document("$group", new Document("_id", new Document()
+                        .append("idProducto", "$idProducto")
+                        .append("idComprador", "$idComprador")
+                        .append("idVendedor", "$idVendedor"))
+                        .append("ids", new Document("$push", "$_id"))
+                        .append("total", new Document("$sum", 1))),
+                new Document("$match", new Document("total", new Document("$gt", 1)))))
+                .into(new ArrayList<>());
+
+        for (Document grupo : grupos) {
+            boolean fusionado = false;
+            for (int intento = 0; intento < MAX_INTENTOS_FUSION && !fusionado; intento++) {
+                List<ChatEntity> chats = mongoTemplate.find(
+                        Query.query(Criteria.where("_id").in(grupo.getList("ids", Object.class))), ChatEntity.class);
+                if (chats.size() < 2) {
+                    break;
+                }
+                chats.sort(Comparator
+                        .comparing((ChatEntity chat) -> chat.getNumeroMensajes() != null ? chat.getNumeroMensajes() : 0L)
+                        .reversed()
+                        .thenComparing(ChatEntity::getFechaCreacion, Comparator.nullsLast(Comparator.naturalOrder())));
+                if (bloquear(chats, chats.get(0).getId())) {
+                    eliminados += fusionar(chats);
+                    fusionado = true;
+                }
+            }
+            if (!fusionado) {
+                log.warn("Duplicate chats {} kept receiving messages; merge skipped", grupo.get("ids"));
+            }
+        }
+        return eliminados;
+    }
+
+    /**
+     * Bloquea los chats de un grupo si ninguno ha cambiado de número de
+     * mensajes desde que se leyeron. Si alguno ha cambiado, libera los ya
+     * bloqueados.
+     * 
+     * @return true si se han bloqueado todos.
+     */
+    private boolean bloquear(List<ChatEntity> chats, String idConservado) {
+        for (ChatEntity chat : chats) {
+            long bloqueados = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(chat.getId())
+                            .and("numeroMensajes").is(chat.getNumeroMensajes())
+                            .and(CAMPO_FUSION).exists(false)),
+                    new Update().set(CAMPO_FUSION, idConservado),
+                    ChatEntity.class).getModifiedCount();
+            if (bloqueados == 0) {
+                mongoTemplate.updateMulti(Query.query(Criteria.where(CAMPO_FUSION).is(idConservado)),
+                        new Update().unset(CAMPO_FUSION), ChatEntity.class);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escribe con la clave temporal los bloques con los mensajes de todos los
+     * chats de un grupo ya bloqueado, actualiza el resumen del conservado y
+     * completa la fusión.
+     * 
+     * @param chats Chats del grupo; el primero es el que se conserva.
+     * @return Número de chats duplicados eliminados.
+     */
+    private int fusionar(List<ChatEntity> chats) {
+        ChatEntity conservado = chats.get(0);
+
+        Map<String, MensajeEntity> porId = new LinkedHashMap<>();
+        long noLeidosComprador = 0;
+        long noLeidosVendedor = 0;
+        LocalDateTime ultimaActualizacion = conservado.getUltimaActualizacion();
+        for (ChatEntity chat : chats) {
+            for (MensajeEntity mensaje : getMensajes(chat.getId())) {
+                porId.putIfAbsent(mensaje.getId(), mensaje);
+            }
+            noLeidosComprador += chat.getNoLeidosComprador() != null ? chat.getNoLeidosComprador() : 0;
+            noLeidosVendedor += chat.getNoLeidosVendedor() != null ? chat.getNoLeidosVendedor() : 0;
+            if (chat.getUltimaActualizacion() != null && (ultimaActualizacion == null
+                    || chat.getUltimaActualizacion().isAfter(ultimaActualizacion))) {
+                ultimaActualizacion = chat.getUltimaActualizacion();
+            }
+        }
+        List<MensajeEntity> mensajes = new ArrayList<>(porId.values());
+        mensajes.sort(Comparator.comparing(MensajeEntity::getFecha, Comparator.nullsFirst(Comparator.naturalOrder())));
+        for (int i = 0; i < mensajes.size(); i++) {
+            mensajes.get(i).setSecuencia((long) i);
+        }
+
+        // Los bloques originales siguen intactos hasta que los nuevos están completos
+        String temporal = CLAVE_TEMPORAL_FUSION + conservado.getId();
+        bloqueMensajesRepository.deleteByIdChat(temporal);
+        insertarBloques(temporal, mensajes);
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(conservado.getId())),
+                new Update()
+                        .set("numeroMensajes", (long) mensajes.size())
+                        .set("noLeidosComprador", noLeidosComprador)
+                        .set("noLeidosVendedor", noLeidosVendedor)
+                        .set("ultimoMensaje", mensajes.isEmpty() ? null : mensajes.get(mensajes.size() - 1))
+                        .set("ultimaActualizacion", ultimaActualizacion)
+                        .set(CAMPO_FASE_FUSION, FASE_BLOQUES_ESCRITOS)
+                        // Las secuencias han cambiado
+                        .unset("leidoHastaComprador")
+                        .unset("leidoHastaVendedor")
+                        .unset("mensajesIndexados"),
+                ChatEntity.class);
+        return completarFusion(conservado.getId(), FASE_BLOQUES_ESCRITOS);
+    }
+
+    /**
+     * Sustituye los bloques del chat conservado por los temporales, elimina
+     * los duplicados pasando sus facturas al conservado y lo desbloquea. Cada
+     * paso se puede repetir, así que sirve también para retomar una fusión
+     * interrumpida.
+     * 
+     * @param idConservado ID del chat conservado.
+     * @param fase         Fase anotada en el chat conservado.
+     * @return Número de chats duplicados eliminados.
+     */
+    private int completarFusion(String idConservado, String fase) {
+        String temporal = CLAVE_TEMPORAL_FUSION + idConservado;
+        if (FASE_BLOQUES_ESCRITOS.equals(fase)) {
+            bloqueMensajesRepository.deleteByIdChat(idConservado);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(idConservado)),
+                    new Update().set(CAMPO_FASE_FUSION, FASE_BLOQUES_SUSTITUIDOS), ChatEntity.class);
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("idChat").is(temporal)),
+                new Update().set("idChat", idConservado), BloqueMensajesEntity.class);
+
+        List<String> idsDuplicados = mongoTemplate.find(
+                Query.query(Criteria.where(CAMPO_FUSION).is(idConservado).and("id").ne(idConservado)),
+                ChatEntity.class).stream().map(ChatEntity::getId).toList();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("idChat").in(idsDuplicados)),
+                new Update().set("idChat", idConservado), FacturaEntity.class);
+        for (String idDuplicado : idsDuplicados) {
+            bloqueMensajesRepository.deleteByIdChat(idDuplicado);
+            chatRepository.deleteById(idDuplicado);
+            eventPublisher.publishEvent(new ChatEliminadoEvent(this, idDuplicado));
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(idConservado)),
+                new Update().unset(CAMPO_FUSION).unset(CAMPO_FASE_FUSION), ChatEntity.class);
+        return idsDuplicados.size();
+    }
+
     /**
-     * Crea un nuevo chat.
+     * Retoma las fusiones que se interrumpieron. Las que ya habían escrito sus
+     * bloques se completan; en las demás se descartan los bloques temporales y
+     * se desbloquean los chats para volver a fusionarlos.
+     * 
+     * @return Número de chats duplicados eliminados.
+     */
+    private int reanudarFusiones() {
+        String coleccion = mongoTemplate.getCollectionName(ChatEntity.class);
+        int eliminados = 0;
+        for (Document chat : mongoTemplate.getCollection(coleccion)
+                .find(new Document(CAMPO_FASE_FUSION, new Document("$exists", true)))) {
+            eliminados += completarFusion(chat.get("_id").toString(), chat.getString(CAMPO_FASE_FUSION));
+        }
+
+        List<String> pendientes = mongoTemplate.getCollection(coleccion)
+                .distinct(CAMPO_FUSION, String.class)
+                .into(new ArrayList<>());
+        for (String idConservado : pendientes) {
+            bloqueMensajesRepository.deleteByIdChat(CLAVE_TEMPORAL_FUSION + idConservado);
+            mongoTemplate.updateMulti(Query.query(Criteria.where(CAMPO_FUSION).is(idConservado)),
+                    new Update().unset(CAMPO_FUSION), ChatEntity.class);
+        }
+        return eliminados;
+    }
+
+    /**
+     * Reparte en bloques los mensajes embebidos de un chat y los sustituye por
+     * el resumen, con los contadores de no leídos calculados a partir de la
+     * marca de leído de cada mensaje. Los bloques previos del chat se descartan
+     * para que la migración se pueda repetir si se interrumpe.
+     */
+    private void migrarMensajesEmbebidos(Document chat) {
+        Object id = chat.get("_id");
+        String idChat = id.toString();
+        String idVendedor = chat.getString("idVendedor");
+        long noLeidosComprador = 0;
+        long noLeidosVendedor = 0;
+
+        List<MensajeEntity> mensajes = new ArrayList<>();
+        List<?> embebidos = chat.getList("mensajes", Object.class);
+        if (embebidos != null) {
+            for (Object embebido : embebidos) {
+                if (embebido instanceof Document documento) {
+                    MensajeEntity mensaje = mongoTemplate.getConverter().read(MensajeEntity.class, documento);
+                    if (mensaje.getId() == null) {
+                        mensaje.setId(new ObjectId().toHexString());
+                    }
+                    mensaje.setSecuencia((long) mensajes.size());
+                    mensajes.add(mensaje);
+                    if (!Boolean.TRUE.equals(mensaje.getLeido())) {
+                        if (idVendedor != null && idVendedor.equals(mensaje.getIdEmisor())) {
+                            noLeidosComprador++;
+                        } else {
+                            noLeidosVendedor++;
+                        }
+                    }
+                }
+            }
+        }
+
+        escribirBloques(idChat, mensajes);
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                new Update()
+                        .set("numeroMensajes", (long) mensajes.size())
+                        .set("noLeidosComprador", noLeidosComprador)
+                        .set("noLeidosVendedor", noLeidosVendedor)
+                        .set("ultimoMensaje", mensajes.isEmpty() ? null : mensajes.get(mensajes.size() - 1))
+                        .unset("mensajes"),
+                ChatEntity.class);
+    }
+
+    /**
+     * Sustituye los bloques de un chat por los de una lista de mensajes ya
+     * ordenada y numerada.
+     */
+    private void escribirBloques(String idChat, List<MensajeEntity> mensajes) {
+        bloqueMensajesRepository.deleteByIdChat(idChat);
+        insertarBloques(idChat, mensajes);
+    }
+
+    /**
+     * Inserta los bloques de una lista de mensajes ya ordenada y numerada.
+     */
+    private void insertarBloques(String idChat, List<MensajeEntity> mensajes) {
+        for (int inicio = 0; inicio < mensajes.size(); inicio += BloqueMensajesEntity.MENSAJES_POR_BLOQUE) {
+            List<MensajeEntity> bloque = new ArrayList<>(mensajes.subList(inicio,
+                    Math.min(inicio + BloqueMensajesEntity.MENSAJES_POR_BLOQUE, mensajes.size())));
+            bloqueMensajesRepository.insert(BloqueMensajesEntity.builder()
+                    .idChat(idChat)
+                    .secuencia(inicio / BloqueMensajesEntity.MENSAJES_POR_BLOQUE)
+                    .mensajes(bloque)
+                    .numeroMensajes(bloque.size())
+                    .fechaPrimerMensaje(bloque.get(0).getFecha())
+                    .fechaUltimoMensaje(bloque.get(bloque.size() - 1).getFecha())
+                    .build());
+        }
+    }
+
+    /**
+     * Crea un nuevo chat, o devuelve el existente si ya hay uno del mismo
+     * producto entre el mismo comprador y vendedor. Los mensajes iniciales solo
+     * se añaden si el chat es nuevo.
      * 
      * @param chatEntity Entidad de chat a crear.
-     * @return Entidad de chat creada.
+     * @return Entidad de chat creada o existente.
      */
     @Override
     public ChatEntity createChat(ChatEntity chatEntity) {
         try {
-            return chatRepository.save(chatEntity);
+            ChatEntity existente = crearSiNoExiste(chatEntity);
+            if (existente != null) {
+                return existente;
+            }
+
+            ChatEntity chat = buscarPorParticipantes(chatEntity.getIdProducto(), chatEntity.getIdComprador(),
+                    chatEntity.getIdVendedor());
+            if (chatEntity.getMensajes() != null) {
+                for (MensajeEntity mensaje : chatEntity.getMensajes()) {
+                    chat = addMensaje(chat, mensaje);
+                }
+            }
+            return chat;
         } catch (Exception e) {
             throw new RuntimeException("Error creating chat: " + e.getMessage());
         }
     }
 
     /**
-     * Añade un mensaje a un chat existente.
+     * Obtiene el chat de un producto entre un comprador y un vendedor, o lo crea
+     * si no existe. Si ya existe basta una operación.
+     * 
+     * @param idProducto  ID del producto.
+     * @param idComprador ID del comprador.
+     * @param idVendedor  ID del vendedor.
+     * @return Chat existente o creado, sin el historial de mensajes.
+     */
+    @Override
+    public ChatEntity getOrCreateChat(String idProducto, String idComprador, String idVendedor) {
+        try {
+            ChatEntity existente = crearSiNoExiste(ChatEntity.builder()
+                    .idProducto(idProducto)
+                    .idComprador(idComprador)
+                    .idVendedor(idVendedor)
+                    .activo(true)
+                    .build());
+            return existente != null ? existente : buscarPorParticipantes(idProducto, idComprador, idVendedor);
+        } catch (Exception e) {
+            throw new RuntimeException("Error creating chat: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inserta el chat con un {@code upsert} sobre el índice único de
+     * participantes, de modo que dos peticiones simultáneas no crean dos chats.
+     * 
+     * @return Chat que ya existía, o null si se acaba de crear.
+     */
+    private ChatEntity crearSiNoExiste(ChatEntity chatEntity) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("idProducto").is(chatEntity.getIdProducto())
+                .and("idComprador").is(chatEntity.getIdComprador())
+                .and("idVendedor").is(chatEntity.getIdVendedor()));
+        Update update = new Update()
+                .setOnInsert("numeroMensajes", 0L)
+                .setOnInsert("noLeidosComprador", 0L)
+                .setOnInsert("noLeidosVendedor", 0L)
+                .setOnInsert("fechaCreacion", ahora)
+                .setOnInsert("ultimaActualizacion", ahora)
+                .setOnInsert("activo", chatEntity.getActivo() != null ? chatEntity.getActivo() : Boolean.TRUE)
+                .setOnInsert("mensajesIndexados", true);
+        FindAndModifyOptions opciones = FindAndModifyOptions.options().upsert(true).returnNew(false);
+        try {
+            return mongoTemplate.findAndModify(query, update, opciones, ChatEntity.class);
+        } catch (DuplicateKeyException e) {
+            // Otra petición creó el chat a la vez; ahora ya existe
+            return mongoTemplate.findAndModify(query, update, opciones, ChatEntity.class);
+        }
+    }
+
+    private ChatEntity buscarPorParticipantes(String idProducto, String idComprador, String idVendedor) {
+        return chatRepository.findByIdProductoAndIdCompradorAndIdVendedor(idProducto, idComprador, idVendedor)
+                .orElseThrow(() -> new RuntimeException("Chat not found"));
+    }
+
+    /**
+     * Añade un mensaje a un chat existente. Un incremento atómico del número de
+     * mensajes asigna la posición del mensaje, que se añade con {@code $push}
+     * al bloque que le corresponde. En la misma operación se incrementa el
+     * contador de no leídos del destinatario. El último mensaje del resumen
+     * solo se actualiza si ningún mensaje posterior se ha adelantado.
      * 
      * @param chatEntity    Entidad de chat.
      * @param mensajeEntity Entidad de mensaje a añadir.
-     * @return Entidad de chat actualizada.
+     * @return Entidad de chat actualizada, sin el historial de mensajes.
      */
     @Override
     public ChatEntity addMensaje(ChatEntity chatEntity, MensajeEntity mensajeEntity) {
         try {
-            // Add the message to the chat
-            chatEntity.getMensajes().add(mensajeEntity);
-            // Update the last update date
-            chatEntity.setUltimaActualizacion(LocalDateTime.now());
-            // Save the updated chat
-            return chatRepository.save(chatEntity);
+            LocalDateTime ahora = LocalDateTime.now();
+            if (mensajeEntity.getId() == null) {
+                mensajeEntity.setId(new ObjectId().toHexString());
+            }
+            if (mensajeEntity.getFecha() == null) {
+                mensajeEntity.setFecha(ahora);
+            }
+
+            ChatEntity chat = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(chatEntity.getId()).and(CAMPO_FUSION).exists(false)),
+                    new Update()
+                            .inc("numeroMensajes", 1)
+                            .inc(campoNoLeidosDestinatario(chatEntity, mensajeEntity.getIdEmisor()), 1)
+                            .set("ultimaActualizacion", ahora),
+                    FindAndModifyOptions.options().returnNew(true),
+                    ChatEntity.class);
+            if (chat == null) {
+                throw new RuntimeException(chatRepository.existsById(chatEntity.getId())
+                        ? "Chat is being merged, try again"
+                        : "Chat not found");
+            }
+
+            long posicion = chat.getNumeroMensajes() - 1;
+            mensajeEntity.setSecuencia(posicion);
+            guardarEnBloque(chat.getId(), (int) (posicion / BloqueMensajesEntity.MENSAJES_POR_BLOQUE), mensajeEntity);
+
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(chat.getId()).and("numeroMensajes").is(posicion + 1)),
+                    new Update().set("ultimoMensaje", mensajeEntity),
+                    ChatEntity.class);
+            chat.setUltimoMensaje(mensajeEntity);
+
+            eventPublisher.publishEvent(new MensajeEnviadoEvent(this, chat, mensajeEntity));
+            return chat;
         } catch (Exception e) {
             throw new RuntimeException("Error adding message to chat: " + e.getMessage());
         }
     }
 
     /**
-     * Obtiene un chat por su identificador.
+     * Obtiene el contador de no leídos del participante que recibe un mensaje.
+     */
+    private static String campoNoLeidosDestinatario(ChatEntity chat, String idEmisor) {
+        return idEmisor != null && idEmisor.equals(chat.getIdVendedor()) ? "noLeidosComprador" : "noLeidosVendedor";
+    }
+
+    /**
+     * Añade un mensaje al bloque indicado, creándolo si es el primero.
+     */
+    private void guardarEnBloque(String idChat, int secuencia, MensajeEntity mensaje) {
+        Query query = Query.query(Criteria.where("idChat").is(idChat).and("secuencia").is(secuencia));
+        Update update = new Update()
+                .push("mensajes", mensaje)
+                .inc("numeroMensajes", 1)
+                .min("fechaPrimerMensaje", mensaje.getFecha())
+                .max("fechaUltimoMensaje", mensaje.getFecha());
+        try {
+            mongoTemplate.upsert(query, update, BloqueMensajesEntity.class);
+        } catch (DuplicateKeyException e) {
+            // Otro mensaje creó el bloque a la vez; ahora ya existe
+            mongoTemplate.upsert(query, update, BloqueMensajesEntity.class);
+        }
+    }
+
+    /**
+     * Obtiene todos los mensajes de un chat en orden de envío.
+     */
+    private List<MensajeEntity> getMensajes(String idChat) {
+        List<MensajeEntity> mensajes = new ArrayList<>();
+        for (BloqueMensajesEntity bloque : bloqueMensajesRepository.findByIdChatOrderBySecuenciaAsc(idChat)) {
+            if (bloque.getMensajes() != null) {
+                mensajes.addAll(bloque.getMensajes());
+            }
+        }
+        return mensajes;
+    }
+
+    /**
+     * Obtiene los mensajes de un chat anteriores a una posición, en orden de
+     * envío. Solo se leen los bloques que contienen esas posiciones.
+     * 
+     * @param id      Identificador del chat.
+     * @param antesDe Secuencia del mensaje más antiguo ya recibido, o null.
+     * @param limite  Número máximo de mensajes.
+     * @return Mensajes y si hay otros más antiguos.
+     */
+    @Override
+    public Slice<MensajeEntity> getMensajesAnteriores(String id, Long antesDe, int limite) {
+        try {
+            long ultima = antesDe != null ? antesDe - 1 : getNumeroMensajes(id) - 1;
+            long primera = Math.max(0, ultima - limite + 1);
+            return new SliceImpl<>(getMensajesEntre(id, primera, ultima), Pageable.unpaged(), primera > 0);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving chat messages: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene los mensajes de un chat posteriores a una posición, en orden de
+     * envío. Primero se consulta el número de mensajes del chat, de modo que
+     * un cliente al día recibe una respuesta vacía sin leer ningún bloque.
+     * <p>
+     * Un mensaje recibe su posición antes de guardarse en el bloque, así que el
+     * siguiente puede estar guardado antes que él. Solo se devuelven los
+     * mensajes consecutivos hasta el primer hueco, para que el cliente no
+     * avance su cursor más allá de un mensaje que aún no ha recibido.
+     * 
+     * @param id     Identificador del chat.
+     * @param desde  Secuencia del último mensaje ya recibido.
+     * @param limite Número máximo de mensajes.
+     * @return Mensajes y si hay otros más recientes.
+     */
+    @Override
+    public Slice<MensajeEntity> getMensajesPosteriores(String id, long desde, int limite) {
+        try {
+            long ultimaChat = getNumeroMensajes(id) - 1;
+            if (ultimaChat <= desde) {
+                return new SliceImpl<>(List.of(), Pageable.unpaged(), false);
+            }
+            long ultima = Math.min(ultimaChat, desde + limite);
+            List<MensajeEntity> mensajes = hastaPrimerHueco(getMensajesEntre(id, desde + 1, ultima), desde);
+            long hasta = mensajes.isEmpty() ? desde : mensajes.get(mensajes.size() - 1).getSecuencia();
+            return new SliceImpl<>(mensajes, Pageable.unpaged(), hasta < ultimaChat);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving chat messages: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recorta los mensajes, ordenados por secuencia, en el primer hueco tras
+     * {@code desde}. Si el mensaje que sigue al hueco tiene más de
+     * {@link #ESPERA_HUECO_SEGUNDOS} segundos, el que falta no se llegó a
+     * guardar y el hueco se salta para no detener al cliente.
+     */
+    private static List<MensajeEntity> hastaPrimerHueco(List<MensajeEntity> mensajes, long desde) {
+        LocalDateTime limiteHueco = LocalDateTime.now().minusSeconds(ESPERA_HUECO_SEGUNDOS);
+        long siguiente = desde + 1;
+        for (int i = 0; i < mensajes.size(); i++) {
+            MensajeEntity mensaje = mensajes.get(i);
+            if (mensaje.getSecuencia() != siguiente
+                    && mensaje.getFecha() != null && mensaje.getFecha().isAfter(limiteHueco)) {
+                return mensajes.subList(0, i);
+            }
+            siguiente = mensaje.getSecuencia() + 1;
+        }
+        return mensajes;
+    }
+
+    /**
+     * Obtiene el resumen de los chats de un usuario leyendo solo los campos del
+     * resumen, ordenados por la fecha del último mensaje.
+     * 
+     * @param idUsuario Identificador del usuario.
+     * @return Lista de chats del usuario.
+     */
+    @Override
+    public List<ChatEntity> getBandejaEntrada(String idUsuario) {
+        try {
+            Query query = Query.query(new Criteria().orOperator(
+                    Criteria.where("idComprador").is(idUsuario),
+                    Criteria.where("idVendedor").is(idUsuario)))
+                    .with(Sort.by(Sort.Direction.DESC, "ultimaActualizacion"));
+            query.fields().include("idProducto", "idComprador", "idVendedor", "ultimoMensaje", "numeroMensajes",
+                    "noLeidosComprador", "noLeidosVendedor", "fechaCreacion", "ultimaActualizacion", "activo");
+            return mongoTemplate.find(query, ChatEntity.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving inbox: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marca como leídos los mensajes de un chat hasta una posición. Los
+     * mensajes posteriores de la otra parte se cuentan en sus bloques y el
+     * contador y la posición leída se guardan con una sola escritura,
+     * condicionada a que no haya llegado ningún mensaje mientras tanto.
+     * 
+     * @param id        Identificador del chat.
+     * @param idUsuario Identificador del participante.
+     * @param hasta     Secuencia del último mensaje leído, o null para todos.
+     */
+    @Override
+    public void marcarLeidos(String id, String idUsuario, Long hasta) {
+        for (int intento = 0; intento < MAX_INTENTOS_LEIDOS; intento++) {
+            ChatEntity chat = getResumenChatById(id);
+            boolean vendedor = idUsuario.equals(chat.getIdVendedor());
+            if (!vendedor && !idUsuario.equals(chat.getIdComprador())) {
+                throw new IllegalArgumentException("User is not a participant of the chat");
+            }
+
+            long ultima = (chat.getNumeroMensajes() != null ? chat.getNumeroMensajes() : 0) - 1;
+            long leidoHasta = hasta != null ? Math.min(hasta, ultima) : ultima;
+            Long leidoAntes = vendedor ? chat.getLeidoHastaVendedor() : chat.getLeidoHastaComprador();
+            if (leidoAntes != null && leidoAntes >= leidoHasta) {
+                return;
+            }
+
+            // Mensajes de la otra parte posteriores a la posición leída
+            long pendientes = 0;
+            for (MensajeEntity mensaje : getMensajesEntre(id, leidoHasta + 1, ultima)) {
+                if (!idUsuario.equals(mensaje.getIdEmisor())) {
+                    pendientes++;
+                }
+            }
+
+            boolean aplicado = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(id).and("numeroMensajes").is(chat.getNumeroMensajes())),
+                    new Update()
+                            .set(vendedor ? "noLeidosVendedor" : "noLeidosComprador", pendientes)
+                            .set(vendedor ? "leidoHastaVendedor" : "leidoHastaComprador", leidoHasta),
+                    ChatEntity.class).getMatchedCount() > 0;
+            if (aplicado) {
+                return;
+            }
+        }
+        throw new RuntimeException("Error marking messages as read: chat is being modified");
+    }
+
+    /**
+     * Obtiene el número de mensajes de un chat leyendo solo ese campo.
+     */
+    private long getNumeroMensajes(String idChat) {
+        Query query = Query.query(Criteria.where("id").is(idChat));
+        query.fields().include("numeroMensajes");
+        ChatEntity chat = mongoTemplate.findOne(query, ChatEntity.class);
+        if (chat == null) {
+            throw new RuntimeException("Chat not found");
+        }
+        return chat.getNumeroMensajes() != null ? chat.getNumeroMensajes() : 0;
+    }
+
+    /**
+     * Obtiene los mensajes de un chat con secuencia entre dos posiciones,
+     * ambas incluidas, leyendo solo los bloques que las contienen.
+     */
+    private List<MensajeEntity> getMensajesEntre(String idChat, long primera, long ultima) {
+        List<MensajeEntity> mensajes = new ArrayList<>();
+        if (ultima < primera) {
+            return mensajes;
+        }
+
+        Query query = Query.query(Criteria.where("idChat").is(idChat)
+                .and("secuencia")
+                .gte((int) (primera / BloqueMensajesEntity.MENSAJES_POR_BLOQUE))
+                .lte((int) (ultima / BloqueMensajesEntity.MENSAJES_POR_BLOQUE)));
+        for (BloqueMensajesEntity bloque : mongoTemplate.find(query, BloqueMensajesEntity.class)) {
+            if (bloque.getMensajes() == null) {
+                continue;
+            }
+            for (int i = 0; i < bloque.getMensajes().size(); i++) {
+                MensajeEntity mensaje = bloque.getMensajes().get(i);
+                if (mensaje.getSecuencia() == null) {
+                    // Mensaje guardado antes de numerar los mensajes
+                    mensaje.setSecuencia((long) bloque.getSecuencia() * BloqueMensajesEntity.MENSAJES_POR_BLOQUE + i);
+                }
+                if (mensaje.getSecuencia() >= primera && mensaje.getSecuencia() <= ultima) {
+                    mensajes.add(mensaje);
+                }
+            }
+        }
+        mensajes.sort(Comparator.comparing(MensajeEntity::getSecuencia));
+        return mensajes;
+    }
+
+    /**
+     * Obtiene un chat por su identificador junto con sus mensajes.
      * 
      * @param id Identificador del chat.
      * @return Entidad de chat encontrada.
      */
     @Override
     public ChatEntity getChatById(String id) {
+        try {
+            ChatEntity chat = chatRepository.findById(id).orElseThrow(() -> new RuntimeException("Chat not found"));
+            chat.setMensajes(getMensajes(id));
+            return chat;
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving chat: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el resumen de un chat por su identificador, sin sus mensajes.
+     * 
+     * @param id Identificador del chat.
+     * @return Entidad de chat encontrada.
+     */
+    @Override
+    public ChatEntity getResumenChatById(String id) {
         try {
             return chatRepository.findById(id).orElseThrow(() -> new RuntimeException("Chat not found"));
         } catch (Exception e) {
@@ -122,14 +886,14 @@ public class ChatServiceImpl implements ChatService {
      * @param idProducto  Identificador del producto.
      * @param idComprador Identificador del comprador.
      * @param idVendedor  Identificador del vendedor.
-     * @return Entidad de chat encontrada.
+     * @return Entidad de chat encontrada o null si no existe.
      */
     @Override
     public ChatEntity getChatByIdProductoAndIdCompradorAndIdVendedor(String idProducto, String idComprador,
             String idVendedor) {
         try {
             return chatRepository.findByIdProductoAndIdCompradorAndIdVendedor(idProducto, idComprador, idVendedor)
-                    .stream().findFirst().orElseThrow(() -> new RuntimeException("Chat not found"));
+                    .orElse(null);
         } catch (Exception e) {
             throw new RuntimeException(
                     "Error retrieving chat by product ID, buyer ID, and seller ID: " + e.getMessage());
@@ -145,8 +909,10 @@ public class ChatServiceImpl implements ChatService {
     public void deleteChat(String id) {
         try {
             // Verificar que el chat existe antes de eliminarlo
-            ChatEntity chat = getChatById(id);
+            ChatEntity chat = getResumenChatById(id);
             chatRepository.delete(chat);
+            bloqueMensajesRepository.deleteByIdChat(id);
+            eventPublisher.publishEvent(new ChatEliminadoEvent(this, id));
         } catch (Exception e) {
             throw new RuntimeException("Error deleting chat: " + e.getMessage());
         }
@@ -0,0 +1,342 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoVisitaEntity;
+import com.arsansys.RemaPartners.services.CacheProductosService;
+import com.arsansys.RemaPartners.services.ContadorVisitasService;
+import com.arsansys.RemaPartners.services.ProductoVisitaService;
+import com.mongodb.bulk.BulkWriteError;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación del contador de visitas con escritura diferida.
+ * <p>
+ * Las visitas se acumulan en memoria por producto y, dentro de cada producto,
+ * por vendedor y mes. Cada {@code visitas.flush.intervalo-ms} milisegundos, o
+ * al superar {@code visitas.flush.max-pendientes} visitas pendientes, se
+ * vuelcan con {@code $inc} masivos en {@code producto_visitas} y
+ * {@code productos}.
+ * <p>
+ * Cada producto guarda en un mismo objeto las visitas aún no tomadas por un
+ * volcado y las tomadas que todavía no están en {@code productos.visitas}, y
+ * ambas se modifican con su cerrojo, de modo que las visitas pendientes que se
+ * devuelven con el producto no se desvían del total volcado. Tras sumar las
+ * visitas a un producto se invalida su copia en la caché de productos. Al
+ * parar la aplicación se vuelcan las visitas pendientes. Los productos sin
+ * visitas pendientes se eliminan del mapa.
+ */
+@Service
+@Slf4j
+public class ContadorVisitasServiceImpl implements ContadorVisitasService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductoVisitaService productoVisitaService;
+
+    @Autowired
+    private CacheProductosService cacheProductosService;
+
+    @Value("${visitas.flush.max-pendientes:10000}")
+    private long maxPendientes;
+
+    // Visitas pendientes por producto
+    private final Map<String, VisitasProducto> contadores = new ConcurrentHashMap<>();
+
+    // Aproximado: solo decide cuándo forzar un volcado
+    private final LongAdder totalPendientes = new LongAdder();
+
+    private final ReentrantLock volcadoLock = new ReentrantLock();
+
+    private final AtomicBoolean volcadoSolicitado = new AtomicBoolean();
+
+    // Volcados forzados: fuera del hilo de la petición y del pool común, ya que
+    // hacen E/S bloqueante con la base de datos
+    private final ExecutorService volcadosForzados = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("visitas-volcado").daemon().factory());
+
+    /**
+     * Vendedor y mes de las visitas de un producto.
+     */
+    private record Periodo(String vendedorId, int año, int mes) {
+    }
+
+    /**
+     * Visitas de un producto que aún no están en {@code productos.visitas}.
+     */
+    private static final class VisitasProducto {
+
+        // Visitas aún no tomadas por un volcado
+        private final Map<Periodo, Long> pendientes = new HashMap<>(2);
+
+        // Visitas tomadas por un volcado cuyo incremento del producto no se ha
+        // escrito todavía (incluye los incrementos fallidos pendientes de reintento)
+        private long enVolcado;
+
+        synchronized void registrar(Periodo periodo) {
+            pendientes.merge(periodo, 1L, Long::sum);
+        }
+
+        synchronized long total() {
+            long total = enVolcado;
+            for (long visitas : pendientes.values()) {
+                total += visitas;
+            }
+            return total;
+        }
+
+        synchronized Map<Periodo, Long> tomar() {
+            Map<Periodo, Long> tomadas = new HashMap<>(pendientes);
+            pendientes.clear();
+            for (long visitas : tomadas.values()) {
+                enVolcado += visitas;
+            }
+            return tomadas;
+        }
+
+        synchronized void devolver(Periodo periodo, long visitas) {
+            pendientes.merge(periodo, visitas, Long::sum);
+            enVolcado -= visitas;
+        }
+
+        synchronized long getEnVolcado() {
+            return enVolcado;
+        }
+
+        synchronized void confirmar(long visitas) {
+            enVolcado -= visitas;
+        }
+
+        synchronized boolean isVacio() {
+            return pendientes.isEmpty() && enVolcado == 0;
+        }
+    }
+
+    /**
+     * Registra una visita a un producto en memoria.
+     *
+     * @param productoId Identificador del producto.
+     * @param vendedorId Identificador del vendedor del producto.
+     */
+    @Override
+    public void registrarVisita(String productoId, String vendedorId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Periodo periodo = new Periodo(vendedorId, ahora.getYear(), ahora.getMonthValue());
+
+        // Dentro de compute para que el volcado no retire el producto a la vez
+        contadores.compute(productoId, (id, visitas) -> {
+            VisitasProducto resultado = visitas != null ? visitas : new VisitasProducto();
+            resultado.registrar(periodo);
+            return resultado;
+        });
+        totalPendientes.increment();
+
+        // Limita la pérdida máxima: demasiadas visitas pendientes fuerzan un volcado
+        if (totalPendientes.sum() >= maxPendientes && volcadoSolicitado.compareAndSet(false, true)) {
+            try {
+                volcadosForzados.execute(() -> {
+                    try {
+                        volcar();
+                    } finally {
+                        volcadoSolicitado.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // La aplicación se está parando; el volcado final las guardará
+                volcadoSolicitado.set(false);
+            }
+        }
+    }
+
+    /**
+     * Obtiene las visitas de un producto que aún no se han sumado a su
+     * contador, incluidas las de un volcado en curso o fallido.
+     *
+     * @param productoId Identificador del producto.
+     * @return Número de visitas pendientes.
+     */
+    @Override
+    public long getVisitasPendientes(String productoId) {
+        VisitasProducto visitas = contadores.get(productoId);
+        return visitas != null ? visitas.total() : 0;
+    }
+
+    /**
+     * Vuelca periódicamente las visitas pendientes.
+     */
+    @Scheduled(fixedDelayString = "${visitas.flush.intervalo-ms:5000}")
+    public void volcadoProgramado() {
+        volcar();
+    }
+
+    /**
+     * Vuelca las visitas pendientes antes de parar la aplicación.
+     */
+    @PreDestroy
+    public void volcadoFinal() {
+        volcadosForzados.shutdown();
+        try {
+            volcadosForzados.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        volcar();
+    }
+
+    /**
+     * Vuelca las visitas pendientes con dos operaciones masivas: upserts
+     * {@code $inc} en {@code producto_visitas} e incrementos en
+     * {@code productos.visitas}. Las escrituras que fallan se reintentan en el
+     * siguiente volcado; si la base de datos indica cuáles fallaron, solo se
+     * reintentan esas, para no sumar dos veces las que sí se aplicaron.
+     */
+    @Override
+    public void volcar() {
+        volcadoLock.lock();
+        try {
+            List<String> productos = new ArrayList<>();
+            List<Periodo> periodos = new ArrayList<>();
+            List<Long> cantidades = new ArrayList<>();
+            for (Map.Entry<String, VisitasProducto> entrada : contadores.entrySet()) {
+                for (Map.Entry<Periodo, Long> tomada : entrada.getValue().tomar().entrySet()) {
+                    productos.add(entrada.getKey());
+                    periodos.add(tomada.getKey());
+                    cantidades.add(tomada.getValue());
+                    totalPendientes.add(-tomada.getValue());
+                }
+            }
+
+            if (!productos.isEmpty()) {
+                Set<Integer> fallidas = escribirVisitas(productos, periodos, cantidades);
+                for (int i : fallidas) {
+                    contadores.get(productos.get(i)).devolver(periodos.get(i), cantidades.get(i));
+                    totalPendientes.add(cantidades.get(i));
+                }
+            }
+
+            // Lo que queda en volcado ya está en las visitas mensuales: se suma
+            // al producto, junto con los incrementos fallidos anteriores
+            Map<String, Long> incrementos = new HashMap<>();
+            for (Map.Entry<String, VisitasProducto> entrada : contadores.entrySet()) {
+                long visitas = entrada.getValue().getEnVolcado();
+                if (visitas > 0) {
+                    incrementos.put(entrada.getKey(), visitas);
+                }
+            }
+            if (!incrementos.isEmpty()) {
+                Set<String> fallidos = escribirProductos(incrementos);
+                for (Map.Entry<String, Long> incremento : incrementos.entrySet()) {
+                    if (!fallidos.contains(incremento.getKey())) {
+                        // La copia en caché tiene el contador anterior: sin
+                        // invalidarla, sus visitas más las pendientes bajarían
+                        cacheProductosService.invalidar(incremento.getKey());
+                        contadores.get(incremento.getKey()).confirmar(incremento.getValue());
+                    }
+                }
+            }
+
+            for (String productoId : contadores.keySet()) {
+                contadores.computeIfPresent(productoId, (id, visitas) -> visitas.isVacio() ? null : visitas);
+            }
+            if (!incrementos.isEmpty()) {
+                log.debug("Flushed visits for {} products", incrementos.size());
+            }
+        } finally {
+            volcadoLock.unlock();
+        }
+    }
+
+    /**
+     * Escribe las visitas mensuales con la operación masiva del servicio de
+     * visitas.
+     *
+     * @return Posiciones de las visitas que no se han escrito.
+     */
+    private Set<Integer> escribirVisitas(List<String> productos, List<Periodo> periodos, List<Long> cantidades) {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<ProductoVisitaEntity> visitas = new ArrayList<>(productos.size());
+        for (int i = 0; i < productos.size(); i++) {
+            Periodo periodo = periodos.get(i);
+            visitas.add(ProductoVisitaEntity.builder()
+                    .productoId(productos.get(i))
+                    .vendedorId(periodo.vendedorId())
+                    .año(periodo.año())
+                    .mes(periodo.mes())
+                    .cantidadVisitas(cantidades.get(i))
+                    .ultimaActualizacion(ahora)
+                    .build());
+        }
+
+        try {
+            productoVisitaService.registrarVisitas(visitas);
+            return Set.of();
+        } catch (BulkOperationException e) {
+            log.error("Error flushing {} of {} product visit counters: {}", e.getErrors().size(), visitas.size(),
+                    e.getMessage());
+            return e.getErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        } catch (Exception e) {
+            // No se sabe qué se ha escrito: se reintenta todo
+            log.error("Error flushing {} product visit counters: {}", visitas.size(), e.getMessage());
+            return IntStream.range(0, visitas.size()).boxed().collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Incrementa el contador de visitas de los productos.
+     *
+     * @return IDs de los productos cuyo incremento no se ha escrito.
+     */
+    private Set<String> escribirProductos(Map<String, Long> incrementos) {
+        List<String> ids = new ArrayList<>(incrementos.keySet());
+        BulkOperations productosBulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                ProductoEntity.class);
+        for (String id : ids) {
+            productosBulk.updateOne(Query.query(Criteria.where("_id").is(id)),
+                    new Update().inc("visitas", incrementos.get(id)));
+        }
+
+        try {
+            productosBulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            log.error("Error flushing visit totals for {} of {} products: {}", e.getErrors().size(), ids.size(),
+                    e.getMessage());
+            return e.getErrors().stream().map(error -> ids.get(error.getIndex())).collect(Collectors.toSet());
+        } catch (Exception e) {
+            log.error("Error flushing visit totals for {} products: {}", ids.size(), e.getMessage());
+            return new HashSet<>(ids);
+        }
+    }
+}
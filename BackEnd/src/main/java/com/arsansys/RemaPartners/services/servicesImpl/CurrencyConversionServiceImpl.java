@@ -8,8 +8,10 @@ import org.springframework.scheduling.annotation.Scheduled;
 import com.arsansys.RemaPartners.services.CurrencyConversionService;
 
 import javax.annotation.PostConstruct;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.io.StringReader;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -30,9 +32,21 @@ public class CurrencyConversionServiceImpl implements CurrencyConversionService
     // ECB Exchange rate API URL
     private static final String ECB_EXCHANGE_RATE_URL = "https://www.ecb.europa.eu/stats/eurofxref/eurofxref-daily.xml";
 
+    // ECB historical exchange rates (all days since 1999)
+    private static final String ECB_HISTORICAL_RATE_URL = "https://www.ecb.europa.eu/stats/eurofxref/eurofxref-hist.xml";
+
     // Thread-safe map to store exchange rates
     private final Map<String, Double> exchangeRates = new ConcurrentHashMap<>();
 
+    // Wait before downloading the historical rates again after a failure
+    private static final long HISTORICAL_RETRY_MILLIS = 5 * 60 * 1000;
+
+    // Historical rates per currency, sorted by date (loaded on first use)
+    private volatile Map<String, TreeMap<LocalDate, Double>> historicalRates;
+
+    // Time of the last failed historical download (0 if none)
+    private volatile long historicalFailedAt;
+
     // Initialize with default values (used as fallback)
     /**
      * Inicializa las tasas de cambio por defecto y realiza una actualización
@@ -85,9 +99,7 @@ public class CurrencyConversionServiceImpl implements CurrencyConversionService
     // Parse the XML response from ECB
     private void parseXmlExchangeRates(String xmlResponse) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(new StringReader(xmlResponse)));
+            Document doc = newDocumentBuilder().parse(new InputSource(new StringReader(xmlResponse)));
 
             NodeList cubeNodes = doc.getElementsByTagName("Cube");
 
@@ -152,4 +164,104 @@ public class CurrencyConversionServiceImpl implements CurrencyConversionService
     public Map<String, Double> getCurrentRates() {
         return new HashMap<>(exchangeRates);
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la tasa de cambio a EUR de una moneda en una fecha. Para fechas
+     * pasadas se usa la tasa histórica del BCE del último día publicado anterior
+     * o igual a la fecha. Si no hay tasa histórica no se sustituye por la
+     * actual, para no guardar como histórica una tasa incorrecta.
+     *
+     * @param moneda Código de la moneda.
+     * @param fecha  Fecha de la tasa (null para la tasa actual).
+     * @return Valor en EUR de una unidad de la moneda.
+     * @throws IllegalStateException Si la fecha es pasada y no hay tasa
+     *                               histórica para ella.
+     */
+    @Override
+    public double getTasaEur(String moneda, LocalDate fecha) {
+        if (moneda == null || "EUR".equals(moneda)) {
+            return 1.0;
+        }
+
+        if (fecha != null && fecha.isBefore(LocalDate.now())) {
+            TreeMap<LocalDate, Double> rates = getHistoricalRates().get(moneda);
+            Map.Entry<LocalDate, Double> rate = rates != null ? rates.floorEntry(fecha) : null;
+            if (rate == null) {
+                throw new IllegalStateException("No historical exchange rate for " + moneda + " on " + fecha);
+            }
+            return rate.getValue();
+        }
+
+        return exchangeRates.getOrDefault(moneda, 1.0);
+    }
+
+    // Load the ECB historical rates once. A failed download is not cached: it
+    // is retried on the next call once HISTORICAL_RETRY_MILLIS have passed
+    private Map<String, TreeMap<LocalDate, Double>> getHistoricalRates() {
+        Map<String, TreeMap<LocalDate, Double>> rates = historicalRates;
+        if (rates == null) {
+            synchronized (this) {
+                rates = historicalRates;
+                if (rates == null) {
+                    if (System.currentTimeMillis() - historicalFailedAt < HISTORICAL_RETRY_MILLIS) {
+                        throw new IllegalStateException("Historical exchange rates are not available");
+                    }
+                    try {
+                        RestTemplate restTemplate = new RestTemplate();
+                        String xmlResponse = restTemplate.getForObject(ECB_HISTORICAL_RATE_URL, String.class);
+                        if (xmlResponse == null) {
+                            throw new IllegalStateException("Empty response");
+                        }
+                        rates = parseXmlHistoricalRates(xmlResponse);
+                        logger.info("Historical exchange rates loaded from ECB for {} currencies", rates.size());
+                    } catch (Exception e) {
+                        historicalFailedAt = System.currentTimeMillis();
+                        logger.error("Error loading historical exchange rates from ECB: {}", e.getMessage());
+                        throw new IllegalStateException("Historical exchange rates are not available");
+                    }
+                    historicalRates = rates;
+                }
+            }
+        }
+        return rates;
+    }
+
+    // Parse the historical XML: <Cube time="yyyy-MM-dd"><Cube currency rate/></Cube>.
+    // A malformed document fails the whole load instead of keeping part of it
+    private Map<String, TreeMap<LocalDate, Double>> parseXmlHistoricalRates(String xmlResponse) throws Exception {
+        Map<String, TreeMap<LocalDate, Double>> rates = new HashMap<>();
+        Document doc = newDocumentBuilder().parse(new InputSource(new StringReader(xmlResponse)));
+
+        NodeList cubeNodes = doc.getElementsByTagName("Cube");
+
+        for (int i = 0; i < cubeNodes.getLength(); i++) {
+            Element cube = (Element) cubeNodes.item(i);
+
+            if (cube.hasAttribute("currency") && cube.hasAttribute("rate")
+                    && cube.getParentNode() instanceof Element) {
+                Element day = (Element) cube.getParentNode();
+                if (!day.hasAttribute("time")) {
+                    continue;
+                }
+
+                LocalDate date = LocalDate.parse(day.getAttribute("time"));
+                String currency = cube.getAttribute("currency");
+                double rate = Double.parseDouble(cube.getAttribute("rate"));
+
+                rates.computeIfAbsent(currency, c -> new TreeMap<>()).put(date, 1.0 / rate);
+            }
+        }
+        return rates;
+    }
+
+    // XML parser without DTDs or external entities (XXE)
+    private static DocumentBuilder newDocumentBuilder() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory.newDocumentBuilder();
+    }
+}
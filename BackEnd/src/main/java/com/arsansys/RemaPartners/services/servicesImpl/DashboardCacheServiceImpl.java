@@ -0,0 +1,294 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+import com.arsansys.RemaPartners.models.events.FacturaRegistradaEvent;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
+import com.arsansys.RemaPartners.models.events.VisitaRegistradaEvent;
+import com.arsansys.RemaPartners.services.DashboardCacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la caché del dashboard con Caffeine.
+ * <p>
+ * La caché está limitada en tamaño y caduca por tiempo. Las métricas de
+ * aciertos y fallos se publican en Micrometer con el nombre {@code dashboard}
+ * (métricas {@code cache.gets}, {@code cache.evictions}, etc. del actuator).
+ * <p>
+ * Un índice secundario relaciona cada ámbito (y las entradas globales de cada
+ * tipo de endpoint) con sus claves, de modo que invalidar un evento solo
+ * recorre las entradas de los ámbitos afectados y no toda la caché.
+ */
+@Service
+@Slf4j
+public class DashboardCacheServiceImpl implements DashboardCacheService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${dashboard.cache.max-entradas:10000}")
+    private long maxEntradas;
+
+    @Value("${dashboard.cache.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    private Cache<Clave, Object> cache;
+
+    // Claves de la caché por ámbito y por tipo de endpoint de las globales
+    private final Map<String, Set<Clave>> clavesPorIndice = new ConcurrentHashMap<>();
+
+    /**
+     * Clave de una entrada de la caché.
+     */
+    private record Clave(String endpoint, String ambito, boolean global, String periodo) {
+
+        /**
+         * Entradas del índice secundario bajo las que se registra la clave.
+         */
+        private List<String> indices() {
+            List<String> indices = new ArrayList<>(2);
+            if (ambito != null) {
+                indices.add(indiceAmbito(ambito));
+            }
+            if (global) {
+                indices.add(indiceGlobal(endpoint.substring(0, endpoint.indexOf('/') + 1)));
+            }
+            return indices;
+        }
+    }
+
+    private static String indiceAmbito(String ambito) {
+        return "ambito:" + ambito;
+    }
+
+    private static String indiceGlobal(String prefijo) {
+        return "global:" + prefijo;
+    }
+
+    /**
+     * Crea la caché y registra sus métricas. Las entradas desalojadas por
+     * tamaño o caducidad se retiran del índice secundario.
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .<Clave, Object>evictionListener((clave, valor, causa) -> {
+                    if (clave != null) {
+                        desindexar(clave);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "dashboard");
+    }
+
+    /**
+     * Obtiene un resultado de la caché o lo calcula y lo guarda si no existe.
+     * Las peticiones simultáneas de la misma clave esperan a un único cálculo.
+     *
+     * @param endpoint Nombre del endpoint.
+     * @param ambito   ID del usuario o producto del que dependen los datos.
+     * @param global   true si los datos incluyen todos los vendedores.
+     * @param periodo  Año, año y mes o {@link #SIN_PERIODO}.
+     * @param calculo  Función que calcula el resultado.
+     * @return Resultado guardado o calculado.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String endpoint, String ambito, boolean global, String periodo, Supplier<T> calculo) {
+        return (T) cache.get(new Clave(endpoint, ambito, global, periodo), clave -> {
+            // Se indexa antes de calcular: una invalidación que encuentre la
+            // clave espera a que termine el cálculo y descarta su resultado
+            indexar(clave);
+            try {
+                return calculo.get();
+            } catch (RuntimeException e) {
+                desindexar(clave);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Elimina todas las entradas de la caché.
+     */
+    @Override
+    public void invalidarTodo() {
+        cache.invalidateAll();
+        clavesPorIndice.clear();
+    }
+
+    /**
+     * Invalida las entradas de un producto creado o modificado, que incluyen
+     * sus datos, y las de visitas de su vendedor y las globales, que cuentan
+     * sus productos y listan los más visitados.
+     *
+     * @param event Evento de producto actualizado.
+     */
+    @EventListener
+    public void onProductoActualizado(ProductoActualizadoEvent event) {
+        if (event.getProducto().getId() != null) {
+            invalidarAmbito(event.getProducto().getId());
+        }
+        invalidarTodosLosPeriodos("visitas/", event.getProducto().getIdUsuario());
+    }
+
+    /**
+     * Invalida las entradas de un producto eliminado y las de visitas de su
+     * vendedor y las globales.
+     *
+     * @param event Evento de producto eliminado.
+     */
+    @EventListener
+    public void onProductoEliminado(ProductoEliminadoEvent event) {
+        invalidarAmbito(event.getProductoId());
+        invalidarTodosLosPeriodos("visitas/", event.getVendedorId());
+    }
+
+    /**
+     * Invalida las entradas de ventas del vendedor, comprador y producto de la
+     * factura, y las globales de ventas, para su año y mes.
+     *
+     * @param event Evento de factura registrada.
+     */
+    @EventListener
+    public void onFacturaRegistrada(FacturaRegistradaEvent event) {
+        FacturaEntity factura = event.getFactura();
+        if (factura.getFechaEmision() == null) {
+            return;
+        }
+        invalidar("ventas/",
+                new String[] { factura.getIdVendedor(), factura.getIdComprador(), factura.getIdProducto() },
+                factura.getFechaEmision().getYear(), factura.getFechaEmision().getMonthValue());
+    }
+
+    /**
+     * Invalida las entradas del producto y del vendedor visitados, y las
+     * globales de visitas, para su año y mes.
+     *
+     * @param event Evento de visita registrada.
+     */
+    @EventListener
+    public void onVisitaRegistrada(VisitaRegistradaEvent event) {
+        invalidar("visitas/",
+                new String[] { event.getProductoId(), event.getVendedorId() },
+                event.getAño(), event.getMes());
+    }
+
+    /**
+     * Elimina las entradas de los ámbitos indicados, y las globales del tipo de
+     * endpoint, cuyo periodo incluye el año y mes. Solo se recorren las claves
+     * de esos ámbitos en el índice secundario.
+     */
+    private void invalidar(String prefijoGlobal, String[] ambitos, int año, int mes) {
+        String periodoAño = String.valueOf(año);
+        String periodoMes = año + "-" + mes;
+
+        List<String> indices = new ArrayList<>(ambitos.length + 1);
+        indices.add(indiceGlobal(prefijoGlobal));
+        for (String ambito : ambitos) {
+            if (ambito != null) {
+                indices.add(indiceAmbito(ambito));
+            }
+        }
+
+        List<Clave> afectadas = new ArrayList<>();
+        for (String indice : indices) {
+            Set<Clave> claves = clavesPorIndice.get(indice);
+            if (claves == null) {
+                continue;
+            }
+            for (Clave clave : claves) {
+                String periodo = clave.periodo();
+                if (SIN_PERIODO.equals(periodo) || periodoAño.equals(periodo) || periodoMes.equals(periodo)) {
+                    afectadas.add(clave);
+                }
+            }
+        }
+        eliminar(afectadas);
+    }
+
+    /**
+     * Elimina todas las entradas de un ámbito, sea cual sea su periodo.
+     */
+    private void invalidarAmbito(String ambito) {
+        Set<Clave> claves = clavesPorIndice.get(indiceAmbito(ambito));
+        if (claves != null) {
+            eliminar(new ArrayList<>(claves));
+        }
+    }
+
+    /**
+     * Elimina las entradas del tipo de endpoint del ámbito indicado y las
+     * globales de ese tipo, sea cual sea su periodo.
+     */
+    private void invalidarTodosLosPeriodos(String prefijo, String ambito) {
+        List<String> indices = new ArrayList<>(2);
+        indices.add(indiceGlobal(prefijo));
+        if (ambito != null) {
+            indices.add(indiceAmbito(ambito));
+        }
+
+        List<Clave> afectadas = new ArrayList<>();
+        for (String indice : indices) {
+            Set<Clave> claves = clavesPorIndice.get(indice);
+            if (claves == null) {
+                continue;
+            }
+            for (Clave clave : claves) {
+                if (clave.endpoint().startsWith(prefijo)) {
+                    afectadas.add(clave);
+                }
+            }
+        }
+        eliminar(afectadas);
+    }
+
+    private void eliminar(List<Clave> claves) {
+        for (Clave clave : claves) {
+            desindexar(clave);
+        }
+        cache.invalidateAll(claves);
+        log.debug("Dashboard cache: {} entries invalidated", claves.size());
+    }
+
+    private void indexar(Clave clave) {
+        for (String indice : clave.indices()) {
+            clavesPorIndice.compute(indice, (k, claves) -> {
+                Set<Clave> resultado = claves != null ? claves : ConcurrentHashMap.newKeySet();
+                resultado.add(clave);
+                return resultado;
+            });
+        }
+    }
+
+    private void desindexar(Clave clave) {
+        for (String indice : clave.indices()) {
+            clavesPorIndice.computeIfPresent(indice, (k, claves) -> {
+                claves.remove(clave);
+                return claves.isEmpty() ? null : claves;
+            });
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.CampoCategoriaEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
+import com.arsansys.RemaPartners.repositories.ProductoRepository;
+import com.arsansys.RemaPartners.services.CurrencyConversionService;
+import com.arsansys.RemaPartners.services.FacetasProductoService;
+import com.arsansys.RemaPartners.services.ProductoService;
+import com.arsansys.RemaPartners.services.busqueda.FiltroFacetas;
+import com.arsansys.RemaPartners.services.busqueda.IndiceFacetas;
+import com.arsansys.RemaPartners.services.busqueda.PaginaFacetada;
+import com.arsansys.RemaPartners.services.busqueda.ResultadoFacetas;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación del filtrado por facetas con bitmaps comprimidos en memoria.
+ * <p>
+ * El índice se construye al arrancar la aplicación y se actualiza con los
+ * eventos de creación, modificación y borrado de productos. Solo se indexan
+ * los productos activos. Los precios se convierten a EUR con la tasa actual al
+ * indexar. Las consultas comparten un cerrojo de lectura; las actualizaciones
+ * toman el de escritura.
+ */
+@Service
+@Slf4j
+public class FacetasProductoServiceImpl implements FacetasProductoService {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Value("${productos.facetas.max-valores:20}")
+    private int maxValoresFaceta;
+
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    private IndiceFacetas indice = new IndiceFacetas();
+
+    /**
+     * Construye el índice al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndice() {
+        reconstruirIndice();
+    }
+
+    /**
+     * Reconstruye el índice de facetas a partir de todos los productos.
+     *
+     * @return Número de productos indexados.
+     */
+    @Override
+    public int reconstruirIndice() {
+        cerrojo.writeLock().lock();
+        try (Stream<ProductoEntity> productos = productoRepository.streamAllBy()) {
+            IndiceFacetas nuevo = new IndiceFacetas();
+            for (ProductoEntity producto : (Iterable<ProductoEntity>) productos::iterator) {
+                if (indexable(producto)) {
+                    nuevo.indexar(producto.getId(), facetas(producto), precioEur(producto));
+                }
+            }
+            nuevo.optimizar();
+            indice = nuevo;
+            log.info("Product facet index built: {} products", nuevo.getNumeroDocumentos());
+            return nuevo.getNumeroDocumentos();
+        } catch (Exception e) {
+            throw new RuntimeException("Error building product facet index: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene los productos que cumplen el filtro y el recuento de productos de
+     * cada faceta.
+     *
+     * @param filtro Filtro de la consulta.
+     * @param desde  Posición del primer resultado.
+     * @param limite Número máximo de resultados.
+     * @return Página de productos y recuentos de las facetas.
+     */
+    @Override
+    public PaginaFacetada buscar(FiltroFacetas filtro, int desde, int limite) {
+        ResultadoFacetas resultado;
+        cerrojo.readLock().lock();
+        try {
+            resultado = indice.buscar(filtro, desde, limite, maxValoresFaceta);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+
+        List<ProductoEntity> productos = productoService.getProductosByIds(resultado.getIds());
+        return new PaginaFacetada(productos, resultado.getTotal(), resultado.getFacetas());
+    }
+
+    /**
+     * Indexa de nuevo un producto creado o modificado, o lo retira del índice si
+     * ya no está activo.
+     *
+     * @param event Evento de producto actualizado.
+     */
+    @EventListener
+    public void onProductoActualizado(ProductoActualizadoEvent event) {
+        ProductoEntity producto = event.getProducto();
+        boolean indexable = indexable(producto);
+        Map<String, String> facetas = indexable ? facetas(producto) : null;
+        Long precio = indexable ? precioEur(producto) : null;
+
+        cerrojo.writeLock().lock();
+        try {
+            if (indexable) {
+                indice.indexar(producto.getId(), facetas, precio);
+            } else {
+                indice.eliminar(producto.getId());
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira del índice un producto eliminado.
+     *
+     * @param event Evento de producto eliminado.
+     */
+    @EventListener
+    public void onProductoEliminado(ProductoEliminadoEvent event) {
+        cerrojo.writeLock().lock();
+        try {
+            indice.eliminar(event.getProductoId());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static boolean indexable(ProductoEntity producto) {
+        return producto.getId() != null && !Boolean.FALSE.equals(producto.getActivo());
+    }
+
+    /**
+     * Obtiene el valor de cada dimensión de faceta del producto.
+     */
+    private static Map<String, String> facetas(ProductoEntity producto) {
+        Map<String, String> valores = new HashMap<>();
+        valores.put(IndiceFacetas.CATEGORIA, producto.getIdCategoria());
+        valores.put(IndiceFacetas.MARCA, producto.getMarca());
+        valores.put(IndiceFacetas.MODELO, producto.getModelo());
+        if (producto.getEstado() != null) {
+            valores.put(IndiceFacetas.ESTADO, producto.getEstado().name());
+        }
+        if (producto.getCamposCategoria() != null) {
+            for (CampoCategoriaEntity campo : producto.getCamposCategoria()) {
+                if (campo != null && campo.getNombreCampo() != null) {
+                    valores.put(IndiceFacetas.PREFIJO_CAMPO + campo.getNombreCampo(), campo.getDatos());
+                }
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Convierte el precio del producto a céntimos de EUR con la tasa actual.
+     */
+    private Long precioEur(ProductoEntity producto) {
+        if (producto.getPrecioCentimos() == null) {
+            return null;
+        }
+        String moneda = producto.getMoneda() != null ? producto.getMoneda().name() : null;
+        return Math.round(producto.getPrecioCentimos() * currencyConversionService.getTasaEur(moneda, null));
+    }
+}
@@ -1,23 +1,59 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.events.FacturaRegistradaEvent;
 import com.arsansys.RemaPartners.repositories.FacturaRepository;
+import com.arsansys.RemaPartners.services.CurrencyConversionService;
 import com.arsansys.RemaPartners.services.FacturaService;
+import com.arsansys.RemaPartners.services.ProductoService;
+import com.arsansys.RemaPartners.services.VentaResumenService;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Implementación del servicio para la gestión de facturas.
  */
 @Service
+@Slf4j
 public class FacturaServiceImpl implements FacturaService {
 
+    private static final int TAMAÑO_LOTE = 1000;
+
     @Autowired
     private FacturaRepository facturaRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private VentaResumenService ventaResumenService;
+
+    @Autowired
+    private ProductoService productoService;
+
     /**
      * Crea una nueva factura.
      * 
@@ -26,11 +62,83 @@ public class FacturaServiceImpl implements FacturaService {
      */
     @Override
     public FacturaEntity createFactura(FacturaEntity facturaEntity) {
+        FacturaEntity factura;
         try {
-            return facturaRepository.save(facturaEntity);
+            factura = guardarFactura(facturaEntity);
         } catch (Exception e) {
             throw new RuntimeException("Error creating invoice: " + e.getMessage());
         }
+        registrarEmitida(factura);
+        return factura;
+    }
+
+    /**
+     * Crea una factura a partir de la venta de un producto. El stock se reserva
+     * antes con un descuento atómico condicionado; si la factura no llega a
+     * guardarse, la reserva se compensa devolviendo las unidades. Los fallos
+     * posteriores al guardado no devuelven el stock, ya que la venta está hecha.
+     *
+     * @param idProducto  ID del producto vendido.
+     * @param idComprador ID del comprador.
+     * @param idVendedor  ID del vendedor.
+     * @param cantidad    Cantidad vendida.
+     * @param idChat      ID del chat donde se realizó la venta.
+     * @return La factura creada.
+     */
+    @Override
+    public FacturaEntity createFacturaFromSale(String idProducto, String idComprador, String idVendedor,
+            int cantidad, String idChat) {
+        ProductoEntity producto = productoService.reservarStock(idProducto, cantidad);
+
+        FacturaEntity factura;
+        try {
+            factura = guardarFactura(FacturaEntity.builder()
+                    .idProducto(idProducto)
+                    .idComprador(idComprador)
+                    .idVendedor(idVendedor)
+                    .cantidad(cantidad)
+                    .precioCentimos(producto.getPrecioCentimos())
+                    .importeTotalCentimos(producto.getPrecioCentimos() * cantidad)
+                    .moneda(producto.getMoneda().toString())
+                    .tituloProducto(producto.getTitulo())
+                    .idChat(idChat)
+                    .build());
+        } catch (Exception e) {
+            try {
+                productoService.liberarStock(idProducto, cantidad);
+            } catch (Exception compensacion) {
+                log.error("Error releasing {} units of product {} after failed sale: {}", cantidad, idProducto,
+                        compensacion.getMessage());
+            }
+            throw new RuntimeException("Error creating invoice from sale: " + e.getMessage());
+        }
+        registrarEmitida(factura);
+        return factura;
+    }
+
+    /**
+     * Fija el importe en EUR con la tasa del día y guarda la factura.
+     */
+    private FacturaEntity guardarFactura(FacturaEntity facturaEntity) {
+        if (facturaEntity.getImporteEurCentimos() == null) {
+            aplicarTasaEur(facturaEntity);
+        }
+        return facturaRepository.save(facturaEntity);
+    }
+
+    /**
+     * Suma una factura ya guardada a los resúmenes de ventas y publica su
+     * evento.
+     */
+    private void registrarEmitida(FacturaEntity factura) {
+        // La factura ya está emitida: un fallo en los resúmenes se corrige
+        // reconstruyéndolos, no debe anular la venta
+        try {
+            ventaResumenService.registrarFactura(factura);
+        } catch (Exception e) {
+            log.error("Error updating sales summaries for invoice {}: {}", factura.getId(), e.getMessage());
+        }
+        eventPublisher.publishEvent(new FacturaRegistradaEvent(this, factura));
     }
 
     /**
@@ -117,13 +225,112 @@ public class FacturaServiceImpl implements FacturaService {
      */
     @Override
     public FacturaEntity updateFactura(FacturaEntity facturaEntity) {
+        FacturaEntity anterior;
+        FacturaEntity factura;
         try {
-            if (!facturaRepository.existsById(facturaEntity.getId())) {
-                throw new RuntimeException("Invoice not found with ID: " + facturaEntity.getId());
+            anterior = facturaRepository.findById(facturaEntity.getId())
+                    .orElseThrow(() -> new RuntimeException("Invoice not found with ID: " + facturaEntity.getId()));
+
+            // Se conserva la tasa original salvo que cambie el importe o la moneda
+            if (facturaEntity.getImporteEurCentimos() == null
+                    || !Objects.equals(anterior.getImporteTotalCentimos(), facturaEntity.getImporteTotalCentimos())
+                    || !Objects.equals(anterior.getMoneda(), facturaEntity.getMoneda())) {
+                aplicarTasaEur(facturaEntity);
             }
-            return facturaRepository.save(facturaEntity);
+            factura = facturaRepository.save(facturaEntity);
         } catch (Exception e) {
             throw new RuntimeException("Error updating invoice: " + e.getMessage());
         }
+
+        try {
+            ventaResumenService.actualizarFactura(anterior, factura);
+        } catch (Exception e) {
+            log.error("Error updating sales summaries for invoice {}: {}", factura.getId(), e.getMessage());
+        }
+        eventPublisher.publishEvent(new FacturaRegistradaEvent(this, anterior));
+        eventPublisher.publishEvent(new FacturaRegistradaEvent(this, factura));
+        return factura;
+    }
+
+    /**
+     * Calcula el importe en EUR de las facturas que no lo tienen usando la tasa
+     * histórica de su fecha de emisión y regenera los resúmenes de ventas.
+     * 
+     * @return Mapa con el número de facturas completadas y de resúmenes generados.
+     */
+    @Override
+    public Map<String, Long> completarImportesEur() {
+        long completadas = 0;
+        long omitidas = 0;
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FacturaEntity.class);
+            int pendientes = 0;
+
+            try (Stream<FacturaEntity> stream = facturaRepository.findByImporteEurCentimosIsNull()) {
+                for (FacturaEntity factura : (Iterable<FacturaEntity>) stream::iterator) {
+                    aplicarTasaEur(factura);
+                    if (factura.getImporteEurCentimos() == null) {
+                        omitidas++;
+                        continue;
+                    }
+
+                    bulk.updateOne(Query.query(Criteria.where("_id").is(factura.getId())), new Update()
+                            .set("importeEurCentimos", factura.getImporteEurCentimos())
+                            .set("tasaCambioEur", factura.getTasaCambioEur())
+                            .set("fechaTasaCambio", factura.getFechaTasaCambio()));
+                    completadas++;
+
+                    if (++pendientes == TAMAÑO_LOTE) {
+                        bulk.execute();
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FacturaEntity.class);
+                        pendientes = 0;
+                    }
+                }
+            }
+            if (pendientes > 0) {
+                bulk.execute();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error filling invoice EUR amounts: " + e.getMessage());
+        }
+
+        log.info("EUR amounts filled for {} invoices, {} without exchange rate", completadas, omitidas);
+
+        Map<String, Long> resultado = new HashMap<>(ventaResumenService.reconstruirResumenes());
+        resultado.put("facturasCompletadas", completadas);
+        resultado.put("facturasSinTasa", omitidas);
+        return resultado;
+    }
+
+    /**
+     * Calcula el importe en EUR de la factura con la tasa de su fecha de emisión
+     * y guarda la tasa aplicada. Si no hay tasa para esa fecha el importe queda
+     * vacío, y la factura se completa más adelante con
+     * {@link #completarImportesEur()}.
+     * 
+     * @param factura Factura a completar.
+     */
+    private void aplicarTasaEur(FacturaEntity factura) {
+        if (factura.getImporteTotalCentimos() == null || factura.getMoneda() == null) {
+            return;
+        }
+
+        LocalDate fecha = factura.getFechaEmision() != null
+                ? factura.getFechaEmision().toLocalDate()
+                : LocalDate.now();
+        double tasa;
+        try {
+            tasa = currencyConversionService.getTasaEur(factura.getMoneda(), fecha);
+        } catch (IllegalStateException e) {
+            log.warn("EUR amount of invoice {} left empty: {}", factura.getId(), e.getMessage());
+            factura.setTasaCambioEur(null);
+            factura.setFechaTasaCambio(null);
+            factura.setImporteEurCentimos(null);
+            return;
+        }
+
+        factura.setTasaCambioEur(tasa);
+        factura.setFechaTasaCambio(fecha);
+        factura.setImporteEurCentimos((int) Math.round(factura.getImporteTotalCentimos() * tasa));
     }
 }
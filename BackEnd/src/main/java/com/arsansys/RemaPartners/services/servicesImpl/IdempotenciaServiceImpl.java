@@ -0,0 +1,392 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.ClaveIdempotenciaEntity;
+import com.arsansys.RemaPartners.services.IdempotenciaService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la idempotencia con MongoDB y una caché en memoria.
+ * <p>
+ * Cada clave se registra en la colección {@code claves_idempotencia}, que un
+ * índice TTL vacía cuando caducan. El registro se inserta en estado
+ * {@code EN_CURSO} antes de ejecutar la operación, de modo que el índice único
+ * del identificador decide qué petición se ejecuta aunque lleguen a la vez a
+ * nodos distintos. Dentro de un mismo nodo los duplicados esperan al primero
+ * sin consultar la base de datos, y las respuestas completadas se sirven desde
+ * una caché LRU de Caffeine.
+ */
+@Service
+@Slf4j
+public class IdempotenciaServiceImpl implements IdempotenciaService {
+
+    /**
+     * Longitud máxima de la clave enviada por el cliente.
+     */
+    private static final int MAX_LONGITUD_CLAVE = 255;
+
+    /**
+     * Intervalo de consulta mientras otro nodo ejecuta la misma petición.
+     */
+    private static final long INTERVALO_SONDEO_MS = 50;
+
+    /**
+     * Intentos de guardar la respuesta antes de dar la petición por fallida.
+     */
+    private static final int MAX_INTENTOS_COMPLETAR = 3;
+
+    private static final long ESPERA_REINTENTO_COMPLETAR_MS = 100;
+
+    private static final String INDICE_CADUCIDAD = "caducidad";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${idempotencia.ttl-horas:24}")
+    private long ttlHoras;
+
+    @Value("${idempotencia.cache.max-entradas:10000}")
+    private long maxEntradas;
+
+    @Value("${idempotencia.espera-ms:10000}")
+    private long esperaMs;
+
+    @Value("${idempotencia.bloqueo-segundos:60}")
+    private long bloqueoSegundos;
+
+    private Cache<String, ClaveIdempotenciaEntity> respuestas;
+
+    // Peticiones en ejecución en este nodo; el resultado es null si no se guardó
+    private final ConcurrentMap<String, CompletableFuture<ClaveIdempotenciaEntity>> enCurso = new ConcurrentHashMap<>();
+
+    /**
+     * Crea la caché de respuestas y registra sus métricas.
+     */
+    @PostConstruct
+    public void init() {
+        respuestas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofHours(ttlHoras))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, respuestas, "idempotencia");
+    }
+
+    /**
+     * Crea el índice TTL de las claves al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndices() {
+        try {
+            mongoTemplate.indexOps(ClaveIdempotenciaEntity.class).ensureIndex(new Index()
+                    .on("fechaCreacion", Sort.Direction.ASC)
+                    .expire(Duration.ofHours(ttlHoras))
+                    .named(INDICE_CADUCIDAD));
+        } catch (Exception e) {
+            log.warn("Could not create TTL index on idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta una operación una sola vez por clave o repite su respuesta.
+     *
+     * @param operacion Nombre de la operación.
+     * @param clave     Clave de idempotencia enviada por el cliente.
+     * @param peticion  Datos de la petición.
+     * @param tipo      Tipo del cuerpo de la respuesta.
+     * @param accion    Operación que se ejecuta la primera vez.
+     * @return Respuesta de la operación, ejecutada ahora o repetida.
+     */
+    @Override
+    public <T> ResponseEntity<T> ejecutar(String operacion, String clave, Object peticion, TypeReference<T> tipo,
+            Supplier<ResponseEntity<T>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > MAX_LONGITUD_CLAVE) {
+            throw new IllegalArgumentException("Idempotency key is too long");
+        }
+
+        String id = operacion + ":" + clave;
+        String huella = huella(peticion);
+
+        while (true) {
+            ClaveIdempotenciaEntity guardada = respuestas.getIfPresent(id);
+            if (guardada != null) {
+                return repetir(guardada, huella, tipo);
+            }
+
+            CompletableFuture<ClaveIdempotenciaEntity> propia = new CompletableFuture<>();
+            CompletableFuture<ClaveIdempotenciaEntity> existente = enCurso.putIfAbsent(id, propia);
+            if (existente != null) {
+                // Otro hilo de este nodo ejecuta la misma petición
+                guardada = esperar(existente);
+                if (guardada != null) {
+                    return repetir(guardada, huella, tipo);
+                }
+                continue;
+            }
+
+            try {
+                guardada = reservar(id, operacion, huella);
+                if (guardada != null) {
+                    respuestas.put(id, guardada);
+                    propia.complete(guardada);
+                    return repetir(guardada, huella, tipo);
+                }
+
+                ResponseEntity<T> respuesta;
+                try {
+                    respuesta = accion.get();
+                } catch (RuntimeException e) {
+                    liberar(id);
+                    throw e;
+                }
+                if (respuesta.getStatusCode().is5xxServerError()) {
+                    liberar(id);
+                    return respuesta;
+                }
+
+                // Los duplicados de este nodo reciben la respuesta aunque no se
+                // pueda guardar en la base de datos
+                guardada = completada(id, operacion, huella, respuesta);
+                respuestas.put(id, guardada);
+                propia.complete(guardada);
+                completar(guardada);
+                return respuesta;
+            } finally {
+                propia.complete(null);
+                enCurso.remove(id, propia);
+            }
+        }
+    }
+
+    /**
+     * Inserta el registro de la clave en estado {@code EN_CURSO}. Si ya existe,
+     * espera a que la petición que lo creó termine.
+     *
+     * @return null si esta petición debe ejecutar la operación, o el registro
+     *         completado si ya se ejecutó.
+     */
+    private ClaveIdempotenciaEntity reservar(String id, String operacion, String huella) {
+        long limite = System.currentTimeMillis() + esperaMs;
+        while (true) {
+            try {
+                mongoTemplate.insert(ClaveIdempotenciaEntity.builder()
+                        .id(id)
+                        .operacion(operacion)
+                        .huella(huella)
+                        .estado(ClaveIdempotenciaEntity.EN_CURSO)
+                        .fechaCreacion(LocalDateTime.now())
+                        .build());
+                return null;
+            } catch (DuplicateKeyException e) {
+                // La clave ya está registrada
+            }
+
+            ClaveIdempotenciaEntity existente = mongoTemplate.findById(id, ClaveIdempotenciaEntity.class);
+            if (existente != null) {
+                if (!huella.equals(existente.getHuella())) {
+                    throw new IllegalArgumentException("Idempotency key was already used with a different request");
+                }
+                if (ClaveIdempotenciaEntity.COMPLETADA.equals(existente.getEstado())) {
+                    return existente;
+                }
+                if (tomarAbandonada(id)) {
+                    return null;
+                }
+                if (System.currentTimeMillis() >= limite) {
+                    throw new IllegalStateException("A request with this idempotency key is still in progress");
+                }
+                try {
+                    Thread.sleep(INTERVALO_SONDEO_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for idempotent request");
+                }
+            }
+        }
+    }
+
+    /**
+     * Toma el registro de una petición que lleva en curso más tiempo del
+     * permitido, normalmente porque el nodo que la ejecutaba se detuvo.
+     */
+    private boolean tomarAbandonada(String id) {
+        LocalDateTime ahora = LocalDateTime.now();
+        ClaveIdempotenciaEntity tomada = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(id)
+                        .and("estado").is(ClaveIdempotenciaEntity.EN_CURSO)
+                        .and("fechaCreacion").lt(ahora.minusSeconds(bloqueoSegundos))),
+                new Update().set("fechaCreacion", ahora),
+                FindAndModifyOptions.options().returnNew(true),
+                ClaveIdempotenciaEntity.class);
+        if (tomada != null) {
+            log.warn("Taking over abandoned idempotent request {}", id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Crea el registro completado con la respuesta de la operación.
+     */
+    private <T> ClaveIdempotenciaEntity completada(String id, String operacion, String huella,
+            ResponseEntity<T> respuesta) {
+        String cuerpo = null;
+        try {
+            if (respuesta.getBody() != null) {
+                cuerpo = objectMapper.writeValueAsString(respuesta.getBody());
+            }
+        } catch (Exception e) {
+            log.error("Error serializing idempotent response {}: {}", id, e.getMessage());
+        }
+
+        return ClaveIdempotenciaEntity.builder()
+                .id(id)
+                .operacion(operacion)
+                .huella(huella)
+                .estado(ClaveIdempotenciaEntity.COMPLETADA)
+                .codigoEstado(respuesta.getStatusCode().value())
+                .cuerpo(cuerpo)
+                .build();
+    }
+
+    /**
+     * Marca el registro como completado con su respuesta, reintentando si la
+     * escritura falla. Mientras el registro siga en curso otro nodo podría
+     * tomarlo como abandonado y repetir la operación, por lo que si no se
+     * consigue guardar se lanza la excepción en lugar de solo registrarla.
+     *
+     * @throws IllegalStateException Si no se puede guardar la respuesta.
+     */
+    private void completar(ClaveIdempotenciaEntity completada) {
+        Update update = new Update()
+                .set("estado", completada.getEstado())
+                .set("codigoEstado", completada.getCodigoEstado())
+                .set("cuerpo", completada.getCuerpo());
+        for (int intento = 1;; intento++) {
+            try {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(completada.getId())), update,
+                        ClaveIdempotenciaEntity.class);
+                return;
+            } catch (Exception e) {
+                if (intento >= MAX_INTENTOS_COMPLETAR) {
+                    log.error("Error saving idempotent response {} after {} attempts: {}", completada.getId(),
+                            intento, e.getMessage());
+                    throw new IllegalStateException("Error saving idempotent response: " + e.getMessage());
+                }
+                log.warn("Error saving idempotent response {} (attempt {}): {}", completada.getId(), intento,
+                        e.getMessage());
+            }
+            try {
+                Thread.sleep(ESPERA_REINTENTO_COMPLETAR_MS * intento);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while saving idempotent response");
+            }
+        }
+    }
+
+    /**
+     * Elimina el registro de una petición que no se completó, para que el
+     * cliente pueda reintentarla.
+     */
+    private void liberar(String id) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("id").is(id)
+                    .and("estado").is(ClaveIdempotenciaEntity.EN_CURSO)), ClaveIdempotenciaEntity.class);
+        } catch (Exception e) {
+            log.error("Error releasing idempotency key {}: {}", id, e.getMessage());
+        }
+    }
+
+    private ClaveIdempotenciaEntity esperar(CompletableFuture<ClaveIdempotenciaEntity> existente) {
+        try {
+            return existente.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with this idempotency key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reconstruye la respuesta guardada de una petición.
+     */
+    private <T> ResponseEntity<T> repetir(ClaveIdempotenciaEntity guardada, String huella, TypeReference<T> tipo) {
+        if (!huella.equals(guardada.getHuella())) {
+            throw new IllegalArgumentException("Idempotency key was already used with a different request");
+        }
+
+        T cuerpo = null;
+        try {
+            if (guardada.getCuerpo() != null) {
+                cuerpo = objectMapper.readValue(guardada.getCuerpo(), tipo);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading idempotent response: " + e.getMessage());
+        }
+        return ResponseEntity.status(guardada.getCodigoEstado())
+                .header(CABECERA_REPETIDA, "true")
+                .body(cuerpo);
+    }
+
+    /**
+     * Calcula la huella SHA-256 de los datos de la petición.
+     */
+    private String huella(Object peticion) {
+        try {
+            byte[] datos = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsString(peticion).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (Exception e) {
+            throw new RuntimeException("Error hashing idempotent request: " + e.getMessage());
+        }
+    }
+}
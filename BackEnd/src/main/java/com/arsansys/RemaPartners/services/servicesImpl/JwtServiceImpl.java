@@ -1,21 +1,59 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.JwtEntity;
 import com.arsansys.RemaPartners.repositories.JwtRepository;
 import com.arsansys.RemaPartners.services.JwtService;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Implementación del servicio para la gestión de tokens JWT.
+ * <p>
+ * Un índice TTL elimina los tokens cuando caducan, ya que a partir de ese
+ * momento no son válidos aunque no se hayan anulado, y otro índice sobre
+ * (isValid, expirationDate) sirve la recarga periódica de los anulados.
  */
 @Service
+@Slf4j
 public class JwtServiceImpl implements JwtService {
 
     @Autowired
     private JwtRepository jwtRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Crea los índices de la colección de tokens al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndices() {
+        try {
+            mongoTemplate.indexOps(JwtEntity.class).ensureIndex(new Index()
+                    .on("expirationDate", Sort.Direction.ASC)
+                    .expire(Duration.ZERO)
+                    .named("caducidad"));
+            mongoTemplate.indexOps(JwtEntity.class).ensureIndex(new Index()
+                    .on("isValid", Sort.Direction.ASC)
+                    .on("expirationDate", Sort.Direction.ASC)
+                    .named("valido_caducidad"));
+        } catch (Exception e) {
+            log.warn("Could not create indexes on JWT tokens: {}", e.getMessage());
+        }
+    }
+
     /**
      * Busca un token JWT por nombre de usuario.
      * 
@@ -47,4 +85,14 @@ public class JwtServiceImpl implements JwtService {
     public void save(JwtEntity jwtToken) {
         jwtRepository.save(jwtToken);
     }
+
+    /**
+     * Obtiene los tokens JWT anulados que aún no han caducado.
+     * 
+     * @return Lista de entidades JWT anuladas.
+     */
+    @Override
+    public List<JwtEntity> findRevocados() {
+        return jwtRepository.findByIsValidFalseAndExpirationDateAfter(new Date());
+    }
 }
@@ -1,26 +1,108 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
 import com.arsansys.RemaPartners.models.enums.EEstado;
+import com.arsansys.RemaPartners.models.events.ProductoActualizadoEvent;
+import com.arsansys.RemaPartners.models.events.ProductoEliminadoEvent;
 import com.arsansys.RemaPartners.models.enums.EMoneda;
 import com.arsansys.RemaPartners.repositories.ProductoRepository;
+import com.arsansys.RemaPartners.services.CacheProductosService;
 import com.arsansys.RemaPartners.services.ProductoService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Implementación del servicio para la gestión de productos.
  */
 @Service
+@Slf4j
 public class ProductoServiceImpl implements ProductoService {
 
+    /**
+     * Campos que el vendedor puede modificar. Las visitas, el vendedor, las
+     * fechas de creación y actualización y la versión los gestiona el servidor.
+     */
+    private static final Set<String> CAMPOS_EDITABLES = Set.of(
+            "idCategoria", "imagenes", "marca", "modelo", "titulo", "descripcion", "estado",
+            "precioCentimos", "moneda", "stock", "fechaPublicacion", "fechaBaja", "direccion", "activo",
+            "destacado", "camposCategoria");
+
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheProductosService cacheProductosService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Prepara la colección de productos al arrancar la aplicación: asigna la
+     * versión inicial a los productos que aún no la tienen y crea el índice
+     * único de títulos sin distinguir mayúsculas. Si ya hay títulos repetidos el
+     * índice no se crea y se avisa en el log.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararProductos() {
+        long migrados = mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L), ProductoEntity.class).getModifiedCount();
+        if (migrados > 0) {
+            log.info("Initial version set on {} products", migrados);
+        }
+
+        try {
+            mongoTemplate.indexOps(ProductoEntity.class).ensureIndex(new Index()
+                    .on("titulo", Sort.Direction.ASC)
+                    .unique()
+                    .named(ProductoEntity.INDICE_TITULO)
+                    .collation(Collation.parse(ProductoEntity.COLACION_TITULO)));
+        } catch (Exception e) {
+            log.warn("Could not create unique index on product titles: {}", e.getMessage());
+        }
+    }
+
     /**
      * Obtiene todos los productos.
      * 
@@ -36,7 +118,32 @@ public class ProductoServiceImpl implements ProductoService {
     }
 
     /**
-     * Obtiene un producto por su identificador.
+     * Obtiene una página del catálogo con paginación por cursor.
+     * 
+     * @param activo      Filtro por activo (null para no filtrar).
+     * @param idCategoria Filtro por categoría (null para no filtrar).
+     * @param destacado   Filtro por destacado (null para no filtrar).
+     * @param cursor      ID del último producto de la página anterior (null para
+     *                    la primera).
+     * @param limite      Número máximo de productos.
+     * @return Página de productos.
+     */
+    @Override
+    public Slice<ProductoEntity> getProductosPagina(Boolean activo, String idCategoria, Boolean destacado,
+            String cursor, int limite) {
+        if (cursor != null && !ObjectId.isValid(cursor)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            return productoRepository.findPagina(activo, idCategoria, destacado, cursor, limite);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving product page: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene un producto por su identificador a través de la caché de
+     * productos. El producto devuelto es una copia que se puede modificar.
      * 
      * @param id Identificador del producto.
      * @return Entidad de producto encontrada.
@@ -44,12 +151,60 @@ public class ProductoServiceImpl implements ProductoService {
     @Override
     public ProductoEntity getProductoById(String id) {
         try {
-            return productoRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+            return cacheProductosService.obtener(id).orElseThrow(() -> new RuntimeException("Product not found"));
         } catch (Exception e) {
             throw new RuntimeException("Error retrieving product by ID: " + e.getMessage());
         }
     }
 
+    /**
+     * Obtiene varios productos por sus IDs en una sola consulta, conservando el
+     * orden de los IDs. Los IDs que no existen se omiten.
+     * 
+     * @param ids IDs de los productos.
+     * @return Lista de productos.
+     */
+    @Override
+    public List<ProductoEntity> getProductosByIds(List<String> ids) {
+        try {
+            Map<String, ProductoEntity> porId = new HashMap<>();
+            for (ProductoEntity producto : productoRepository.findAllById(ids)) {
+                porId.put(producto.getId(), producto);
+            }
+            List<ProductoEntity> productos = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                ProductoEntity producto = porId.get(id);
+                if (producto != null) {
+                    productos.add(producto);
+                }
+            }
+            return productos;
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving products by IDs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene los títulos de varios productos leyendo solo ese campo.
+     * 
+     * @param ids Identificadores de los productos.
+     * @return Título de cada producto encontrado por su identificador.
+     */
+    @Override
+    public Map<String, String> getTitulosByIds(Collection<String> ids) {
+        try {
+            Query query = Query.query(Criteria.where("id").in(ids));
+            query.fields().include("titulo");
+            Map<String, String> titulos = new HashMap<>();
+            for (ProductoEntity producto : mongoTemplate.find(query, ProductoEntity.class)) {
+                titulos.put(producto.getId(), producto.getTitulo());
+            }
+            return titulos;
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving product titles: " + e.getMessage());
+        }
+    }
+
     /**
      * Obtiene productos por estado.
      * 
@@ -65,6 +220,71 @@ public class ProductoServiceImpl implements ProductoService {
         }
     }
 
+    /**
+     * Obtiene los productos de un vendedor.
+     * 
+     * @param idUsuario Identificador del vendedor.
+     * @return Lista de productos del vendedor.
+     */
+    @Override
+    public List<ProductoEntity> getProductosByIdUsuario(String idUsuario) {
+        try {
+            return productoRepository.findByIdUsuario(idUsuario);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving products by seller: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cuenta los productos de un vendedor.
+     * 
+     * @param idUsuario Identificador del vendedor (null para todos).
+     * @return Número de productos.
+     */
+    @Override
+    public long countProductosByIdUsuario(String idUsuario) {
+        try {
+            return idUsuario != null ? productoRepository.countByIdUsuario(idUsuario) : productoRepository.count();
+        } catch (Exception e) {
+            throw new RuntimeException("Error counting products: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Suma las visitas de los productos de un vendedor en el servidor.
+     * 
+     * @param idUsuario Identificador del vendedor (null para todos).
+     * @return Total de visitas.
+     */
+    @Override
+    public long sumVisitasByIdUsuario(String idUsuario) {
+        try {
+            return productoRepository.sumVisitasByIdUsuario(idUsuario);
+        } catch (Exception e) {
+            throw new RuntimeException("Error summing product visits: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene los productos más visitados de un vendedor ordenando y limitando
+     * en el servidor.
+     * 
+     * @param idUsuario Identificador del vendedor (null para todos).
+     * @param limite    Número máximo de productos.
+     * @return Lista de productos ordenada por visitas descendente.
+     */
+    @Override
+    public List<ProductoEntity> getProductosTopVisitas(String idUsuario, int limite) {
+        try {
+            Pageable pagina = PageRequest.of(0, limite);
+            return idUsuario != null
+                    ? productoRepository.findByIdUsuarioOrderByVisitasDesc(idUsuario, pagina)
+                    : productoRepository.findByOrderByVisitasDesc(pagina);
+        } catch (Exception e) {
+            throw new RuntimeException("Error retrieving most visited products: " + e.getMessage());
+        }
+    }
+
     /**
      * Obtiene productos por moneda.
      * 
@@ -165,36 +385,171 @@ public class ProductoServiceImpl implements ProductoService {
     public ProductoEntity createProducto(ProductoEntity productoEntity) {
         try {
             // Check if the product already exists
-            if (productoRepository.findAll().stream()
-                    .anyMatch(producto -> producto.getTitulo().equalsIgnoreCase(productoEntity.getTitulo()))) {
+            if (productoRepository.existsByTitulo(productoEntity.getTitulo())) {
                 throw new RuntimeException("Product already exists");
             }
-            return productoRepository.save(productoEntity);
+            productoEntity.setVersion(null);
+            ProductoEntity producto = productoRepository.save(productoEntity);
+            eventPublisher.publishEvent(new ProductoActualizadoEvent(this, producto));
+            return producto;
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Error creating product: Product already exists");
         } catch (Exception e) {
             throw new RuntimeException("Error creating product: " + e.getMessage());
         }
     }
 
     /**
-     * Actualiza un producto existente.
+     * Actualiza un producto existente con un único {@code $set} de los campos
+     * editables. Las visitas, el vendedor y la fecha de creación no se
+     * modifican. La entidad debe incluir la versión que se cargó, y la
+     * actualización solo se aplica si coincide con la guardada; así una
+     * edición obsoleta no sobrescribe cambios posteriores.
      * 
      * @param productoEntity Entidad de producto a actualizar.
      * @return Entidad de producto actualizada.
      */
     @Override
     public ProductoEntity updateProducto(ProductoEntity productoEntity) {
+        if (productoEntity.getVersion() == null) {
+            throw new IllegalArgumentException("Version is required");
+        }
         try {
-            // Check if the product exists
-            if (!productoRepository.existsById(productoEntity.getId())) {
-                throw new RuntimeException("Product not found");
+            return actualizar(productoEntity.getId(), productoEntity.getVersion(), productoEntity,
+                    CAMPOS_EDITABLES);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Error updating product: Product already exists");
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating product: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Actualiza solo los campos indicados de un producto con un único
+     * {@code $set}. Modificar el stock exige la versión, ya que las reservas
+     * lo cambian de forma concurrente.
+     * 
+     * @param id      Identificador del producto.
+     * @param campos  Valores de los campos a modificar.
+     * @param version Versión esperada del producto (null para no comprobarla).
+     * @return Entidad de producto actualizada.
+     */
+    @Override
+    public ProductoEntity patchProducto(String id, Map<String, Object> campos, Long version) {
+        for (String campo : campos.keySet()) {
+            if (!CAMPOS_EDITABLES.contains(campo)) {
+                throw new IllegalArgumentException("Field cannot be updated: " + campo);
             }
-            productoEntity.setFechaActualizacion(Instant.now().toString());
-            return productoRepository.save(productoEntity);
+        }
+        if (campos.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        if (version == null && campos.containsKey("stock")) {
+            throw new IllegalArgumentException("Version is required to update stock");
+        }
+
+        ProductoEntity valores;
+        try {
+            valores = objectMapper.convertValue(campos, ProductoEntity.class);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid field value: " + e.getMessage());
+        }
+
+        try {
+            return actualizar(id, version, valores, campos.keySet());
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Error updating product: Product already exists");
         } catch (Exception e) {
             throw new RuntimeException("Error updating product: " + e.getMessage());
         }
     }
 
+    /**
+     * Aplica un {@code $set} de los campos indicados, incrementa la versión y
+     * publica el producto actualizado.
+     */
+    private ProductoEntity actualizar(String id, Long version, ProductoEntity valores, Collection<String> campos) {
+        BeanWrapper origen = new BeanWrapperImpl(valores);
+        Update update = new Update();
+        for (String campo : campos) {
+            update.set(campo, origen.getPropertyValue(campo));
+        }
+        update.set("fechaActualizacion", Instant.now().toString());
+        update.inc("version", 1);
+
+        Query query = Query.query(Criteria.where("id").is(id));
+        if (version != null) {
+            query.addCriteria(Criteria.where("version").is(version));
+        }
+
+        ProductoEntity producto = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), ProductoEntity.class);
+        if (producto == null) {
+            if (version != null && productoRepository.existsById(id)) {
+                throw new OptimisticLockingFailureException("Product was modified by another request");
+            }
+            throw new RuntimeException("Product not found");
+        }
+
+        eventPublisher.publishEvent(new ProductoActualizadoEvent(this, producto));
+        return producto;
+    }
+
+    /**
+     * Descuenta unidades del stock de un producto con un único
+     * {@code findAndModify} condicionado a {@code stock >= cantidad}, de modo
+     * que las reservas simultáneas nunca dejan el stock en negativo. También
+     * incrementa la versión para que una edición cargada antes de la reserva
+     * no restaure las unidades reservadas.
+     * 
+     * @param id       Identificador del producto.
+     * @param cantidad Unidades a reservar.
+     * @return Producto con el stock ya descontado.
+     */
+    @Override
+    public ProductoEntity reservarStock(String id, int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+
+        ProductoEntity producto = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(id).and("stock").gte(cantidad)),
+                new Update().inc("stock", -cantidad).inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                ProductoEntity.class);
+        if (producto == null) {
+            if (!productoRepository.existsById(id)) {
+                throw new RuntimeException("Product not found");
+            }
+            throw new IllegalStateException("Insufficient stock");
+        }
+
+        cacheProductosService.invalidar(id);
+        return producto;
+    }
+
+    /**
+     * Devuelve al stock de un producto unidades reservadas previamente e
+     * incrementa su versión.
+     * 
+     * @param id       Identificador del producto.
+     * @param cantidad Unidades a devolver.
+     */
+    @Override
+    public void liberarStock(String id, int cantidad) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)),
+                    new Update().inc("stock", cantidad).inc("version", 1), ProductoEntity.class);
+            cacheProductosService.invalidar(id);
+        } catch (Exception e) {
+            throw new RuntimeException("Error releasing product stock: " + e.getMessage());
+        }
+    }
+
     /**
      * Elimina un producto por su identificador.
      * 
@@ -204,32 +559,98 @@ public class ProductoServiceImpl implements ProductoService {
     public void deleteProductoById(String id) {
         try {
             // Check if the product exists
-            if (!productoRepository.existsById(id)) {
-                throw new RuntimeException("Product not found");
-            }
+            ProductoEntity producto = productoRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
             productoRepository.deleteById(id);
+            eventPublisher.publishEvent(new ProductoEliminadoEvent(this, id, producto.getIdUsuario()));
         } catch (Exception e) {
             throw new RuntimeException("Error deleting product: " + e.getMessage());
         }
     }
 
     /**
-     * Cambia el estado de activo/inactivo de un producto.
+     * Cambia el estado de activo/inactivo de un producto con una única
+     * actualización atómica en el servidor.
      * 
      * @param id Identificador del producto.
      */
     @Override
     public void toggleStatus(String id) {
         try {
-            // Check if the product exists
-            ProductoEntity producto = productoRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-            // Toggle the status
-            producto.setActivo(!producto.getActivo());
-            productoRepository.save(producto);
+            ProductoEntity producto = mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id)),
+                    alternarActivo(), FindAndModifyOptions.options().returnNew(true), ProductoEntity.class);
+            if (producto == null) {
+                throw new RuntimeException("Product not found");
+            }
+            eventPublisher.publishEvent(new ProductoActualizadoEvent(this, producto));
         } catch (Exception e) {
             throw new RuntimeException("Error toggling product status: " + e.getMessage());
         }
     }
 
+    /**
+     * Cambia el estado de activo/inactivo de varios productos en una sola
+     * actualización.
+     * 
+     * @param ids Identificadores de los productos.
+     * @return Número de productos modificados.
+     */
+    @Override
+    public long toggleStatusProductos(List<String> ids) {
+        try {
+            long modificados = mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(ids)),
+                    alternarActivo(), ProductoEntity.class).getModifiedCount();
+            publicarActualizados(ids);
+            return modificados;
+        } catch (Exception e) {
+            throw new RuntimeException("Error toggling products status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Activa o desactiva varios productos en una sola actualización. Los
+     * productos que ya tienen ese estado no se modifican.
+     * 
+     * @param ids    Identificadores de los productos.
+     * @param activo Nuevo estado.
+     * @return Número de productos modificados.
+     */
+    @Override
+    public long setActivoProductos(List<String> ids, boolean activo) {
+        try {
+            Query query = Query.query(Criteria.where("id").in(ids).and("activo").ne(activo));
+            Update update = new Update()
+                    .set("activo", activo)
+                    .set("fechaActualizacion", Instant.now().toString())
+                    .inc("version", 1);
+            long modificados = mongoTemplate.updateMulti(query, update, ProductoEntity.class).getModifiedCount();
+            publicarActualizados(ids);
+            return modificados;
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating products status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Actualización que invierte {@code activo} en el servidor e incrementa la
+     * versión.
+     */
+    private static AggregationUpdate alternarActivo() {
+        return AggregationUpdate.update()
+                .set("activo").toValue(BooleanOperators.Not.not("activo"))
+                .set("fechaActualizacion").toValue(Instant.now().toString())
+                .set("version").toValue(ArithmeticOperators.Add
+                        .valueOf(ConditionalOperators.ifNull("version").then(0L)).add(1));
+    }
+
+    /**
+     * Publica el estado actual de los productos modificados por una
+     * actualización masiva.
+     */
+    private void publicarActualizados(List<String> ids) {
+        for (ProductoEntity producto : productoRepository.findAllById(ids)) {
+            eventPublisher.publishEvent(new ProductoActualizadoEvent(this, producto));
+        }
+    }
+
 }
@@ -4,26 +4,58 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.ProductoVisitaEntity;
+import com.arsansys.RemaPartners.models.events.VisitaRegistradaEvent;
 import com.arsansys.RemaPartners.repositories.ProductoVisitaRepository;
 import com.arsansys.RemaPartners.services.ProductoVisitaService;
 
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Implementación del servicio para la gestión de visitas a productos.
  */
 @Service
+@Slf4j
 public class ProductoVisitaServiceImpl implements ProductoVisitaService {
 
+    private static final String INDICE_PRODUCTO_PERIODO = "producto_periodo";
+
     @Autowired
     private ProductoVisitaRepository productoVisitaRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
-     * Registra una visita a un producto para un vendedor en el mes y año actual.
+     * Registra una visita a un producto para un vendedor en el mes y año actual
+     * con un único upsert {@code $inc} sobre el índice único (productoId, año,
+     * mes).
      * 
      * @param productoId Identificador del producto.
      * @param vendedorId Identificador del vendedor.
@@ -35,27 +67,145 @@ public class ProductoVisitaServiceImpl implements ProductoVisitaService {
         int año = ahora.getYear();
         int mes = ahora.getMonthValue();
 
-        Optional<ProductoVisitaEntity> visitaExistente = productoVisitaRepository
-                .findByProductoIdAndAñoAndMes(productoId, año, mes);
-
-        if (visitaExistente.isPresent()) {
-            ProductoVisitaEntity visita = visitaExistente.get();
-            visita.setCantidadVisitas(visita.getCantidadVisitas() + 1);
-            visita.setUltimaActualizacion(ahora);
-            return productoVisitaRepository.save(visita);
-        } else {
-            ProductoVisitaEntity nuevaVisita = ProductoVisitaEntity.builder()
-                    .productoId(productoId)
-                    .vendedorId(vendedorId)
-                    .año(año)
-                    .mes(mes)
-                    .cantidadVisitas(1)
-                    .ultimaActualizacion(ahora)
-                    .build();
-            return productoVisitaRepository.save(nuevaVisita);
+        ProductoVisitaEntity visita = mongoTemplate.findAndModify(
+                consultaMensual(productoId, año, mes),
+                incremento(vendedorId, 1, ahora),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ProductoVisitaEntity.class);
+
+        eventPublisher.publishEvent(new VisitaRegistradaEvent(this, productoId, vendedorId, año, mes));
+        return visita;
+    }
+
+    /**
+     * Registra varias visitas en una sola operación masiva de upserts
+     * {@code $inc}. La operación no es ordenada: si alguna escritura falla, las
+     * demás se aplican igualmente y se lanza {@link BulkOperationException} con
+     * la posición de las fallidas.
+     * 
+     * @param visitas Lista de visitas a sumar.
+     */
+    @Override
+    public void registrarVisitas(List<ProductoVisitaEntity> visitas) {
+        if (visitas.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductoVisitaEntity.class);
+        for (ProductoVisitaEntity visita : visitas) {
+            bulk.upsert(consultaMensual(visita.getProductoId(), visita.getAño(), visita.getMes()),
+                    incremento(visita.getVendedorId(), visita.getCantidadVisitas(), ahora));
+        }
+
+        Set<Integer> fallidas = Set.of();
+        BulkOperationException error = null;
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            fallidas = e.getErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+            error = e;
+        }
+
+        for (int i = 0; i < visitas.size(); i++) {
+            if (!fallidas.contains(i)) {
+                ProductoVisitaEntity visita = visitas.get(i);
+                eventPublisher.publishEvent(new VisitaRegistradaEvent(this, visita.getProductoId(),
+                        visita.getVendedorId(), visita.getAño(), visita.getMes()));
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Migra las visitas al arrancar la aplicación si aún no existe el índice
+     * único. Los upserts de {@link #registrarVisita} dependen de ese índice,
+     * por lo que si no se puede crear la aplicación no arranca.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararVisitas() {
+        boolean indiceCreado = mongoTemplate.indexOps(ProductoVisitaEntity.class).getIndexInfo().stream()
+                .anyMatch(indice -> INDICE_PRODUCTO_PERIODO.equals(indice.getName()) && indice.isUnique());
+        if (!indiceCreado) {
+            fusionarVisitasDuplicadas();
         }
     }
 
+    /**
+     * Fusiona los documentos mensuales duplicados de un mismo producto y crea el
+     * índice único (productoId, año, mes).
+     * 
+     * @return Número de documentos duplicados eliminados.
+     * @throws RuntimeException Si no se pueden fusionar o no se puede crear el
+     *                          índice.
+     */
+    @Override
+    public long fusionarVisitasDuplicadas() {
+        long eliminados = 0;
+        try {
+            String coleccion = mongoTemplate.getCollectionName(ProductoVisitaEntity.class);
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.group("productoId", "año", "mes")
+                            .count().as("documentos")
+                            .push("_id").as("ids"),
+                    Aggregation.match(Criteria.where("documentos").gt(1)))
+                    .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+            for (Document grupo : mongoTemplate.aggregate(aggregation, coleccion, Document.class)) {
+                List<?> ids = grupo.getList("ids", Object.class);
+                Object conservado = ids.get(0);
+
+                // Cada duplicado se retira y su contador, leído al retirarlo, se
+                // suma al primero: los $inc que llegan mientras tanto a cualquiera
+                // de los dos no se pierden, y si el proceso se interrumpe el
+                // siguiente arranque continúa con los duplicados que quedan
+                for (Object id : ids.subList(1, ids.size())) {
+                    Document duplicado = mongoTemplate.getCollection(coleccion)
+                            .findOneAndDelete(new Document("_id", id));
+                    if (duplicado == null) {
+                        continue;
+                    }
+                    Number visitas = duplicado.get("cantidadVisitas", Number.class);
+                    Document cambios = new Document("$inc",
+                            new Document("cantidadVisitas", visitas != null ? visitas.longValue() : 0L));
+                    if (duplicado.get("ultimaActualizacion") != null) {
+                        cambios.append("$max", new Document("ultimaActualizacion", duplicado.get("ultimaActualizacion")));
+                    }
+                    mongoTemplate.getCollection(coleccion).updateOne(new Document("_id", conservado), cambios);
+                    eliminados++;
+                }
+            }
+
+            mongoTemplate.indexOps(ProductoVisitaEntity.class).ensureIndex(new Index()
+                    .on("productoId", Sort.Direction.ASC)
+                    .on("año", Sort.Direction.ASC)
+                    .on("mes", Sort.Direction.ASC)
+                    .unique()
+                    .named(INDICE_PRODUCTO_PERIODO));
+
+            if (eliminados > 0) {
+                log.info("Merged product visit documents: {} duplicates removed", eliminados);
+            }
+        } catch (Exception e) {
+            log.error("Error merging duplicate product visits: {}", e.getMessage());
+            throw new RuntimeException("Error merging duplicate product visits: " + e.getMessage());
+        }
+        return eliminados;
+    }
+
+    private Query consultaMensual(String productoId, int año, int mes) {
+        return Query.query(Criteria.where("productoId").is(productoId).and("año").is(año).and("mes").is(mes));
+    }
+
+    private Update incremento(String vendedorId, long visitas, LocalDateTime ahora) {
+        return new Update()
+                .inc("cantidadVisitas", visitas)
+                .set("ultimaActualizacion", ahora)
+                .setOnInsert("vendedorId", vendedorId);
+    }
+
     /**
      * Obtiene todas las visitas de un producto.
      * 
@@ -0,0 +1,104 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.TicketStreamChatEntity;
+import com.arsansys.RemaPartners.services.TicketStreamChatService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de los tickets de conexión de eventos guardados en MongoDB.
+ * <p>
+ * El canje es un único {@code findAndRemove}, así que un ticket solo se puede
+ * usar una vez aunque llegue a la vez a varios nodos. La caducidad se
+ * comprueba al canjear; el índice TTL solo limpia los tickets olvidados.
+ */
+@Service
+@Slf4j
+public class TicketStreamChatServiceImpl implements TicketStreamChatService {
+
+    private static final String INDICE_CADUCIDAD = "fecha_creacion_ttl";
+
+    private static final int BYTES_TICKET = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.sse.ticket-segundos:30}")
+    private long ticketSegundos;
+
+    /**
+     * Crea el índice TTL de los tickets al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararIndices() {
+        try {
+            mongoTemplate.indexOps(TicketStreamChatEntity.class).ensureIndex(new Index()
+                    .on("fechaCreacion", Sort.Direction.ASC)
+                    .expire(Duration.ofSeconds(ticketSegundos))
+                    .named(INDICE_CADUCIDAD));
+        } catch (Exception e) {
+            log.warn("Could not create TTL index on chat stream tickets: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Emite un ticket aleatorio para un usuario y un chat.
+     *
+     * @param username Nombre del usuario.
+     * @param idChat   ID del chat.
+     * @return Ticket emitido.
+     */
+    @Override
+    public String emitir(String username, String idChat) {
+        byte[] bytes = new byte[BYTES_TICKET];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        mongoTemplate.insert(TicketStreamChatEntity.builder()
+                .id(ticket)
+                .username(username)
+                .idChat(idChat)
+                .fechaCreacion(LocalDateTime.now())
+                .build());
+        return ticket;
+    }
+
+    /**
+     * Canjea un ticket vigente del chat indicado y lo elimina.
+     *
+     * @param ticket Ticket recibido.
+     * @param idChat ID del chat al que se conecta el cliente.
+     * @return Nombre del usuario del ticket, o null si no es válido.
+     */
+    @Override
+    public String canjear(String ticket, String idChat) {
+        try {
+            TicketStreamChatEntity canjeado = mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(ticket)
+                    .and("idChat").is(idChat)
+                    .and("fechaCreacion").gte(LocalDateTime.now().minusSeconds(ticketSegundos))),
+                    TicketStreamChatEntity.class);
+            return canjeado != null ? canjeado.getUsername() : null;
+        } catch (Exception e) {
+            log.warn("Could not redeem chat stream ticket: {}", e.getMessage());
+            return null;
+        }
+    }
+}
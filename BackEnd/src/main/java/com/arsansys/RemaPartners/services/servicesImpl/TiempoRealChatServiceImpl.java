@@ -0,0 +1,284 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.arsansys.RemaPartners.models.entities.MensajeEntity;
+import com.arsansys.RemaPartners.models.events.MensajeEnviadoEvent;
+import com.arsansys.RemaPartners.services.ChatService;
+import com.arsansys.RemaPartners.services.TiempoRealChatService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación de la entrega en tiempo real con {@link SseEmitter}.
+ * <p>
+ * Las conexiones son asíncronas: mientras están inactivas no ocupan ningún
+ * hilo del servidor, así que un nodo puede mantener muchas abiertas. Los
+ * mensajes se reparten al recibir el evento {@link MensajeEnviadoEvent} que
+ * publica el servicio de chats, por lo que solo llegan a las conexiones de
+ * este nodo.
+ * <p>
+ * Cada conexión tiene su propia cola de eventos, que vacía una sola tarea a la
+ * vez en un hilo virtual: los envíos a una conexión no se solapan y llegan en
+ * orden, y una conexión atascada solo detiene su propia cola, sin ocupar los
+ * hilos de las peticiones ni el de las tareas programadas. Un latido periódico,
+ * que pasa por la misma cola, mantiene abiertas las conexiones a través de
+ * proxies y descarta las que se han cerrado.
+ */
+@Service
+@Slf4j
+public class TiempoRealChatServiceImpl implements TiempoRealChatService {
+
+    /**
+     * Número máximo de mensajes reenviados al reconectar.
+     */
+    private static final int MAX_MENSAJES_REENVIO = 100;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${chat.sse.max-pendientes:1000}")
+    private int maxPendientes;
+
+    private ExecutorService envios;
+
+    // Conexiones abiertas por chat
+    private final Map<String, Set<Conexion>> conexiones = new ConcurrentHashMap<>();
+
+    private final AtomicInteger numeroConexiones = new AtomicInteger();
+
+    /**
+     * Conexión abierta con su cola de eventos pendientes de enviar.
+     */
+    private final class Conexion {
+
+        private final String idChat;
+
+        private final SseEmitter emitter;
+
+        private final Queue<SseEmitter.SseEventBuilder> pendientes = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger numeroPendientes = new AtomicInteger();
+
+        // true mientras una tarea está vaciando la cola
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private volatile boolean cerrada;
+
+        private Conexion(String idChat, SseEmitter emitter) {
+            this.idChat = idChat;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Añade un evento a la cola y programa su envío si no hay ya una tarea
+         * vaciándola. Una conexión que acumula demasiados eventos se cierra; el
+         * cliente recupera los mensajes al reconectar.
+         */
+        private void encolar(SseEmitter.SseEventBuilder evento) {
+            if (cerrada) {
+                return;
+            }
+            if (numeroPendientes.incrementAndGet() > maxPendientes) {
+                log.debug("Closing stalled chat event connection for {}", idChat);
+                cerrar();
+                emitter.complete();
+                return;
+            }
+            pendientes.add(evento);
+            programar();
+        }
+
+        private void programar() {
+            if (enviando.compareAndSet(false, true)) {
+                try {
+                    envios.execute(this::vaciar);
+                } catch (RejectedExecutionException e) {
+                    // La aplicación se está deteniendo: el cliente recupera los mensajes al reconectar
+                    enviando.set(false);
+                }
+            }
+        }
+
+        private void vaciar() {
+            try {
+                SseEmitter.SseEventBuilder evento;
+                while (!cerrada && (evento = pendientes.poll()) != null) {
+                    numeroPendientes.decrementAndGet();
+                    try {
+                        emitter.send(evento);
+                    } catch (IOException | IllegalStateException e) {
+                        cerrar();
+                    }
+                }
+            } finally {
+                enviando.set(false);
+            }
+            // Un evento encolado justo después de vaciar la cola no se queda sin enviar
+            if (!cerrada && !pendientes.isEmpty()) {
+                programar();
+            }
+        }
+
+        private void cerrar() {
+            cerrada = true;
+            pendientes.clear();
+            eliminar(this);
+        }
+    }
+
+    /**
+     * Crea el ejecutor de envíos y registra el número de conexiones abiertas
+     * en Micrometer.
+     */
+    @PostConstruct
+    public void init() {
+        envios = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-sse-", 0).factory());
+        Gauge.builder("chat.sse.conexiones", numeroConexiones, AtomicInteger::get)
+                .description("Open chat SSE connections")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Detiene el ejecutor de envíos.
+     */
+    @PreDestroy
+    public void cerrar() {
+        envios.shutdownNow();
+    }
+
+    /**
+     * Abre una conexión de eventos con un chat y reenvía los mensajes
+     * posteriores al último recibido si el cliente está reconectando.
+     *
+     * @param idChat         ID del chat.
+     * @param ultimoEventoId Secuencia del último mensaje recibido, o null.
+     * @return Conexión de eventos.
+     */
+    @Override
+    public SseEmitter suscribir(String idChat, String ultimoEventoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Conexion conexion = new Conexion(idChat, emitter);
+
+        // Los mensajes perdidos se encolan antes de registrar la conexión, así
+        // que llegan antes que los nuevos
+        if (ultimoEventoId != null) {
+            try {
+                long desde = Long.parseLong(ultimoEventoId);
+                Slice<MensajeEntity> perdidos = chatService.getMensajesPosteriores(idChat, desde,
+                        MAX_MENSAJES_REENVIO);
+                for (MensajeEntity mensaje : perdidos.getContent()) {
+                    conexion.encolar(evento(mensaje));
+                }
+            } catch (NumberFormatException e) {
+                // ID de evento desconocido: el cliente recarga el historial
+            }
+        }
+
+        conexiones.compute(idChat, (id, actuales) -> {
+            Set<Conexion> delChat = actuales != null ? actuales : ConcurrentHashMap.newKeySet();
+            delChat.add(conexion);
+            return delChat;
+        });
+        numeroConexiones.incrementAndGet();
+
+        Runnable cerrar = conexion::cerrar;
+        emitter.onCompletion(cerrar);
+        emitter.onTimeout(cerrar);
+        emitter.onError(error -> cerrar.run());
+        return emitter;
+    }
+
+    /**
+     * Obtiene el número de conexiones abiertas en este nodo.
+     *
+     * @return Número de conexiones.
+     */
+    @Override
+    public int getNumeroConexiones() {
+        return numeroConexiones.get();
+    }
+
+    /**
+     * Encola un mensaje nuevo en las conexiones abiertas con su chat. El hilo
+     * de la petición no espera a ningún envío.
+     *
+     * @param event Evento de mensaje enviado.
+     */
+    @EventListener
+    public void onMensajeEnviado(MensajeEnviadoEvent event) {
+        Set<Conexion> delChat = conexiones.get(event.getChat().getId());
+        if (delChat == null) {
+            return;
+        }
+        // Cada conexión necesita su propio evento: el constructor se modifica al enviarlo
+        for (Conexion conexion : List.copyOf(delChat)) {
+            conexion.encolar(evento(event.getMensaje()));
+        }
+    }
+
+    /**
+     * Encola un latido en todas las conexiones para mantenerlas abiertas y
+     * descartar las que ya no responden. Solo encola: los envíos los hace el
+     * ejecutor de envíos, así que una conexión atascada no retrasa las tareas
+     * programadas.
+     */
+    @Scheduled(fixedDelayString = "${chat.sse.latido-ms:25000}")
+    public void enviarLatido() {
+        conexiones.forEach((idChat, delChat) -> {
+            for (Conexion conexion : List.copyOf(delChat)) {
+                conexion.encolar(SseEmitter.event().comment("ping"));
+            }
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder evento(MensajeEntity mensaje) {
+        SseEmitter.SseEventBuilder evento = SseEmitter.event().name(EVENTO_MENSAJE).data(mensaje);
+        if (mensaje.getSecuencia() != null) {
+            evento.id(String.valueOf(mensaje.getSecuencia()));
+        }
+        return evento;
+    }
+
+    /**
+     * Retira una conexión cerrada. El contenedor completa la respuesta cuando
+     * falla un envío, así que aquí solo se deja de usar.
+     */
+    private void eliminar(Conexion conexion) {
+        conexiones.computeIfPresent(conexion.idChat, (id, delChat) -> {
+            if (delChat.remove(conexion)) {
+                numeroConexiones.decrementAndGet();
+            }
+            return delChat.isEmpty() ? null : delChat;
+        });
+    }
+}
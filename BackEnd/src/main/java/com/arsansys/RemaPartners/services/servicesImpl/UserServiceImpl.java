@@ -1,6 +1,9 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -85,6 +88,21 @@ public class UserServiceImpl implements UserService {
         return userRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Obtiene los nombres de varios usuarios leyendo solo ese campo.
+     * 
+     * @param ids Identificadores de los usuarios.
+     * @return Nombre de cada usuario encontrado por su identificador.
+     */
+    @Override
+    public Map<String, String> getUsernamesByIds(Collection<String> ids) {
+        Map<String, String> nombres = new HashMap<>();
+        for (UserEntity user : userRepository.findUsernamesByIdIn(ids)) {
+            nombres.put(user.getId(), user.getUsername());
+        }
+        return nombres;
+    }
+
     /**
      * Obtiene un usuario por su nombre de usuario.
      * 
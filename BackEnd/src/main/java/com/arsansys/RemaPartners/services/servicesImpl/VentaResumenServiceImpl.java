@@ -0,0 +1,279 @@
+package com.arsansys.RemaPartners.services.servicesImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
+import com.arsansys.RemaPartners.models.enums.EPeriodoVenta;
+import com.arsansys.RemaPartners.repositories.FacturaRepository;
+import com.arsansys.RemaPartners.services.VentaResumenService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementación del servicio de resúmenes de ventas.
+ * <p>
+ * Cada factura se acumula en seis resúmenes: global mensual, global diario,
+ * vendedor mensual, comprador mensual, producto mensual y producto anual.
+ */
+@Service
+@Slf4j
+public class VentaResumenServiceImpl implements VentaResumenService {
+
+    private static final int TAMAÑO_LOTE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FacturaRepository facturaRepository;
+
+    /**
+     * Acumula una factura nueva en los resúmenes de ventas.
+     * 
+     * @param factura Factura emitida.
+     */
+    @Override
+    public void registrarFactura(FacturaEntity factura) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VentaResumenEntity.class);
+            int operaciones = acumular(bulk, factura, 1);
+            if (operaciones > 0) {
+                bulk.execute();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating sales summaries: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sustituye en los resúmenes los datos anteriores de una factura por los
+     * actualizados.
+     * 
+     * @param anterior    Factura antes de la actualización.
+     * @param actualizada Factura después de la actualización.
+     */
+    @Override
+    public void actualizarFactura(FacturaEntity anterior, FacturaEntity actualizada) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VentaResumenEntity.class);
+            int operaciones = acumular(bulk, anterior, -1) + acumular(bulk, actualizada, 1);
+            if (operaciones > 0) {
+                bulk.execute();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating sales summaries: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Regenera todos los resúmenes de ventas. La agrupación de las facturas se
+     * realiza en MongoDB y solo se reciben los resúmenes resultantes.
+     * <p>
+     * La colección no se vacía: cada resumen se sobrescribe con un
+     * {@code upsert} y después se eliminan solo los que existían antes y ya no
+     * corresponden a ninguna factura. Así los paneles nunca leen resúmenes
+     * vacíos o a medias, y los resúmenes que crean las facturas registradas
+     * durante la reconstrucción se conservan.
+     * 
+     * @return Mapa con el número de facturas procesadas y de resúmenes generados.
+     */
+    @Override
+    public Map<String, Long> reconstruirResumenes() {
+        try {
+            Query existentes = new Query();
+            existentes.fields().include("_id");
+            Set<String> obsoletos = new HashSet<>();
+            for (VentaResumenEntity resumen : mongoTemplate.find(existentes, VentaResumenEntity.class)) {
+                obsoletos.add(resumen.getId());
+            }
+
+            List<VentaResumenEntity> resumenes = new ArrayList<>();
+            resumenes.addAll(agrupar(EAmbitoVenta.GLOBAL, EPeriodoVenta.MENSUAL));
+            resumenes.addAll(agrupar(EAmbitoVenta.GLOBAL, EPeriodoVenta.DIARIO));
+            resumenes.addAll(agrupar(EAmbitoVenta.VENDEDOR, EPeriodoVenta.MENSUAL));
+            resumenes.addAll(agrupar(EAmbitoVenta.COMPRADOR, EPeriodoVenta.MENSUAL));
+            resumenes.addAll(agrupar(EAmbitoVenta.PRODUCTO, EPeriodoVenta.MENSUAL));
+            resumenes.addAll(agrupar(EAmbitoVenta.PRODUCTO, EPeriodoVenta.ANUAL));
+
+            // Los resúmenes globales mensuales cuentan todas las facturas con fecha
+            long facturas = 0;
+            for (VentaResumenEntity resumen : resumenes) {
+                if (resumen.getAmbito() == EAmbitoVenta.GLOBAL && resumen.getDia() == 0) {
+                    facturas += resumen.getCantidadFacturas();
+                }
+            }
+
+            for (int i = 0; i < resumenes.size(); i += TAMAÑO_LOTE) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                        VentaResumenEntity.class);
+                for (VentaResumenEntity resumen : resumenes.subList(i, Math.min(i + TAMAÑO_LOTE, resumenes.size()))) {
+                    bulk.upsert(Query.query(Criteria.where("_id").is(resumen.getId())), sustitucion(resumen));
+                    obsoletos.remove(resumen.getId());
+                }
+                bulk.execute();
+            }
+
+            List<String> idsObsoletos = new ArrayList<>(obsoletos);
+            for (int i = 0; i < idsObsoletos.size(); i += TAMAÑO_LOTE) {
+                mongoTemplate.remove(Query.query(Criteria.where("_id")
+                        .in(idsObsoletos.subList(i, Math.min(i + TAMAÑO_LOTE, idsObsoletos.size())))),
+                        VentaResumenEntity.class);
+            }
+
+            log.info("Sales summaries rebuilt: {} invoices, {} summaries", facturas, resumenes.size());
+
+            Map<String, Long> resultado = new HashMap<>();
+            resultado.put("facturas", facturas);
+            resultado.put("resumenes", (long) resumenes.size());
+            return resultado;
+        } catch (Exception e) {
+            throw new RuntimeException("Error rebuilding sales summaries: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Crea el {@code $set} que sustituye los valores de un resumen por los
+     * reconstruidos.
+     */
+    private Update sustitucion(VentaResumenEntity resumen) {
+        Document documento = new Document();
+        mongoTemplate.getConverter().write(resumen, documento);
+        documento.remove("_id");
+        documento.remove("_class");
+
+        Update update = new Update();
+        documento.forEach(update::set);
+        return update;
+    }
+
+    /**
+     * Agrupa todas las facturas en el servidor para un ámbito y periodo y asigna
+     * el identificador a cada resumen.
+     * 
+     * @param ambito  Ámbito de agrupación.
+     * @param periodo Granularidad temporal.
+     * @return Lista de resúmenes listos para insertar.
+     */
+    private List<VentaResumenEntity> agrupar(EAmbitoVenta ambito, EPeriodoVenta periodo) {
+        List<VentaResumenEntity> resumenes = facturaRepository.agruparVentas(ambito, null, null, null, periodo);
+        for (VentaResumenEntity resumen : resumenes) {
+            resumen.setId(clave(ambito, resumen.getIdAmbito(), resumen.getAño(), resumen.getMes(),
+                    resumen.getDia(), resumen.getMoneda()));
+        }
+        return resumenes;
+    }
+
+    /**
+     * Añade a la operación masiva un upsert con $inc por cada resumen afectado por
+     * la factura.
+     * 
+     * @param bulk    Operación masiva.
+     * @param factura Factura a acumular.
+     * @param signo   1 para sumar la factura, -1 para restarla.
+     * @return Número de operaciones añadidas.
+     */
+    private int acumular(BulkOperations bulk, FacturaEntity factura, int signo) {
+        List<VentaResumenEntity> resumenes = resumenesDe(factura);
+        for (VentaResumenEntity resumen : resumenes) {
+            Update update = new Update()
+                    .inc("cantidadFacturas", signo * resumen.getCantidadFacturas())
+                    .inc("cantidadUnidades", signo * resumen.getCantidadUnidades())
+                    .inc("importeCentimos", signo * resumen.getImporteCentimos())
+                    .inc("importeEurCentimos", signo * resumen.getImporteEurCentimos())
+                    .setOnInsert("ambito", resumen.getAmbito())
+                    .setOnInsert("idAmbito", resumen.getIdAmbito())
+                    .setOnInsert("año", resumen.getAño())
+                    .setOnInsert("mes", resumen.getMes())
+                    .setOnInsert("dia", resumen.getDia())
+                    .setOnInsert("moneda", resumen.getMoneda());
+
+            if (resumen.getAmbito() == EAmbitoVenta.PRODUCTO) {
+                update.set("idVendedor", resumen.getIdVendedor());
+                if (signo > 0) {
+                    update.set("tituloProducto", resumen.getTituloProducto());
+                }
+            }
+            if (signo > 0) {
+                update.max("ultimaFechaEmision", resumen.getUltimaFechaEmision());
+            }
+
+            bulk.upsert(Query.query(Criteria.where("_id").is(resumen.getId())), update);
+        }
+        return resumenes.size();
+    }
+
+    /**
+     * Construye los resúmenes unitarios que aporta una factura.
+     * 
+     * @param factura Factura.
+     * @return Lista de resúmenes con los importes de la factura.
+     */
+    private List<VentaResumenEntity> resumenesDe(FacturaEntity factura) {
+        List<VentaResumenEntity> resumenes = new ArrayList<>(6);
+        LocalDateTime fecha = factura.getFechaEmision();
+        if (fecha == null) {
+            return resumenes;
+        }
+
+        int año = fecha.getYear();
+        int mes = fecha.getMonthValue();
+
+        resumenes.add(resumen(factura, EAmbitoVenta.GLOBAL, VentaResumenEntity.ID_GLOBAL, año, mes, 0));
+        resumenes.add(resumen(factura, EAmbitoVenta.GLOBAL, VentaResumenEntity.ID_GLOBAL, año, mes,
+                fecha.getDayOfMonth()));
+        if (factura.getIdVendedor() != null) {
+            resumenes.add(resumen(factura, EAmbitoVenta.VENDEDOR, factura.getIdVendedor(), año, mes, 0));
+        }
+        if (factura.getIdComprador() != null) {
+            resumenes.add(resumen(factura, EAmbitoVenta.COMPRADOR, factura.getIdComprador(), año, mes, 0));
+        }
+        if (factura.getIdProducto() != null) {
+            resumenes.add(resumen(factura, EAmbitoVenta.PRODUCTO, factura.getIdProducto(), año, mes, 0));
+            resumenes.add(resumen(factura, EAmbitoVenta.PRODUCTO, factura.getIdProducto(), año, 0, 0));
+        }
+        return resumenes;
+    }
+
+    private VentaResumenEntity resumen(FacturaEntity factura, EAmbitoVenta ambito, String idAmbito, int año,
+            int mes, int dia) {
+        boolean producto = ambito == EAmbitoVenta.PRODUCTO;
+        return VentaResumenEntity.builder()
+                .id(clave(ambito, idAmbito, año, mes, dia, factura.getMoneda()))
+                .ambito(ambito)
+                .idAmbito(idAmbito)
+                .año(año)
+                .mes(mes)
+                .dia(dia)
+                .moneda(factura.getMoneda())
+                .idVendedor(producto ? factura.getIdVendedor() : null)
+                .tituloProducto(producto ? factura.getTituloProducto() : null)
+                .cantidadFacturas(1)
+                .cantidadUnidades(factura.getCantidad() != null ? factura.getCantidad() : 0)
+                .importeCentimos(factura.getImporteTotalCentimos() != null ? factura.getImporteTotalCentimos() : 0)
+                .importeEurCentimos(factura.getImporteEurCentimos() != null ? factura.getImporteEurCentimos() : 0)
+                .ultimaFechaEmision(factura.getFechaEmision())
+                .build();
+    }
+
+    private String clave(EAmbitoVenta ambito, String idAmbito, int año, int mes, int dia, String moneda) {
+        return ambito + "|" + idAmbito + "|" + año + "|" + mes + "|" + dia + "|" + moneda;
+    }
+}
@@ -1,32 +1,34 @@
 package com.arsansys.RemaPartners.services.servicesImpl;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.arsansys.RemaPartners.models.entities.FacturaEntity;
 import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+import com.arsansys.RemaPartners.models.enums.EAmbitoVenta;
 import com.arsansys.RemaPartners.repositories.FacturaRepository;
-import com.arsansys.RemaPartners.services.FacturaService;
+import com.arsansys.RemaPartners.repositories.VentaResumenRepository;
 import com.arsansys.RemaPartners.services.ProductoService;
 import com.arsansys.RemaPartners.services.VentasDashboardService;
-import com.arsansys.RemaPartners.services.CurrencyConversionService;
+import com.arsansys.RemaPartners.services.ventas.AgregadorVentas;
 
 /**
  * Implementación del servicio para la obtención de estadísticas y dashboard de
  * ventas.
+ * <p>
+ * Las estadísticas se calculan a partir de los resúmenes precalculados de la
+ * colección {@code ventas_resumen}, sin recorrer las facturas.
  */
 @Service
 public class VentasDashboardServiceImpl implements VentasDashboardService {
 
-    @Autowired
-    private FacturaService facturaService;
-
     @Autowired
     private ProductoService productoService;
 
@@ -34,7 +36,7 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
     private FacturaRepository facturaRepository;
 
     @Autowired
-    private CurrencyConversionService currencyConversionService;
+    private VentaResumenRepository ventaResumenRepository;
 
     // Target currency constant
     private static final String TARGET_CURRENCY = "EUR";
@@ -49,74 +51,27 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
     public Map<String, Object> getEstadisticasGenerales(int year) {
         Map<String, Object> stats = new HashMap<>();
 
-        // Obtener todas las facturas del sistema
-        List<FacturaEntity> todasFacturas = facturaRepository.findAll();
-
-        // Filtrar por año
-        List<FacturaEntity> facturasAño = todasFacturas.stream()
-                .filter(f -> f.getFechaEmision().getYear() == year)
-                .collect(Collectors.toList());
-
-        // Estadísticas generales
-        int totalVentas = facturasAño.size();
-        int importeTotal = facturasAño.stream()
-                .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                .sum();
-
-        // Ventas por mes
-        Map<String, Map<String, Integer>> ventasPorMes = new HashMap<>();
-        for (int mes = 1; mes <= 12; mes++) {
-            final int mesFinal = mes;
-            List<FacturaEntity> facturasMes = facturasAño.stream()
-                    .filter(f -> f.getFechaEmision().getMonthValue() == mesFinal)
-                    .collect(Collectors.toList());
+        // Resúmenes mensuales globales del año
+        List<VentaResumenEntity> resumenesMes = ventaResumenRepository.findByAmbitoAndIdAmbitoAndAñoAndDia(
+                EAmbitoVenta.GLOBAL, VentaResumenEntity.ID_GLOBAL, year, 0);
 
-            Map<String, Integer> datosMes = new HashMap<>();
-            datosMes.put("cantidad", facturasMes.size());
-            datosMes.put("importe", facturasMes.stream()
-                    .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                    .sum());
+        // Productos más vendidos a partir de los resúmenes anuales de producto
+        List<VentaResumenEntity> resumenesProducto = ventaResumenRepository
+                .findByAmbitoAndAñoAndMes(EAmbitoVenta.PRODUCTO, year, 0);
 
-            ventasPorMes.put(String.valueOf(mes), datosMes);
+        AgregadorVentas agregador = new AgregadorVentas(false);
+        for (VentaResumenEntity resumen : resumenesMes) {
+            agregador.acumular(resumen);
         }
-
-        // Productos más vendidos
-        Map<String, Map<String, Object>> productosCantidad = new HashMap<>();
-        for (FacturaEntity factura : facturasAño) {
-            String idProducto = factura.getIdProducto();
-            int cantidad = factura.getCantidad();
-            int importe = factura.getImporteTotalCentimos();
-
-            productosCantidad.putIfAbsent(idProducto, new HashMap<>());
-            Map<String, Object> datosProducto = productosCantidad.get(idProducto);
-
-            datosProducto.put("id", idProducto);
-            datosProducto.put("titulo", factura.getTituloProducto());
-            datosProducto.putIfAbsent("cantidadVentas", 0);
-            datosProducto.putIfAbsent("importeTotal", 0);
-
-            int cantidadActual = (Integer) datosProducto.get("cantidadVentas");
-            int importeActual = (Integer) datosProducto.get("importeTotal");
-
-            datosProducto.put("cantidadVentas", cantidadActual + cantidad);
-            datosProducto.put("importeTotal", importeActual + importe);
+        for (VentaResumenEntity resumen : resumenesProducto) {
+            agregador.acumularGrupo(resumen.getIdAmbito(), resumen);
         }
 
-        // Obtener los 5 productos más vendidos
-        List<Map<String, Object>> productosTopVentas = productosCantidad.values().stream()
-                .sorted((p1, p2) -> {
-                    Integer c1 = (Integer) p1.get("cantidadVentas");
-                    Integer c2 = (Integer) p2.get("cantidadVentas");
-                    return c2.compareTo(c1);
-                })
-                .limit(5)
-                .collect(Collectors.toList());
-
         // Construir el objeto de respuesta
-        stats.put("totalVentas", totalVentas);
-        stats.put("importeTotalVentas", importeTotal);
-        stats.put("ventasPorMes", ventasPorMes);
-        stats.put("productosTopVentas", productosTopVentas);
+        stats.put("totalVentas", (int) agregador.getTotalFacturas());
+        stats.put("importeTotalVentas", (int) agregador.getTotalImporte());
+        stats.put("ventasPorMes", ventasPorMes(agregador, false));
+        stats.put("productosTopVentas", productosTopVentas(agregador, false));
 
         return stats;
     }
@@ -138,51 +93,36 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
                 throw new RuntimeException("Producto no encontrado");
             }
 
-            // Obtener todas las facturas del producto
-            List<FacturaEntity> facturasProducto = facturaService.getFacturasByIdProducto(productoId);
-
-            // Calcular totales
-            int totalVentas = facturasProducto.stream()
-                    .mapToInt(FacturaEntity::getCantidad)
-                    .sum();
-            int importeTotal = facturasProducto.stream()
-                    .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                    .sum();
-
-            // Agrupar ventas por mes y año
-            List<Map<String, Object>> ventasPorMes = new ArrayList<>();
-
-            // Usar un mapa auxiliar para agrupar por año/mes
-            Map<String, Map<String, Object>> ventasPorMesYAño = new HashMap<>();
-
-            for (FacturaEntity factura : facturasProducto) {
-                int año = factura.getFechaEmision().getYear();
-                int mes = factura.getFechaEmision().getMonthValue();
-                String key = año + "-" + mes;
-
-                ventasPorMesYAño.putIfAbsent(key, new HashMap<>());
-                Map<String, Object> datosMes = ventasPorMesYAño.get(key);
+            // Resúmenes mensuales del producto de todos los años
+            List<VentaResumenEntity> resumenes = ventaResumenRepository
+                    .findByAmbitoAndIdAmbitoAndMesGreaterThanAndDia(EAmbitoVenta.PRODUCTO, productoId, 0, 0);
 
-                datosMes.put("mes", mes);
-                datosMes.put("año", año);
-                datosMes.putIfAbsent("cantidad", 0);
-                datosMes.putIfAbsent("importe", 0);
-
-                int cantidadActual = (Integer) datosMes.get("cantidad");
-                int importeActual = (Integer) datosMes.get("importe");
-
-                datosMes.put("cantidad", cantidadActual + factura.getCantidad());
-                datosMes.put("importe", importeActual + factura.getImporteTotalCentimos());
-                datosMes.put("ultimaActualizacion", factura.getFechaEmision().toString());
+            // Agrupar por año/mes (un resumen por moneda)
+            AgregadorVentas agregador = new AgregadorVentas(false);
+            for (VentaResumenEntity resumen : resumenes) {
+                agregador.acumular(resumen);
+                agregador.acumularGrupo(resumen.getAño() + "-" + resumen.getMes(), resumen);
             }
 
-            // Convertir el mapa a una lista para la respuesta
-            ventasPorMes = new ArrayList<>(ventasPorMesYAño.values());
+            List<Map<String, Object>> ventasPorMes = new ArrayList<>(agregador.getNumeroGrupos());
+            for (int i = 0; i < agregador.getNumeroGrupos(); i++) {
+                int grupo = agregador.getGrupo(i);
+
+                Map<String, Object> datosMes = new HashMap<>();
+                datosMes.put("mes", agregador.getMesGrupo(grupo));
+                datosMes.put("año", agregador.getAñoGrupo(grupo));
+                datosMes.put("cantidad", (int) agregador.getUnidadesGrupo(grupo));
+                datosMes.put("importe", (int) agregador.getImporteGrupo(grupo));
+                if (agregador.getUltimaFechaGrupo(grupo) != null) {
+                    datosMes.put("ultimaActualizacion", agregador.getUltimaFechaGrupo(grupo).toString());
+                }
+                ventasPorMes.add(datosMes);
+            }
 
             // Construir el objeto de respuesta
             stats.put("producto", producto);
-            stats.put("totalVentas", totalVentas);
-            stats.put("importeTotal", importeTotal);
+            stats.put("totalVentas", (int) agregador.getTotalUnidades());
+            stats.put("importeTotal", (int) agregador.getTotalImporte());
             stats.put("ventasPorMes", ventasPorMes);
 
         } catch (Exception e) {
@@ -204,44 +144,37 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            // Obtener todas las facturas
-            List<FacturaEntity> todasFacturas = facturaRepository.findAll();
-
-            // Filtrar por año y mes
-            List<FacturaEntity> facturasMes = todasFacturas.stream()
-                    .filter(f -> f.getFechaEmision().getYear() == año &&
-                            f.getFechaEmision().getMonthValue() == mes)
-                    .collect(Collectors.toList());
-
-            // Calcular totales
-            int totalVentas = facturasMes.size();
-            int importeTotal = facturasMes.stream()
-                    .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                    .sum();
+            // Resúmenes diarios globales del mes
+            List<VentaResumenEntity> resumenesDia = ventaResumenRepository
+                    .findByAmbitoAndIdAmbitoAndAñoAndMesAndDiaGreaterThan(EAmbitoVenta.GLOBAL,
+                            VentaResumenEntity.ID_GLOBAL, año, mes, 0);
+
+            AgregadorVentas agregador = new AgregadorVentas(false);
+            for (VentaResumenEntity resumen : resumenesDia) {
+                agregador.acumular(resumen);
+            }
 
             // Agrupar por día del mes
             Map<Integer, Map<String, Integer>> ventasPorDia = new HashMap<>();
-            for (FacturaEntity factura : facturasMes) {
-                int dia = factura.getFechaEmision().getDayOfMonth();
-
-                ventasPorDia.putIfAbsent(dia, new HashMap<>());
-                Map<String, Integer> datosDia = ventasPorDia.get(dia);
-
-                datosDia.putIfAbsent("cantidad", 0);
-                datosDia.putIfAbsent("importe", 0);
-
-                int cantidadActual = datosDia.get("cantidad");
-                int importeActual = datosDia.get("importe");
-
-                datosDia.put("cantidad", cantidadActual + factura.getCantidad());
-                datosDia.put("importe", importeActual + factura.getImporteTotalCentimos());
+            for (int dia = 1; dia <= 31; dia++) {
+                if (agregador.tieneVentasDia(dia)) {
+                    Map<String, Integer> datosDia = new HashMap<>();
+                    datosDia.put("cantidad", (int) agregador.getUnidadesDia(dia));
+                    datosDia.put("importe", (int) agregador.getImporteDia(dia));
+                    ventasPorDia.put(dia, datosDia);
+                }
             }
 
+            // Facturas del mes mediante consulta por rango de fechas
+            LocalDateTime inicioMes = LocalDateTime.of(año, mes, 1, 0, 0);
+            List<FacturaEntity> facturasMes = facturaRepository
+                    .findByFechaEmisionGreaterThanEqualAndFechaEmisionLessThan(inicioMes, inicioMes.plusMonths(1));
+
             // Construir el objeto de respuesta
             stats.put("año", año);
             stats.put("mes", mes);
-            stats.put("totalVentas", totalVentas);
-            stats.put("importeTotal", importeTotal);
+            stats.put("totalVentas", (int) agregador.getTotalFacturas());
+            stats.put("importeTotal", (int) agregador.getTotalImporte());
             stats.put("ventasPorDia", ventasPorDia);
             stats.put("facturas", facturasMes);
 
@@ -265,90 +198,28 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            // Obtener facturas del usuario como vendedor
-            List<FacturaEntity> facturasVendedor = facturaService.getFacturasByIdVendedor(userId);
-
-            // Filtrar por año
-            List<FacturaEntity> facturasAño = facturasVendedor.stream()
-                    .filter(f -> f.getFechaEmision().getYear() == year)
-                    .collect(Collectors.toList());
-
-            // Calcular totales (convertidos a EUR)
-            int totalVentas = facturasAño.stream()
-                    .mapToInt(FacturaEntity::getCantidad)
-                    .sum();
-
-            int importeTotalVentas = facturasAño.stream()
-                    .mapToInt(factura -> currencyConversionService.convertCurrency(
-                            factura.getImporteTotalCentimos(),
-                            factura.getMoneda(),
-                            TARGET_CURRENCY))
-                    .sum();
-
-            // Ventas por mes (convertidas a EUR)
-            Map<String, Map<String, Integer>> ventasPorMes = new HashMap<>();
-            for (int mes = 1; mes <= 12; mes++) {
-                final int mesFinal = mes;
-                List<FacturaEntity> facturasMes = facturasAño.stream()
-                        .filter(f -> f.getFechaEmision().getMonthValue() == mesFinal)
-                        .collect(Collectors.toList());
-
-                Map<String, Integer> datosMes = new HashMap<>();
-                datosMes.put("cantidad", facturasMes.stream().mapToInt(FacturaEntity::getCantidad).sum());
-
-                // Convert each invoice amount to EUR before summing
-                datosMes.put("importe", facturasMes.stream()
-                        .mapToInt(factura -> currencyConversionService.convertCurrency(
-                                factura.getImporteTotalCentimos(),
-                                factura.getMoneda(),
-                                TARGET_CURRENCY))
-                        .sum());
-
-                ventasPorMes.put(String.valueOf(mes), datosMes);
+            // Resúmenes mensuales del vendedor (uno por mes y moneda)
+            List<VentaResumenEntity> resumenesMes = ventaResumenRepository.findByAmbitoAndIdAmbitoAndAñoAndDia(
+                    EAmbitoVenta.VENDEDOR, userId, year, 0);
+
+            // Productos más vendidos del vendedor
+            List<VentaResumenEntity> resumenesProducto = ventaResumenRepository
+                    .findByAmbitoAndIdVendedorAndAñoAndMes(EAmbitoVenta.PRODUCTO, userId, year, 0);
+
+            // Importes en EUR según la tasa de cada factura
+            AgregadorVentas agregador = new AgregadorVentas(true);
+            for (VentaResumenEntity resumen : resumenesMes) {
+                agregador.acumular(resumen);
             }
-
-            // Productos más vendidos
-            Map<String, Map<String, Object>> productosCantidad = new HashMap<>();
-            for (FacturaEntity factura : facturasAño) {
-                String idProducto = factura.getIdProducto();
-                int cantidad = factura.getCantidad();
-                // Convert invoice amount to EUR
-                int importe = currencyConversionService.convertCurrency(
-                        factura.getImporteTotalCentimos(),
-                        factura.getMoneda(),
-                        TARGET_CURRENCY);
-
-                productosCantidad.putIfAbsent(idProducto, new HashMap<>());
-                Map<String, Object> datosProducto = productosCantidad.get(idProducto);
-
-                datosProducto.put("id", idProducto);
-                datosProducto.put("titulo", factura.getTituloProducto());
-                datosProducto.putIfAbsent("cantidadVentas", 0);
-                datosProducto.putIfAbsent("importeTotal", 0);
-                datosProducto.putIfAbsent("moneda", TARGET_CURRENCY); // Always EUR now
-
-                int cantidadActual = (Integer) datosProducto.get("cantidadVentas");
-                int importeActual = (Integer) datosProducto.get("importeTotal");
-
-                datosProducto.put("cantidadVentas", cantidadActual + cantidad);
-                datosProducto.put("importeTotal", importeActual + importe);
+            for (VentaResumenEntity resumen : resumenesProducto) {
+                agregador.acumularGrupo(resumen.getIdAmbito(), resumen);
             }
 
-            // Obtener los 5 productos más vendidos
-            List<Map<String, Object>> productosTopVentas = productosCantidad.values().stream()
-                    .sorted((p1, p2) -> {
-                        Integer c1 = (Integer) p1.get("cantidadVentas");
-                        Integer c2 = (Integer) p2.get("cantidadVentas");
-                        return c2.compareTo(c1);
-                    })
-                    .limit(5)
-                    .collect(Collectors.toList());
-
             // Construir el objeto de respuesta
-            stats.put("totalVentas", totalVentas);
-            stats.put("importeTotalVentas", importeTotalVentas);
-            stats.put("ventasPorMes", ventasPorMes);
-            stats.put("productosTopVentas", productosTopVentas);
+            stats.put("totalVentas", (int) agregador.getTotalUnidades());
+            stats.put("importeTotalVentas", (int) agregador.getTotalImporte());
+            stats.put("ventasPorMes", ventasPorMes(agregador, true));
+            stats.put("productosTopVentas", productosTopVentas(agregador, true));
             stats.put("moneda", TARGET_CURRENCY); // Add information about the currency used
         } catch (Exception e) {
             throw new RuntimeException("Error al obtener estadísticas de ventas del usuario: " + e.getMessage());
@@ -370,43 +241,19 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            // Obtener facturas del usuario como comprador
-            List<FacturaEntity> facturasComprador = facturaService.getFacturasByIdComprador(userId);
-
-            // Filtrar por año
-            List<FacturaEntity> facturasAño = facturasComprador.stream()
-                    .filter(f -> f.getFechaEmision().getYear() == year)
-                    .collect(Collectors.toList());
-
-            // Calcular totales
-            int totalCompras = facturasAño.stream()
-                    .mapToInt(FacturaEntity::getCantidad)
-                    .sum();
-            int importeTotalCompras = facturasAño.stream()
-                    .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                    .sum();
-
-            // Compras por mes
-            Map<String, Map<String, Integer>> comprasPorMes = new HashMap<>();
-            for (int mes = 1; mes <= 12; mes++) {
-                final int mesFinal = mes;
-                List<FacturaEntity> facturasMes = facturasAño.stream()
-                        .filter(f -> f.getFechaEmision().getMonthValue() == mesFinal)
-                        .collect(Collectors.toList());
-
-                Map<String, Integer> datosMes = new HashMap<>();
-                datosMes.put("cantidad", facturasMes.stream().mapToInt(FacturaEntity::getCantidad).sum());
-                datosMes.put("importe", facturasMes.stream()
-                        .mapToInt(FacturaEntity::getImporteTotalCentimos)
-                        .sum());
-
-                comprasPorMes.put(String.valueOf(mes), datosMes);
+            // Resúmenes mensuales del comprador
+            List<VentaResumenEntity> resumenesMes = ventaResumenRepository.findByAmbitoAndIdAmbitoAndAñoAndDia(
+                    EAmbitoVenta.COMPRADOR, userId, year, 0);
+
+            AgregadorVentas agregador = new AgregadorVentas(false);
+            for (VentaResumenEntity resumen : resumenesMes) {
+                agregador.acumular(resumen);
             }
 
             // Construir el objeto de respuesta
-            stats.put("totalCompras", totalCompras);
-            stats.put("importeTotalCompras", importeTotalCompras);
-            stats.put("comprasPorMes", comprasPorMes);
+            stats.put("totalCompras", (int) agregador.getTotalUnidades());
+            stats.put("importeTotalCompras", (int) agregador.getTotalImporte());
+            stats.put("comprasPorMes", ventasPorMes(agregador, true));
 
         } catch (Exception e) {
             throw new RuntimeException("Error al obtener estadísticas de compras del usuario: " + e.getMessage());
@@ -414,4 +261,48 @@ public class VentasDashboardServiceImpl implements VentasDashboardService {
 
         return stats;
     }
+
+    /**
+     * Construye el mapa de los doce meses con la cantidad y el importe
+     * acumulados.
+     * 
+     * @param agregador Agregador con los resúmenes mensuales.
+     * @param unidades  true para contar unidades, false para contar facturas.
+     * @return Mapa con una entrada por mes.
+     */
+    private Map<String, Map<String, Integer>> ventasPorMes(AgregadorVentas agregador, boolean unidades) {
+        Map<String, Map<String, Integer>> meses = new HashMap<>();
+        for (int mes = 1; mes <= 12; mes++) {
+            Map<String, Integer> datosMes = new HashMap<>();
+            datosMes.put("cantidad", (int) (unidades ? agregador.getUnidadesMes(mes) : agregador.getFacturasMes(mes)));
+            datosMes.put("importe", (int) agregador.getImporteMes(mes));
+            meses.put(String.valueOf(mes), datosMes);
+        }
+        return meses;
+    }
+
+    /**
+     * Obtiene los 5 productos con más unidades vendidas a partir de los grupos
+     * del agregador.
+     * 
+     * @param agregador Agregador con los resúmenes anuales de producto.
+     * @param monedaEur Indica si se informa la moneda EUR en cada producto.
+     * @return Lista de productos más vendidos.
+     */
+    private List<Map<String, Object>> productosTopVentas(AgregadorVentas agregador, boolean monedaEur) {
+        int[] top = agregador.topGrupos(5);
+        List<Map<String, Object>> productos = new ArrayList<>(top.length);
+        for (int grupo : top) {
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("id", agregador.getClave(grupo));
+            datos.put("titulo", agregador.getTituloGrupo(grupo));
+            datos.put("cantidadVentas", (int) agregador.getUnidadesGrupo(grupo));
+            datos.put("importeTotal", (int) agregador.getImporteGrupo(grupo));
+            if (monedaEur) {
+                datos.put("moneda", TARGET_CURRENCY);
+            }
+            productos.add(datos);
+        }
+        return productos;
+    }
 }
@@ -0,0 +1,348 @@
+package com.arsansys.RemaPartners.services.ventas;
+
+import java.time.LocalDateTime;
+
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+
+/**
+ * Motor de agregación de ventas para el dashboard.
+ * <p>
+ * Recorre una sola vez los resúmenes de ventas y acumula en arrays primitivos:
+ * doce cubos mensuales, treinta y un cubos diarios y una tabla de grupos (por
+ * producto o por periodo) con direccionamiento abierto. Acumular una fila no
+ * crea objetos; los mapas de respuesta se construyen al final, una vez por
+ * entrada. No es thread-safe: se crea una instancia por petición.
+ */
+public class AgregadorVentas {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private final boolean importeEur;
+
+    // Totales
+    private long totalFacturas;
+    private long totalUnidades;
+    private long totalImporte;
+
+    // Cubos por mes (índice = mes - 1)
+    private final long[] facturasMes = new long[12];
+    private final long[] unidadesMes = new long[12];
+    private final long[] importeMes = new long[12];
+
+    // Cubos por día (índice = día - 1)
+    private final long[] facturasDia = new long[31];
+    private final long[] unidadesDia = new long[31];
+    private final long[] importeDia = new long[31];
+    private int diasConVentas;
+
+    // Tabla de grupos con direccionamiento abierto (sondeo lineal)
+    private String[] claves = new String[CAPACIDAD_INICIAL];
+    private long[] unidadesGrupo = new long[CAPACIDAD_INICIAL];
+    private long[] importeGrupo = new long[CAPACIDAD_INICIAL];
+    private int[] añoGrupo = new int[CAPACIDAD_INICIAL];
+    private int[] mesGrupo = new int[CAPACIDAD_INICIAL];
+    private String[] tituloGrupo = new String[CAPACIDAD_INICIAL];
+    private LocalDateTime[] ultimaFechaGrupo = new LocalDateTime[CAPACIDAD_INICIAL];
+
+    // Posiciones ocupadas en orden de inserción
+    private int[] orden = new int[CAPACIDAD_INICIAL];
+    private int[] posicionInsercion = new int[CAPACIDAD_INICIAL];
+    private int numeroGrupos;
+
+    /**
+     * Crea un agregador.
+     *
+     * @param importeEur true para acumular el importe en EUR de los resúmenes,
+     *                   false para el importe en su moneda.
+     */
+    public AgregadorVentas(boolean importeEur) {
+        this.importeEur = importeEur;
+    }
+
+    /**
+     * Acumula un resumen de periodo en los totales y en su cubo mensual o
+     * diario.
+     *
+     * @param resumen Resumen mensual ({@code dia = 0}) o diario.
+     */
+    public void acumular(VentaResumenEntity resumen) {
+        long importe = importe(resumen);
+
+        totalFacturas += resumen.getCantidadFacturas();
+        totalUnidades += resumen.getCantidadUnidades();
+        totalImporte += importe;
+
+        if (resumen.getDia() > 0) {
+            int i = resumen.getDia() - 1;
+            facturasDia[i] += resumen.getCantidadFacturas();
+            unidadesDia[i] += resumen.getCantidadUnidades();
+            importeDia[i] += importe;
+            diasConVentas |= 1 << i;
+        } else if (resumen.getMes() > 0) {
+            int i = resumen.getMes() - 1;
+            facturasMes[i] += resumen.getCantidadFacturas();
+            unidadesMes[i] += resumen.getCantidadUnidades();
+            importeMes[i] += importe;
+        }
+    }
+
+    /**
+     * Acumula un resumen en un grupo de la tabla. El título y la fecha del grupo
+     * se toman del resumen con la venta más reciente.
+     *
+     * @param clave   Clave del grupo (por ejemplo, el ID del producto).
+     * @param resumen Resumen a acumular.
+     */
+    public void acumularGrupo(String clave, VentaResumenEntity resumen) {
+        int slot = slot(clave);
+
+        unidadesGrupo[slot] += resumen.getCantidadUnidades();
+        importeGrupo[slot] += importe(resumen);
+
+        LocalDateTime fecha = resumen.getUltimaFechaEmision();
+        if (ultimaFechaGrupo[slot] == null || (fecha != null && fecha.isAfter(ultimaFechaGrupo[slot]))) {
+            ultimaFechaGrupo[slot] = fecha;
+            tituloGrupo[slot] = resumen.getTituloProducto();
+            añoGrupo[slot] = resumen.getAño();
+            mesGrupo[slot] = resumen.getMes();
+        }
+    }
+
+    /**
+     * Obtiene los grupos con más unidades vendidas usando un montículo mínimo
+     * acotado a {@code k} elementos. A igualdad de unidades se mantiene el orden
+     * de inserción.
+     *
+     * @param k Número máximo de grupos.
+     * @return Posiciones de los grupos ordenadas de más a menos unidades.
+     */
+    public int[] topGrupos(int k) {
+        int tamaño = Math.min(k, numeroGrupos);
+        int[] heap = new int[tamaño];
+        int n = 0;
+
+        for (int i = 0; i < numeroGrupos; i++) {
+            int slot = orden[i];
+            if (n < tamaño) {
+                heap[n] = slot;
+                subir(heap, n++);
+            } else if (tamaño > 0 && antes(slot, heap[0])) {
+                heap[0] = slot;
+                bajar(heap, 0, n);
+            }
+        }
+
+        // Extraer el mínimo sucesivamente deja el array en orden descendente
+        for (int fin = n - 1; fin > 0; fin--) {
+            int mínimo = heap[0];
+            heap[0] = heap[fin];
+            heap[fin] = mínimo;
+            bajar(heap, 0, fin);
+        }
+        return heap;
+    }
+
+    public long getTotalFacturas() {
+        return totalFacturas;
+    }
+
+    public long getTotalUnidades() {
+        return totalUnidades;
+    }
+
+    public long getTotalImporte() {
+        return totalImporte;
+    }
+
+    public long getFacturasMes(int mes) {
+        return facturasMes[mes - 1];
+    }
+
+    public long getUnidadesMes(int mes) {
+        return unidadesMes[mes - 1];
+    }
+
+    public long getImporteMes(int mes) {
+        return importeMes[mes - 1];
+    }
+
+    public boolean tieneVentasDia(int dia) {
+        return (diasConVentas & (1 << (dia - 1))) != 0;
+    }
+
+    public long getUnidadesDia(int dia) {
+        return unidadesDia[dia - 1];
+    }
+
+    public long getFacturasDia(int dia) {
+        return facturasDia[dia - 1];
+    }
+
+    public long getImporteDia(int dia) {
+        return importeDia[dia - 1];
+    }
+
+    public int getNumeroGrupos() {
+        return numeroGrupos;
+    }
+
+    /**
+     * Obtiene la posición del i-ésimo grupo en orden de inserción.
+     *
+     * @param i Índice de inserción.
+     * @return Posición del grupo en la tabla.
+     */
+    public int getGrupo(int i) {
+        return orden[i];
+    }
+
+    public String getClave(int slot) {
+        return claves[slot];
+    }
+
+    public long getUnidadesGrupo(int slot) {
+        return unidadesGrupo[slot];
+    }
+
+    public long getImporteGrupo(int slot) {
+        return importeGrupo[slot];
+    }
+
+    public int getAñoGrupo(int slot) {
+        return añoGrupo[slot];
+    }
+
+    public int getMesGrupo(int slot) {
+        return mesGrupo[slot];
+    }
+
+    public String getTituloGrupo(int slot) {
+        return tituloGrupo[slot];
+    }
+
+    public LocalDateTime getUltimaFechaGrupo(int slot) {
+        return ultimaFechaGrupo[slot];
+    }
+
+    private long importe(VentaResumenEntity resumen) {
+        return importeEur ? resumen.getImporteEurCentimos() : resumen.getImporteCentimos();
+    }
+
+    /**
+     * Busca la posición de una clave en la tabla, insertándola si no existe.
+     */
+    private int slot(String clave) {
+        if ((numeroGrupos + 1) * 2 > claves.length) {
+            redimensionar();
+        }
+
+        int mascara = claves.length - 1;
+        int slot = dispersar(clave.hashCode()) & mascara;
+        while (claves[slot] != null) {
+            if (claves[slot].equals(clave)) {
+                return slot;
+            }
+            slot = (slot + 1) & mascara;
+        }
+
+        claves[slot] = clave;
+        posicionInsercion[slot] = numeroGrupos;
+        orden[numeroGrupos++] = slot;
+        return slot;
+    }
+
+    /**
+     * Duplica la capacidad de la tabla y recoloca los grupos existentes.
+     */
+    private void redimensionar() {
+        int capacidad = claves.length * 2;
+        int mascara = capacidad - 1;
+
+        String[] nuevasClaves = new String[capacidad];
+        long[] nuevasUnidades = new long[capacidad];
+        long[] nuevosImportes = new long[capacidad];
+        int[] nuevosAños = new int[capacidad];
+        int[] nuevosMeses = new int[capacidad];
+        String[] nuevosTitulos = new String[capacidad];
+        LocalDateTime[] nuevasFechas = new LocalDateTime[capacidad];
+        int[] nuevoOrden = new int[capacidad];
+        int[] nuevasPosiciones = new int[capacidad];
+
+        for (int i = 0; i < numeroGrupos; i++) {
+            int anterior = orden[i];
+            int slot = dispersar(claves[anterior].hashCode()) & mascara;
+            while (nuevasClaves[slot] != null) {
+                slot = (slot + 1) & mascara;
+            }
+
+            nuevasClaves[slot] = claves[anterior];
+            nuevasUnidades[slot] = unidadesGrupo[anterior];
+            nuevosImportes[slot] = importeGrupo[anterior];
+            nuevosAños[slot] = añoGrupo[anterior];
+            nuevosMeses[slot] = mesGrupo[anterior];
+            nuevosTitulos[slot] = tituloGrupo[anterior];
+            nuevasFechas[slot] = ultimaFechaGrupo[anterior];
+            nuevasPosiciones[slot] = i;
+            nuevoOrden[i] = slot;
+        }
+
+        claves = nuevasClaves;
+        unidadesGrupo = nuevasUnidades;
+        importeGrupo = nuevosImportes;
+        añoGrupo = nuevosAños;
+        mesGrupo = nuevosMeses;
+        tituloGrupo = nuevosTitulos;
+        ultimaFechaGrupo = nuevasFechas;
+        orden = nuevoOrden;
+        posicionInsercion = nuevasPosiciones;
+    }
+
+    private static int dispersar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Indica si el grupo {@code a} va antes que {@code b} en el ranking: más
+     * unidades o, a igualdad, insertado antes.
+     */
+    private boolean antes(int a, int b) {
+        if (unidadesGrupo[a] != unidadesGrupo[b]) {
+            return unidadesGrupo[a] > unidadesGrupo[b];
+        }
+        return posicionInsercion[a] < posicionInsercion[b];
+    }
+
+    // Montículo mínimo: en la raíz queda el grupo con peor posición del ranking
+    private void subir(int[] heap, int i) {
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (!antes(heap[padre], heap[i])) {
+                break;
+            }
+            intercambiar(heap, i, padre);
+            i = padre;
+        }
+    }
+
+    private void bajar(int[] heap, int i, int n) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            if (izquierdo >= n) {
+                break;
+            }
+            int derecho = izquierdo + 1;
+            int peor = derecho < n && antes(heap[izquierdo], heap[derecho]) ? derecho : izquierdo;
+            if (!antes(heap[i], heap[peor])) {
+                break;
+            }
+            intercambiar(heap, i, peor);
+            i = peor;
+        }
+    }
+
+    private static void intercambiar(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
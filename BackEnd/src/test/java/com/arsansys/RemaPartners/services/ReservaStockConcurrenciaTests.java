@@ -0,0 +1,113 @@
+package com.arsansys.RemaPartners.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.arsansys.RemaPartners.models.entities.FacturaEntity;
+import com.arsansys.RemaPartners.models.entities.ProductoEntity;
+import com.arsansys.RemaPartners.models.enums.EMoneda;
+import com.arsansys.RemaPartners.repositories.FacturaRepository;
+import com.arsansys.RemaPartners.repositories.ProductoRepository;
+
+/**
+ * Comprueba que las ventas simultáneas de un mismo producto nunca venden más
+ * unidades de las que hay en stock. Usa el perfil {@code test}, con su propia
+ * base de datos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaStockConcurrenciaTests {
+
+	private static final int STOCK_INICIAL = 50;
+	private static final int PETICIONES = 400;
+	private static final int HILOS = 32;
+
+	@Autowired
+	private FacturaService facturaService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private FacturaRepository facturaRepository;
+
+	@Autowired
+	private VentaResumenService ventaResumenService;
+
+	private String idProducto;
+
+	private final List<String> idsFacturas = new ArrayList<>();
+
+	@AfterEach
+	void limpiar() {
+		facturaRepository.deleteAllById(idsFacturas);
+		if (idProducto != null) {
+			productoRepository.deleteById(idProducto);
+		}
+		// Descarta los resúmenes acumulados por las facturas de la prueba
+		ventaResumenService.reconstruirResumenes();
+	}
+
+	@Test
+	void ventasConcurrentesNoSuperanElStock() throws Exception {
+		ProductoEntity producto = productoRepository.save(ProductoEntity.builder()
+				.idUsuario("test-vendedor")
+				.titulo("Producto de prueba de stock " + System.nanoTime())
+				.precioCentimos(1000)
+				.moneda(EMoneda.EUR)
+				.stock(STOCK_INICIAL)
+				.activo(true)
+				.build());
+		idProducto = producto.getId();
+
+		AtomicInteger vendidas = new AtomicInteger();
+		AtomicInteger rechazadas = new AtomicInteger();
+		CountDownLatch salida = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		List<Future<FacturaEntity>> ventas = new ArrayList<>();
+		for (int i = 0; i < PETICIONES; i++) {
+			String idComprador = "test-comprador-" + i;
+			ventas.add(executor.submit(() -> {
+				salida.await();
+				try {
+					FacturaEntity factura = facturaService.createFacturaFromSale(idProducto, idComprador,
+							"test-vendedor", 1, "test-chat");
+					vendidas.incrementAndGet();
+					return factura;
+				} catch (IllegalStateException e) {
+					rechazadas.incrementAndGet();
+					return null;
+				}
+			}));
+		}
+
+		salida.countDown();
+		for (Future<FacturaEntity> venta : ventas) {
+			FacturaEntity factura = venta.get(60, TimeUnit.SECONDS);
+			if (factura != null) {
+				idsFacturas.add(factura.getId());
+			}
+		}
+		executor.shutdown();
+
+		assertEquals(STOCK_INICIAL, vendidas.get());
+		assertEquals(PETICIONES - STOCK_INICIAL, rechazadas.get());
+		assertEquals(0, productoRepository.findById(idProducto).orElseThrow().getStock());
+		assertEquals(STOCK_INICIAL, idsFacturas.size());
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.arsansys.RemaPartners.services.ventas;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.arsansys.RemaPartners.models.entities.VentaResumenEntity;
+
+/**
+ * Comprueba los cubos, la tabla de grupos y el ranking del agregador de
+ * ventas.
+ */
+class AgregadorVentasTests {
+
+	@Test
+	void acumulaTotalesYCubosMensualesYDiarios() {
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		agregador.acumular(resumen(3, 0, 2, 5, 1000, 900));
+		agregador.acumular(resumen(3, 0, 1, 1, 500, 450));
+		agregador.acumular(resumen(12, 0, 4, 4, 200, 180));
+		agregador.acumular(resumen(3, 1, 1, 2, 300, 270));
+		agregador.acumular(resumen(3, 31, 2, 3, 700, 630));
+
+		assertEquals(10, agregador.getTotalFacturas());
+		assertEquals(15, agregador.getTotalUnidades());
+		assertEquals(2700, agregador.getTotalImporte());
+
+		assertEquals(3, agregador.getFacturasMes(3));
+		assertEquals(6, agregador.getUnidadesMes(3));
+		assertEquals(1500, agregador.getImporteMes(3));
+		assertEquals(4, agregador.getFacturasMes(12));
+		assertEquals(0, agregador.getFacturasMes(1));
+
+		assertTrue(agregador.tieneVentasDia(1));
+		assertTrue(agregador.tieneVentasDia(31));
+		assertFalse(agregador.tieneVentasDia(15));
+		assertEquals(3, agregador.getUnidadesDia(31));
+		assertEquals(700, agregador.getImporteDia(31));
+	}
+
+	@Test
+	void acumulaElImporteEnEurSiSeIndica() {
+		AgregadorVentas agregador = new AgregadorVentas(true);
+		agregador.acumular(resumen(5, 0, 1, 1, 1000, 900));
+		agregador.acumularGrupo("p1", resumen(5, 0, 1, 1, 1000, 900));
+
+		assertEquals(900, agregador.getTotalImporte());
+		assertEquals(900, agregador.getImporteMes(5));
+		assertEquals(900, agregador.getImporteGrupo(agregador.getGrupo(0)));
+	}
+
+	@Test
+	void conservaLosGruposAlCrecerLaTabla() {
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		int grupos = 1000;
+		for (int vuelta = 0; vuelta < 2; vuelta++) {
+			for (int i = 0; i < grupos; i++) {
+				agregador.acumularGrupo("producto-" + i, resumen(1, 0, 1, i, i * 10L, 0));
+			}
+		}
+
+		assertEquals(grupos, agregador.getNumeroGrupos());
+		for (int i = 0; i < grupos; i++) {
+			int slot = agregador.getGrupo(i);
+			assertEquals("producto-" + i, agregador.getClave(slot));
+			assertEquals(2L * i, agregador.getUnidadesGrupo(slot));
+			assertEquals(20L * i, agregador.getImporteGrupo(slot));
+		}
+	}
+
+	@Test
+	void tomaElTituloDelResumenMasReciente() {
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		LocalDateTime fecha = LocalDateTime.of(2024, 3, 10, 12, 0);
+		agregador.acumularGrupo("p1", grupo(1, "Antiguo", 2024, 3, fecha));
+		agregador.acumularGrupo("p1", grupo(1, "Nuevo", 2024, 4, fecha.plusDays(1)));
+		agregador.acumularGrupo("p1", grupo(1, "Anterior", 2024, 2, fecha.minusDays(1)));
+
+		int slot = agregador.getGrupo(0);
+		assertEquals("Nuevo", agregador.getTituloGrupo(slot));
+		assertEquals(4, agregador.getMesGrupo(slot));
+		assertEquals(fecha.plusDays(1), agregador.getUltimaFechaGrupo(slot));
+		assertEquals(3, agregador.getUnidadesGrupo(slot));
+	}
+
+	@Test
+	void ordenaElRankingPorUnidadesYDesempataPorInsercion() {
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		String[] claves = { "a", "b", "c", "d", "e", "f" };
+		long[] unidades = { 5, 9, 5, 9, 1, 7 };
+		for (int i = 0; i < claves.length; i++) {
+			agregador.acumularGrupo(claves[i], resumen(1, 0, 1, unidades[i], 0, 0));
+		}
+
+		assertArrayEquals(new String[] { "b", "d", "f", "a" }, claves(agregador, agregador.topGrupos(4)));
+		assertArrayEquals(new String[] { "b", "d", "f", "a", "c", "e" }, claves(agregador, agregador.topGrupos(10)));
+		assertArrayEquals(new String[] { "b" }, claves(agregador, agregador.topGrupos(1)));
+		assertEquals(0, agregador.topGrupos(0).length);
+	}
+
+	@Test
+	void elRankingCoincideConUnaOrdenacionCompleta() {
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		int grupos = 500;
+		for (int i = 0; i < grupos; i++) {
+			// Muchos empates: solo hay 17 valores distintos de unidades
+			agregador.acumularGrupo("p" + i, resumen(1, 0, 1, (i * 7) % 17, 0, 0));
+		}
+
+		List<Integer> esperado = new ArrayList<>();
+		for (int i = 0; i < grupos; i++) {
+			esperado.add(i);
+		}
+		// Unidades de mayor a menor y, a igualdad, por orden de inserción
+		esperado.sort(Comparator.comparingInt((Integer i) -> (i * 7) % 17).reversed()
+				.thenComparingInt(i -> i));
+
+		int[] top = agregador.topGrupos(50);
+		assertEquals(50, top.length);
+		for (int i = 0; i < top.length; i++) {
+			assertEquals("p" + esperado.get(i), agregador.getClave(top[i]));
+		}
+	}
+
+	@Test
+	void acumularEnGruposExistentesNoReservaMemoria() {
+		java.lang.management.ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) mxBean;
+		assumeTrue(hilos.isThreadAllocatedMemorySupported() && hilos.isThreadAllocatedMemoryEnabled());
+
+		AgregadorVentas agregador = new AgregadorVentas(false);
+		List<VentaResumenEntity> filas = new ArrayList<>();
+		String[] claves = new String[100];
+		for (int i = 0; i < claves.length; i++) {
+			claves[i] = "producto-" + i;
+			filas.add(resumen(1 + i % 12, i % 29, 1, 1, 100, 90));
+		}
+		for (int i = 0; i < claves.length; i++) {
+			agregador.acumular(filas.get(i));
+			agregador.acumularGrupo(claves[i], filas.get(i));
+		}
+
+		long hilo = Thread.currentThread().threadId();
+		long antes = hilos.getThreadAllocatedBytes(hilo);
+		for (int vuelta = 0; vuelta < 1000; vuelta++) {
+			for (int i = 0; i < claves.length; i++) {
+				agregador.acumular(filas.get(i));
+				agregador.acumularGrupo(claves[i], filas.get(i));
+			}
+		}
+		long reservados = hilos.getThreadAllocatedBytes(hilo) - antes;
+
+		// 200.000 acumulaciones; el margen cubre la propia medición
+		assertTrue(reservados < 4096, "Allocated " + reservados + " bytes");
+	}
+
+	private static VentaResumenEntity resumen(int mes, int dia, long facturas, long unidades, long importe,
+			long importeEur) {
+		return VentaResumenEntity.builder()
+				.año(2024)
+				.mes(mes)
+				.dia(dia)
+				.cantidadFacturas(facturas)
+				.cantidadUnidades(unidades)
+				.importeCentimos(importe)
+				.importeEurCentimos(importeEur)
+				.build();
+	}
+
+	private static VentaResumenEntity grupo(long unidades, String titulo, int año, int mes, LocalDateTime fecha) {
+		return VentaResumenEntity.builder()
+				.año(año)
+				.mes(mes)
+				.cantidadUnidades(unidades)
+				.tituloProducto(titulo)
+				.ultimaFechaEmision(fecha)
+				.build();
+	}
+
+	private static String[] claves(AgregadorVentas agregador, int[] slots) {
+		String[] claves = new String[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			claves[i] = agregador.getClave(slots[i]);
+		}
+		return claves;
+	}
+}
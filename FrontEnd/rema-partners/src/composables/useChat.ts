@@ -138,7 +138,7 @@ export function useChat() {
      * @param {string} chatId - ID del chat.
      * @param {string} idEmisor - ID del usuario emisor.
      * @param {string} mensaje - Texto del mensaje.
-     * @returns {Promise<any>} Chat actualizado.
+     * @returns {Promise<ChatEntity>} Resumen del chat con el mensaje añadido en `ultimoMensaje`.
      * @throws Error si ocurre un problema al añadir.
      */
     const addMessage = async (chatId: string, idEmisor: string, mensaje: string) => {
@@ -153,8 +153,8 @@ export function useChat() {
             };
 
             const response = await chatService.addMessage(chatId, mensajeEntity);
-            currentChat.value = response.data;
-            return response.data;
+            // La respuesta solo trae el resumen del chat; el historial lo mantiene quien lo muestra
+            return response.data as ChatEntity;
         } catch (err: any) {
             console.error("Error añadiendo mensaje al chat:", err);
             error.value = err.response?.data?.message || "Error añadiendo mensaje al chat";
@@ -165,6 +165,28 @@ export function useChat() {
         }
     };
 
+    /**
+     * Obtiene los mensajes de un chat posteriores a uno ya recibido. El servidor
+     * solo devuelve mensajes consecutivos, así que el cursor es la secuencia desde
+     * la que pedir los siguientes.
+     * @param {string} chatId - ID del chat.
+     * @param {number} desde - Secuencia del último mensaje consecutivo recibido.
+     * @returns {Promise<{ mensajes: MensajeEntity[]; cursor: number }>} Mensajes nuevos
+     * (vacío si no hay) y cursor para la siguiente consulta.
+     * @throws Error si ocurre un problema al obtenerlos.
+     */
+    const getNewMessages = async (chatId: string, desde: number): Promise<{ mensajes: MensajeEntity[]; cursor: number }> => {
+        try {
+            error.value = null;
+            const response = await chatService.getMensajes(chatId, { desde });
+            return { mensajes: response.data.elementos, cursor: Number(response.data.siguienteCursor) };
+        } catch (err: any) {
+            console.error("Error obteniendo mensajes nuevos del chat:", err);
+            error.value = err.response?.data?.message || "Error obteniendo mensajes nuevos del chat";
+            throw err;
+        }
+    };
+
     /**
      * Elimina un chat existente por su ID.
      * @param {string} chatId - ID del chat.
@@ -259,6 +281,7 @@ export function useChat() {
         getChatsBySellerId,
         getChatByParticipants,
         addMessage,
+        getNewMessages,
         deleteChat,
         getUserNameById,
         getChatPartnerName
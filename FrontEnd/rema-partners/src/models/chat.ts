@@ -1,5 +1,6 @@
 export interface MensajeEntity {
     id?: string;
+    secuencia?: number;
     idEmisor: string;
     fecha?: string;
     mensaje: string;
@@ -11,7 +12,9 @@ export interface ChatEntity {
     idProducto: string;
     idComprador: string;
     idVendedor: string;
-    mensajes: MensajeEntity[];
+    mensajes?: MensajeEntity[];
+    ultimoMensaje?: MensajeEntity;
+    numeroMensajes?: number;
     fechaCreacion: string;
     ultimaActualizacion?: string;
     activo: boolean;
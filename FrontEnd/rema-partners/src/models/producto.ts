@@ -22,6 +22,7 @@ export interface Producto {
     activo: boolean;
     destacado: boolean;
     camposCategoria: CamposCategoria[];
+    version?: number;
 }
 
 export interface ProductoModify {
@@ -44,4 +45,5 @@ export interface ProductoModify {
     activo: boolean;
     destacado: boolean;
     camposCategoria: CamposCategoria[];
+    version?: number;
 }
\ No newline at end of file
@@ -49,25 +49,46 @@ export const chatService = {
      * @returns {Promise} Promesa con los datos del chat.
      */
     async getChatByParticipants(idProducto: string, idComprador: string, idVendedor: string) {
-        try {
-            // First, try to find an existing chat
-            const response = await axios.get(
-                `${CHAT_API_URL}/getByParticipants/${idProducto}/${idComprador}/${idVendedor}`
-            );
-            return response;
-        } catch (error) {
-            // If chat doesn't exist, create a new one
-            const newChat: ChatEntity = {
-                idProducto,
-                idComprador,
-                idVendedor,
-                mensajes: [],
-                fechaCreacion: new Date().toISOString(),
-                ultimaActualizacion: new Date().toISOString(),
-                activo: true
-            };
-            return axios.post(`${CHAT_API_URL}/create`, newChat);
+        // El servidor devuelve el chat existente o lo crea en una sola operación
+        const newChat: ChatEntity = {
+            idProducto,
+            idComprador,
+            idVendedor,
+            mensajes: [],
+            fechaCreacion: new Date().toISOString(),
+            ultimaActualizacion: new Date().toISOString(),
+            activo: true
+        };
+        return axios.post(`${CHAT_API_URL}/create`, newChat);
+    },
+
+    /**
+     * Obtiene una página del historial de mensajes de un chat.
+     * Sin parámetros devuelve los últimos mensajes; con `antesDe` los anteriores
+     * a esa secuencia y con `desde` solo los posteriores.
+     * @param {string} chatId - ID del chat.
+     * @param {object} params - Cursores `antesDe` o `desde` y `limite` opcional.
+     * @returns {Promise} Promesa con la página de mensajes.
+     */
+    async getMensajes(chatId: string, params: { antesDe?: number; desde?: number; limite?: number } = {}) {
+        return axios.get(`${CHAT_API_URL}/${chatId}/mensajes`, { params });
+    },
+
+    /**
+     * Abre una conexión de eventos con un chat para recibir sus mensajes nuevos.
+     * EventSource no permite cabeceras, así que antes se pide un ticket de un solo
+     * uso que va como parámetro en lugar del token.
+     * @param {string} chatId - ID del chat.
+     * @param {number} desde - Secuencia del último mensaje que ya se tiene (opcional).
+     * @returns {Promise<EventSource>} Conexión de eventos; emite eventos `mensaje`.
+     */
+    async openStream(chatId: string, desde?: number) {
+        const response = await axios.post(`${CHAT_API_URL}/${chatId}/stream/ticket`);
+        const params = new URLSearchParams({ ticket: response.data.ticket });
+        if (desde !== undefined) {
+            params.set('desde', String(desde));
         }
+        return new EventSource(`${CHAT_API_URL}/${chatId}/stream?${params}`);
     },
 
     /**
@@ -278,6 +278,7 @@ export const useutf8Store = defineStore('utf8', {
           'producto.edit.successMessage': 'Your product has been updated successfully.',
           'producto.edit.error': 'Update Error',
           'producto.edit.errorMessage': 'There was an error updating your product. Please try again.',
+          'producto.edit.conflictMessage': 'The product was modified in the meantime. Reload it and apply your changes again.',
           'producto.edit.loadError': 'Load Error',
           'producto.edit.loadErrorMessage': 'There was an error loading the product data. Please try again.',
           'common.update': 'Update',
@@ -1015,6 +1016,7 @@ export const useutf8Store = defineStore('utf8', {
           'producto.edit.successMessage': 'Tu producto ha sido actualizado exitosamente.',
           'producto.edit.error': 'Error de Actualización',
           'producto.edit.errorMessage': 'Hubo un error al actualizar tu producto. Por favor, intenta nuevamente.',
+          'producto.edit.conflictMessage': 'El producto se ha modificado mientras lo editabas. Vuelve a cargarlo y aplica tus cambios de nuevo.',
           'producto.edit.loadError': 'Error de Carga',
           'producto.edit.loadErrorMessage': 'Hubo un error al cargar los datos del producto. Por favor, intenta nuevamente.',
           'common.update': 'Actualizar',
@@ -1309,6 +1311,7 @@ export const useutf8Store = defineStore('utf8', {
           'producto.edit.successMessage': 'El teu producte s\'ha actualitzat correctament.',
           'producto.edit.error': 'Error d\'Actualització',
           'producto.edit.errorMessage': 'Hi ha hagut un error en actualitzar el teu producte. Si us plau, torna-ho a provar.',
+          'producto.edit.conflictMessage': 'El producte s\'ha modificat mentre l\'editaves. Torna a carregar-lo i aplica els canvis de nou.',
           'producto.edit.loadError': 'Error de Càrrega',
           'producto.edit.loadErrorMessage': 'Hi ha hagut un error en carregar les dades del producte. Si us plau, torna-ho a provar.',
           'common.update': 'Actualitzar',